@@ -0,0 +1,158 @@
+package no.sanderolin.boligbot.apitests.admin;
+
+import no.sanderolin.boligbot.apitests.AbstractAPITest;
+import no.sanderolin.boligbot.app.BackendApplication;
+import no.sanderolin.boligbot.dao.model.UserModel;
+import no.sanderolin.boligbot.dao.projection.ImportRun;
+import no.sanderolin.boligbot.dao.repository.ImportRunRepository;
+import no.sanderolin.boligbot.dao.repository.UserRepository;
+import no.sanderolin.boligbot.web.v1.security.JwtUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(
+        classes = BackendApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.MOCK
+)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ImportRunAPITest extends AbstractAPITest {
+
+    private static final Instant START = Instant.parse("2020-03-02T10:00:00Z");
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private UserRepository userRepository;
+    @Autowired private ImportRunRepository importRunRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private JwtUtil jwtUtil;
+    private String adminToken;
+    private String userToken;
+
+    @BeforeEach
+    void setUp() {
+        adminToken = "Bearer " + jwtUtil.generateAccessToken(createUser("admin@example.com", true).getEmail());
+        userToken = "Bearer " + jwtUtil.generateAccessToken(createUser("bob@example.com", false).getEmail());
+
+        insertRun("catalog", 0, 1000, "applied", Map.of("fetch", 100.0, "merge_housing", 40.0), 1000L, null);
+        insertRun("catalog", 60, 2000, "unchanged", Map.of("fetch", 300.0), 3000L, null);
+        insertRun("catalog", 120, 3000, "failed", Map.of(), null, "HousingImportException: Catalog fetch failed after retries");
+        insertRun("catalog", 180, 0, "skipped", Map.of(), null, null);
+        insertRun("availability", 240, 50, "unchanged", Map.of("diff", 0.25), 800L, null);
+        insertRun("catalog", 7200, 9000, "applied", Map.of(), null, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM import_runs");
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void summary_ShouldReturnPercentilesPerKindWithinTheWindow() throws Exception {
+        mockMvc.perform(get("/api/v1/admin/import-runs/summary")
+                        .param("from", START.toString())
+                        .param("to", START.plusSeconds(3600).toString())
+                        .header(HttpHeaders.AUTHORIZATION, adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].kind").value("availability"))
+                .andExpect(jsonPath("$[0].runsByStatus.unchanged").value(1))
+                .andExpect(jsonPath("$[0].phaseMillis.diff.p50").value(0.25))
+                .andExpect(jsonPath("$[1].kind").value("catalog"))
+                .andExpect(jsonPath("$[1].runsByStatus.applied").value(1))
+                .andExpect(jsonPath("$[1].runsByStatus.failed").value(1))
+                .andExpect(jsonPath("$[1].runsByStatus.skipped").value(1))
+                .andExpect(jsonPath("$[1].durationMillis.samples").value(3))
+                .andExpect(jsonPath("$[1].durationMillis.p50").value(2000.0))
+                .andExpect(jsonPath("$[1].durationMillis.p90").value(2800.0))
+                .andExpect(jsonPath("$[1].durationMillis.max").value(3000.0))
+                .andExpect(jsonPath("$[1].phaseMillis.fetch.samples").value(2))
+                .andExpect(jsonPath("$[1].phaseMillis.fetch.p50").value(200.0))
+                .andExpect(jsonPath("$[1].phaseMillis.merge_housing.max").value(40.0))
+                .andExpect(jsonPath("$[1].payloadBytes.p50").value(2000.0));
+    }
+
+    @Test
+    void summary_WithoutRunsInWindow_ShouldReturnEmptyList() throws Exception {
+        mockMvc.perform(get("/api/v1/admin/import-runs/summary")
+                        .param("from", "2019-01-01T00:00:00Z")
+                        .param("to", "2019-01-08T00:00:00Z")
+                        .header(HttpHeaders.AUTHORIZATION, adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    void summary_WithRunsWithoutPayload_ShouldLeavePayloadOut() throws Exception {
+        mockMvc.perform(get("/api/v1/admin/import-runs/summary")
+                        .param("from", START.plusSeconds(7200).toString())
+                        .param("to", START.plusSeconds(7201).toString())
+                        .header(HttpHeaders.AUTHORIZATION, adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].durationMillis.p50").value(9000.0))
+                .andExpect(jsonPath("$[0].payloadBytes").value(nullValue()));
+    }
+
+    @Test
+    void summary_WithFromNotBeforeTo_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/admin/import-runs/summary")
+                        .param("from", START.toString())
+                        .param("to", START.toString())
+                        .header(HttpHeaders.AUTHORIZATION, adminToken))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void summary_AsNonAdmin_ShouldBeForbidden() throws Exception {
+        mockMvc.perform(get("/api/v1/admin/import-runs/summary").header(HttpHeaders.AUTHORIZATION, userToken))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/v1/admin/import-runs/summary"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void signup_WithAdminEmailInAnotherCase_ShouldBeRejected() throws Exception {
+        mockMvc.perform(post("/api/v1/auth/signup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\": \"ADMIN@example.com\", \"password\": \"password123\"}"))
+                .andExpect(status().isBadRequest());
+
+        assertThat(userRepository.findByEmail("ADMIN@example.com")).isEmpty();
+    }
+
+    private void insertRun(String kind, long startOffsetSeconds, long durationMillis, String status,
+                           Map<String, Double> phaseMillis, Long payloadBytes, String error) {
+        Instant startedAt = START.plusSeconds(startOffsetSeconds);
+        importRunRepository.insert(new ImportRun(kind, startedAt, startedAt.plusMillis(durationMillis), status,
+                phaseMillis, Map.of("fetched", 10L), payloadBytes, error));
+    }
+
+    private UserModel createUser(String email, boolean admin) {
+        UserModel user = new UserModel();
+        user.setEmail(email);
+        user.setAdmin(admin);
+        user.setPasswordHash("not-a-real-hash");
+        user.setCreatedAt(Instant.now());
+        user.setLastModifiedAt(Instant.now());
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,117 @@
+package no.sanderolin.boligbot.apitests.cluster;
+
+import no.sanderolin.boligbot.apitests.AbstractAPITest;
+import no.sanderolin.boligbot.app.BackendApplication;
+import no.sanderolin.boligbot.dao.repository.ImportLeaseRepository;
+import no.sanderolin.boligbot.dao.repository.ImportNotificationRepository;
+import no.sanderolin.boligbot.web.compression.PrecompressedResponseCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(
+        classes = BackendApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.MOCK
+)
+@ActiveProfiles("test")
+public class ImportLeaseAPITest extends AbstractAPITest {
+
+    private static final String LEASE = "test-lease";
+    private static final Duration TTL = Duration.ofSeconds(30);
+
+    @Autowired private ImportLeaseRepository importLeaseRepository;
+    @Autowired private ImportNotificationRepository importNotificationRepository;
+    @Autowired private PrecompressedResponseCache precompressedResponseCache;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM import_leases WHERE name = ?", LEASE);
+    }
+
+    @Test
+    void tryAcquire_ShouldElectOneHolderAndKeepItsTokenOnRenewal() {
+        assertThat(importLeaseRepository.tryAcquire(LEASE, "node-a", TTL)).hasValue(1);
+        assertThat(importLeaseRepository.tryAcquire(LEASE, "node-b", TTL)).isEmpty();
+        assertThat(importLeaseRepository.tryAcquire(LEASE, "node-a", TTL)).hasValue(1);
+        assertThat(importLeaseRepository.isHeld(LEASE, "node-a", 1)).isTrue();
+        assertThat(importLeaseRepository.isHeld(LEASE, "node-b", 1)).isFalse();
+    }
+
+    @Test
+    void tryAcquire_AfterExpiry_ShouldHandTheLeaseOverWithANewToken() {
+        importLeaseRepository.tryAcquire(LEASE, "node-a", TTL);
+        expire();
+
+        assertThat(importLeaseRepository.isHeld(LEASE, "node-a", 1)).isFalse();
+        assertThat(importLeaseRepository.tryAcquire(LEASE, "node-b", TTL)).hasValue(2);
+        assertThat(importLeaseRepository.tryAcquire(LEASE, "node-a", TTL)).isEmpty();
+        assertThat(importLeaseRepository.isHeld(LEASE, "node-a", 1)).isFalse();
+    }
+
+    @Test
+    void release_ShouldLetAnotherNodeTakeOverRightAway() {
+        importLeaseRepository.tryAcquire(LEASE, "node-a", TTL);
+
+        importLeaseRepository.release(LEASE, "node-b");
+        assertThat(importLeaseRepository.tryAcquire(LEASE, "node-b", TTL)).isEmpty();
+
+        importLeaseRepository.release(LEASE, "node-a");
+        assertThat(importLeaseRepository.tryAcquire(LEASE, "node-b", TTL)).hasValue(2);
+    }
+
+    @Test
+    void isHeld_InsideATransaction_ShouldKeepTheLeaseFromChangingHandsUntilCommit() throws Exception {
+        importLeaseRepository.tryAcquire(LEASE, "node-a", Duration.ofMillis(500));
+        CompletableFuture<OptionalLong> takeover = new CompletableFuture<>();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertThat(importLeaseRepository.isHeld(LEASE, "node-a", 1)).isTrue();
+            sleep(600);
+            CompletableFuture.runAsync(() -> takeover.complete(importLeaseRepository.tryAcquire(LEASE, "node-b", TTL)));
+            assertThatThrownBy(() -> takeover.get(500, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+        });
+
+        assertThat(takeover.get(5, TimeUnit.SECONDS)).hasValue(2);
+    }
+
+    @Test
+    void notification_FromAnotherNode_ShouldInvalidateLocalCaches() throws Exception {
+        long generation = precompressedResponseCache.currentGeneration();
+
+        importNotificationRepository.send("CATALOG_COMPLETED " + Instant.now() + " another-node");
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (precompressedResponseCache.currentGeneration() == generation && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(precompressedResponseCache.currentGeneration()).isGreaterThan(generation);
+    }
+
+    private void expire() {
+        jdbcTemplate.update("UPDATE import_leases SET expires_at = now() - interval '1 second' WHERE name = ?", LEASE);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package no.sanderolin.boligbot.apitests.compression;
+
+import no.sanderolin.boligbot.apitests.AbstractAPITest;
+import no.sanderolin.boligbot.app.BackendApplication;
+import no.sanderolin.boligbot.dao.event.HousingImportCompletedEvent;
+import no.sanderolin.boligbot.dao.event.HousingImportCompletedEvent.ImportKind;
+import no.sanderolin.boligbot.web.compression.ContentCoding;
+import no.sanderolin.boligbot.web.compression.PrecompressedResponseCache;
+import no.sanderolin.boligbot.web.compression.PrecompressedResponseCache.Entry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(
+        classes = BackendApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+        properties = "boligbot.compression.cache.max-entries=2"
+)
+@ActiveProfiles("test")
+public class PrecompressedResponseCacheAPITest extends AbstractAPITest {
+
+    @Autowired private PrecompressedResponseCache cache;
+
+    @Test
+    void put_WhenFull_ShouldEvictTheLeastRecentlyUsedEntry() {
+        long generation = cache.currentGeneration();
+        cache.put("/a", ContentCoding.GZIP, entry(), generation);
+        cache.put("/b", ContentCoding.GZIP, entry(), generation);
+        assertThat(cache.get("/a", ContentCoding.GZIP)).isNotNull();
+
+        cache.put("/c", ContentCoding.GZIP, entry(), generation);
+
+        assertThat(cache.get("/c", ContentCoding.GZIP)).isNotNull();
+        assertThat(cache.get("/a", ContentCoding.GZIP)).isNotNull();
+        assertThat(cache.get("/b", ContentCoding.GZIP)).isNull();
+    }
+
+    @Test
+    void put_FromAnEarlierGeneration_ShouldNotBeCached() {
+        long generation = cache.currentGeneration();
+        cache.onImportCompleted(new HousingImportCompletedEvent(ImportKind.CATALOG, Instant.now()));
+
+        cache.put("/stale", ContentCoding.GZIP, entry(), generation);
+
+        assertThat(cache.get("/stale", ContentCoding.GZIP)).isNull();
+    }
+
+    private static Entry entry() {
+        return new Entry("application/json", new byte[] {1, 2, 3}, 3);
+    }
+}
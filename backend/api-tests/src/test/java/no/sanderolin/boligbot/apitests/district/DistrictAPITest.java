@@ -71,6 +71,23 @@ public class DistrictAPITest extends AbstractAPITest {
                 ));
     }
 
+    @Test
+    void getDistrictPriceIndex_withUnknownDistrict_shouldReturnNotFound() throws Exception {
+        mockMvc.perform(get("/api/v1/districts/{id}/price-index", -1)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getDistrictPriceIndex_withFromAfterTo_shouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/districts/{id}/price-index", moholt.getId())
+                        .param("from", "2026-02-01")
+                        .param("to", "2026-01-01")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value("from cannot be after to"));
+    }
+
     private CityModel createCityModel(String city) {
         CityModel cityModel = new CityModel();
         cityModel.setName(city);
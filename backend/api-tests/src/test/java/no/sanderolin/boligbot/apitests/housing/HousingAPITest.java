@@ -1,30 +1,52 @@
 package no.sanderolin.boligbot.apitests.housing;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import no.sanderolin.boligbot.apitests.AbstractAPITest;
 import no.sanderolin.boligbot.app.BackendApplication;
+import no.sanderolin.boligbot.dao.event.HousingImportCompletedEvent;
 import no.sanderolin.boligbot.dao.model.CityModel;
 import no.sanderolin.boligbot.dao.model.DistrictModel;
 import no.sanderolin.boligbot.dao.model.HousingModel;
 import no.sanderolin.boligbot.dao.model.HousingTypeModel;
+import no.sanderolin.boligbot.dao.projection.AppliedAvailability;
+import no.sanderolin.boligbot.dao.projection.AvailableHousing;
+import no.sanderolin.boligbot.dao.projection.CatalogMergeResult;
+import no.sanderolin.boligbot.dao.projection.HousingPriceChange;
+import no.sanderolin.boligbot.dao.projection.StagedHousing;
 import no.sanderolin.boligbot.dao.repository.CityRepository;
+import no.sanderolin.boligbot.dao.repository.DistrictPriceDailyRepository;
 import no.sanderolin.boligbot.dao.repository.DistrictRepository;
+import no.sanderolin.boligbot.dao.repository.HousingAvailabilityEventRepository;
+import no.sanderolin.boligbot.dao.repository.HousingCatalogStagingRepository;
 import no.sanderolin.boligbot.dao.repository.HousingRepository;
 import no.sanderolin.boligbot.dao.repository.HousingTypeRepository;
+import no.sanderolin.boligbot.housingimport.dto.HousingDTO;
+import no.sanderolin.boligbot.housingimport.util.HousingContentHash;
+import no.sanderolin.boligbot.service.housing.similar.SimilarHousingIndexHolder;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -42,6 +64,12 @@ public class HousingAPITest extends AbstractAPITest {
     @Autowired private CityRepository cityRepository;
     @Autowired private DistrictRepository districtRepository;
     @Autowired private HousingTypeRepository housingTypeRepository;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+    @Autowired private DistrictPriceDailyRepository districtPriceDailyRepository;
+    @Autowired private HousingAvailabilityEventRepository availabilityEventRepository;
+    @Autowired private HousingCatalogStagingRepository catalogStagingRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private SimilarHousingIndexHolder similarHousingIndexHolder;
     private List<HousingModel> seededHousingModels;
     private static final Instant now = Instant.now();
 
@@ -90,6 +118,8 @@ public class HousingAPITest extends AbstractAPITest {
 
     @AfterEach
     public void tearDown() {
+        jdbcTemplate.update("DELETE FROM housing_price_history");
+        jdbcTemplate.update("DELETE FROM housing_availability_events");
         housingRepository.deleteAll();
         districtRepository.deleteAll();
         cityRepository.deleteAll();
@@ -394,6 +424,275 @@ public class HousingAPITest extends AbstractAPITest {
                 .andExpect(jsonPath("$.hasNext").value(false));
     }
 
+    @Test
+    void testSearchHousings_WithFields_ReturnsOnlySelectedFields() throws Exception {
+        mockMvc.perform(get("/api/v1/housings")
+                        .param("city", "Trondheim")
+                        .param("fields", "rentalObjectId,pricePerMonth")
+                        .param("sortBy", "pricePerMonth")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(3)))
+                .andExpect(jsonPath("$.items[0].*", hasSize(2)))
+                .andExpect(jsonPath("$.items[*].rentalObjectId",
+                        contains(
+                                seededHousingModels.get(4).getRentalObjectId(),
+                                seededHousingModels.get(2).getRentalObjectId(),
+                                seededHousingModels.getFirst().getRentalObjectId())))
+                .andExpect(jsonPath("$.items[0].pricePerMonth").value(5233))
+                .andExpect(jsonPath("$.items[0].city").doesNotExist())
+                .andExpect(jsonPath("$.total").value(3));
+    }
+
+    @Test
+    void testSearchHousings_WithInvalidField_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/housings")
+                        .param("fields", "rentalObjectId,price")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetHousingById_WithFields_ReturnsOnlySelectedFields() throws Exception {
+        mockMvc.perform(get("/api/v1/housings/{id}", "1")
+                        .param("fields", "district,city")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.*", hasSize(2)))
+                .andExpect(jsonPath("$.city").value("Trondheim"))
+                .andExpect(jsonPath("$.district").value("Moholt"));
+    }
+
+    @Test
+    void testSearchHousings_WithCborAccept_ReturnsCbor() throws Exception {
+        byte[] body = mockMvc.perform(get("/api/v1/housings")
+                        .param("rentalObjectId", "3")
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode page = new CBORMapper().readTree(body);
+        assertThat(page.path("total").asLong()).isEqualTo(1);
+        assertThat(page.path("items").get(0).path("rentalObjectId").asText())
+                .isEqualTo(seededHousingModels.get(2).getRentalObjectId());
+    }
+
+    @Test
+    void testSearchHousings_WithAnyAccept_DefaultsToJson() throws Exception {
+        mockMvc.perform(get("/api/v1/housings")
+                        .accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void testGetSimilarHousings_AfterCatalogImport_ReturnsNearestFirst() throws Exception {
+        eventPublisher.publishEvent(new HousingImportCompletedEvent(HousingImportCompletedEvent.ImportKind.CATALOG, now));
+        similarHousingIndexHolder.scheduleRebuild().join();
+
+        mockMvc.perform(get("/api/v1/housings/{id}/similar", "1")
+                        .param("limit", "2")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].rentalObjectId").value("3"))
+                .andExpect(jsonPath("$[*].rentalObjectId", not(hasItem("1"))));
+    }
+
+    @Test
+    void testGetSimilarHousings_NotFound() throws Exception {
+        mockMvc.perform(get("/api/v1/housings/{id}/similar", "nonexistent-id")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testGetSimilarHousings_WithInvalidLimit_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/housings/{id}/similar", "1")
+                        .param("limit", "0")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value("limit must be between 1 and 50"));
+    }
+
+    @Test
+    void testGetHousingPriceHistory_ReturnsChangesOldestFirst() throws Exception {
+        stage(List.of(
+                staged("1", "Name 1", "Address 1", "1-room apartment", "Trondheim", "Moholt", new BigDecimal("19.90"), 7900),
+                staged("3", "Name 3", "Address 3", "1-room apartment", "Trondheim", "Moholt", new BigDecimal("16.00"), 8100)));
+        catalogStagingRepository.merge(Instant.parse("2026-01-15T10:00:00Z"));
+        stage(List.of(
+                staged("1", "Name 1", "Address 1", "1-room apartment", "Trondheim", "Moholt", new BigDecimal("19.90"), 8200)));
+        catalogStagingRepository.merge(Instant.parse("2026-02-01T10:00:00Z"));
+
+        mockMvc.perform(get("/api/v1/housings/{id}/price-history", "1")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[*].pricePerMonth", contains(7900, 8200)))
+                .andExpect(jsonPath("$[0].recordedAt").value("2026-01-15T10:00:00Z"));
+    }
+
+    @Test
+    void testGetHousingPriceHistory_NotFound() throws Exception {
+        mockMvc.perform(get("/api/v1/housings/{id}/price-history", "nonexistent-id")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testGetDistrictPriceIndex_ReturnsDailyRollup() throws Exception {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        districtPriceDailyRepository.refreshDay(today);
+        Long moholtId = seededHousingModels.getFirst().getDistrict().getId();
+
+        mockMvc.perform(get("/api/v1/districts/{id}/price-index", moholtId)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].day").value(today.toString()))
+                .andExpect(jsonPath("$[0].housingCount").value(2))
+                .andExpect(jsonPath("$[0].avgPricePerMonth").value(8100.0))
+                .andExpect(jsonPath("$[0].minPricePerMonth").value(8000))
+                .andExpect(jsonPath("$[0].maxPricePerMonth").value(8200))
+                .andExpect(jsonPath("$[0].index").value(100.0));
+    }
+
+    @Test
+    void testTimeOnMarket_AfterAvailabilityFlips_ReturnsMedianPerDistrictAndType() throws Exception {
+        Instant listedAt = now.minus(10, ChronoUnit.DAYS);
+        assertThat(availabilityEventRepository.applyAvailable(List.of("3", "5"), Collections.nCopies(2, null), listedAt).becameAvailable())
+                .containsExactlyInAnyOrder("3", "5");
+        assertThat(availabilityEventRepository.markUnavailable(List.of("3", "5"), now)).containsExactlyInAnyOrder("3", "5");
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM housing_availability_events", Long.class)).isEqualTo(4);
+
+        mockMvc.perform(get("/api/v1/districts/time-on-market")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[*].name", containsInAnyOrder("Moholt", "Singsaker")))
+                .andExpect(jsonPath("$[*].rentedCount", contains(1, 1)))
+                .andExpect(jsonPath("$[*].medianDaysOnMarket", contains(10, 10)));
+
+        mockMvc.perform(get("/api/v1/housing-types/time-on-market")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name", containsInAnyOrder("1-room apartment", "Dorm in collective")));
+
+        mockMvc.perform(get("/api/v1/housings/{id}", "3")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.isAvailable").value(false));
+    }
+
+    @Test
+    void testApplyAvailable_WritesOnlyChangedRowsInOneStatement() throws Exception {
+        List<String> ids = List.of("1", "2", "3", "5", "missing");
+        List<LocalDate> dates = Arrays.asList(
+                LocalDate.of(2025, 10, 1), LocalDate.of(2025, 12, 1), LocalDate.of(2026, 1, 1), null, LocalDate.of(2026, 1, 1));
+
+        AppliedAvailability applied = availabilityEventRepository.applyAvailable(ids, dates, now);
+        assertThat(applied.becameAvailable()).containsExactlyInAnyOrder("3", "5");
+        assertThat(applied.availableFromDateChanged()).containsExactlyInAnyOrder("2", "3");
+        assertThat(applied.unknown()).containsExactly("missing");
+        assertThat(availabilityEventRepository.markUnavailable(List.of("4"), now)).containsExactly("4");
+
+        AppliedAvailability reapplied = availabilityEventRepository.applyAvailable(ids, dates, now.plusSeconds(60));
+        assertThat(reapplied.becameAvailable()).isEmpty();
+        assertThat(reapplied.availableFromDateChanged()).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM housing_availability_events", Long.class)).isEqualTo(3);
+
+        mockMvc.perform(get("/api/v1/housings/{id}", "3")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.isAvailable").value(true))
+                .andExpect(jsonPath("$.availableFromDate").value("2026-01-01"));
+    }
+
+    @Test
+    void testMarkUnavailable_FlipsOnlyListedAvailableHousings() throws Exception {
+        assertThat(availabilityEventRepository.findAvailable())
+                .extracting(AvailableHousing::rentalObjectId)
+                .containsExactlyInAnyOrder("1", "2", "4");
+
+        assertThat(availabilityEventRepository.markUnavailable(List.of("2", "3", "missing"), now)).containsExactly("2");
+        assertThat(availabilityEventRepository.markUnavailable(List.of("2"), now.plusSeconds(60))).isEmpty();
+
+        assertThat(availabilityEventRepository.findAvailable())
+                .extracting(AvailableHousing::rentalObjectId)
+                .containsExactlyInAnyOrder("1", "4");
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM housing_availability_events", Long.class)).isEqualTo(1);
+
+        mockMvc.perform(get("/api/v1/housings/{id}", "2")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.isAvailable").value(false))
+                .andExpect(jsonPath("$.availableFromDate").doesNotExist());
+    }
+
+    @Test
+    void testCatalogStagingMerge_CountsRowsAndKeepsLastDuplicate() throws Exception {
+        stage(List.of(
+                staged("1", "Name 1", "Address 1", "1-room apartment", "Trondheim", "Moholt", new BigDecimal("19.90"), 8200),
+                staged("2", "Name 2", "Address 2", "2-room apartment", "Gjøvik", "Sentrum", new BigDecimal("36.60"), 9900),
+                staged("3", "Renamed 3", "Address 3", "1-room apartment", "Trondheim", "Moholt", new BigDecimal("16.00"), 8000),
+                staged("6", "Name \"6\", first", "Address 6", "1-room apartment", "Trondheim", "Singsaker", new BigDecimal("20.00"), 7000),
+                staged("6", "Name \"6\", last", "Address 6", "1-room apartment", "Trondheim", "Singsaker", new BigDecimal("20.00"), 7100),
+                staged("7", "Name 7", "Address 7", "1-room apartment", "Trondheim", "Unknown", new BigDecimal("20.00"), 7000)
+        ));
+        Instant importedAt = now.plusSeconds(60);
+        CatalogMergeResult result = catalogStagingRepository.merge(importedAt);
+
+        assertThat(result.created()).isEqualTo(1);
+        assertThat(result.updated()).isEqualTo(2);
+        assertThat(result.unchanged()).isEqualTo(1);
+        assertThat(result.changedPrices()).extracting(HousingPriceChange::rentalObjectId).containsExactly("2");
+        assertThat(jdbcTemplate.queryForList("SELECT rental_object_id FROM housing_price_history ORDER BY 1", String.class))
+                .containsExactly("2", "6");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM housings WHERE last_imported_at = ?", Long.class, Timestamp.from(importedAt)))
+                .isEqualTo(4);
+
+        mockMvc.perform(get("/api/v1/housings/{id}", "6")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Name \"6\", last"))
+                .andExpect(jsonPath("$.pricePerMonth").value(7100));
+        mockMvc.perform(get("/api/v1/housings/{id}", "3")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.name").value("Renamed 3"));
+    }
+
+    @Test
+    void testCatalogStagingMerge_ComparesRowsByContentHash() {
+        List<StagedHousing> feed = List.of(
+                staged("1", "Name 1", "Address 1", "1-room apartment", "Trondheim", "Moholt", new BigDecimal("19.90"), 8200));
+        stage(feed);
+        assertThat(catalogStagingRepository.merge(now.plusSeconds(60)).unchanged()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT encode(content_hash, 'hex') FROM housings WHERE rental_object_id = '1'", String.class))
+                .isEqualTo(feed.getFirst().contentHash());
+
+        jdbcTemplate.update("UPDATE housings SET name = 'Edited outside the import' WHERE rental_object_id = '1'");
+        stage(feed);
+        assertThat(catalogStagingRepository.merge(now.plusSeconds(120)).unchanged()).isEqualTo(1);
+
+        stage(List.of(
+                staged("1", "Name 1", "Address 1", "1-room apartment", "Trondheim", "Moholt", new BigDecimal("19.90"), 8300)));
+        CatalogMergeResult changed = catalogStagingRepository.merge(now.plusSeconds(180));
+        assertThat(changed.updated()).isEqualTo(1);
+        assertThat(changed.changedPrices()).extracting(HousingPriceChange::pricePerMonth).containsExactly(8300);
+    }
+
+    private void stage(List<StagedHousing> housings) {
+        catalogStagingRepository.clear();
+        catalogStagingRepository.append(housings, 0);
+    }
+
+    private StagedHousing staged(String rentalObjectId, String name, String address, String housingTypeName,
+                                 String cityName, String districtName, BigDecimal areaSqm, int pricePerMonth) {
+        HousingDTO dto = new HousingDTO(rentalObjectId, name, address, housingTypeName, cityName, districtName, areaSqm, pricePerMonth);
+        return new StagedHousing(rentalObjectId, name, address, housingTypeName, cityName, districtName, areaSqm,
+                pricePerMonth, HousingContentHash.of(dto));
+    }
 
     private CityModel createCityModel(String city) {
         CityModel cityModel = new CityModel();
@@ -0,0 +1,215 @@
+package no.sanderolin.boligbot.apitests.housing;
+
+import no.sanderolin.boligbot.apitests.AbstractAPITest;
+import no.sanderolin.boligbot.app.BackendApplication;
+import no.sanderolin.boligbot.dao.event.HousingAvailabilityChangedEvent;
+import no.sanderolin.boligbot.dao.model.CityModel;
+import no.sanderolin.boligbot.dao.model.DistrictModel;
+import no.sanderolin.boligbot.dao.model.HousingModel;
+import no.sanderolin.boligbot.dao.model.HousingTypeModel;
+import no.sanderolin.boligbot.dao.repository.CityRepository;
+import no.sanderolin.boligbot.dao.repository.DistrictRepository;
+import no.sanderolin.boligbot.dao.repository.HousingAvailabilityEventRepository;
+import no.sanderolin.boligbot.dao.repository.HousingRepository;
+import no.sanderolin.boligbot.dao.repository.HousingTypeRepository;
+import no.sanderolin.boligbot.dao.repository.ImportNotificationRepository;
+import no.sanderolin.boligbot.service.subscription.SubscriptionMatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@SpringBootTest(
+        classes = BackendApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.MOCK
+)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class HousingStreamAPITest extends AbstractAPITest {
+
+    private static final Pattern EVENT_ID = Pattern.compile("^id: (\\S+)$", Pattern.MULTILINE);
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private HousingRepository housingRepository;
+    @Autowired private CityRepository cityRepository;
+    @Autowired private DistrictRepository districtRepository;
+    @Autowired private HousingTypeRepository housingTypeRepository;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+    @Autowired private HousingAvailabilityEventRepository availabilityEventRepository;
+    @Autowired private ImportNotificationRepository importNotificationRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private SubscriptionMatcher subscriptionMatcher;
+    private final List<MvcResult> openStreams = new ArrayList<>();
+    private static final Instant now = Instant.now();
+
+    @BeforeEach
+    void setUp() {
+        // The other test contexts act as other nodes, so this one may have loaded subscriptions they have since deleted.
+        subscriptionMatcher.rebuildIndex();
+        CityModel trondheim = createCityModel("Trondheim");
+        CityModel gjoevik = createCityModel("Gjøvik");
+        HousingTypeModel oneRoomApartment = createHousingTypeModel("1-room apartment");
+
+        createAndSaveTestHousingModel("1", oneRoomApartment, createDistrictModel("Moholt", trondheim));
+        createAndSaveTestHousingModel("2", oneRoomApartment, createDistrictModel("Sentrum", gjoevik));
+        createAndSaveTestHousingModel("3", oneRoomApartment, createDistrictModel("Singsaker", trondheim));
+    }
+
+    @AfterEach
+    void tearDown() {
+        openStreams.forEach(result -> result.getRequest().getAsyncContext().complete());
+        jdbcTemplate.update("DELETE FROM housing_availability_events");
+        housingRepository.deleteAll();
+        districtRepository.deleteAll();
+        cityRepository.deleteAll();
+        housingTypeRepository.deleteAll();
+    }
+
+    @Test
+    void testStream_PushesMatchingChangesOnly() throws Exception {
+        MvcResult stream = openStream(null, "city", "trondheim");
+
+        eventPublisher.publishEvent(new HousingAvailabilityChangedEvent(List.of("1", "2"), List.of("3"), now));
+
+        String body = awaitBody(stream, "\"rentalObjectId\":\"3\"");
+        assertThat(body).startsWith("retry: 5000");
+        assertThat(body).contains("\"rentalObjectId\":\"1\",\"isAvailable\":true");
+        assertThat(body).contains("\"rentalObjectId\":\"3\",\"isAvailable\":false");
+        assertThat(body).contains("\"district\":\"Moholt\"");
+        assertThat(body).doesNotContain("\"rentalObjectId\":\"2\"");
+        assertThat(stream.getResponse().getContentType()).startsWith(MediaType.TEXT_EVENT_STREAM_VALUE);
+    }
+
+    @Test
+    void testStream_WithLastEventId_ReplaysMissedEvents() throws Exception {
+        MvcResult first = openStream(null, "district", "Moholt");
+        eventPublisher.publishEvent(new HousingAvailabilityChangedEvent(List.of("1"), List.of(), now));
+        String lastEventId = lastEventId(awaitBody(first, "\"rentalObjectId\":\"1\""));
+
+        eventPublisher.publishEvent(new HousingAvailabilityChangedEvent(List.of(), List.of("1", "2"), now));
+
+        MvcResult resumed = openStream(lastEventId, "district", "Moholt");
+        String body = awaitBody(resumed, "\"isAvailable\":false");
+        assertThat(body).doesNotContain("\"isAvailable\":true");
+        assertThat(body).doesNotContain("\"rentalObjectId\":\"2\"");
+    }
+
+    @Test
+    void testStream_PushesChangesImportedOnAnotherNode() throws Exception {
+        MvcResult stream = openStream(null, "city", "trondheim");
+        Instant importedAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        availabilityEventRepository.applyAvailable(List.of("1", "2"), Collections.nCopies(2, null), importedAt);
+
+        importNotificationRepository.send("AVAILABILITY_CHANGED " + importedAt + " another-node");
+
+        String body = awaitBody(stream, "\"rentalObjectId\":\"1\"");
+        assertThat(body).contains("\"rentalObjectId\":\"1\",\"isAvailable\":true");
+        assertThat(body).doesNotContain("\"rentalObjectId\":\"2\"");
+    }
+
+    @Test
+    void testStream_WithUnknownLastEventId_SendsReset() throws Exception {
+        MvcResult stream = openStream("previous-process-42");
+
+        assertThat(awaitBody(stream, "event: reset")).contains("event: reset");
+    }
+
+    private MvcResult openStream(String lastEventId, String... filterParams) throws Exception {
+        MockHttpServletRequestBuilder builder = get("/api/v1/housings/stream").accept(MediaType.TEXT_EVENT_STREAM);
+        for (int i = 0; i + 1 < filterParams.length; i += 2) {
+            builder.param(filterParams[i], filterParams[i + 1]);
+        }
+        if (lastEventId != null) builder.header("Last-Event-ID", lastEventId);
+
+        MvcResult result = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        openStreams.add(result);
+        return result;
+    }
+
+    private String awaitBody(MvcResult stream, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        String body = "";
+        while (System.currentTimeMillis() < deadline) {
+            body = stream.getResponse().getContentAsString(StandardCharsets.UTF_8);
+            if (body.contains(expected)) return body;
+            Thread.sleep(20);
+        }
+        return body;
+    }
+
+    private String lastEventId(String body) {
+        Matcher matcher = EVENT_ID.matcher(body);
+        String id = null;
+        while (matcher.find()) id = matcher.group(1);
+        assertThat(id).isNotNull();
+        return id;
+    }
+
+    private CityModel createCityModel(String city) {
+        CityModel cityModel = new CityModel();
+        cityModel.setName(city);
+        cityModel.setCreatedAt(now);
+        cityModel.setLastModifiedAt(now);
+        cityModel.setLastImportedAt(now);
+        return cityRepository.save(cityModel);
+    }
+
+    private DistrictModel createDistrictModel(String district, CityModel cityModel) {
+        DistrictModel districtModel = new DistrictModel();
+        districtModel.setName(district);
+        districtModel.setCity(cityModel);
+        districtModel.setCreatedAt(now);
+        districtModel.setLastModifiedAt(now);
+        districtModel.setLastImportedAt(now);
+        return districtRepository.save(districtModel);
+    }
+
+    private HousingTypeModel createHousingTypeModel(String housingType) {
+        HousingTypeModel housingTypeModel = new HousingTypeModel();
+        housingTypeModel.setName(housingType);
+        housingTypeModel.setCreatedAt(now);
+        housingTypeModel.setLastModifiedAt(now);
+        housingTypeModel.setLastImportedAt(now);
+        return housingTypeRepository.save(housingTypeModel);
+    }
+
+    private void createAndSaveTestHousingModel(String rentalObjectId, HousingTypeModel housingType, DistrictModel district) {
+        HousingModel model = new HousingModel();
+        model.setRentalObjectId(rentalObjectId);
+        model.setAddress("Address " + rentalObjectId);
+        model.setName("Name " + rentalObjectId);
+        model.setHousingType(housingType);
+        model.setDistrict(district);
+        model.setAreaSqm(BigDecimal.valueOf(20));
+        model.setPricePerMonth(8000);
+        model.setCreatedAt(now);
+        model.setLastModifiedAt(now);
+        model.setLastImportedAt(now);
+        housingRepository.save(model);
+    }
+}
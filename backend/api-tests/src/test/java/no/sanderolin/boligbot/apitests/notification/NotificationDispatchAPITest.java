@@ -0,0 +1,333 @@
+package no.sanderolin.boligbot.apitests.notification;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import no.sanderolin.boligbot.apitests.AbstractAPITest;
+import no.sanderolin.boligbot.app.BackendApplication;
+import no.sanderolin.boligbot.dao.event.HousingAvailabilityChangedEvent;
+import no.sanderolin.boligbot.dao.model.*;
+import no.sanderolin.boligbot.dao.projection.OutboxNotification;
+import no.sanderolin.boligbot.dao.repository.*;
+import no.sanderolin.boligbot.service.notification.DigestDispatcher;
+import no.sanderolin.boligbot.service.notification.DispatchResult;
+import no.sanderolin.boligbot.service.notification.NotificationDispatcher;
+import no.sanderolin.boligbot.service.subscription.SubscriptionCriteria;
+import no.sanderolin.boligbot.service.subscription.SubscriptionMatcher;
+import no.sanderolin.boligbot.service.subscription.SubscriptionService;
+import no.sanderolin.boligbot.service.watchlist.WatcherIndex;
+import no.sanderolin.boligbot.service.watchlist.WatchlistService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+@SpringBootTest(
+        classes = BackendApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+        properties = {
+                "spring.mail.host=localhost",
+                "spring.mail.port=3025",
+                "boligbot.notifications.dispatch-interval-ms=3600000"
+        }
+)
+@ActiveProfiles("test")
+public class NotificationDispatchAPITest extends AbstractAPITest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired private NotificationDispatcher dispatcher;
+    @Autowired private DigestDispatcher digestDispatcher;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private NotificationOutboxRepository outboxRepository;
+    @Autowired private HousingAvailabilityEventRepository availabilityEventRepository;
+    @Autowired private SubscriptionService subscriptionService;
+    @Autowired private SubscriptionMatcher subscriptionMatcher;
+    @Autowired private WatchlistService watchlistService;
+    @Autowired private WatcherIndex watcherIndex;
+    @Autowired private SubscriptionRepository subscriptionRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private HousingRepository housingRepository;
+    @Autowired private CityRepository cityRepository;
+    @Autowired private DistrictRepository districtRepository;
+    @Autowired private HousingTypeRepository housingTypeRepository;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+    @Autowired private TransactionTemplate transactionTemplate;
+    private HousingTypeModel studio;
+    private DistrictModel moholt;
+    private DistrictModel sentrum;
+    private static final Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+
+    @BeforeEach
+    void setUp() {
+        subscriptionMatcher.rebuildIndex();
+        watcherIndex.rebuild();
+        CityModel trondheim = createCityModel("Trondheim");
+        CityModel gjoevik = createCityModel("Gjøvik");
+        moholt = createDistrictModel("Moholt", trondheim);
+        sentrum = createDistrictModel("Sentrum", gjoevik);
+        studio = createHousingTypeModel("1-room apartment");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM digest_runs");
+        subscriptionRepository.deleteAll();
+        userRepository.deleteAll();
+        housingRepository.deleteAll();
+        districtRepository.deleteAll();
+        cityRepository.deleteAll();
+        housingTypeRepository.deleteAll();
+        subscriptionMatcher.rebuildIndex();
+        watcherIndex.rebuild();
+    }
+
+    @Test
+    void testDispatch_SendsOneEmailPerUserAndNothingTwice() throws Exception {
+        createUser("alice@example.com");
+        createUser("bob@example.com");
+        subscriptionService.createSubscription("alice@example.com", criteria("Trondheim", null));
+        subscriptionService.createSubscription("alice@example.com", criteria(null, 9000));
+        subscriptionService.createSubscription("bob@example.com", criteria("Gjøvik", null));
+        createHousing("1", moholt, 8000);
+        createHousing("2", moholt, 12000);
+        createHousing("3", sentrum, 7000);
+        createHousing("4", sentrum, 7000);
+
+        importAvailability(List.of("1", "2", "3"));
+        assertThat(outboxRepository.countPending()).isEqualTo(5);
+
+        DispatchResult result = dispatcher.dispatch();
+
+        assertThat(result).isEqualTo(new DispatchResult(2, 5, 0));
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertThat(received).hasSize(2);
+        MimeMessage alice = received[0].getAllRecipients()[0].toString().equals("alice@example.com") ? received[0] : received[1];
+        assertThat(alice.getSubject()).isEqualTo("4 new housings match your saved searches");
+        assertThat(GreenMailUtil.getBody(alice)).contains("Name 1", "Name 2", "Name 3").doesNotContain("Name 4");
+
+        assertThat(dispatcher.dispatch()).isEqualTo(DispatchResult.NONE);
+        assertThat(greenMail.getReceivedMessages()).hasSize(2);
+    }
+
+    @Test
+    void testOutbox_IsWrittenInTheImportTransaction() {
+        createUser("alice@example.com");
+        subscriptionService.createSubscription("alice@example.com", criteria(null, null));
+        createHousing("1", moholt, 8000);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            publishAvailability(List.of("1"));
+            assertThat(outboxRepository.countPending()).isEqualTo(1);
+            status.setRollbackOnly();
+        });
+
+        assertThat(outboxRepository.countPending()).isZero();
+    }
+
+    @Test
+    void testDispatch_WhenAWatchedHousingBecomesAvailable_EmailsTheWatcher() throws Exception {
+        createUser("alice@example.com");
+        createUser("bob@example.com");
+        createHousing("1", moholt, 8000);
+        watchlistService.addToWatchlist("alice@example.com", "1");
+        Instant flippedAt = now.plusSeconds(1200);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<String> flipped = markAvailable(List.of("1"), flippedAt);
+            eventPublisher.publishEvent(new HousingAvailabilityChangedEvent(flipped, List.of(), flippedAt));
+        });
+        assertThat(outboxRepository.countPending()).isEqualTo(1);
+
+        DispatchResult result = dispatcher.dispatch();
+
+        assertThat(result).isEqualTo(new DispatchResult(1, 1, 0));
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertThat(received).hasSize(1);
+        assertThat(received[0].getAllRecipients()[0].toString()).isEqualTo("alice@example.com");
+        assertThat(received[0].getSubject()).isEqualTo("1 update to your watchlist");
+        assertThat(GreenMailUtil.getBody(received[0])).contains("On your watchlist, now available", "Name 1");
+    }
+
+    @Test
+    void testOutbox_EnqueueingTheSameMatchTwice_IsIgnored() {
+        UserModel user = createUser("alice@example.com");
+        SubscriptionModel subscription = subscriptionService.createSubscription("alice@example.com", criteria(null, null));
+        createHousing("1", moholt, 8000);
+        OutboxNotification notification = new OutboxNotification(user.getId(), subscription.getId(), "1", now);
+
+        outboxRepository.enqueue(List.of(notification));
+        outboxRepository.enqueue(List.of(notification));
+
+        assertThat(outboxRepository.countPending()).isEqualTo(1);
+    }
+
+    @Test
+    void testDigest_SendsOneDigestPerUserAndSkipsTheOutbox() throws Exception {
+        createUser("alice@example.com");
+        createUser("bob@example.com");
+        subscriptionService.createSubscription("alice@example.com", criteria("Trondheim", null, NotificationFrequency.HOURLY));
+        subscriptionService.createSubscription("alice@example.com", criteria(null, 9000, NotificationFrequency.HOURLY));
+        subscriptionService.createSubscription("bob@example.com", criteria("Gjøvik", null, NotificationFrequency.DAILY));
+        createHousing("1", moholt, 8000);
+        createHousing("2", moholt, 12000);
+        createHousing("3", sentrum, 7000);
+        Instant flippedAt = now.plusSeconds(60);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<String> flipped = markAvailable(List.of("1", "2", "3"), flippedAt);
+            eventPublisher.publishEvent(new HousingAvailabilityChangedEvent(flipped, List.of(), flippedAt));
+        });
+        assertThat(outboxRepository.countPending()).isZero();
+
+        DispatchResult result = digestDispatcher.sendDigests(NotificationFrequency.HOURLY, flippedAt.plusSeconds(1));
+
+        assertThat(result).isEqualTo(new DispatchResult(1, 4, 0));
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertThat(received).hasSize(1);
+        assertThat(received[0].getAllRecipients()[0].toString()).isEqualTo("alice@example.com");
+        assertThat(received[0].getSubject()).isEqualTo("Your digest: 4 new housings match your saved searches");
+        assertThat(GreenMailUtil.getBody(received[0])).contains("Name 1", "Name 2", "Name 3");
+
+        assertThat(digestDispatcher.sendDigests(NotificationFrequency.HOURLY, flippedAt.plusSeconds(2))).isEqualTo(DispatchResult.NONE);
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+    }
+
+    @Test
+    void testDigest_WhenSeveralNodesFireOnTheSameTick_IsSentOnce() throws Exception {
+        createUser("alice@example.com");
+        subscriptionService.createSubscription("alice@example.com", criteria("Trondheim", null, NotificationFrequency.HOURLY));
+        createHousing("1", moholt, 8000);
+        Instant flippedAt = now.plusSeconds(600);
+        transactionTemplate.executeWithoutResult(status -> markAvailable(List.of("1"), flippedAt));
+
+        Instant tick = flippedAt.plusSeconds(1);
+        try (ExecutorService nodes = Executors.newFixedThreadPool(4)) {
+            List<Future<DispatchResult>> results = nodes.invokeAll(Collections.nCopies(4,
+                    () -> digestDispatcher.sendDigests(NotificationFrequency.HOURLY, tick)));
+            int messagesSent = 0;
+            for (Future<DispatchResult> result : results) {
+                messagesSent += result.get().messagesSent();
+            }
+            assertThat(messagesSent).isEqualTo(1);
+        }
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+    }
+
+    @Test
+    void testDispatch_Throughput() {
+        int users = 1000;
+        createHousing("1", moholt, 8000);
+        List<OutboxNotification> notifications = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            UserModel user = createUser("user" + i + "@example.com");
+            SubscriptionModel subscription = subscriptionService.createSubscription(user.getEmail(), criteria(null, null));
+            notifications.add(new OutboxNotification(user.getId(), subscription.getId(), "1", now));
+        }
+        outboxRepository.enqueue(notifications);
+
+        long start = System.nanoTime();
+        DispatchResult result = dispatcher.dispatch();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        assertThat(result.messagesSent()).isEqualTo(users);
+        assertThat(greenMail.getReceivedMessages()).hasSize(users);
+        log.info("Dispatched {} e-mails in {} s ({} sends/sec)", users, String.format("%.2f", seconds),
+                String.format("%.0f", users / seconds));
+    }
+
+    private void importAvailability(List<String> ids) {
+        transactionTemplate.executeWithoutResult(status -> publishAvailability(ids));
+    }
+
+    private void publishAvailability(List<String> ids) {
+        List<String> flipped = markAvailable(ids, now);
+        eventPublisher.publishEvent(new HousingAvailabilityChangedEvent(flipped, List.of(), now));
+    }
+
+    private List<String> markAvailable(List<String> ids, Instant occurredAt) {
+        return availabilityEventRepository.applyAvailable(ids, Collections.nCopies(ids.size(), null), occurredAt).becameAvailable();
+    }
+
+    private static SubscriptionCriteria criteria(String city, Integer maxPrice) {
+        return criteria(city, maxPrice, NotificationFrequency.IMMEDIATE);
+    }
+
+    private static SubscriptionCriteria criteria(String city, Integer maxPrice, NotificationFrequency frequency) {
+        return new SubscriptionCriteria("Search " + city + " " + maxPrice, city, null, null, null, maxPrice, null, null, frequency);
+    }
+
+    private UserModel createUser(String email) {
+        UserModel user = new UserModel();
+        user.setEmail(email);
+        user.setPasswordHash("not-a-real-hash");
+        user.setCreatedAt(now);
+        user.setLastModifiedAt(now);
+        return userRepository.save(user);
+    }
+
+    private CityModel createCityModel(String city) {
+        CityModel cityModel = new CityModel();
+        cityModel.setName(city);
+        cityModel.setCreatedAt(now);
+        cityModel.setLastModifiedAt(now);
+        cityModel.setLastImportedAt(now);
+        return cityRepository.save(cityModel);
+    }
+
+    private DistrictModel createDistrictModel(String district, CityModel cityModel) {
+        DistrictModel districtModel = new DistrictModel();
+        districtModel.setName(district);
+        districtModel.setCity(cityModel);
+        districtModel.setCreatedAt(now);
+        districtModel.setLastModifiedAt(now);
+        districtModel.setLastImportedAt(now);
+        return districtRepository.save(districtModel);
+    }
+
+    private HousingTypeModel createHousingTypeModel(String housingType) {
+        HousingTypeModel housingTypeModel = new HousingTypeModel();
+        housingTypeModel.setName(housingType);
+        housingTypeModel.setCreatedAt(now);
+        housingTypeModel.setLastModifiedAt(now);
+        housingTypeModel.setLastImportedAt(now);
+        return housingTypeRepository.save(housingTypeModel);
+    }
+
+    private void createHousing(String rentalObjectId, DistrictModel district, int price) {
+        HousingModel model = new HousingModel();
+        model.setRentalObjectId(rentalObjectId);
+        model.setAddress("Address " + rentalObjectId);
+        model.setName("Name " + rentalObjectId);
+        model.setHousingType(studio);
+        model.setDistrict(district);
+        model.setAreaSqm(BigDecimal.valueOf(20));
+        model.setPricePerMonth(price);
+        model.setCreatedAt(now);
+        model.setLastModifiedAt(now);
+        model.setLastImportedAt(now);
+        housingRepository.save(model);
+    }
+}
@@ -0,0 +1,57 @@
+package no.sanderolin.boligbot.apitests.role;
+
+import com.zaxxer.hikari.HikariDataSource;
+import no.sanderolin.boligbot.apitests.AbstractAPITest;
+import no.sanderolin.boligbot.app.BackendApplication;
+import no.sanderolin.boligbot.housingimport.cluster.ImportLease;
+import no.sanderolin.boligbot.housingimport.cluster.ImportNotificationListener;
+import no.sanderolin.boligbot.housingimport.scheduler.HousingAvailabilityImportScheduler;
+import no.sanderolin.boligbot.housingimport.service.HousingCatalogImportService;
+import no.sanderolin.boligbot.web.v1.housing.HousingController;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(
+        classes = BackendApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+        properties = "boligbot.role=api"
+)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ApiRoleAPITest extends AbstractAPITest {
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private ApplicationContext context;
+    @Autowired private DataSource dataSource;
+
+    @Test
+    void context_ShouldServeTheApiWithoutImporting() {
+        assertThat(context.getBeansOfType(HousingController.class)).hasSize(1);
+        assertThat(context.getBeansOfType(ImportNotificationListener.class)).hasSize(1);
+        assertThat(context.getBeansOfType(ImportLease.class)).isEmpty();
+        assertThat(context.getBeansOfType(HousingCatalogImportService.class)).isEmpty();
+        assertThat(context.getBeansOfType(HousingAvailabilityImportScheduler.class)).isEmpty();
+    }
+
+    @Test
+    void getCities_ShouldBeServed() throws Exception {
+        mockMvc.perform(get("/api/v1/cities"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void dataSource_ShouldUseTheApiPoolSize() throws Exception {
+        assertThat(dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize()).isEqualTo(20);
+    }
+}
@@ -0,0 +1,65 @@
+package no.sanderolin.boligbot.apitests.role;
+
+import com.zaxxer.hikari.HikariDataSource;
+import no.sanderolin.boligbot.apitests.AbstractAPITest;
+import no.sanderolin.boligbot.app.BackendApplication;
+import no.sanderolin.boligbot.housingimport.cluster.ImportLease;
+import no.sanderolin.boligbot.housingimport.service.HousingAvailabilityImportService;
+import no.sanderolin.boligbot.service.housing.similar.SimilarHousingIndexHolder;
+import no.sanderolin.boligbot.web.compression.PrecompressedResponseFilter;
+import no.sanderolin.boligbot.web.v1.housing.HousingController;
+import no.sanderolin.boligbot.web.v1.housing.stream.AvailabilityStreamHub;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(
+        classes = BackendApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+        properties = "boligbot.role=worker"
+)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class WorkerRoleAPITest extends AbstractAPITest {
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private ApplicationContext context;
+    @Autowired private DataSource dataSource;
+
+    @Test
+    void context_ShouldImportWithoutServingTheApi() {
+        assertThat(context.getBeansOfType(ImportLease.class)).hasSize(1);
+        assertThat(context.getBeansOfType(HousingAvailabilityImportService.class)).hasSize(1);
+        assertThat(context.getBeansOfType(HousingController.class)).isEmpty();
+        assertThat(context.getBeansOfType(AvailabilityStreamHub.class)).isEmpty();
+        assertThat(context.getBeansOfType(PrecompressedResponseFilter.class)).isEmpty();
+        assertThat(context.getBeansOfType(SimilarHousingIndexHolder.class)).isEmpty();
+    }
+
+    @Test
+    void getCities_ShouldNotBeServed() throws Exception {
+        mockMvc.perform(get("/api/v1/cities"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void health_ShouldStillBeServed() throws Exception {
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void dataSource_ShouldUseTheWorkerPoolSize() throws Exception {
+        assertThat(dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize()).isEqualTo(8);
+    }
+}
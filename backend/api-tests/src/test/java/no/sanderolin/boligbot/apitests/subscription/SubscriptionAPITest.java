@@ -0,0 +1,376 @@
+package no.sanderolin.boligbot.apitests.subscription;
+
+import no.sanderolin.boligbot.apitests.AbstractAPITest;
+import no.sanderolin.boligbot.app.BackendApplication;
+import no.sanderolin.boligbot.dao.model.*;
+import no.sanderolin.boligbot.dao.repository.*;
+import no.sanderolin.boligbot.service.subscription.SubscriptionMatch;
+import no.sanderolin.boligbot.service.subscription.SubscriptionMatcher;
+import no.sanderolin.boligbot.web.v1.security.JwtUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(
+        classes = BackendApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.MOCK
+)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class SubscriptionAPITest extends AbstractAPITest {
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private UserRepository userRepository;
+    @Autowired private SubscriptionRepository subscriptionRepository;
+    @Autowired private SubscriptionMatcher subscriptionMatcher;
+    @Autowired private HousingRepository housingRepository;
+    @Autowired private CityRepository cityRepository;
+    @Autowired private DistrictRepository districtRepository;
+    @Autowired private HousingTypeRepository housingTypeRepository;
+    @Autowired private HousingAvailabilityEventRepository availabilityEventRepository;
+    @Autowired private HousingChangeWindowRepository changeWindowRepository;
+    @Autowired private JwtUtil jwtUtil;
+    private String aliceToken;
+    private String bobToken;
+    private static final Instant now = Instant.now();
+
+    @BeforeEach
+    void setUp() {
+        subscriptionMatcher.rebuildIndex();
+        aliceToken = "Bearer " + jwtUtil.generateAccessToken(createUser("alice@example.com").getEmail());
+        bobToken = "Bearer " + jwtUtil.generateAccessToken(createUser("bob@example.com").getEmail());
+    }
+
+    @AfterEach
+    void tearDown() {
+        subscriptionRepository.deleteAll();
+        userRepository.deleteAll();
+        housingRepository.deleteAll();
+        districtRepository.deleteAll();
+        cityRepository.deleteAll();
+        housingTypeRepository.deleteAll();
+        subscriptionMatcher.rebuildIndex();
+    }
+
+    @Test
+    void testGetSubscriptions_WithoutToken_ReturnsUnauthorized() throws Exception {
+        mockMvc.perform(get("/api/v1/subscriptions"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void testCreateSubscription_IsListedForOwnerOnly() throws Exception {
+        mockMvc.perform(post("/api/v1/subscriptions")
+                        .header(HttpHeaders.AUTHORIZATION, aliceToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name": "Moholt under 9000", "district": " Moholt ", "maxPricePerMonth": 9000}
+                                """))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").isNumber())
+                .andExpect(jsonPath("$.district").value("Moholt"))
+                .andExpect(jsonPath("$.city").doesNotExist());
+
+        mockMvc.perform(get("/api/v1/subscriptions").header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].name").value("Moholt under 9000"));
+
+        mockMvc.perform(get("/api/v1/subscriptions").header(HttpHeaders.AUTHORIZATION, bobToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    void testCreateSubscription_WithReversedPriceRange_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(post("/api/v1/subscriptions")
+                        .header(HttpHeaders.AUTHORIZATION, aliceToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name": "Reversed", "minPricePerMonth": 9000, "maxPricePerMonth": 5000}
+                                """))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value("minPricePerMonth cannot be greater than maxPricePerMonth"));
+    }
+
+    @Test
+    void testCreateSubscription_WithoutName_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(post("/api/v1/subscriptions")
+                        .header(HttpHeaders.AUTHORIZATION, aliceToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"city": "Trondheim"}
+                                """))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testCreateSubscription_WithDigestFrequency_IsNotMatchedImmediately() throws Exception {
+        mockMvc.perform(post("/api/v1/subscriptions")
+                        .header(HttpHeaders.AUTHORIZATION, aliceToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name": "Daily Trondheim", "city": "Trondheim", "frequency": "Daily"}
+                                """))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.frequency").value("daily"));
+
+        assertThat(subscriptionMatcher.match(List.of(housing("1", "Trondheim", "1-room apartment", "20")))).isEmpty();
+    }
+
+    @Test
+    void testCreateSubscription_WithInvalidFrequency_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(post("/api/v1/subscriptions")
+                        .header(HttpHeaders.AUTHORIZATION, aliceToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name": "Weekly", "frequency": "weekly"}
+                                """))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value("Invalid frequency: weekly. Allowed: [immediate, hourly, daily]"));
+    }
+
+    @Test
+    void testDeleteSubscription_OfAnotherUser_ReturnsNotFound() throws Exception {
+        SubscriptionModel subscription = createSubscription(userRepository.findByEmail("alice@example.com").orElseThrow());
+
+        mockMvc.perform(delete("/api/v1/subscriptions/{id}", subscription.getId())
+                        .header(HttpHeaders.AUTHORIZATION, bobToken))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(delete("/api/v1/subscriptions/{id}", subscription.getId())
+                        .header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isNoContent());
+        assertThat(subscriptionRepository.count()).isZero();
+    }
+
+    @Test
+    void testMatcher_MatchesCreatedSubscriptionsUntilDeleted() throws Exception {
+        String created = mockMvc.perform(post("/api/v1/subscriptions")
+                        .header(HttpHeaders.AUTHORIZATION, aliceToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name": "Trondheim studios", "city": "trondheim", "housingType": "1-room apartment",
+                                 "minAreaSqm": 15}
+                                """))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long id = Long.parseLong(created.replaceAll(".*\"id\":(\\d+).*", "$1"));
+
+        HousingModel match = housing("1", "Trondheim", "1-room apartment", "20");
+        HousingModel tooSmall = housing("2", "Trondheim", "1-room apartment", "12");
+        HousingModel otherCity = housing("3", "Gjøvik", "1-room apartment", "20");
+
+        List<SubscriptionMatch> matches = subscriptionMatcher.match(List.of(match, tooSmall, otherCity));
+        assertThat(matches).extracting(SubscriptionMatch::subscriptionId, SubscriptionMatch::rentalObjectId)
+                .containsExactly(tuple(id, "1"));
+
+        mockMvc.perform(delete("/api/v1/subscriptions/{id}", id).header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isNoContent());
+        assertThat(subscriptionMatcher.match(List.of(match))).isEmpty();
+    }
+
+    @Test
+    void testGetNewSinceLastVisit_ReturnsOnlyChangedMatchesOnce() throws Exception {
+        Instant before = now.minusSeconds(3600);
+        HousingTypeModel studio = saveHousingType("1-room apartment", before);
+        saveHousing("1", studio, saveDistrict("Moholt", saveCity("Trondheim", before), before), before);
+        saveHousing("2", studio, saveDistrict("Sentrum", saveCity("Gjøvik", before), before), before);
+        long id = createTrondheimSubscription();
+
+        mockMvc.perform(get("/api/v1/subscriptions/{id}/new", id).header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.housings", hasSize(0)));
+
+        Thread.sleep(5);
+        availabilityEventRepository.applyAvailable(List.of("1", "2"), Collections.nCopies(2, null), Instant.now());
+
+        mockMvc.perform(get("/api/v1/subscriptions/{id}/new", id)
+                        .param("markSeen", "false")
+                        .header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.housings", hasSize(1)));
+        mockMvc.perform(get("/api/v1/subscriptions/{id}/new", id).header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.housings", hasSize(1)))
+                .andExpect(jsonPath("$.housings[0].rentalObjectId").value("1"))
+                .andExpect(jsonPath("$.housings[0].isAvailable").value(true));
+        mockMvc.perform(get("/api/v1/subscriptions/{id}/new", id).header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.housings", hasSize(0)));
+
+        mockMvc.perform(get("/api/v1/subscriptions/{id}/new", id).header(HttpHeaders.AUTHORIZATION, bobToken))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testGetNewSinceLastVisit_WhileAnImportIsWriting_ReturnsItsChangesAfterItCloses() throws Exception {
+        Instant before = now.minusSeconds(3600);
+        HousingTypeModel studio = saveHousingType("1-room apartment", before);
+        saveHousing("1", studio, saveDistrict("Moholt", saveCity("Trondheim", before), before), before);
+        long id = createTrondheimSubscription();
+        mockMvc.perform(get("/api/v1/subscriptions/{id}/new", id).header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.housings", hasSize(0)));
+
+        Instant changedAt = changeWindowRepository.open("AVAILABILITY");
+        availabilityEventRepository.applyAvailable(List.of("1"), Collections.singletonList(null), changedAt);
+        mockMvc.perform(get("/api/v1/subscriptions/{id}/new", id).header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.housings", hasSize(0)));
+
+        changeWindowRepository.close("AVAILABILITY", changedAt);
+        mockMvc.perform(get("/api/v1/subscriptions/{id}/new", id).header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.housings", hasSize(1)))
+                .andExpect(jsonPath("$.housings[0].rentalObjectId").value("1"));
+    }
+
+    @Test
+    void testGetNewSinceLastVisit_WithMoreChangesThanLimit_ContinuesAfterTheLastHousingReturned() throws Exception {
+        Instant before = now.minusSeconds(3600);
+        HousingTypeModel studio = saveHousingType("1-room apartment", before);
+        DistrictModel moholt = saveDistrict("Moholt", saveCity("Trondheim", before), before);
+        saveHousing("1", studio, moholt, before);
+        saveHousing("2", studio, moholt, before);
+        saveHousing("3", studio, moholt, before);
+        long id = createTrondheimSubscription();
+        mockMvc.perform(get("/api/v1/subscriptions/{id}/new", id).header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hasMore").value(false));
+
+        Thread.sleep(5);
+        availabilityEventRepository.applyAvailable(List.of("1", "2", "3"), Collections.nCopies(3, null), Instant.now());
+
+        mockMvc.perform(get("/api/v1/subscriptions/{id}/new", id)
+                        .param("limit", "2")
+                        .header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.housings[*].rentalObjectId", contains("1", "2")))
+                .andExpect(jsonPath("$.hasMore").value(true));
+        mockMvc.perform(get("/api/v1/subscriptions/{id}/new", id)
+                        .param("limit", "2")
+                        .header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.housings[*].rentalObjectId", contains("3")))
+                .andExpect(jsonPath("$.hasMore").value(false));
+        mockMvc.perform(get("/api/v1/subscriptions/{id}/new", id).header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.housings", hasSize(0)));
+
+        mockMvc.perform(get("/api/v1/subscriptions/{id}/new", id)
+                        .param("limit", "0")
+                        .header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isBadRequest());
+    }
+
+    private long createTrondheimSubscription() throws Exception {
+        String created = mockMvc.perform(post("/api/v1/subscriptions")
+                        .header(HttpHeaders.AUTHORIZATION, aliceToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name": "Trondheim", "city": "trondheim"}
+                                """))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return Long.parseLong(created.replaceAll(".*\"id\":(\\d+).*", "$1"));
+    }
+
+    private CityModel saveCity(String name, Instant at) {
+        CityModel city = new CityModel();
+        city.setName(name);
+        city.setCreatedAt(at);
+        city.setLastModifiedAt(at);
+        city.setLastImportedAt(at);
+        return cityRepository.save(city);
+    }
+
+    private DistrictModel saveDistrict(String name, CityModel city, Instant at) {
+        DistrictModel district = new DistrictModel();
+        district.setName(name);
+        district.setCity(city);
+        district.setCreatedAt(at);
+        district.setLastModifiedAt(at);
+        district.setLastImportedAt(at);
+        return districtRepository.save(district);
+    }
+
+    private HousingTypeModel saveHousingType(String name, Instant at) {
+        HousingTypeModel type = new HousingTypeModel();
+        type.setName(name);
+        type.setCreatedAt(at);
+        type.setLastModifiedAt(at);
+        type.setLastImportedAt(at);
+        return housingTypeRepository.save(type);
+    }
+
+    private void saveHousing(String rentalObjectId, HousingTypeModel type, DistrictModel district, Instant at) {
+        HousingModel housing = new HousingModel();
+        housing.setRentalObjectId(rentalObjectId);
+        housing.setAddress("Address " + rentalObjectId);
+        housing.setName("Name " + rentalObjectId);
+        housing.setHousingType(type);
+        housing.setDistrict(district);
+        housing.setAreaSqm(BigDecimal.valueOf(20));
+        housing.setPricePerMonth(8000);
+        housing.setCreatedAt(at);
+        housing.setLastModifiedAt(at);
+        housing.setLastImportedAt(at);
+        housingRepository.save(housing);
+    }
+
+    private UserModel createUser(String email) {
+        UserModel user = new UserModel();
+        user.setEmail(email);
+        user.setPasswordHash("not-a-real-hash");
+        user.setCreatedAt(now);
+        user.setLastModifiedAt(now);
+        return userRepository.save(user);
+    }
+
+    private SubscriptionModel createSubscription(UserModel user) {
+        SubscriptionModel subscription = new SubscriptionModel();
+        subscription.setUser(user);
+        subscription.setName("Everything");
+        subscription.setCreatedAt(now);
+        subscription.setLastModifiedAt(now);
+        return subscriptionRepository.save(subscription);
+    }
+
+    private static HousingModel housing(String rentalObjectId, String city, String housingType, String areaSqm) {
+        CityModel cityModel = new CityModel();
+        cityModel.setName(city);
+        DistrictModel district = new DistrictModel();
+        district.setName("Sentrum");
+        district.setCity(cityModel);
+        HousingTypeModel type = new HousingTypeModel();
+        type.setName(housingType);
+
+        HousingModel housing = new HousingModel();
+        housing.setRentalObjectId(rentalObjectId);
+        housing.setDistrict(district);
+        housing.setHousingType(type);
+        housing.setAreaSqm(new BigDecimal(areaSqm));
+        housing.setPricePerMonth(8000);
+        return housing;
+    }
+}
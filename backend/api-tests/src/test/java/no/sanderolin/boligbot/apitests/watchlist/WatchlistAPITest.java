@@ -0,0 +1,226 @@
+package no.sanderolin.boligbot.apitests.watchlist;
+
+import no.sanderolin.boligbot.apitests.AbstractAPITest;
+import no.sanderolin.boligbot.app.BackendApplication;
+import no.sanderolin.boligbot.dao.event.HousingAvailabilityChangedEvent;
+import no.sanderolin.boligbot.dao.event.HousingPriceChangedEvent;
+import no.sanderolin.boligbot.dao.model.CityModel;
+import no.sanderolin.boligbot.dao.model.DistrictModel;
+import no.sanderolin.boligbot.dao.model.HousingModel;
+import no.sanderolin.boligbot.dao.model.HousingTypeModel;
+import no.sanderolin.boligbot.dao.model.UserModel;
+import no.sanderolin.boligbot.dao.projection.HousingPriceChange;
+import no.sanderolin.boligbot.dao.repository.CityRepository;
+import no.sanderolin.boligbot.dao.repository.DistrictRepository;
+import no.sanderolin.boligbot.dao.repository.HousingRepository;
+import no.sanderolin.boligbot.dao.repository.HousingTypeRepository;
+import no.sanderolin.boligbot.dao.repository.ImportNotificationRepository;
+import no.sanderolin.boligbot.dao.repository.UserRepository;
+import no.sanderolin.boligbot.dao.repository.WatchlistRepository;
+import no.sanderolin.boligbot.service.subscription.SubscriptionMatcher;
+import no.sanderolin.boligbot.service.watchlist.WatchedChangeType;
+import no.sanderolin.boligbot.service.watchlist.WatchedHousingChange;
+import no.sanderolin.boligbot.service.watchlist.WatchedHousingChangedEvent;
+import no.sanderolin.boligbot.service.watchlist.WatcherIndex;
+import no.sanderolin.boligbot.web.v1.security.JwtUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(
+        classes = BackendApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.MOCK
+)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@RecordApplicationEvents
+public class WatchlistAPITest extends AbstractAPITest {
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private UserRepository userRepository;
+    @Autowired private HousingRepository housingRepository;
+    @Autowired private CityRepository cityRepository;
+    @Autowired private DistrictRepository districtRepository;
+    @Autowired private HousingTypeRepository housingTypeRepository;
+    @Autowired private WatcherIndex watcherIndex;
+    @Autowired private SubscriptionMatcher subscriptionMatcher;
+    @Autowired private WatchlistRepository watchlistRepository;
+    @Autowired private ImportNotificationRepository importNotificationRepository;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+    @Autowired private ApplicationEvents applicationEvents;
+    @Autowired private JwtUtil jwtUtil;
+    private UserModel alice;
+    private String aliceToken;
+    private String bobToken;
+    private static final Instant now = Instant.now();
+
+    @BeforeEach
+    void setUp() {
+        subscriptionMatcher.rebuildIndex();
+        watcherIndex.rebuild();
+        alice = createUser("alice@example.com");
+        aliceToken = "Bearer " + jwtUtil.generateAccessToken(alice.getEmail());
+        bobToken = "Bearer " + jwtUtil.generateAccessToken(createUser("bob@example.com").getEmail());
+
+        CityModel trondheim = createCityModel("Trondheim");
+        HousingTypeModel oneRoomApartment = createHousingTypeModel("1-room apartment");
+        DistrictModel moholt = createDistrictModel("Moholt", trondheim);
+        createAndSaveTestHousingModel("1", oneRoomApartment, moholt);
+        createAndSaveTestHousingModel("2", oneRoomApartment, moholt);
+        createAndSaveTestHousingModel("3", oneRoomApartment, moholt);
+    }
+
+    @AfterEach
+    void tearDown() {
+        housingRepository.deleteAll();
+        districtRepository.deleteAll();
+        cityRepository.deleteAll();
+        housingTypeRepository.deleteAll();
+        userRepository.deleteAll();
+        watcherIndex.rebuild();
+    }
+
+    @Test
+    void watch_ShouldListHousingsInWatchOrderPerUser() throws Exception {
+        mockMvc.perform(put("/api/v1/watchlist/{id}", "2").header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(put("/api/v1/watchlist/{id}", "1").header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(put("/api/v1/watchlist/{id}", "2").header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/v1/watchlist").header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].rentalObjectId", contains("2", "1")))
+                .andExpect(jsonPath("$[0].district").value("Moholt"));
+        mockMvc.perform(get("/api/v1/watchlist").header(HttpHeaders.AUTHORIZATION, bobToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    void watch_WithUnknownHousing_ShouldReturnNotFound() throws Exception {
+        mockMvc.perform(put("/api/v1/watchlist/{id}", "missing").header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void unwatch_ShouldRemoveAndReturnNotFoundTheSecondTime() throws Exception {
+        mockMvc.perform(put("/api/v1/watchlist/{id}", "1").header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(delete("/api/v1/watchlist/{id}", "1").header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete("/api/v1/watchlist/{id}", "1").header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isNotFound());
+        assertThat(watcherIndex.watchers("1")).isEmpty();
+    }
+
+    @Test
+    void importEvents_ShouldEmitChangesForWatchedHousingsOnly() throws Exception {
+        mockMvc.perform(put("/api/v1/watchlist/{id}", "1").header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(put("/api/v1/watchlist/{id}", "3").header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isNoContent());
+
+        eventPublisher.publishEvent(new HousingAvailabilityChangedEvent(List.of("1", "2"), List.of(), now));
+        eventPublisher.publishEvent(new HousingPriceChangedEvent(List.of(new HousingPriceChange("3", now, 9000, BigDecimal.valueOf(20)))));
+
+        assertThat(applicationEvents.stream(WatchedHousingChangedEvent.class).flatMap(event -> event.changes().stream()))
+                .containsExactly(
+                        new WatchedHousingChange(alice.getId(), "1", WatchedChangeType.BECAME_AVAILABLE),
+                        new WatchedHousingChange(alice.getId(), "3", WatchedChangeType.PRICE_CHANGED)
+                );
+    }
+
+    @Test
+    void watch_ThroughAnotherNode_ShouldReachTheIndexThroughANotification() throws Exception {
+        watchlistRepository.add(alice.getId(), "2", Instant.now());
+        assertThat(watcherIndex.watchers("2")).isEmpty();
+
+        importNotificationRepository.send("WATCHLIST_CHANGED " + Instant.now() + " another-node");
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (watcherIndex.watchers("2").isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(watcherIndex.watchers("2")).containsExactly(alice.getId());
+    }
+
+    @Test
+    void getWatchlist_WithoutToken_ShouldReturnUnauthorized() throws Exception {
+        mockMvc.perform(get("/api/v1/watchlist"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private UserModel createUser(String email) {
+        UserModel user = new UserModel();
+        user.setEmail(email);
+        user.setPasswordHash("not-a-real-hash");
+        user.setCreatedAt(now);
+        user.setLastModifiedAt(now);
+        return userRepository.save(user);
+    }
+
+    private CityModel createCityModel(String city) {
+        CityModel cityModel = new CityModel();
+        cityModel.setName(city);
+        cityModel.setCreatedAt(now);
+        cityModel.setLastModifiedAt(now);
+        cityModel.setLastImportedAt(now);
+        return cityRepository.save(cityModel);
+    }
+
+    private DistrictModel createDistrictModel(String district, CityModel cityModel) {
+        DistrictModel districtModel = new DistrictModel();
+        districtModel.setName(district);
+        districtModel.setCity(cityModel);
+        districtModel.setCreatedAt(now);
+        districtModel.setLastModifiedAt(now);
+        districtModel.setLastImportedAt(now);
+        return districtRepository.save(districtModel);
+    }
+
+    private HousingTypeModel createHousingTypeModel(String housingType) {
+        HousingTypeModel housingTypeModel = new HousingTypeModel();
+        housingTypeModel.setName(housingType);
+        housingTypeModel.setCreatedAt(now);
+        housingTypeModel.setLastModifiedAt(now);
+        housingTypeModel.setLastImportedAt(now);
+        return housingTypeRepository.save(housingTypeModel);
+    }
+
+    private void createAndSaveTestHousingModel(String rentalObjectId, HousingTypeModel housingType, DistrictModel district) {
+        HousingModel model = new HousingModel();
+        model.setRentalObjectId(rentalObjectId);
+        model.setAddress("Address " + rentalObjectId);
+        model.setName("Name " + rentalObjectId);
+        model.setHousingType(housingType);
+        model.setDistrict(district);
+        model.setAreaSqm(BigDecimal.valueOf(20));
+        model.setPricePerMonth(8000);
+        model.setCreatedAt(now);
+        model.setLastModifiedAt(now);
+        model.setLastImportedAt(now);
+        housingRepository.save(model);
+    }
+}
@@ -0,0 +1,194 @@
+package no.sanderolin.boligbot.apitests.webhook;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import no.sanderolin.boligbot.apitests.AbstractAPITest;
+import no.sanderolin.boligbot.app.BackendApplication;
+import no.sanderolin.boligbot.dao.event.HousingPriceChangedEvent;
+import no.sanderolin.boligbot.dao.model.UserModel;
+import no.sanderolin.boligbot.dao.projection.HousingPriceChange;
+import no.sanderolin.boligbot.dao.repository.UserRepository;
+import no.sanderolin.boligbot.dao.repository.WebhookRepository;
+import no.sanderolin.boligbot.service.webhook.WebhookDispatcher;
+import no.sanderolin.boligbot.service.webhook.WebhookSignature;
+import no.sanderolin.boligbot.web.v1.security.JwtUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(
+        classes = BackendApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.MOCK
+)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class WebhookAPITest extends AbstractAPITest {
+
+    private record Received(String signature, String event, byte[] body) { }
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private UserRepository userRepository;
+    @Autowired private WebhookRepository webhookRepository;
+    @Autowired private WebhookDispatcher webhookDispatcher;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private JwtUtil jwtUtil;
+    private final BlockingQueue<Received> received = new LinkedBlockingQueue<>();
+    private HttpServer receiver;
+    private String aliceToken;
+    private String bobToken;
+    private static final Instant now = Instant.now();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        webhookDispatcher.loadEndpoints();
+        aliceToken = "Bearer " + jwtUtil.generateAccessToken(createUser("alice@example.com").getEmail());
+        bobToken = "Bearer " + jwtUtil.generateAccessToken(createUser("bob@example.com").getEmail());
+
+        receiver = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        receiver.createContext("/", exchange -> {
+            received.add(new Received(
+                    exchange.getRequestHeaders().getFirst(WebhookSignature.HEADER),
+                    exchange.getRequestHeaders().getFirst("X-Boligbot-Event"),
+                    exchange.getRequestBody().readAllBytes()));
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        receiver.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        receiver.stop(0);
+        webhookRepository.deleteAll();
+        userRepository.deleteAll();
+        webhookDispatcher.loadEndpoints();
+    }
+
+    @Test
+    void testCreateWebhook_ReturnsSecretOnlyOnCreate() throws Exception {
+        mockMvc.perform(post("/api/v1/webhooks")
+                        .header(HttpHeaders.AUTHORIZATION, aliceToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"url": "https://example.com/hook", "events": ["housing.price_changed"]}
+                                """))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").isNumber())
+                .andExpect(jsonPath("$.secret").isString())
+                .andExpect(jsonPath("$.events", hasSize(1)));
+
+        mockMvc.perform(get("/api/v1/webhooks").header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].url").value("https://example.com/hook"))
+                .andExpect(jsonPath("$[0].secret").doesNotExist());
+
+        mockMvc.perform(get("/api/v1/webhooks").header(HttpHeaders.AUTHORIZATION, bobToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    void testCreateWebhook_WithInvalidUrl_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(post("/api/v1/webhooks")
+                        .header(HttpHeaders.AUTHORIZATION, aliceToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"url": "ftp://example.com/hook", "events": ["housing.price_changed"]}
+                                """))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value("Invalid url: ftp://example.com/hook. Must be an absolute http or https URL"));
+    }
+
+    @Test
+    void testCreateWebhook_WithUnknownEvent_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(post("/api/v1/webhooks")
+                        .header(HttpHeaders.AUTHORIZATION, aliceToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"url": "https://example.com/hook", "events": ["housing.deleted"]}
+                                """))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value(
+                        "Invalid event: housing.deleted. Allowed: [housing.availability_changed, housing.price_changed]"));
+    }
+
+    @Test
+    void testDeleteWebhook_OfAnotherUser_ReturnsNotFound() throws Exception {
+        long id = createWebhook(aliceToken, "https://example.com/hook", "housing.price_changed").get("id").asLong();
+
+        mockMvc.perform(delete("/api/v1/webhooks/{id}", id).header(HttpHeaders.AUTHORIZATION, bobToken))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(delete("/api/v1/webhooks/{id}", id).header(HttpHeaders.AUTHORIZATION, aliceToken))
+                .andExpect(status().isNoContent());
+        assertThat(webhookRepository.count()).isZero();
+    }
+
+    @Test
+    void testPriceChangedEvent_IsDeliveredSignedToSubscribedWebhooks() throws Exception {
+        String url = "http://127.0.0.1:" + receiver.getAddress().getPort() + "/hook";
+        String secret = createWebhook(aliceToken, url, "housing.price_changed").get("secret").asText();
+        createWebhook(bobToken, url, "housing.availability_changed");
+
+        eventPublisher.publishEvent(new HousingPriceChangedEvent(List.of(
+                new HousingPriceChange("42", now, 9100, new BigDecimal("21.50")))));
+
+        Received delivery = received.poll(5, TimeUnit.SECONDS);
+        assertThat(delivery).isNotNull();
+        assertThat(delivery.event()).isEqualTo("housing.price_changed");
+
+        long timestamp = Long.parseLong(delivery.signature().substring(2, delivery.signature().indexOf(',')));
+        assertThat(delivery.signature()).isEqualTo(WebhookSignature.header(secret, timestamp, delivery.body()));
+
+        JsonNode body = objectMapper.readTree(new String(delivery.body(), StandardCharsets.UTF_8));
+        assertThat(body.get("type").asText()).isEqualTo("housing.price_changed");
+        assertThat(body.get("changes").get(0).get("rentalObjectId").asText()).isEqualTo("42");
+        assertThat(body.get("changes").get(0).get("pricePerMonth").asInt()).isEqualTo(9100);
+
+        assertThat(received.poll(300, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    private JsonNode createWebhook(String token, String url, String event) throws Exception {
+        String response = mockMvc.perform(post("/api/v1/webhooks")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"url\": \"" + url + "\", \"events\": [\"" + event + "\"]}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+
+    private UserModel createUser(String email) {
+        UserModel user = new UserModel();
+        user.setEmail(email);
+        user.setPasswordHash("not-a-real-hash");
+        user.setCreatedAt(now);
+        user.setLastModifiedAt(now);
+        return userRepository.save(user);
+    }
+}
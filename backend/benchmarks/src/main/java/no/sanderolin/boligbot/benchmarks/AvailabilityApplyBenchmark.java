@@ -0,0 +1,187 @@
+package no.sanderolin.boligbot.benchmarks;
+
+import liquibase.integration.spring.SpringLiquibase;
+import no.sanderolin.boligbot.dao.projection.AppliedAvailability;
+import no.sanderolin.boligbot.dao.repository.HousingAvailabilityEventRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares applying one availability snapshot the way the import used to, flipping availability in one statement
+ * and then looping over the available-from dates row by row, against the set-based
+ * {@link HousingAvailabilityEventRepository#applyAvailable}. Both run in one transaction, like the import, and
+ * mark the housings missing from the snapshot unavailable with {@link HousingAvailabilityEventRepository#markUnavailable}.
+ * Consecutive invocations alternate between two snapshots that differ in about 10% of the dates and 2% of the units.
+ * <p>
+ * Needs an empty PostgreSQL database, which is migrated on setup:
+ * java -Dboligbot.bench.jdbc-url=jdbc:postgresql://localhost:5432/boligbot_bench -Dboligbot.bench.username=... \
+ *      -Dboligbot.bench.password=... -jar benchmarks/target/benchmarks.jar AvailabilityApplyBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AvailabilityApplyBenchmark {
+
+    private static final String MARK_AVAILABLE = """
+            WITH flipped AS (
+                UPDATE housings
+                SET is_available = true,
+                    available_since = ?::timestamptz,
+                    last_modified_at = ?::timestamptz
+                WHERE rental_object_id = ANY (?::text[])
+                  AND is_available = false
+                RETURNING rental_object_id
+            ), events AS (
+                INSERT INTO housing_availability_events (rental_object_id, occurred_at, event_type)
+                SELECT rental_object_id, ?::timestamptz, ?::smallint
+                FROM flipped
+            )
+            SELECT rental_object_id FROM flipped
+            """;
+
+    private static final String PER_ROW_UPDATE = """
+            UPDATE housings
+            SET available_from_date = ?
+            WHERE rental_object_id = ?
+              AND (available_from_date IS NULL OR available_from_date <> ?)
+            """;
+
+    @Param({"1000", "10000", "50000"})
+    private int units;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private HousingAvailabilityEventRepository repository;
+    private final List<Snapshot> snapshots = new ArrayList<>();
+    private Instant occurredAt = Instant.now();
+    private int round;
+
+    /**
+     * {@code removedIds} are the ids the other snapshot lists and this one does not.
+     */
+    private record Snapshot(List<String> ids, List<LocalDate> availableFromDates, List<String> removedIds) { }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                System.getProperty("boligbot.bench.jdbc-url", "jdbc:postgresql://localhost:5432/boligbot_bench"),
+                System.getProperty("boligbot.bench.username", "postgres"),
+                System.getProperty("boligbot.bench.password", "postgres"));
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog("classpath:db/changelog/db.changelog-master.xml");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.afterPropertiesSet();
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        repository = new HousingAvailabilityEventRepository(jdbcTemplate);
+        seed();
+
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDate base = LocalDate.of(2026, 1, 1);
+        List<String> ids = new ArrayList<>(units);
+        List<LocalDate> dates = new ArrayList<>(units);
+        List<String> otherIds = new ArrayList<>(units);
+        List<LocalDate> otherDates = new ArrayList<>(units);
+        List<String> otherRemovedIds = new ArrayList<>();
+        for (int i = 0; i < units; i++) {
+            String id = "bench-" + i;
+            LocalDate date = base.plusDays(i % 90);
+            ids.add(id);
+            dates.add(date);
+            if (random.nextInt(50) != 0) {
+                otherIds.add(id);
+                otherDates.add(random.nextInt(10) == 0 ? date.plusDays(7) : date);
+            } else {
+                otherRemovedIds.add(id);
+            }
+        }
+        snapshots.add(new Snapshot(ids, dates, List.of()));
+        snapshots.add(new Snapshot(otherIds, otherDates, otherRemovedIds));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.update("TRUNCATE housing_availability_events, time_on_market_histogram");
+        jdbcTemplate.update("TRUNCATE housings, districts, cities, housing_types CASCADE");
+    }
+
+    @Benchmark
+    public int perRowLoop() {
+        Snapshot snapshot = nextSnapshot();
+        Instant at = nextOccurredAt();
+        return transactionTemplate.execute(status -> {
+            // markUnavailable creates the month's event partition the MARK_AVAILABLE insert needs.
+            int changed = repository.markUnavailable(snapshot.removedIds(), at).size();
+            Timestamp timestamp = Timestamp.from(at);
+            changed += jdbcTemplate.queryForList(MARK_AVAILABLE, String.class, timestamp, timestamp,
+                    snapshot.ids().toArray(String[]::new), timestamp, HousingAvailabilityEventRepository.BECAME_AVAILABLE).size();
+            for (int i = 0; i < snapshot.ids().size(); i++) {
+                Date date = Date.valueOf(snapshot.availableFromDates().get(i));
+                changed += jdbcTemplate.update(PER_ROW_UPDATE, date, snapshot.ids().get(i), date);
+            }
+            return changed;
+        });
+    }
+
+    @Benchmark
+    public int setBased() {
+        Snapshot snapshot = nextSnapshot();
+        Instant at = nextOccurredAt();
+        return transactionTemplate.execute(status -> {
+            AppliedAvailability applied = repository.applyAvailable(snapshot.ids(), snapshot.availableFromDates(), at);
+            return applied.becameAvailable().size()
+                    + applied.availableFromDateChanged().size()
+                    + repository.markUnavailable(snapshot.removedIds(), at).size();
+        });
+    }
+
+    private Snapshot nextSnapshot() {
+        return snapshots.get(round++ & 1);
+    }
+
+    private Instant nextOccurredAt() {
+        occurredAt = occurredAt.plusMillis(1);
+        return occurredAt;
+    }
+
+    private void seed() {
+        tearDown();
+        jdbcTemplate.update("""
+                INSERT INTO cities (name, created_at, last_modified_at, last_imported_at)
+                VALUES ('Trondheim', now(), now(), now())
+                """);
+        jdbcTemplate.update("""
+                INSERT INTO districts (name, city_id, created_at, last_modified_at, last_imported_at)
+                SELECT 'Moholt', id, now(), now(), now() FROM cities
+                """);
+        jdbcTemplate.update("""
+                INSERT INTO housing_types (name, created_at, last_modified_at, last_imported_at)
+                VALUES ('1-room apartment', now(), now(), now())
+                """);
+        jdbcTemplate.update("""
+                INSERT INTO housings (rental_object_id, address, name, housing_type_id, district_id, area_sqm,
+                                      price_per_month, is_available, created_at, last_modified_at, last_imported_at)
+                SELECT 'bench-' || i, 'Address ' || i, 'Name ' || i, t.id, d.id, 20, 8000, false, now(), now(), now()
+                FROM generate_series(0, ? - 1) AS i, housing_types t, districts d
+                """, units);
+        jdbcTemplate.execute("ANALYZE housings");
+    }
+}
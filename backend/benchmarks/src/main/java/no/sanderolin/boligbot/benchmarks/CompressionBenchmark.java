@@ -0,0 +1,67 @@
+package no.sanderolin.boligbot.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import no.sanderolin.boligbot.web.compression.ContentCoding;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares per-request compression of a 100-row search page with serving a precompressed body.
+ * Bytes on the wire for each coding are printed once per trial.
+ * Run with: java -jar benchmarks/target/benchmarks.jar CompressionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Object page;
+    private byte[] precompressedGzip;
+    private byte[] precompressedZstd;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .setFilterProvider(new SimpleFilterProvider().setFailOnUnknownId(false));
+        page = HousingPageFixtures.page(100);
+
+        byte[] json = objectMapper.writeValueAsBytes(page);
+        precompressedGzip = ContentCoding.GZIP.encode(json);
+        precompressedZstd = ContentCoding.ZSTD.encode(json);
+        System.out.printf("%nbytes on the wire: identity=%d, gzip=%d, zstd=%d%n",
+                json.length, precompressedGzip.length, precompressedZstd.length);
+    }
+
+    @Benchmark
+    public byte[] identity() throws Exception {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] gzipPerRequest() throws Exception {
+        return ContentCoding.GZIP.encode(objectMapper.writeValueAsBytes(page));
+    }
+
+    @Benchmark
+    public byte[] zstdPerRequest() throws Exception {
+        return ContentCoding.ZSTD.encode(objectMapper.writeValueAsBytes(page));
+    }
+
+    @Benchmark
+    public byte[] precompressedGzip() {
+        return precompressedGzip;
+    }
+
+    @Benchmark
+    public byte[] precompressedZstd() {
+        return precompressedZstd;
+    }
+}
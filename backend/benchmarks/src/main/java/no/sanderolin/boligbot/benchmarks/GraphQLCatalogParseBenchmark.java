@@ -0,0 +1,91 @@
+package no.sanderolin.boligbot.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import no.sanderolin.boligbot.housingimport.dto.HousingDTO;
+import no.sanderolin.boligbot.housingimport.util.GraphQLHousingMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a catalog response the old way (buffer into a String, scan it for "errors", build a JsonNode tree,
+ * then map) and with the streaming {@link GraphQLHousingMapper}. The payload repeats an item recorded from the
+ * SIT API with varying ids and values.
+ * <p>
+ * Allocation per parse: java -jar benchmarks/target/benchmarks.jar GraphQLCatalogParseBenchmark -prof gc
+ * <br>
+ * Bounded heap: add -p items=100000 -jvmArgsAppend -Xmx128m. The streaming path only needs the payload fixture and the
+ * mapped DTOs; the tree path runs out of memory there, and still does at -Xmx256m.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphQLCatalogParseBenchmark {
+
+    private static final String RECORDED_ITEM = """
+            {"rentalObjectId":"%s","name":"Hybel %d H0%03d","building":{"address":"Berghusvegen %d"},"area":%s,\
+            "price":%d,"category":{"displayName":{"no":"Hybel i kollektiv","en":"Dorm in collective"}},\
+            "studentby":{"name":"Kallerud","studiested":{"name":"Gjøvik"}},\
+            "kollektiv":{"name":"Kollektiv BER10-BER10-101-BER10-U01"}}""";
+
+    @Param({"10000", "100000"})
+    private int items;
+
+    private ObjectMapper objectMapper;
+    private GraphQLHousingMapper mapper;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper();
+        mapper = new GraphQLHousingMapper(objectMapper);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write("{\"data\":{\"sanity_allEnhet\":[".getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < items; i++) {
+            if (i > 0) out.write(',');
+            out.write(RECORDED_ITEM.formatted(
+                    "BER%02d-%05d".formatted(i % 40, i), 100 + i, i % 1000, i % 40,
+                    BigDecimal.valueOf(95 + i % 200, 1).toPlainString(), 5200 + (i * 37) % 6000
+            ).getBytes(StandardCharsets.UTF_8));
+        }
+        out.write("]}}".getBytes(StandardCharsets.UTF_8));
+        payload = out.toByteArray();
+        System.out.printf("%npayload size: %d bytes%n", payload.length);
+    }
+
+    @Benchmark
+    public List<HousingDTO> bufferedTree() throws Exception {
+        String response = new String(payload, StandardCharsets.UTF_8);
+        if (response.contains("errors")) throw new IllegalStateException("errors");
+        JsonNode root = objectMapper.readTree(response);
+        List<HousingDTO> result = new ArrayList<>();
+        for (JsonNode item : root.path("data").path("sanity_allEnhet")) {
+            result.add(new HousingDTO(
+                    item.path("rentalObjectId").asText().trim(),
+                    item.path("name").asText().trim(),
+                    item.path("building").path("address").asText().trim(),
+                    item.path("category").path("displayName").path("en").asText().trim(),
+                    item.path("studentby").path("studiested").path("name").asText().trim(),
+                    item.path("studentby").path("name").asText().trim(),
+                    BigDecimal.valueOf(item.path("area").asDouble()),
+                    item.path("price").asInt()
+            ));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<HousingDTO> streaming() {
+        return mapper.mapHousingEntities(new ByteArrayInputStream(payload));
+    }
+}
@@ -0,0 +1,41 @@
+package no.sanderolin.boligbot.benchmarks;
+
+import no.sanderolin.boligbot.web.v1.common.response.PagedResponse;
+import no.sanderolin.boligbot.web.v1.housing.response.HousingDTO;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds search pages that look like production data: few distinct cities, districts and types,
+ * repeated across every row.
+ */
+final class HousingPageFixtures {
+
+    private static final String[] CITIES = {"Trondheim", "Gjøvik", "Ålesund"};
+    private static final String[] DISTRICTS = {"Moholt", "Singsaker", "Kallerud", "Sørnesvågen", "Steinan", "Lerkendal"};
+    private static final String[] TYPES = {"Dorm in collective", "1-room apartment", "2-room apartment", "Family apartment"};
+
+    private HousingPageFixtures() { }
+
+    static PagedResponse<HousingDTO> page(int size) {
+        List<HousingDTO> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(new HousingDTO(
+                    "MOH%02d-%03d".formatted(i % 40, i),
+                    "Moholt Allé %d".formatted(i % 40),
+                    "Hybel %d H0%03d".formatted(100 + i, i),
+                    TYPES[i % TYPES.length],
+                    CITIES[i % CITIES.length],
+                    DISTRICTS[i % DISTRICTS.length],
+                    BigDecimal.valueOf(9.5 + (i % 30)),
+                    5200 + (i * 37) % 6000,
+                    i % 3 == 0,
+                    i % 3 == 0 ? LocalDate.of(2025, 8, 1).plusDays(i % 60) : null
+            ));
+        }
+        return new PagedResponse<>(items, 0, size, 6000, true);
+    }
+}
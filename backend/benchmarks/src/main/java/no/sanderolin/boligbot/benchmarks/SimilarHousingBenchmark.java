@@ -0,0 +1,56 @@
+package no.sanderolin.boligbot.benchmarks;
+
+import no.sanderolin.boligbot.service.housing.similar.HousingSimilarityIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a top-10 similar housing lookup and a full index rebuild over a synthetic catalog.
+ * Run with: java -jar benchmarks/target/benchmarks.jar SimilarHousingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimilarHousingBenchmark {
+
+    @Param({"10000", "100000"})
+    private int housings;
+
+    private List<HousingSimilarityIndex.Item> items;
+    private HousingSimilarityIndex index;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        items = new ArrayList<>(housings);
+        for (int i = 0; i < housings; i++) {
+            long city = random.nextInt(6);
+            long district = city * 20 + random.nextInt(20);
+            long type = random.nextInt(8);
+            double area = 10 + random.nextDouble() * 70;
+            int price = (int) (area * (250 + random.nextInt(200)));
+            items.add(new HousingSimilarityIndex.Item(String.valueOf(i), price, area, type, district, city));
+        }
+        index = HousingSimilarityIndex.build(items);
+    }
+
+    @Benchmark
+    public List<String> nearest10() {
+        next = (next + 7919) % housings;
+        return index.nearest(items.get(next), 10);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public HousingSimilarityIndex rebuild() {
+        return HousingSimilarityIndex.build(items);
+    }
+}
@@ -0,0 +1,21 @@
+package no.sanderolin.boligbot.dao.event;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Published by the availability import after a run that made housings available or unavailable.
+ * <p>
+ * {@code remote} is set when the import ran on another node. Listeners with side effects, such as sending
+ * notifications, must ignore remote events: the importing node has already acted on the change.
+ */
+public record HousingAvailabilityChangedEvent(
+        List<String> becameAvailable,
+        List<String> becameUnavailable,
+        Instant occurredAt,
+        boolean remote
+) {
+    public HousingAvailabilityChangedEvent(List<String> becameAvailable, List<String> becameUnavailable, Instant occurredAt) {
+        this(becameAvailable, becameUnavailable, occurredAt, false);
+    }
+}
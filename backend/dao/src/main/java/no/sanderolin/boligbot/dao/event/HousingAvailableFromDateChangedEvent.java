@@ -0,0 +1,9 @@
+package no.sanderolin.boligbot.dao.event;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Published by the availability import after a run that changed the available-from date of housings.
+ */
+public record HousingAvailableFromDateChangedEvent(List<String> rentalObjectIds, Instant occurredAt) { }
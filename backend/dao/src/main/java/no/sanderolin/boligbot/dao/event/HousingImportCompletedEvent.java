@@ -0,0 +1,24 @@
+package no.sanderolin.boligbot.dao.event;
+
+import java.time.Instant;
+
+/**
+ * Published by the import services after a run that changed housing data.
+ * Listeners that cache derived data use it to know when that data is stale.
+ * <p>
+ * {@code remote} is set when the import ran on another node and this node learned of it through a notification.
+ */
+public record HousingImportCompletedEvent(
+        ImportKind kind,
+        Instant completedAt,
+        boolean remote
+) {
+    public enum ImportKind {
+        CATALOG,
+        AVAILABILITY
+    }
+
+    public HousingImportCompletedEvent(ImportKind kind, Instant completedAt) {
+        this(kind, completedAt, false);
+    }
+}
@@ -0,0 +1,11 @@
+package no.sanderolin.boligbot.dao.event;
+
+import no.sanderolin.boligbot.dao.projection.HousingPriceChange;
+
+import java.util.List;
+
+/**
+ * Published by the catalog import after a run that changed the price or area of existing housings.
+ * New housings are not included.
+ */
+public record HousingPriceChangedEvent(List<HousingPriceChange> changes) { }
@@ -0,0 +1,20 @@
+package no.sanderolin.boligbot.dao.event;
+
+/**
+ * Published after a user changed data that nodes keep in memory for the imports to act on: saved searches,
+ * watchlists and webhooks. Nodes that did not make the change reload that data.
+ * <p>
+ * {@code remote} is set when the change was made on another node and this node learned of it through a notification.
+ */
+public record UserDataChangedEvent(Kind kind, boolean remote) {
+
+    public enum Kind {
+        SUBSCRIPTIONS,
+        WATCHLIST,
+        WEBHOOKS
+    }
+
+    public UserDataChangedEvent(Kind kind) {
+        this(kind, false);
+    }
+}
@@ -0,0 +1,10 @@
+package no.sanderolin.boligbot.dao.model;
+
+/**
+ * How often a saved search notifies its user: per match as soon as possible, or as an hourly or daily digest.
+ */
+public enum NotificationFrequency {
+    IMMEDIATE,
+    HOURLY,
+    DAILY
+}
@@ -0,0 +1,61 @@
+package no.sanderolin.boligbot.dao.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * A saved search. Users are notified when a housing matching every non-null filter becomes available,
+ * either right away or in a digest depending on {@link #frequency}.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true, exclude = "user")
+@ToString(exclude = "user")
+@Entity
+@Table(name = "subscriptions")
+public class SubscriptionModel extends BaseEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", nullable = false, updatable = false)
+    private UserModel user;
+
+    @Column(nullable = false, length = 100)
+    private String name;
+
+    private String city;
+
+    private String district;
+
+    @Column(name = "housing_type")
+    private String housingType;
+
+    @Column(name = "min_price_per_month")
+    private Integer minPricePerMonth;
+
+    @Column(name = "max_price_per_month")
+    private Integer maxPricePerMonth;
+
+    @Column(name = "min_area_sqm", precision = 6, scale = 2)
+    private BigDecimal minAreaSqm;
+
+    @Column(name = "max_area_sqm", precision = 6, scale = 2)
+    private BigDecimal maxAreaSqm;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private NotificationFrequency frequency = NotificationFrequency.IMMEDIATE;
+
+    @Column(name = "last_seen_at")
+    private Instant lastSeenAt;
+
+    @Column(name = "last_seen_rental_object_id")
+    private String lastSeenRentalObjectId;
+}
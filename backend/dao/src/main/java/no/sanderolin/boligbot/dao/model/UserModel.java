@@ -26,4 +26,10 @@ public class UserModel extends BaseEntity {
     @NotBlank(message = "Password is required")
     @Size(min = 8, message = "Password must be at least 8 characters long")
     private String passwordHash;
+
+    /**
+     * Grants the ADMIN role. Only set by an operator in the database, never through the API.
+     */
+    @Column(name = "is_admin", nullable = false)
+    private boolean admin;
 }
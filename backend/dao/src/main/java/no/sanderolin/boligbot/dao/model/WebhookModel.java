@@ -0,0 +1,37 @@
+package no.sanderolin.boligbot.dao.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * A partner endpoint that receives signed POSTs for the housing change events it subscribes to.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true, exclude = "user")
+@ToString(exclude = {"user", "secret"})
+@Entity
+@Table(name = "webhooks")
+public class WebhookModel extends BaseEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", nullable = false, updatable = false)
+    private UserModel user;
+
+    @Column(nullable = false, length = 2048)
+    private String url;
+
+    @Column(nullable = false)
+    private String secret;
+
+    @Column(name = "availability_events", nullable = false)
+    private boolean availabilityEvents;
+
+    @Column(name = "price_events", nullable = false)
+    private boolean priceEvents;
+}
@@ -0,0 +1,9 @@
+package no.sanderolin.boligbot.dao.projection;
+
+import java.util.List;
+
+/**
+ * Outcome of applying one availability snapshot: the housings that flipped to available, the housings whose
+ * available-from date changed and the listed ids that match no housing. A housing can be in the first two lists.
+ */
+public record AppliedAvailability(List<String> becameAvailable, List<String> availableFromDateChanged, List<String> unknown) { }
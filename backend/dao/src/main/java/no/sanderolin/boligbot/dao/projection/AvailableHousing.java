@@ -0,0 +1,8 @@
+package no.sanderolin.boligbot.dao.projection;
+
+import java.time.LocalDate;
+
+/**
+ * A housing currently marked available, with its available-from date.
+ */
+public record AvailableHousing(String rentalObjectId, LocalDate availableFromDate) { }
@@ -0,0 +1,9 @@
+package no.sanderolin.boligbot.dao.projection;
+
+import java.util.List;
+
+/**
+ * Outcome of merging the staged catalog into {@code housings}. {@code changedPrices} only holds existing housings
+ * whose price or area changed; new housings get a price history row but are not reported as a change.
+ */
+public record CatalogMergeResult(int created, int updated, int unchanged, List<HousingPriceChange> changedPrices) { }
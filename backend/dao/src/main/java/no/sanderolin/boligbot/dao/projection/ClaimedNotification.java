@@ -0,0 +1,8 @@
+package no.sanderolin.boligbot.dao.projection;
+
+/**
+ * A {@code notification_outbox} row claimed for delivery. {@code attempts} includes the current attempt.
+ * Either {@code subscriptionId} is set, for a saved search match, or {@code watchedChange}, for a change to a
+ * watched housing.
+ */
+public record ClaimedNotification(long id, long userId, Long subscriptionId, String watchedChange, String rentalObjectId, int attempts) { }
@@ -0,0 +1,6 @@
+package no.sanderolin.boligbot.dao.projection;
+
+/**
+ * A housing that became available during a digest period and matches a digest subscription.
+ */
+public record DigestMatch(long userId, long subscriptionId, String rentalObjectId) { }
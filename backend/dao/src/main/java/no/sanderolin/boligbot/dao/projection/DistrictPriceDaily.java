@@ -0,0 +1,15 @@
+package no.sanderolin.boligbot.dao.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One row of {@code district_price_daily}: price aggregates over all housings in a district on a day.
+ */
+public record DistrictPriceDaily(long districtId,
+                                 LocalDate day,
+                                 int housingCount,
+                                 BigDecimal avgPricePerMonth,
+                                 BigDecimal avgPricePerSqm,
+                                 int minPricePerMonth,
+                                 int maxPricePerMonth) { }
@@ -0,0 +1,21 @@
+package no.sanderolin.boligbot.dao.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * The columns of a housing needed to compare it with other housings.
+ */
+public interface HousingFeatureRow {
+
+    String getRentalObjectId();
+
+    int getPricePerMonth();
+
+    BigDecimal getAreaSqm();
+
+    Long getHousingTypeId();
+
+    Long getDistrictId();
+
+    Long getCityId();
+}
@@ -0,0 +1,9 @@
+package no.sanderolin.boligbot.dao.projection;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * One row of {@code housing_price_history}: the price and area a housing had from {@code recordedAt}.
+ */
+public record HousingPriceChange(String rentalObjectId, Instant recordedAt, int pricePerMonth, BigDecimal areaSqm) { }
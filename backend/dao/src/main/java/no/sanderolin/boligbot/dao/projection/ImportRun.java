@@ -0,0 +1,17 @@
+package no.sanderolin.boligbot.dao.projection;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * One row of {@code import_runs}. Phase durations are in milliseconds; counts are housings, such as fetched or
+ * created. {@code payloadBytes} and {@code error} are null when the run read no payload or did not fail.
+ */
+public record ImportRun(String kind,
+                        Instant startedAt,
+                        Instant finishedAt,
+                        String status,
+                        Map<String, Double> phaseMillis,
+                        Map<String, Long> counts,
+                        Long payloadBytes,
+                        String error) { }
@@ -0,0 +1,12 @@
+package no.sanderolin.boligbot.dao.projection;
+
+/**
+ * Percentiles of one measure over the import runs of a kind. {@code phase} is null for measures of whole runs.
+ */
+public record ImportRunPercentiles(String kind,
+                                   String phase,
+                                   long samples,
+                                   double p50,
+                                   double p90,
+                                   double p99,
+                                   double max) { }
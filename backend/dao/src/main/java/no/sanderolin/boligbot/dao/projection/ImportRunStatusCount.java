@@ -0,0 +1,3 @@
+package no.sanderolin.boligbot.dao.projection;
+
+public record ImportRunStatusCount(String kind, String status, long runs) { }
@@ -0,0 +1,8 @@
+package no.sanderolin.boligbot.dao.projection;
+
+import java.time.Instant;
+
+/**
+ * A housing that matched a subscription when it became available at {@code occurredAt}.
+ */
+public record OutboxNotification(long userId, long subscriptionId, String rentalObjectId, Instant occurredAt) { }
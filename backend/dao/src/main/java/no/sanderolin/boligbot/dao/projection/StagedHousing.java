@@ -0,0 +1,18 @@
+package no.sanderolin.boligbot.dao.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * One housing from the catalog feed, with its type, city and district by name and the hex SHA-256 of its content.
+ */
+public record StagedHousing(
+        String rentalObjectId,
+        String name,
+        String address,
+        String housingTypeName,
+        String cityName,
+        String districtName,
+        BigDecimal areaSqm,
+        int pricePerMonth,
+        String contentHash
+) { }
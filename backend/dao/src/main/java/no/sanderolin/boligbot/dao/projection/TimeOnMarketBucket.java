@@ -0,0 +1,6 @@
+package no.sanderolin.boligbot.dao.projection;
+
+/**
+ * Number of housings in a group that were on the market for {@code daysOnMarket} days before becoming unavailable.
+ */
+public record TimeOnMarketBucket(long groupId, String groupName, int daysOnMarket, long unitCount) { }
@@ -0,0 +1,8 @@
+package no.sanderolin.boligbot.dao.projection;
+
+import java.time.Instant;
+
+/**
+ * A change of kind {@code change} to a housing on the user's watchlist, made at {@code occurredAt}.
+ */
+public record WatchedHousingNotification(long userId, String rentalObjectId, String change, Instant occurredAt) { }
@@ -0,0 +1,3 @@
+package no.sanderolin.boligbot.dao.projection;
+
+public record WatchlistEntry(long userId, String rentalObjectId) { }
@@ -0,0 +1,103 @@
+package no.sanderolin.boligbot.dao.repository;
+
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.model.NotificationFrequency;
+import no.sanderolin.boligbot.dao.projection.DigestMatch;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Matches a period's availability events against the digest subscriptions and tracks the last period sent.
+ */
+@Repository
+@RequiredArgsConstructor
+public class DigestRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Returns every (subscription, housing) pair where the housing became available in {@code [from, to)},
+     * is still available, and matches a subscription with the given frequency. Evaluated as one join over the
+     * period's events and all subscriptions, ordered by user so results can be grouped into messages.
+     */
+    public List<DigestMatch> findMatches(NotificationFrequency frequency, Instant from, Instant to) {
+        return jdbcTemplate.query(
+                """
+                WITH newly_available AS (
+                    SELECT DISTINCT rental_object_id
+                    FROM housing_availability_events
+                    WHERE occurred_at >= ?
+                      AND occurred_at < ?
+                      AND event_type = ?
+                )
+                SELECT s.user_id, s.id AS subscription_id, h.rental_object_id
+                FROM newly_available n
+                JOIN housings h ON h.rental_object_id = n.rental_object_id AND h.is_available
+                JOIN districts d ON d.id = h.district_id
+                JOIN cities c ON c.id = d.city_id
+                JOIN housing_types t ON t.id = h.housing_type_id
+                JOIN subscriptions s
+                  ON s.frequency = ?
+                 AND (s.city IS NULL OR lower(s.city) = lower(c.name))
+                 AND (s.district IS NULL OR lower(s.district) = lower(d.name))
+                 AND (s.housing_type IS NULL OR lower(s.housing_type) = lower(t.name))
+                 AND (s.min_price_per_month IS NULL OR h.price_per_month >= s.min_price_per_month)
+                 AND (s.max_price_per_month IS NULL OR h.price_per_month <= s.max_price_per_month)
+                 AND (s.min_area_sqm IS NULL OR h.area_sqm >= s.min_area_sqm)
+                 AND (s.max_area_sqm IS NULL OR h.area_sqm <= s.max_area_sqm)
+                ORDER BY s.user_id, s.id, h.rental_object_id
+                """,
+                (rs, rowNum) -> new DigestMatch(rs.getLong(1), rs.getLong(2), rs.getString(3)),
+                Timestamp.from(from),
+                Timestamp.from(to),
+                HousingAvailabilityEventRepository.BECAME_AVAILABLE,
+                frequency.name()
+        );
+    }
+
+    public Optional<Instant> findLastPeriodEnd(NotificationFrequency frequency) {
+        return jdbcTemplate.query(
+                "SELECT period_end FROM digest_runs WHERE frequency = ?",
+                (rs, rowNum) -> rs.getTimestamp(1).toInstant(),
+                frequency.name()
+        ).stream().findFirst();
+    }
+
+    /**
+     * Moves the watermark from {@code lastPeriodEnd} (null before the first run) to {@code periodEnd}, unless it
+     * has been moved since it was read. Only one node can claim a period, so every digest is sent once.
+     *
+     * @return whether this call claimed the period
+     */
+    public boolean claimPeriod(NotificationFrequency frequency, Instant lastPeriodEnd, Instant periodEnd) {
+        if (lastPeriodEnd == null) {
+            return jdbcTemplate.update(
+                    "INSERT INTO digest_runs (frequency, period_end) VALUES (?, ?) ON CONFLICT (frequency) DO NOTHING",
+                    frequency.name(), Timestamp.from(periodEnd)
+            ) == 1;
+        }
+        return jdbcTemplate.update(
+                "UPDATE digest_runs SET period_end = ? WHERE frequency = ? AND period_end = ?",
+                Timestamp.from(periodEnd), frequency.name(), Timestamp.from(lastPeriodEnd)
+        ) == 1;
+    }
+
+    /**
+     * Gives a claimed period back by moving the watermark back to {@code lastPeriodEnd}, so the next run covers
+     * it again.
+     */
+    public void releasePeriod(NotificationFrequency frequency, Instant lastPeriodEnd, Instant periodEnd) {
+        if (lastPeriodEnd == null) {
+            jdbcTemplate.update("DELETE FROM digest_runs WHERE frequency = ? AND period_end = ?",
+                    frequency.name(), Timestamp.from(periodEnd));
+            return;
+        }
+        jdbcTemplate.update("UPDATE digest_runs SET period_end = ? WHERE frequency = ? AND period_end = ?",
+                Timestamp.from(lastPeriodEnd), frequency.name(), Timestamp.from(periodEnd));
+    }
+}
@@ -0,0 +1,77 @@
+package no.sanderolin.boligbot.dao.repository;
+
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.projection.DistrictPriceDaily;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * JDBC access to the {@code district_price_daily} rollup table.
+ */
+@Repository
+@RequiredArgsConstructor
+public class DistrictPriceDailyRepository {
+
+    private static final RowMapper<DistrictPriceDaily> ROW_MAPPER = (rs, rowNum) -> new DistrictPriceDaily(
+            rs.getLong("district_id"),
+            rs.getDate("day").toLocalDate(),
+            rs.getInt("housing_count"),
+            rs.getBigDecimal("avg_price_per_month"),
+            rs.getBigDecimal("avg_price_per_sqm"),
+            rs.getInt("min_price_per_month"),
+            rs.getInt("max_price_per_month")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Recomputes the rollup of {@code day} for every district from the current housings.
+     * Running it again on the same day overwrites that day's rows.
+     *
+     * @return the number of district rows written
+     */
+    public int refreshDay(LocalDate day) {
+        return jdbcTemplate.update(
+                """
+                INSERT INTO district_price_daily (district_id, day, housing_count, avg_price_per_month,
+                                                  avg_price_per_sqm, min_price_per_month, max_price_per_month)
+                SELECT h.district_id,
+                       ?,
+                       count(*),
+                       round(avg(h.price_per_month), 2),
+                       coalesce(round(avg(h.price_per_month / nullif(h.area_sqm, 0)), 2), 0),
+                       min(h.price_per_month),
+                       max(h.price_per_month)
+                FROM housings h
+                GROUP BY h.district_id
+                ON CONFLICT (district_id, day) DO UPDATE
+                SET housing_count = EXCLUDED.housing_count,
+                    avg_price_per_month = EXCLUDED.avg_price_per_month,
+                    avg_price_per_sqm = EXCLUDED.avg_price_per_sqm,
+                    min_price_per_month = EXCLUDED.min_price_per_month,
+                    max_price_per_month = EXCLUDED.max_price_per_month
+                """,
+                Date.valueOf(day)
+        );
+    }
+
+    public List<DistrictPriceDaily> findAllByDistrictIdAndDayBetween(long districtId, LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(
+                """
+                SELECT district_id, day, housing_count, avg_price_per_month, avg_price_per_sqm,
+                       min_price_per_month, max_price_per_month
+                FROM district_price_daily
+                WHERE district_id = ?
+                  AND day BETWEEN ? AND ?
+                ORDER BY day
+                """,
+                ROW_MAPPER,
+                districtId, Date.valueOf(from), Date.valueOf(to)
+        );
+    }
+}
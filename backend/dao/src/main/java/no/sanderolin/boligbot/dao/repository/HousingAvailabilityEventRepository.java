@@ -0,0 +1,168 @@
+package no.sanderolin.boligbot.dao.repository;
+
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.projection.AppliedAvailability;
+import no.sanderolin.boligbot.dao.projection.AvailableHousing;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Flips housing availability and records each flip in {@code housing_availability_events}.
+ * <p>
+ * Flipped housings get {@code last_modified_at} set to the flip time, so change feeds only need that column.
+ * Each flip is a single statement: the {@code UPDATE ... RETURNING} feeds the event insert and,
+ * for housings becoming unavailable, the {@code time_on_market_histogram} rollup, so neither
+ * needs an extra read. Id lists are bound as a single array parameter, so their size is not limited
+ * by the JDBC bind parameter cap.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HousingAvailabilityEventRepository {
+
+    public static final short BECAME_AVAILABLE = 1;
+    public static final short BECAME_UNAVAILABLE = 2;
+
+    /**
+     * Time on market is bucketed per day, and everything from this many days up shares the last bucket.
+     */
+    public static final int MAX_DAYS_ON_MARKET = 365;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Applies an availability snapshot in one statement: the snapshot is bound as two parallel arrays and
+     * unnested into a join, every listed housing is marked available and gets its available-from date.
+     * Only rows that actually change are written. Listed ids without a housing are reported back.
+     */
+    public AppliedAvailability applyAvailable(List<String> rentalObjectIds, List<LocalDate> availableFromDates, Instant occurredAt) {
+        if (rentalObjectIds.size() != availableFromDates.size()) {
+            throw new IllegalArgumentException("rentalObjectIds and availableFromDates must have the same size");
+        }
+        MonthlyPartitions.createIfMissing(jdbcTemplate, "housing_availability_events", month(occurredAt));
+        Timestamp at = Timestamp.from(occurredAt);
+        String[] dates = availableFromDates.stream().map(date -> date == null ? null : date.toString()).toArray(String[]::new);
+
+        List<String> becameAvailable = new ArrayList<>();
+        List<String> availableFromDateChanged = new ArrayList<>();
+        List<String> unknown = new ArrayList<>();
+        jdbcTemplate.query(
+                """
+                WITH staged AS (
+                    SELECT rental_object_id, available_from_date
+                    FROM unnest(?::text[], ?::date[]) AS s(rental_object_id, available_from_date)
+                ), applied AS (
+                    UPDATE housings h
+                    SET is_available = true,
+                        available_from_date = s.available_from_date,
+                        available_since = CASE WHEN old.is_available THEN old.available_since ELSE ?::timestamptz END,
+                        last_modified_at = CASE WHEN old.is_available THEN old.last_modified_at ELSE ?::timestamptz END
+                    FROM staged s, housings old
+                    WHERE h.rental_object_id = s.rental_object_id
+                      AND old.rental_object_id = s.rental_object_id
+                      AND (old.is_available = false OR old.available_from_date IS DISTINCT FROM s.available_from_date)
+                    RETURNING h.rental_object_id,
+                              NOT old.is_available AS became_available,
+                              old.available_from_date IS DISTINCT FROM s.available_from_date AS date_changed
+                ), events AS (
+                    INSERT INTO housing_availability_events (rental_object_id, occurred_at, event_type)
+                    SELECT rental_object_id, ?::timestamptz, ?::smallint
+                    FROM applied
+                    WHERE became_available
+                )
+                SELECT rental_object_id, became_available, date_changed, false AS is_unknown FROM applied
+                UNION ALL
+                SELECT s.rental_object_id, false, false, true
+                FROM staged s
+                WHERE NOT EXISTS (SELECT 1 FROM housings h WHERE h.rental_object_id = s.rental_object_id)
+                """,
+                rs -> {
+                    if (rs.getBoolean("is_unknown")) unknown.add(rs.getString("rental_object_id"));
+                    if (rs.getBoolean("became_available")) becameAvailable.add(rs.getString("rental_object_id"));
+                    if (rs.getBoolean("date_changed")) availableFromDateChanged.add(rs.getString("rental_object_id"));
+                },
+                rentalObjectIds.toArray(String[]::new), dates, at, at, at, BECAME_AVAILABLE
+        );
+        return new AppliedAvailability(becameAvailable, availableFromDateChanged, unknown);
+    }
+
+    /**
+     * Marks the given housings unavailable if they are available and adds how long each was on the market
+     * to the histogram. Housings with an unknown {@code available_since} are left out of the histogram.
+     *
+     * @return the ids of the housings that became unavailable
+     */
+    public List<String> markUnavailable(List<String> rentalObjectIds, Instant occurredAt) {
+        MonthlyPartitions.createIfMissing(jdbcTemplate, "housing_availability_events", month(occurredAt));
+        Timestamp at = Timestamp.from(occurredAt);
+        return jdbcTemplate.queryForList(
+                """
+                WITH flipped AS (
+                    UPDATE housings h
+                    SET is_available = false,
+                        available_from_date = null,
+                        available_since = null,
+                        last_modified_at = ?::timestamptz
+                    FROM housings old
+                    WHERE h.rental_object_id = old.rental_object_id
+                      AND h.is_available = true
+                      AND h.rental_object_id = ANY (?::text[])
+                    RETURNING h.rental_object_id, h.district_id, h.housing_type_id, old.available_since
+                ), events AS (
+                    INSERT INTO housing_availability_events (rental_object_id, occurred_at, event_type)
+                    SELECT rental_object_id, ?::timestamptz, ?::smallint
+                    FROM flipped
+                ), histogram AS (
+                    INSERT INTO time_on_market_histogram (district_id, housing_type_id, days_on_market, unit_count)
+                    SELECT district_id,
+                           housing_type_id,
+                           least(floor(extract(EPOCH FROM (?::timestamptz - available_since)) / 86400), ?::int)::smallint,
+                           count(*)
+                    FROM flipped
+                    WHERE available_since IS NOT NULL
+                    GROUP BY 1, 2, 3
+                    ON CONFLICT (district_id, housing_type_id, days_on_market) DO UPDATE
+                    SET unit_count = time_on_market_histogram.unit_count + EXCLUDED.unit_count
+                )
+                SELECT rental_object_id FROM flipped
+                """,
+                String.class,
+                at, rentalObjectIds.toArray(String[]::new), at, BECAME_UNAVAILABLE, at, MAX_DAYS_ON_MARKET
+        );
+    }
+
+    /**
+     * Reads every housing currently marked available.
+     */
+    public List<AvailableHousing> findAvailable() {
+        return jdbcTemplate.query(
+                "SELECT rental_object_id, available_from_date FROM housings WHERE is_available = true",
+                (rs, rowNum) -> new AvailableHousing(
+                        rs.getString("rental_object_id"), rs.getObject("available_from_date", LocalDate.class)));
+    }
+
+    /**
+     * Reads the ids of the housings that flipped to {@code eventType} at exactly {@code occurredAt}, which every
+     * flip of one availability import shares.
+     */
+    public List<String> findIdsFlippedAt(Instant occurredAt, short eventType) {
+        return jdbcTemplate.queryForList(
+                """
+                SELECT rental_object_id FROM housing_availability_events
+                WHERE occurred_at = ?::timestamptz AND event_type = ?
+                ORDER BY rental_object_id
+                """,
+                String.class, Timestamp.from(occurredAt), eventType);
+    }
+
+    private static YearMonth month(Instant instant) {
+        return YearMonth.from(instant.atZone(ZoneOffset.UTC));
+    }
+}
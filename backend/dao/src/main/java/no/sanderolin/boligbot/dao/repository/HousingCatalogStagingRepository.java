@@ -0,0 +1,191 @@
+package no.sanderolin.boligbot.dao.repository;
+
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.projection.CatalogMergeResult;
+import no.sanderolin.boligbot.dao.projection.HousingPriceChange;
+import no.sanderolin.boligbot.dao.projection.StagedHousing;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk path of the catalog import. The feed is COPYed into the unlogged {@code housing_catalog_staging} table and
+ * applied to {@code housings} with one {@code MERGE}, resolving type and district ids with joins on their names.
+ * The staging calls may run outside the merging transaction, as the staged rows are committed before the merge.
+ * Only one catalog import may stage at a time.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HousingCatalogStagingRepository {
+
+    /**
+     * The staged feed with type and district ids resolved. A rental object id listed twice keeps its last entry.
+     */
+    private static final String RESOLVED_STAGING = """
+            SELECT DISTINCT ON (s.rental_object_id)
+                   s.rental_object_id, s.name, s.address, t.id AS housing_type_id, d.id AS district_id,
+                   s.area_sqm, s.price_per_month, s.content_hash
+            FROM housing_catalog_staging s
+            JOIN housing_types t ON t.name = s.housing_type_name
+            JOIN cities c ON c.name = s.city_name
+            JOIN districts d ON d.city_id = c.id AND d.name = s.district_name
+            ORDER BY s.rental_object_id, s.position DESC
+            """;
+
+    /**
+     * Rows are compared by content hash. Rows imported before the hash existed are compared field by field once.
+     */
+    private static final String CHANGED = """
+            CASE WHEN h.content_hash IS NULL
+                 THEN h.name <> s.name
+                      OR h.address <> s.address
+                      OR h.housing_type_id <> s.housing_type_id
+                      OR h.district_id <> s.district_id
+                      OR h.area_sqm <> s.area_sqm
+                      OR h.price_per_month <> s.price_per_month
+                 ELSE h.content_hash <> s.content_hash
+            END
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void clear() {
+        jdbcTemplate.execute("TRUNCATE housing_catalog_staging");
+    }
+
+    /**
+     * Adds one chunk of the feed in one {@code COPY}. {@code firstPosition} is the position of the first housing
+     * in the whole feed; it decides which entry wins when a rental object id is staged twice.
+     */
+    public void append(List<StagedHousing> housings, int firstPosition) {
+        jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                    """
+                    COPY housing_catalog_staging (position, rental_object_id, name, address, housing_type_name,
+                                                  city_name, district_name, area_sqm, price_per_month, content_hash)
+                    FROM STDIN (FORMAT csv)
+                    """);
+            try {
+                StringBuilder line = new StringBuilder(256);
+                for (int i = 0; i < housings.size(); i++) {
+                    StagedHousing housing = housings.get(i);
+                    line.setLength(0);
+                    line.append(firstPosition + i).append(',');
+                    appendCsv(line, housing.rentalObjectId()).append(',');
+                    appendCsv(line, housing.name()).append(',');
+                    appendCsv(line, housing.address()).append(',');
+                    appendCsv(line, housing.housingTypeName()).append(',');
+                    appendCsv(line, housing.cityName()).append(',');
+                    appendCsv(line, housing.districtName()).append(',');
+                    line.append(housing.areaSqm().toPlainString()).append(',');
+                    line.append(housing.pricePerMonth()).append(',');
+                    line.append("\\x").append(housing.contentHash()).append('\n');
+                    byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+                    copyIn.writeToCopy(bytes, 0, bytes.length);
+                }
+                return copyIn.endCopy();
+            } catch (SQLException | RuntimeException e) {
+                if (copyIn.isActive()) copyIn.cancelCopy();
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Applies the staged feed to {@code housings}: new housings are inserted, changed ones updated and every
+     * staged housing gets {@code last_imported_at}. New housings and price or area changes are appended to
+     * {@code housing_price_history} in the same pass that classifies the rows, before the {@code MERGE}
+     * overwrites the old values. Only the new and changed rows are read back; unchanged rows only get their
+     * content hash filled in if it was missing.
+     */
+    public CatalogMergeResult merge(Instant importedAt) {
+        MonthlyPartitions.createIfMissing(jdbcTemplate, "housing_price_history", YearMonth.from(importedAt.atZone(ZoneOffset.UTC)));
+        Timestamp at = Timestamp.from(importedAt);
+
+        int[] createdAndUpdated = new int[2];
+        List<HousingPriceChange> changedPrices = new ArrayList<>();
+        jdbcTemplate.query(
+                """
+                WITH classified AS (
+                    SELECT s.rental_object_id, s.area_sqm, s.price_per_month,
+                           h.rental_object_id IS NULL AS is_new,
+                           h.rental_object_id IS NOT NULL AND (%s) AS is_changed,
+                           h.rental_object_id IS NULL OR h.area_sqm <> s.area_sqm OR h.price_per_month <> s.price_per_month AS price_changed
+                    FROM (%s) s
+                    LEFT JOIN housings h ON h.rental_object_id = s.rental_object_id
+                ), history AS (
+                    INSERT INTO housing_price_history (rental_object_id, recorded_at, price_per_month, area_sqm)
+                    SELECT rental_object_id, ?::timestamptz, price_per_month, area_sqm
+                    FROM classified
+                    WHERE price_changed
+                    ON CONFLICT DO NOTHING
+                )
+                SELECT rental_object_id, area_sqm, price_per_month, is_new, price_changed
+                FROM classified
+                WHERE is_new OR is_changed
+                """.formatted(CHANGED, RESOLVED_STAGING),
+                rs -> {
+                    if (rs.getBoolean("is_new")) {
+                        createdAndUpdated[0]++;
+                        return;
+                    }
+                    createdAndUpdated[1]++;
+                    if (rs.getBoolean("price_changed")) {
+                        changedPrices.add(new HousingPriceChange(
+                                rs.getString("rental_object_id"), importedAt, rs.getInt("price_per_month"), rs.getBigDecimal("area_sqm")));
+                    }
+                },
+                at
+        );
+
+        int merged = jdbcTemplate.update(
+                """
+                MERGE INTO housings h
+                USING (%s) s
+                ON h.rental_object_id = s.rental_object_id
+                WHEN MATCHED AND (%s) THEN
+                    UPDATE SET name = s.name,
+                               address = s.address,
+                               housing_type_id = s.housing_type_id,
+                               district_id = s.district_id,
+                               area_sqm = s.area_sqm,
+                               price_per_month = s.price_per_month,
+                               content_hash = s.content_hash,
+                               last_modified_at = ?,
+                               last_imported_at = ?
+                WHEN MATCHED THEN
+                    UPDATE SET content_hash = s.content_hash,
+                               last_imported_at = ?
+                WHEN NOT MATCHED THEN
+                    INSERT (rental_object_id, name, address, housing_type_id, district_id, area_sqm, price_per_month,
+                            content_hash, created_at, last_modified_at, last_imported_at)
+                    VALUES (s.rental_object_id, s.name, s.address, s.housing_type_id, s.district_id, s.area_sqm,
+                            s.price_per_month, s.content_hash, ?, ?, ?)
+                """.formatted(RESOLVED_STAGING, CHANGED),
+                at, at, at, at, at, at
+        );
+        return new CatalogMergeResult(
+                createdAndUpdated[0], createdAndUpdated[1], merged - createdAndUpdated[0] - createdAndUpdated[1], changedPrices);
+    }
+
+    private static StringBuilder appendCsv(StringBuilder line, String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') line.append('"');
+            line.append(c);
+        }
+        return line.append('"');
+    }
+}
@@ -0,0 +1,62 @@
+package no.sanderolin.boligbot.dao.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+
+/**
+ * JDBC access to the {@code housing_change_windows}, which keep the subscription change feed from skipping rows
+ * that an import has stamped but not yet committed. All times come from the database clock.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HousingChangeWindowRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Opens the window for {@code source} and returns the time to stamp its changes with. Must be called outside
+     * a transaction: the window is committed before the stamp is read, so a feed reader either sees the window or
+     * took its watermark before the stamp.
+     */
+    public Instant open(String source) {
+        jdbcTemplate.update(
+                """
+                INSERT INTO housing_change_windows (source, opened_at)
+                VALUES (?, clock_timestamp())
+                ON CONFLICT (source) DO UPDATE SET opened_at = EXCLUDED.opened_at
+                """,
+                source
+        );
+        return jdbcTemplate.queryForObject("SELECT clock_timestamp()", OffsetDateTime.class).toInstant();
+    }
+
+    /**
+     * Closes the window opened for {@code stampedAt}, once the changes are committed or rolled back. A window
+     * opened later for the same source, e.g. by the node that took over the import lease, is left alone.
+     */
+    public void close(String source, Instant stampedAt) {
+        jdbcTemplate.update(
+                "DELETE FROM housing_change_windows WHERE source = ? AND opened_at <= ?",
+                source, Timestamp.from(stampedAt)
+        );
+    }
+
+    /**
+     * The latest time up to which every change stamped on {@code housings.last_modified_at} is committed: the
+     * statement time, or just before the oldest open window.
+     */
+    public Instant committedThrough() {
+        return jdbcTemplate.queryForObject(
+                """
+                SELECT least(statement_timestamp(),
+                             (SELECT min(opened_at) FROM housing_change_windows) - interval '1 microsecond')
+                """,
+                OffsetDateTime.class
+        ).toInstant();
+    }
+}
@@ -0,0 +1,39 @@
+package no.sanderolin.boligbot.dao.repository;
+
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.projection.HousingPriceChange;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * JDBC access to the append-only, monthly partitioned {@code housing_price_history} table.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HousingPriceHistoryRepository {
+
+    private static final RowMapper<HousingPriceChange> ROW_MAPPER = (rs, rowNum) -> new HousingPriceChange(
+            rs.getString("rental_object_id"),
+            rs.getTimestamp("recorded_at").toInstant(),
+            rs.getInt("price_per_month"),
+            rs.getBigDecimal("area_sqm")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<HousingPriceChange> findAllByRentalObjectId(String rentalObjectId) {
+        return jdbcTemplate.query(
+                """
+                SELECT rental_object_id, recorded_at, price_per_month, area_sqm
+                FROM housing_price_history
+                WHERE rental_object_id = ?
+                ORDER BY recorded_at
+                """,
+                ROW_MAPPER,
+                rentalObjectId
+        );
+    }
+}
@@ -0,0 +1,65 @@
+package no.sanderolin.boligbot.dao.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * JDBC access to the {@code import_leases}. Expiry is checked against the database clock, so the clocks of
+ * the competing nodes do not have to agree.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ImportLeaseRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Takes the lease for {@code ttl} if it is free, expired or already held by {@code holder}. The token is
+     * kept when the holder renews and incremented when the lease changes hands.
+     *
+     * @return the fencing token, or empty when another holder has the lease
+     */
+    public OptionalLong tryAcquire(String name, String holder, Duration ttl) {
+        List<Long> tokens = jdbcTemplate.queryForList(
+                """
+                INSERT INTO import_leases AS l (name, holder, token, expires_at)
+                VALUES (?, ?, 1, now() + make_interval(secs => ?))
+                ON CONFLICT (name) DO UPDATE
+                SET holder = EXCLUDED.holder,
+                    token = CASE WHEN l.holder = EXCLUDED.holder THEN l.token ELSE l.token + 1 END,
+                    expires_at = EXCLUDED.expires_at
+                WHERE l.holder = EXCLUDED.holder OR l.expires_at <= now()
+                RETURNING token
+                """,
+                Long.class, name, holder, ttl.toMillis() / 1000.0
+        );
+        return tokens.isEmpty() ? OptionalLong.empty() : OptionalLong.of(tokens.getFirst());
+    }
+
+    /**
+     * Whether {@code holder} still has an unexpired lease under {@code token}. The lease row is share-locked,
+     * so inside a transaction it cannot be taken over or renewed until that transaction ends.
+     */
+    public boolean isHeld(String name, String holder, long token) {
+        return !jdbcTemplate.queryForList(
+                """
+                SELECT token FROM import_leases
+                WHERE name = ? AND holder = ? AND token = ? AND expires_at > now()
+                FOR SHARE
+                """,
+                Long.class, name, holder, token
+        ).isEmpty();
+    }
+
+    /**
+     * Expires the lease if {@code holder} has it, so the next node can take it over without waiting out the ttl.
+     */
+    public void release(String name, String holder) {
+        jdbcTemplate.update("UPDATE import_leases SET expires_at = now() WHERE name = ? AND holder = ?", name, holder);
+    }
+}
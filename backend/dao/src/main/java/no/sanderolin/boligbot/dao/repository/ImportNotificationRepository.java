@@ -0,0 +1,25 @@
+package no.sanderolin.boligbot.dao.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Sends import notifications to the other nodes over Postgres {@code NOTIFY}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ImportNotificationRepository {
+
+    public static final String CHANNEL = "housing_import";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Sends the payload on {@link #CHANNEL}. Within a transaction it is delivered when the transaction commits,
+     * and not at all if it rolls back.
+     */
+    public void send(String payload) {
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", CHANNEL, payload);
+    }
+}
@@ -0,0 +1,142 @@
+package no.sanderolin.boligbot.dao.repository;
+
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.projection.ImportRun;
+import no.sanderolin.boligbot.dao.projection.ImportRunPercentiles;
+import no.sanderolin.boligbot.dao.projection.ImportRunStatusCount;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC access to the {@code import_runs} history. Summaries cover the runs started in {@code [from, to)}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ImportRunRepository {
+
+    private static final RowMapper<ImportRunPercentiles> PERCENTILES_ROW_MAPPER = (rs, rowNum) -> new ImportRunPercentiles(
+            rs.getString("kind"),
+            rs.getString("phase"),
+            rs.getLong("samples"),
+            rs.getDouble("p50"),
+            rs.getDouble("p90"),
+            rs.getDouble("p99"),
+            rs.getDouble("max")
+    );
+
+    private static final String PERCENTILES = """
+            count(*) AS samples,
+            percentile_cont(0.5) WITHIN GROUP (ORDER BY value) AS p50,
+            percentile_cont(0.9) WITHIN GROUP (ORDER BY value) AS p90,
+            percentile_cont(0.99) WITHIN GROUP (ORDER BY value) AS p99,
+            max(value) AS max
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the run. The phase and count maps are bound as parallel key and value arrays and folded into
+     * jsonb objects by the database.
+     */
+    public void insert(ImportRun run) {
+        jdbcTemplate.update(
+                """
+                INSERT INTO import_runs (kind, started_at, finished_at, status, phase_millis, counts, payload_bytes, error)
+                VALUES (?, ?, ?, ?,
+                        (SELECT coalesce(jsonb_object_agg(k, v), '{}') FROM unnest(?::text[], ?::float8[]) AS p(k, v)),
+                        (SELECT coalesce(jsonb_object_agg(k, v), '{}') FROM unnest(?::text[], ?::bigint[]) AS c(k, v)),
+                        ?, ?)
+                """,
+                run.kind(), Timestamp.from(run.startedAt()), Timestamp.from(run.finishedAt()), run.status(),
+                keys(run.phaseMillis()), values(run.phaseMillis()),
+                keys(run.counts()), values(run.counts()),
+                run.payloadBytes(), run.error()
+        );
+    }
+
+    public List<ImportRunStatusCount> countByStatus(Instant from, Instant to) {
+        return jdbcTemplate.query(
+                """
+                SELECT kind, status, count(*) AS runs
+                FROM import_runs
+                WHERE started_at >= ? AND started_at < ?
+                GROUP BY kind, status
+                ORDER BY kind, status
+                """,
+                (rs, rowNum) -> new ImportRunStatusCount(rs.getString("kind"), rs.getString("status"), rs.getLong("runs")),
+                Timestamp.from(from), Timestamp.from(to)
+        );
+    }
+
+    /**
+     * Duration percentiles in milliseconds, of whole runs and of every phase. Skipped runs are left out.
+     */
+    public List<ImportRunPercentiles> findDurationPercentiles(Instant from, Instant to) {
+        return jdbcTemplate.query(
+                """
+                WITH runs AS (
+                    SELECT kind, started_at, finished_at, phase_millis
+                    FROM import_runs
+                    WHERE started_at >= ? AND started_at < ?
+                      AND status <> 'skipped'
+                ), samples AS (
+                    SELECT kind, NULL AS phase, extract(epoch FROM finished_at - started_at) * 1000 AS value
+                    FROM runs
+                    UNION ALL
+                    SELECT r.kind, p.key, p.value::numeric
+                    FROM runs r, jsonb_each_text(r.phase_millis) AS p
+                )
+                SELECT kind, phase,
+                """ + PERCENTILES + """
+                FROM samples
+                GROUP BY kind, phase
+                ORDER BY kind, phase NULLS FIRST
+                """,
+                PERCENTILES_ROW_MAPPER,
+                Timestamp.from(from), Timestamp.from(to)
+        );
+    }
+
+    /**
+     * Percentiles of the payload bytes read per run, over the runs that read a payload.
+     */
+    public List<ImportRunPercentiles> findPayloadPercentiles(Instant from, Instant to) {
+        return jdbcTemplate.query(
+                """
+                SELECT kind, NULL AS phase,
+                """ + PERCENTILES + """
+                FROM (SELECT kind, payload_bytes AS value
+                      FROM import_runs
+                      WHERE started_at >= ? AND started_at < ?
+                        AND payload_bytes IS NOT NULL) AS samples
+                GROUP BY kind
+                ORDER BY kind
+                """,
+                PERCENTILES_ROW_MAPPER,
+                Timestamp.from(from), Timestamp.from(to)
+        );
+    }
+
+    /**
+     * Deletes the runs started before {@code before}.
+     *
+     * @return the number of runs deleted
+     */
+    public int deleteStartedBefore(Instant before) {
+        return jdbcTemplate.update("DELETE FROM import_runs WHERE started_at < ?", Timestamp.from(before));
+    }
+
+    private static String[] keys(Map<String, ? extends Number> values) {
+        return values.keySet().toArray(String[]::new);
+    }
+
+    private static String[] values(Map<String, ? extends Number> values) {
+        return values.values().stream().map(String::valueOf).toArray(String[]::new);
+    }
+}
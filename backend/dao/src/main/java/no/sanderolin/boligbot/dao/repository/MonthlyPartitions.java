@@ -0,0 +1,24 @@
+package no.sanderolin.boligbot.dao.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.YearMonth;
+
+/**
+ * Creates monthly range partitions of tables partitioned on a timestamptz column, named {@code <table>_yYYYYmMM}.
+ */
+final class MonthlyPartitions {
+
+    private MonthlyPartitions() { }
+
+    static void createIfMissing(JdbcTemplate jdbcTemplate, String parentTable, YearMonth month) {
+        jdbcTemplate.execute(
+                "CREATE TABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES FROM ('%s-01 00:00:00+00') TO ('%s-01 00:00:00+00')"
+                        .formatted(partitionName(parentTable, month), parentTable, month, month.plusMonths(1))
+        );
+    }
+
+    static String partitionName(String parentTable, YearMonth month) {
+        return "%s_y%04dm%02d".formatted(parentTable, month.getYear(), month.getMonthValue());
+    }
+}
@@ -0,0 +1,123 @@
+package no.sanderolin.boligbot.dao.repository;
+
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.projection.ClaimedNotification;
+import no.sanderolin.boligbot.dao.projection.OutboxNotification;
+import no.sanderolin.boligbot.dao.projection.WatchedHousingNotification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads and writes {@code notification_outbox}.
+ * <p>
+ * Rows are claimed with {@code FOR UPDATE SKIP LOCKED} and leased by pushing {@code next_attempt_at}
+ * forward, so concurrent dispatchers never claim the same row and the claim transaction stays short.
+ * A row whose dispatcher dies becomes claimable again when the lease runs out.
+ */
+@Repository
+@RequiredArgsConstructor
+public class NotificationOutboxRepository {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void enqueue(Collection<OutboxNotification> notifications) {
+        jdbcTemplate.batchUpdate(
+                """
+                INSERT INTO notification_outbox (user_id, subscription_id, rental_object_id, occurred_at)
+                VALUES (?, ?, ?, ?)
+                ON CONFLICT (subscription_id, rental_object_id, occurred_at) DO NOTHING
+                """,
+                notifications,
+                BATCH_SIZE,
+                (ps, n) -> {
+                    ps.setLong(1, n.userId());
+                    ps.setLong(2, n.subscriptionId());
+                    ps.setString(3, n.rentalObjectId());
+                    ps.setTimestamp(4, Timestamp.from(n.occurredAt()));
+                }
+        );
+    }
+
+    public void enqueueWatched(Collection<WatchedHousingNotification> notifications) {
+        jdbcTemplate.batchUpdate(
+                """
+                INSERT INTO notification_outbox (user_id, rental_object_id, watched_change, occurred_at)
+                VALUES (?, ?, ?, ?)
+                ON CONFLICT DO NOTHING
+                """,
+                notifications,
+                BATCH_SIZE,
+                (ps, n) -> {
+                    ps.setLong(1, n.userId());
+                    ps.setString(2, n.rentalObjectId());
+                    ps.setString(3, n.change());
+                    ps.setTimestamp(4, Timestamp.from(n.occurredAt()));
+                }
+        );
+    }
+
+    /**
+     * Claims up to {@code limit} due notifications that have been tried fewer than {@code maxAttempts} times,
+     * oldest first, and leases them for {@code lease}.
+     */
+    public List<ClaimedNotification> claimBatch(int limit, Duration lease, int maxAttempts) {
+        return jdbcTemplate.query(
+                """
+                WITH due AS (
+                    SELECT id
+                    FROM notification_outbox
+                    WHERE sent_at IS NULL
+                      AND next_attempt_at <= now()
+                      AND attempts < ?
+                    ORDER BY id
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED
+                )
+                UPDATE notification_outbox o
+                SET attempts = o.attempts + 1,
+                    next_attempt_at = now() + ?::interval
+                FROM due
+                WHERE o.id = due.id
+                RETURNING o.id, o.user_id, o.subscription_id, o.watched_change, o.rental_object_id, o.attempts
+                """,
+                (rs, rowNum) -> new ClaimedNotification(
+                        rs.getLong("id"),
+                        rs.getLong("user_id"),
+                        rs.getObject("subscription_id", Long.class),
+                        rs.getString("watched_change"),
+                        rs.getString("rental_object_id"),
+                        rs.getInt("attempts")
+                ),
+                maxAttempts, limit, lease.toMillis() + " milliseconds"
+        );
+    }
+
+    public void markSent(Collection<Long> ids) {
+        if (ids.isEmpty()) return;
+        jdbcTemplate.update(
+                "UPDATE notification_outbox SET sent_at = now(), last_error = null WHERE id = ANY (?::bigint[])",
+                (Object) ids.toArray(Long[]::new)
+        );
+    }
+
+    public void markFailed(Collection<Long> ids, Instant nextAttemptAt, String error) {
+        if (ids.isEmpty()) return;
+        jdbcTemplate.update(
+                "UPDATE notification_outbox SET next_attempt_at = ?::timestamptz, last_error = ? WHERE id = ANY (?::bigint[])",
+                Timestamp.from(nextAttemptAt), error, ids.toArray(Long[]::new)
+        );
+    }
+
+    public long countPending() {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM notification_outbox WHERE sent_at IS NULL", Long.class);
+        return count == null ? 0 : count;
+    }
+}
@@ -0,0 +1,17 @@
+package no.sanderolin.boligbot.dao.repository;
+
+import no.sanderolin.boligbot.dao.model.SubscriptionModel;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface SubscriptionRepository extends JpaRepository<SubscriptionModel, Long> {
+    List<SubscriptionModel> findAllByUserIdOrderByCreatedAtAsc(Long userId);
+    Optional<SubscriptionModel> findByIdAndUserId(Long id, Long userId);
+    long countByUserId(Long userId);
+
+    @EntityGraph(attributePaths = "user")
+    List<SubscriptionModel> findAllWithUserBy();
+}
@@ -0,0 +1,53 @@
+package no.sanderolin.boligbot.dao.repository;
+
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.projection.TimeOnMarketBucket;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Reads {@code time_on_market_histogram}, which is maintained by {@link HousingAvailabilityEventRepository}.
+ * Buckets are ordered by group and then by days on market.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TimeOnMarketHistogramRepository {
+
+    private static final RowMapper<TimeOnMarketBucket> ROW_MAPPER = (rs, rowNum) -> new TimeOnMarketBucket(
+            rs.getLong("group_id"),
+            rs.getString("group_name"),
+            rs.getInt("days_on_market"),
+            rs.getLong("unit_count")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<TimeOnMarketBucket> findAllGroupedByDistrict() {
+        return jdbcTemplate.query(
+                """
+                SELECT d.id AS group_id, d.name AS group_name, t.days_on_market, sum(t.unit_count) AS unit_count
+                FROM time_on_market_histogram t
+                JOIN districts d ON d.id = t.district_id
+                GROUP BY d.id, d.name, t.days_on_market
+                ORDER BY d.id, t.days_on_market
+                """,
+                ROW_MAPPER
+        );
+    }
+
+    public List<TimeOnMarketBucket> findAllGroupedByHousingType() {
+        return jdbcTemplate.query(
+                """
+                SELECT ht.id AS group_id, ht.name AS group_name, t.days_on_market, sum(t.unit_count) AS unit_count
+                FROM time_on_market_histogram t
+                JOIN housing_types ht ON ht.id = t.housing_type_id
+                GROUP BY ht.id, ht.name, t.days_on_market
+                ORDER BY ht.id, t.days_on_market
+                """,
+                ROW_MAPPER
+        );
+    }
+}
@@ -8,6 +8,6 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<UserModel, Long> {
-    boolean existsByEmail(@Email(message = "Email should be valid") @NotBlank(message = "Email is required") String email);
+    boolean existsByEmailIgnoreCase(@Email(message = "Email should be valid") @NotBlank(message = "Email is required") String email);
     Optional<UserModel> findByEmail(@Email(message = "Email should be valid") @NotBlank(message = "Email is required") String email);
 }
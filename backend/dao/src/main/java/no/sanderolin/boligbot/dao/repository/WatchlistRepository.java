@@ -0,0 +1,61 @@
+package no.sanderolin.boligbot.dao.repository;
+
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.projection.WatchlistEntry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class WatchlistRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return false if the user already watches the housing
+     */
+    public boolean add(long userId, String rentalObjectId, Instant createdAt) {
+        return jdbcTemplate.update(
+                """
+                INSERT INTO watchlist_entries (user_id, rental_object_id, created_at)
+                VALUES (?, ?, ?)
+                ON CONFLICT (user_id, rental_object_id) DO NOTHING
+                """,
+                userId, rentalObjectId, Timestamp.from(createdAt)
+        ) == 1;
+    }
+
+    /**
+     * @return false if the user did not watch the housing
+     */
+    public boolean remove(long userId, String rentalObjectId) {
+        return jdbcTemplate.update(
+                "DELETE FROM watchlist_entries WHERE user_id = ? AND rental_object_id = ?",
+                userId, rentalObjectId
+        ) == 1;
+    }
+
+    public List<String> findRentalObjectIdsByUserId(long userId) {
+        return jdbcTemplate.queryForList(
+                "SELECT rental_object_id FROM watchlist_entries WHERE user_id = ? ORDER BY created_at, rental_object_id",
+                String.class,
+                userId
+        );
+    }
+
+    public long countByUserId(long userId) {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM watchlist_entries WHERE user_id = ?", Long.class, userId);
+        return count == null ? 0 : count;
+    }
+
+    public List<WatchlistEntry> findAll() {
+        return jdbcTemplate.query(
+                "SELECT user_id, rental_object_id FROM watchlist_entries",
+                (rs, rowNum) -> new WatchlistEntry(rs.getLong(1), rs.getString(2))
+        );
+    }
+}
@@ -0,0 +1,13 @@
+package no.sanderolin.boligbot.dao.repository;
+
+import no.sanderolin.boligbot.dao.model.WebhookModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface WebhookRepository extends JpaRepository<WebhookModel, Long> {
+    List<WebhookModel> findAllByUserIdOrderByCreatedAtAsc(Long userId);
+    Optional<WebhookModel> findByIdAndUserId(Long id, Long userId);
+    long countByUserId(Long userId);
+}
@@ -0,0 +1,17 @@
+package no.sanderolin.boligbot.dao.role;
+
+import org.springframework.context.annotation.Conditional;
+
+import java.lang.annotation.*;
+
+/**
+ * Registers the bean only on nodes that run the given role, that is on nodes with that role or {@link NodeRole#ALL}.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Conditional(OnNodeRoleCondition.class)
+public @interface ConditionalOnNodeRole {
+
+    NodeRole value();
+}
@@ -0,0 +1,20 @@
+package no.sanderolin.boligbot.dao.role;
+
+/**
+ * What a node runs, set with {@code boligbot.role}. API nodes serve requests and can be scaled out; a worker runs
+ * the imports and the other background jobs. {@link #ALL} runs both in one JVM and is the default.
+ */
+public enum NodeRole {
+    API,
+    WORKER,
+    ALL;
+
+    public static final String PROPERTY = "boligbot.role";
+
+    /**
+     * Whether a node with this role runs the beans of {@code role}.
+     */
+    public boolean runs(NodeRole role) {
+        return this == ALL || this == role;
+    }
+}
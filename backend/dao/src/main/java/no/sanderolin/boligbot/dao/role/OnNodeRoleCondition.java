@@ -0,0 +1,22 @@
+package no.sanderolin.boligbot.dao.role;
+
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * Matches {@link ConditionalOnNodeRole} against {@code boligbot.role}. An unknown role fails the startup.
+ */
+class OnNodeRoleCondition extends SpringBootCondition {
+
+    @Override
+    public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        NodeRole required = (NodeRole) metadata.getAnnotationAttributes(ConditionalOnNodeRole.class.getName()).get("value");
+        NodeRole role = Binder.get(context.getEnvironment()).bind(NodeRole.PROPERTY, NodeRole.class).orElse(NodeRole.ALL);
+        return role.runs(required)
+                ? ConditionOutcome.match("node role " + role + " runs " + required)
+                : ConditionOutcome.noMatch("node role " + role + " does not run " + required);
+    }
+}
@@ -2,6 +2,9 @@ package no.sanderolin.boligbot.housingimport;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import no.sanderolin.boligbot.housingimport.cluster.ImportLease;
 import no.sanderolin.boligbot.housingimport.exception.HousingImportException;
 import no.sanderolin.boligbot.housingimport.service.HousingAvailabilityImportService;
 import no.sanderolin.boligbot.housingimport.service.HousingCatalogImportService;
@@ -12,11 +15,13 @@ import org.springframework.context.annotation.Configuration;
 
 @Slf4j
 @Configuration
+@ConditionalOnNodeRole(NodeRole.WORKER)
 @RequiredArgsConstructor
 public class ImportOnStartupRunner {
 
     private final HousingCatalogImportService catalogService;
     private final HousingAvailabilityImportService availabilityService;
+    private final ImportLease importLease;
 
     @Value("${housing.catalog.import.run-on-startup:false}")
     private boolean runCatalogOnStartup;
@@ -31,6 +36,10 @@ public class ImportOnStartupRunner {
                 log.info("Startup: catalog import disabled → availability import skipped.");
                 return;
             }
+            if (!importLease.isHeld()) {
+                log.info("Startup: imports skipped, another node holds the import lease.");
+                return;
+            }
             log.info("Startup: running catalog import");
             try {
                 catalogService.runImport();
@@ -0,0 +1,36 @@
+package no.sanderolin.boligbot.housingimport.cluster;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+
+/**
+ * Identifies this node to the others: it holds the import lease under this id and signs its notifications with it.
+ * Taken from {@code boligbot.node-id}, or made up from the host name when that is not set.
+ */
+@Component
+public class ClusterNode {
+
+    private final String id;
+
+    public ClusterNode(@Value("${boligbot.node-id:}") String nodeId) {
+        this.id = nodeId.isBlank() ? defaultNodeId() : nodeId;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,145 @@
+package no.sanderolin.boligbot.housingimport.cluster;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import no.sanderolin.boligbot.dao.repository.ImportLeaseRepository;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import no.sanderolin.boligbot.housingimport.exception.HousingImportException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Elects the one node that runs the scheduled imports, through the {@code housing-import} row in
+ * {@code import_leases}. The holder renews the lease on its own thread, so a long import on the scheduler thread
+ * cannot let it lapse; the other nodes try to take it over on the same interval and get it once it has gone
+ * unrenewed for the ttl.
+ * <p>
+ * The fencing token grows every time the lease changes hands. The imports call {@link #fence()} in their write
+ * transaction, which keeps the lease row locked until commit, so a node that lost the lease without noticing,
+ * for example after a long pause, fails its write instead of committing after the new holder.
+ * <p>
+ * Only worker nodes compete for the lease.
+ */
+@Slf4j
+@Component
+@ConditionalOnNodeRole(NodeRole.WORKER)
+public class ImportLease {
+
+    static final String NAME = "housing-import";
+
+    /**
+     * Token of a lease that is not held.
+     */
+    public static final long NOT_HELD = -1;
+
+    private final ImportLeaseRepository importLeaseRepository;
+    private final String holder;
+    private final Duration ttl;
+    private final long renewIntervalMs;
+    private final ScheduledExecutorService renewer;
+
+    /**
+     * The held lease as of the last renewal, or null.
+     */
+    private volatile Held held;
+
+    /**
+     * @param untilNanos {@link System#nanoTime()} at which the lease expires unless renewed, measured from before
+     *                   the renewal was sent, so this node always gives the lease up before the database does
+     */
+    private record Held(long token, long untilNanos) { }
+
+    public ImportLease(ImportLeaseRepository importLeaseRepository,
+                       ClusterNode clusterNode,
+                       @Value("${housing.import.lease.ttl-ms:30000}") long ttlMs,
+                       @Value("${housing.import.lease.renew-interval-ms:10000}") long renewIntervalMs) {
+        if (renewIntervalMs <= 0 || renewIntervalMs >= ttlMs) {
+            throw new IllegalArgumentException("Import lease must satisfy 0 < renew interval < ttl, got "
+                    + renewIntervalMs + "ms and " + ttlMs + "ms");
+        }
+        this.importLeaseRepository = importLeaseRepository;
+        this.holder = clusterNode.id();
+        this.ttl = Duration.ofMillis(ttlMs);
+        this.renewIntervalMs = renewIntervalMs;
+        this.renewer = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("import-lease-renewer").daemon().factory());
+    }
+
+    /**
+     * Tries the lease once before the application starts, so the startup imports know whether to run.
+     */
+    @PostConstruct
+    public void start() {
+        renew();
+        renewer.scheduleWithFixedDelay(this::renew, renewIntervalMs, renewIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops renewing and releases a held lease, so another node can take over right away.
+     */
+    @PreDestroy
+    public void close() {
+        renewer.shutdownNow();
+        if (held == null) return;
+        held = null;
+        try {
+            importLeaseRepository.release(NAME, holder);
+            log.info("Released import lease [holder={}]", holder);
+        } catch (RuntimeException e) {
+            log.warn("Could not release import lease; it expires after {}", ttl, e);
+        }
+    }
+
+    public String holder() {
+        return holder;
+    }
+
+    public boolean isHeld() {
+        return token() != NOT_HELD;
+    }
+
+    /**
+     * The fencing token of the held lease, or {@link #NOT_HELD}.
+     */
+    public long token() {
+        Held current = held;
+        return current != null && System.nanoTime() - current.untilNanos() < 0 ? current.token() : NOT_HELD;
+    }
+
+    /**
+     * Fails unless this node still holds the lease under its current token. Called within a transaction, the
+     * lease cannot change hands before that transaction ends.
+     *
+     * @throws HousingImportException when the lease is not held
+     */
+    public void fence() {
+        long token = token();
+        if (token == NOT_HELD || !importLeaseRepository.isHeld(NAME, holder, token)) {
+            throw new HousingImportException("Import lease is not held by this node [holder=" + holder + "]");
+        }
+    }
+
+    void renew() {
+        long sentAt = System.nanoTime();
+        try {
+            OptionalLong token = importLeaseRepository.tryAcquire(NAME, holder, ttl);
+            Held previous = held;
+            held = token.isPresent() ? new Held(token.getAsLong(), sentAt + ttl.toNanos()) : null;
+            if (previous == null && held != null) {
+                log.info("Acquired import lease; scheduled imports run on this node [holder={}, token={}]", holder, held.token());
+            } else if (previous != null && held == null) {
+                log.warn("Lost import lease to another node [holder={}]", holder);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not renew import lease [holder={}]", holder, e);
+        }
+    }
+}
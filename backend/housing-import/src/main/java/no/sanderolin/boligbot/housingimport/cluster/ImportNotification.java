@@ -0,0 +1,57 @@
+package no.sanderolin.boligbot.housingimport.cluster;
+
+import no.sanderolin.boligbot.dao.event.HousingImportCompletedEvent.ImportKind;
+import no.sanderolin.boligbot.dao.event.UserDataChangedEvent;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * What a node tells the other nodes after an import or a user data change, sent as {@code <type> <instant> <origin>}.
+ *
+ * @param at     completion time for the completed types, and the occurrence time shared by every flip of the run
+ *               for {@link Type#AVAILABILITY_CHANGED}, and the send time for the user data types
+ * @param origin node id of the sender
+ */
+record ImportNotification(Type type, Instant at, String origin) {
+
+    enum Type {
+        CATALOG_COMPLETED,
+        AVAILABILITY_COMPLETED,
+        AVAILABILITY_CHANGED,
+        SUBSCRIPTIONS_CHANGED,
+        WATCHLIST_CHANGED,
+        WEBHOOKS_CHANGED;
+
+        static Type completed(ImportKind kind) {
+            return kind == ImportKind.CATALOG ? CATALOG_COMPLETED : AVAILABILITY_COMPLETED;
+        }
+
+        static Type changed(UserDataChangedEvent.Kind kind) {
+            return switch (kind) {
+                case SUBSCRIPTIONS -> SUBSCRIPTIONS_CHANGED;
+                case WATCHLIST -> WATCHLIST_CHANGED;
+                case WEBHOOKS -> WEBHOOKS_CHANGED;
+            };
+        }
+    }
+
+    String toPayload() {
+        return type + " " + at + " " + origin;
+    }
+
+    /**
+     * @throws IllegalArgumentException when the payload is not a notification
+     */
+    static ImportNotification parse(String payload) {
+        String[] parts = payload.split(" ", 3);
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Import notification must look like <type> <instant> <origin>, got " + payload);
+        }
+        try {
+            return new ImportNotification(Type.valueOf(parts[0]), Instant.parse(parts[1]), parts[2]);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Import notification has an invalid instant: " + payload, e);
+        }
+    }
+}
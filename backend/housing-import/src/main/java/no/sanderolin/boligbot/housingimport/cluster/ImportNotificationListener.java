@@ -0,0 +1,153 @@
+package no.sanderolin.boligbot.housingimport.cluster;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import no.sanderolin.boligbot.dao.event.HousingAvailabilityChangedEvent;
+import no.sanderolin.boligbot.dao.event.HousingImportCompletedEvent;
+import no.sanderolin.boligbot.dao.event.HousingImportCompletedEvent.ImportKind;
+import no.sanderolin.boligbot.dao.event.UserDataChangedEvent;
+import no.sanderolin.boligbot.dao.repository.HousingAvailabilityEventRepository;
+import no.sanderolin.boligbot.dao.repository.ImportNotificationRepository;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+
+import static no.sanderolin.boligbot.dao.repository.HousingAvailabilityEventRepository.BECAME_AVAILABLE;
+import static no.sanderolin.boligbot.dao.repository.HousingAvailabilityEventRepository.BECAME_UNAVAILABLE;
+
+/**
+ * Listens for the notifications of imports and user data changes made on other nodes and republishes them here as
+ * remote events, so node-local caches, indexes and streams follow the data the other nodes wrote. Availability flips are read back
+ * from {@code housing_availability_events}, since a notification payload cannot hold a full id list.
+ * <p>
+ * Listening holds one pooled connection on its own thread. Notifications sent while that connection is down
+ * are lost, so after reconnecting every cache and index is treated as stale.
+ */
+@Slf4j
+@Component
+public class ImportNotificationListener {
+
+    private final DataSource dataSource;
+    private final ClusterNode clusterNode;
+    private final HousingAvailabilityEventRepository availabilityEventRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int pollTimeoutMs;
+    private final long reconnectDelayMs;
+
+    private volatile boolean running;
+
+    public ImportNotificationListener(DataSource dataSource,
+                                      ClusterNode clusterNode,
+                                      HousingAvailabilityEventRepository availabilityEventRepository,
+                                      ApplicationEventPublisher eventPublisher,
+                                      @Value("${housing.import.notifications.poll-timeout-ms:5000}") int pollTimeoutMs,
+                                      @Value("${housing.import.notifications.reconnect-delay-ms:5000}") long reconnectDelayMs) {
+        this.dataSource = dataSource;
+        this.clusterNode = clusterNode;
+        this.availabilityEventRepository = availabilityEventRepository;
+        this.eventPublisher = eventPublisher;
+        this.pollTimeoutMs = pollTimeoutMs;
+        this.reconnectDelayMs = reconnectDelayMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        Thread.ofPlatform().name("import-notification-listener").daemon().start(this::listen);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+    }
+
+    void handle(String payload) {
+        ImportNotification notification;
+        try {
+            notification = ImportNotification.parse(payload);
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignored import notification: {}", e.getMessage());
+            return;
+        }
+        if (notification.origin().equals(clusterNode.id())) return;
+
+        log.debug("Received import notification [type={}, at={}, origin={}]",
+                notification.type(), notification.at(), notification.origin());
+        switch (notification.type()) {
+            case CATALOG_COMPLETED -> publishCompleted(ImportKind.CATALOG, notification.at());
+            case AVAILABILITY_COMPLETED -> publishCompleted(ImportKind.AVAILABILITY, notification.at());
+            case AVAILABILITY_CHANGED -> eventPublisher.publishEvent(new HousingAvailabilityChangedEvent(
+                    availabilityEventRepository.findIdsFlippedAt(notification.at(), BECAME_AVAILABLE),
+                    availabilityEventRepository.findIdsFlippedAt(notification.at(), BECAME_UNAVAILABLE),
+                    notification.at(),
+                    true));
+            case SUBSCRIPTIONS_CHANGED -> publishUserDataChanged(UserDataChangedEvent.Kind.SUBSCRIPTIONS);
+            case WATCHLIST_CHANGED -> publishUserDataChanged(UserDataChangedEvent.Kind.WATCHLIST);
+            case WEBHOOKS_CHANGED -> publishUserDataChanged(UserDataChangedEvent.Kind.WEBHOOKS);
+        }
+    }
+
+    private void listen() {
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + ImportNotificationRepository.CHANNEL);
+                }
+                log.info("Listening for import notifications from other nodes");
+                if (reconnecting) invalidateAll();
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                    if (notifications == null) continue;
+                    for (PGNotification notification : notifications) {
+                        try {
+                            handle(notification.getParameter());
+                        } catch (RuntimeException e) {
+                            log.warn("Failed to handle import notification {}", notification.getParameter(), e);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) return;
+                log.warn("Import notification listener lost its connection; reconnecting in {} ms", reconnectDelayMs, e);
+                reconnecting = true;
+                try {
+                    Thread.sleep(reconnectDelayMs);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void invalidateAll() {
+        try {
+            publishCompleted(ImportKind.CATALOG, Instant.now());
+            publishCompleted(ImportKind.AVAILABILITY, Instant.now());
+            for (UserDataChangedEvent.Kind kind : UserDataChangedEvent.Kind.values()) {
+                publishUserDataChanged(kind);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh caches after reconnecting to import notifications", e);
+        }
+    }
+
+    private void publishCompleted(ImportKind kind, Instant completedAt) {
+        eventPublisher.publishEvent(new HousingImportCompletedEvent(kind, completedAt, true));
+    }
+
+    private void publishUserDataChanged(UserDataChangedEvent.Kind kind) {
+        eventPublisher.publishEvent(new UserDataChangedEvent(kind, true));
+    }
+}
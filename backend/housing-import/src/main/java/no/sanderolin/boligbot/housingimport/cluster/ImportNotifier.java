@@ -0,0 +1,43 @@
+package no.sanderolin.boligbot.housingimport.cluster;
+
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.event.HousingAvailabilityChangedEvent;
+import no.sanderolin.boligbot.dao.event.HousingImportCompletedEvent;
+import no.sanderolin.boligbot.dao.event.UserDataChangedEvent;
+import no.sanderolin.boligbot.dao.repository.ImportNotificationRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Tells the other nodes about the imports that ran on this one and the user data changed through it. The import
+ * services publish their events inside the write transaction, so the notification is delivered on commit and
+ * dropped on rollback.
+ */
+@Component
+@RequiredArgsConstructor
+public class ImportNotifier {
+
+    private final ImportNotificationRepository importNotificationRepository;
+    private final ClusterNode clusterNode;
+
+    @EventListener(condition = "!#event.remote()")
+    public void onImportCompleted(HousingImportCompletedEvent event) {
+        send(new ImportNotification(ImportNotification.Type.completed(event.kind()), event.completedAt(), clusterNode.id()));
+    }
+
+    @EventListener(condition = "!#event.remote()")
+    public void onAvailabilityChanged(HousingAvailabilityChangedEvent event) {
+        send(new ImportNotification(ImportNotification.Type.AVAILABILITY_CHANGED, event.occurredAt(), clusterNode.id()));
+    }
+
+    @EventListener(condition = "!#event.remote()")
+    public void onUserDataChanged(UserDataChangedEvent event) {
+        send(new ImportNotification(ImportNotification.Type.changed(event.kind()), Instant.now(), clusterNode.id()));
+    }
+
+    private void send(ImportNotification notification) {
+        importNotificationRepository.send(notification.toPayload());
+    }
+}
@@ -0,0 +1,9 @@
+package no.sanderolin.boligbot.housingimport.dto;
+
+import java.util.List;
+
+public record HousingCatalogDTO(
+        String payloadHash,
+        List<HousingDTO> housings
+) {
+}
@@ -0,0 +1,125 @@
+package no.sanderolin.boligbot.housingimport.scheduler;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Polling interval that follows how often the polled source changes. A run that found changes drops the
+ * interval to the lower bound; a run without changes multiplies it by the backoff multiplier, up to the
+ * upper bound. The bounds come from the first time-of-day window containing the current local time, or the
+ * default bounds outside every window.
+ */
+public class AdaptivePollingInterval {
+
+    /**
+     * Weight of the latest run in the change rate, an exponentially weighted average over recent runs.
+     */
+    private static final double CHANGE_RATE_WEIGHT = 0.2;
+
+    private final Clock clock;
+    private final Bounds defaultBounds;
+    private final List<Window> windows;
+    private final double backoffMultiplier;
+
+    private Duration interval;
+    private double changeRate;
+
+    public record Bounds(Duration min, Duration max) {
+
+        public Bounds {
+            if (min.isNegative() || min.isZero() || max.compareTo(min) < 0) {
+                throw new IllegalArgumentException("Polling bounds must satisfy 0 < min <= max, got " + min + ".." + max);
+            }
+        }
+
+        Duration clamp(Duration duration) {
+            if (duration.compareTo(min) < 0) return min;
+            return duration.compareTo(max) > 0 ? max : duration;
+        }
+    }
+
+    /**
+     * Bounds for the local times from {@code from} (inclusive) to {@code to} (exclusive). A window whose end
+     * is before its start wraps past midnight.
+     */
+    public record Window(LocalTime from, LocalTime to, Bounds bounds) {
+
+        boolean contains(LocalTime time) {
+            return from.isBefore(to)
+                    ? !time.isBefore(from) && time.isBefore(to)
+                    : !time.isBefore(from) || time.isBefore(to);
+        }
+    }
+
+    public AdaptivePollingInterval(Clock clock, Bounds defaultBounds, List<Window> windows, double backoffMultiplier) {
+        if (backoffMultiplier < 1) {
+            throw new IllegalArgumentException("Backoff multiplier must be at least 1, got " + backoffMultiplier);
+        }
+        this.clock = clock;
+        this.defaultBounds = defaultBounds;
+        this.windows = List.copyOf(windows);
+        this.backoffMultiplier = backoffMultiplier;
+        // Clamped to the lower bound of whichever bounds apply at the first run.
+        this.interval = Duration.ZERO;
+    }
+
+    /**
+     * Parses windows written as {@code 07:00-18:00=10s..1m}, separated by commas.
+     */
+    public static List<Window> parseWindows(String spec) {
+        List<Window> windows = new ArrayList<>();
+        for (String entry : spec.split(",")) {
+            if (entry.isBlank()) continue;
+            String[] timesAndBounds = entry.trim().split("=");
+            String[] times = timesAndBounds.length == 2 ? timesAndBounds[0].split("-") : new String[0];
+            String[] bounds = timesAndBounds.length == 2 ? timesAndBounds[1].split("\\.\\.") : new String[0];
+            if (times.length != 2 || bounds.length != 2) {
+                throw new IllegalArgumentException("Polling window must look like 07:00-18:00=10s..1m, got " + entry.trim());
+            }
+            windows.add(new Window(
+                    LocalTime.parse(times[0].trim()),
+                    LocalTime.parse(times[1].trim()),
+                    new Bounds(DurationStyle.detectAndParse(bounds[0].trim()), DurationStyle.detectAndParse(bounds[1].trim()))));
+        }
+        return windows;
+    }
+
+    /**
+     * The interval until the next run, within the bounds that apply now.
+     */
+    public synchronized Duration current() {
+        return currentBounds().clamp(interval);
+    }
+
+    /**
+     * Share of recent runs that found changes, between 0 and 1.
+     */
+    public synchronized double changeRate() {
+        return changeRate;
+    }
+
+    /**
+     * Records the outcome of a run and returns the interval until the next one.
+     */
+    public synchronized Duration record(boolean changed) {
+        changeRate = CHANGE_RATE_WEIGHT * (changed ? 1 : 0) + (1 - CHANGE_RATE_WEIGHT) * changeRate;
+        Bounds bounds = currentBounds();
+        interval = changed
+                ? bounds.min()
+                : bounds.clamp(Duration.ofMillis((long) (bounds.clamp(interval).toMillis() * backoffMultiplier)));
+        return interval;
+    }
+
+    private Bounds currentBounds() {
+        LocalTime now = LocalTime.now(clock);
+        for (Window window : windows) {
+            if (window.contains(now)) return window.bounds();
+        }
+        return defaultBounds;
+    }
+}
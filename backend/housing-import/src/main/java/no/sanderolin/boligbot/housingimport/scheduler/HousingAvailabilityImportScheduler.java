@@ -1,34 +1,87 @@
 package no.sanderolin.boligbot.housingimport.scheduler;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import no.sanderolin.boligbot.housingimport.cluster.ImportLease;
 import no.sanderolin.boligbot.housingimport.exception.HousingImportException;
 import no.sanderolin.boligbot.housingimport.service.HousingAvailabilityImportService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 import org.springframework.stereotype.Component;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
 @Slf4j
 @Component
-@RequiredArgsConstructor
+@ConditionalOnNodeRole(NodeRole.WORKER)
 @ConditionalOnProperty(
         name = "housing.availability.import.scheduled.enabled",
         havingValue = "true"
 )
-public class HousingAvailabilityImportScheduler {
+public class HousingAvailabilityImportScheduler implements SchedulingConfigurer {
 
     private final HousingAvailabilityImportService housingAvailabilityImportService;
+    private final ImportLease importLease;
+    private final AdaptivePollingInterval pollingInterval;
+
+    public HousingAvailabilityImportScheduler(HousingAvailabilityImportService housingAvailabilityImportService,
+                                              ImportLease importLease,
+                                              MeterRegistry meterRegistry,
+                                              @Value("${housing.availability.import.min-interval:10s}") Duration minInterval,
+                                              @Value("${housing.availability.import.max-interval:5m}") Duration maxInterval,
+                                              @Value("${housing.availability.import.backoff-multiplier:2}") double backoffMultiplier,
+                                              @Value("${housing.availability.import.interval-windows:}") String intervalWindows,
+                                              @Value("${housing.availability.import.zone:Europe/Oslo}") ZoneId zone) {
+        this.housingAvailabilityImportService = housingAvailabilityImportService;
+        this.importLease = importLease;
+        this.pollingInterval = new AdaptivePollingInterval(
+                Clock.system(zone),
+                new AdaptivePollingInterval.Bounds(minInterval, maxInterval),
+                AdaptivePollingInterval.parseWindows(intervalWindows),
+                backoffMultiplier);
+
+        Gauge.builder("housing.availability.import.interval", pollingInterval, p -> p.current().toMillis() / 1000.0)
+                .description("Interval until the next availability import")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("housing.availability.import.change.rate", pollingInterval, AdaptivePollingInterval::changeRate)
+                .description("Share of recent availability imports that found changes")
+                .register(meterRegistry);
+    }
 
     /**
-     * Scheduled task to import available housing ids from the SIT GraphQL API.
-     * Default: every 10 seconds
+     * Schedules the availability import from the SIT GraphQL API. Each run is scheduled one adaptive
+     * interval after the previous one completed: short while upstream changes, backing off while it doesn't.
+     * On nodes without the import lease, each run only checks whether the lease has come to this node.
      */
-    @Scheduled(cron = "${housing.availability.import.cron}")
-    public void importAvailableHousing() {
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addTriggerTask(this::importAvailableHousing, context -> {
+            Instant lastCompletion = context.lastCompletion();
+            return (lastCompletion == null ? Instant.now() : lastCompletion).plus(pollingInterval.current());
+        });
+    }
+
+    void importAvailableHousing() {
+        if (!importLease.isHeld()) {
+            log.debug("Availability import left to the node holding the import lease");
+            return;
+        }
+        boolean changed = false;
         try {
-            housingAvailabilityImportService.runImport();
+            changed = housingAvailabilityImportService.runImport();
         } catch (HousingImportException exception) {
             log.warn("Scheduled availability import failed");
         }
+        Duration next = pollingInterval.record(changed);
+        log.debug("Next availability import in {} [changed={}, changeRate={}]", next, changed, pollingInterval.changeRate());
     }
 }
@@ -2,6 +2,9 @@ package no.sanderolin.boligbot.housingimport.scheduler;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import no.sanderolin.boligbot.housingimport.cluster.ImportLease;
 import no.sanderolin.boligbot.housingimport.exception.HousingImportException;
 import no.sanderolin.boligbot.housingimport.service.HousingCatalogImportService;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -10,6 +13,7 @@ import org.springframework.stereotype.Component;
 
 @Slf4j
 @Component
+@ConditionalOnNodeRole(NodeRole.WORKER)
 @RequiredArgsConstructor
 @ConditionalOnProperty(
         name = "housing.catalog.import.scheduled.enabled",
@@ -18,13 +22,18 @@ import org.springframework.stereotype.Component;
 public class HousingCatalogImportScheduler {
 
     private final HousingCatalogImportService housingCatalogImportService;
+    private final ImportLease importLease;
 
     /**
      * Scheduled task to import all housing from the SIT GraphQL API.
-     * Default: runs at 16:00 every day.
+     * Default: runs at 16:00 every day. Only the node holding the import lease runs it.
      */
     @Scheduled(cron = "${housing.catalog.import.cron}")
     public void scheduleHousingImport() {
+        if (!importLease.isHeld()) {
+            log.info("Scheduled catalog import left to the node holding the import lease");
+            return;
+        }
         try {
             housingCatalogImportService.runImport();
         } catch (HousingImportException e) {
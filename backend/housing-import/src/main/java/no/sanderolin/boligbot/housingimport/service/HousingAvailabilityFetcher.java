@@ -1,9 +1,15 @@
 package no.sanderolin.boligbot.housingimport.service;
 
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
 import no.sanderolin.boligbot.housingimport.dto.HousingAvailabilityDTO;
 import no.sanderolin.boligbot.housingimport.exception.HousingImportException;
+import no.sanderolin.boligbot.housingimport.util.CountingInputStream;
 import no.sanderolin.boligbot.housingimport.util.GraphQLHousingMapper;
+import no.sanderolin.boligbot.housingimport.util.HousingImportMetrics;
+import no.sanderolin.boligbot.housingimport.util.HousingImportMetrics.Phase;
 import no.sanderolin.boligbot.housingimport.util.SitGraphQLClient;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Recover;
@@ -12,12 +18,16 @@ import org.springframework.stereotype.Service;
 
 import java.util.List;
 
+import static no.sanderolin.boligbot.dao.event.HousingImportCompletedEvent.ImportKind.AVAILABILITY;
+
 @Service
+@ConditionalOnNodeRole(NodeRole.WORKER)
 @RequiredArgsConstructor
 public class HousingAvailabilityFetcher {
 
     private final SitGraphQLClient sitGraphQLClient;
     private final GraphQLHousingMapper graphQLHousingMapper;
+    private final HousingImportMetrics importMetrics;
 
 
     @Retryable(
@@ -39,8 +49,15 @@ public class HousingAvailabilityFetcher {
             }
             """;
         try {
-            String response = sitGraphQLClient.executeGraphQLQuery(getHousingEntitiesQuery);
-            return graphQLHousingMapper.mapHousingAvailability(response);
+            Timer.Sample fetching = importMetrics.start();
+            return sitGraphQLClient.executeGraphQLQuery(getHousingEntitiesQuery, body -> {
+                importMetrics.stop(fetching, AVAILABILITY, Phase.FETCH);
+                CountingInputStream countedBody = new CountingInputStream(body);
+                List<HousingAvailabilityDTO> availability = importMetrics.time(AVAILABILITY, Phase.PARSE,
+                        () -> graphQLHousingMapper.mapHousingAvailability(countedBody));
+                importMetrics.payloadRead(AVAILABILITY, countedBody.count());
+                return availability;
+            });
         } catch (Exception e) {
             throw (e instanceof HousingImportException ex)
                     ? ex
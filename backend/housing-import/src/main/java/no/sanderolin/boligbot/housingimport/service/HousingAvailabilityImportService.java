@@ -1,89 +1,254 @@
 package no.sanderolin.boligbot.housingimport.service;
 
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import no.sanderolin.boligbot.dao.event.HousingAvailabilityChangedEvent;
+import no.sanderolin.boligbot.dao.event.HousingAvailableFromDateChangedEvent;
+import no.sanderolin.boligbot.dao.event.HousingImportCompletedEvent;
+import no.sanderolin.boligbot.dao.event.HousingImportCompletedEvent.ImportKind;
+import no.sanderolin.boligbot.dao.projection.AppliedAvailability;
+import no.sanderolin.boligbot.dao.repository.HousingAvailabilityEventRepository;
+import no.sanderolin.boligbot.dao.repository.HousingChangeWindowRepository;
 import no.sanderolin.boligbot.dao.repository.HousingRepository;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import no.sanderolin.boligbot.housingimport.cluster.ImportLease;
 import no.sanderolin.boligbot.housingimport.dto.HousingAvailabilityDTO;
 import no.sanderolin.boligbot.housingimport.exception.HousingImportException;
+import no.sanderolin.boligbot.housingimport.util.AvailabilitySnapshot;
+import no.sanderolin.boligbot.housingimport.util.HousingImportMetrics;
+import no.sanderolin.boligbot.housingimport.util.HousingImportMetrics.Count;
+import no.sanderolin.boligbot.housingimport.util.HousingImportMetrics.Outcome;
+import no.sanderolin.boligbot.housingimport.util.HousingImportMetrics.Phase;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import static no.sanderolin.boligbot.dao.event.HousingImportCompletedEvent.ImportKind.AVAILABILITY;
+
 @Slf4j
 @Component
+@ConditionalOnNodeRole(NodeRole.WORKER)
 @RequiredArgsConstructor
 public class HousingAvailabilityImportService {
 
     private final HousingAvailabilityFetcher availabilityFetcher;
     private final HousingRepository housingRepository;
+    private final HousingAvailabilityEventRepository availabilityEventRepository;
+    private final HousingChangeWindowRepository changeWindowRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final HousingImportMetrics importMetrics;
+    private final ImportLease importLease;
     private final AtomicBoolean running = new AtomicBoolean(false);
 
     /**
-     * Imports availability from SIT GraphQL and updates:
-     *  - availability flag for returned IDs
-     *  - availableFromDate for each returned ID
-     *  - sets others to unavailable
+     * The availability as last written to the database. Loaded from the database by the first run and again
+     * after a failed write; only touched by the running import.
+     */
+    private volatile AvailabilitySnapshot appliedSnapshot;
+
+    /**
+     * Import lease token the applied snapshot was kept under. Under any other token, another node may have
+     * written availability since, so the snapshot is reloaded.
+     */
+    private volatile long appliedSnapshotToken = ImportLease.NOT_HELD;
+
+    /**
+     * Listed ids without a housing. They stay in the applied snapshot, so the diff does not list them again on
+     * every run, until a catalog import may have added them. Only touched by the running import.
+     */
+    private Set<String> unknownIds = Set.of();
+
+    /**
+     * Set when a catalog import changed housings since the last run; the next run then tries the unknown ids again.
      */
-    @Transactional
-    public void runImport() {
+    private final AtomicBoolean catalogChanged = new AtomicBoolean(false);
+
+    /**
+     * Imports availability from SIT GraphQL and diffs it against the applied snapshot. Only the difference
+     * is written:
+     *  - newly listed IDs are marked available with their availableFromDate
+     *  - IDs whose availableFromDate changed get the new date
+     *  - IDs no longer listed are marked unavailable
+     * Every flip is recorded as an availability event. When nothing changed, no transaction is opened.
+     * The run fails unless this node holds the import lease. Flips are stamped with the time of the change window
+     * opened for the write transaction.
+     *
+     * @return whether the run changed the availability of any housing
+     */
+    public boolean runImport() {
         if (!running.compareAndSet(false, true)) {
             log.warn("Availability import skipped because a previous run is still in progress");
-            return;
+            importMetrics.runSkipped(AVAILABILITY);
+            return false;
         }
         log.info("Starting available housing import process");
         Instant taskStartTime = Instant.now();
+        importMetrics.runStarted(AVAILABILITY, taskStartTime);
         try {
-            long totalHousingCount = housingRepository.count();
-            if (totalHousingCount == 0) {
-                log.warn("No housing records found in database. Availability import requires existing housing data. " +
-                        "Please run the housing catalog import first.");
-                return;
+            importLease.fence();
+            long leaseToken = importLease.token();
+            if (leaseToken != appliedSnapshotToken) {
+                appliedSnapshot = null;
+                appliedSnapshotToken = leaseToken;
+            }
+            AvailabilitySnapshot applied = appliedSnapshot;
+            if (applied == null) {
+                if (housingRepository.count() == 0) {
+                    log.warn("No housing records found in database. Availability import requires existing housing data. " +
+                            "Please run the housing catalog import first.");
+                    finishRun(Outcome.EMPTY, taskStartTime);
+                    return false;
+                }
+                applied = importMetrics.time(AVAILABILITY, Phase.LOAD_SNAPSHOT, this::loadAppliedSnapshot);
+                appliedSnapshot = applied;
+                unknownIds = Set.of();
+            }
+            if (catalogChanged.getAndSet(false) && !unknownIds.isEmpty()) {
+                applied = applied.without(unknownIds);
+                appliedSnapshot = applied;
+                unknownIds = Set.of();
             }
 
             List<HousingAvailabilityDTO> importedAvailableHousings = availabilityFetcher.fetchAvailabilityFromGraphQL();
+            importMetrics.lastRun(AVAILABILITY, Count.FETCHED, importedAvailableHousings.size());
             if (importedAvailableHousings.isEmpty()) {
-                long durationMs = Duration.between(taskStartTime, Instant.now()).toMillis();
-                log.info("No available housings found to import [durationMs={}]", durationMs);
-                return;
+                Duration duration = finishRun(Outcome.EMPTY, taskStartTime);
+                log.info("No available housings found to import [durationMs={}]", duration.toMillis());
+                return false;
             }
 
             log.info("Fetched {} availability entries from API", importedAvailableHousings.size());
-            AvailabilityImportResult result = processAvailability(importedAvailableHousings);
+            Timer.Sample diffing = importMetrics.start();
+            AvailabilitySnapshot fetched = AvailabilitySnapshot.of(importedAvailableHousings);
+            AvailabilitySnapshot.Diff diff = applied.diff(fetched);
+            importMetrics.stop(diffing, AVAILABILITY, Phase.DIFF);
+            if (diff.isEmpty()) {
+                recordCounts(0, 0, 0);
+                Duration duration = finishRun(Outcome.UNCHANGED, taskStartTime);
+                log.info("Availability unchanged since the last import [durationMs={}, fetched={}]", duration.toMillis(), fetched.size());
+                return false;
+            }
+
+            // Until the write commits, the database state is unknown; a failed write reloads it on the next run.
+            appliedSnapshot = null;
+            Instant changedAt = changeWindowRepository.open(AVAILABILITY.name());
+            AvailabilityImportResult result;
+            try {
+                result = importMetrics.inTransaction(AVAILABILITY, transactionTemplate,
+                        status -> {
+                            importLease.fence();
+                            return processAvailability(diff, changedAt);
+                        });
+            } finally {
+                changeWindowRepository.close(AVAILABILITY.name(), changedAt);
+            }
+            appliedSnapshot = fetched;
+            unknownIds = stillUnknown(diff, result.unknown());
 
-            long durationMs = Duration.between(taskStartTime, Instant.now()).toMillis();
+            recordCounts(result.madeAvailable(), result.madeUnavailable(), result.updatedDates());
+            Duration duration = finishRun(Outcome.APPLIED, taskStartTime);
             log.info(
-                    "Availability import finished [durationMs={}, fetched={}, madeAvailable={}, madeUnavailable={}, updatedDates={}]",
-                    durationMs, result.fetched(), result.madeAvailable(), result.madeUnavailable(), result.updatedDates()
+                    "Availability import finished [durationMs={}, fetched={}, madeAvailable={}, madeUnavailable={}, updatedDates={}, unknown={}]",
+                    duration.toMillis(), fetched.size(), result.madeAvailable(), result.madeUnavailable(), result.updatedDates(),
+                    result.unknown().size()
             );
+            return result.madeAvailable() + result.madeUnavailable() + result.updatedDates() > 0;
         } catch (HousingImportException e) {
-            long durationMs = Duration.between(taskStartTime, Instant.now()).toMillis();
-            log.error("Availability import failed [durationMs={}]: {}", durationMs, e.getMessage(), e);
+            Duration duration = failRun(taskStartTime, e);
+            log.error("Availability import failed [durationMs={}]: {}", duration.toMillis(), e.getMessage(), e);
             throw e;
         } catch (Exception e) {
-            long durationMs = Duration.between(taskStartTime, Instant.now()).toMillis();
-            log.error("Availability import failed unexpectedly [durationMs={}]", durationMs, e);
+            Duration duration = failRun(taskStartTime, e);
+            log.error("Availability import failed unexpectedly [durationMs={}]", duration.toMillis(), e);
             throw new HousingImportException("Unexpected error during availability import", e);
         } finally {
             running.set(false);
         }
     }
 
-    private AvailabilityImportResult processAvailability(List<HousingAvailabilityDTO> imported) {
-        List<String> ids = imported.stream().map(HousingAvailabilityDTO::rentalObjectId).toList();
-        int madeAvailableSinceLastImport = housingRepository.markAvailableIfInIds(ids);
-        int madeUnavailableSinceLastImport = housingRepository.markUnavailableIfNotInIds(ids);
+    /**
+     * Marks the unknown ids for another try on the next run after a catalog import changed housings.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onImportCompleted(HousingImportCompletedEvent event) {
+        if (event.kind() == ImportKind.CATALOG) catalogChanged.set(true);
+    }
+
+    private Set<String> stillUnknown(AvailabilitySnapshot.Diff diff, List<String> newlyUnknown) {
+        if (unknownIds.isEmpty() && newlyUnknown.isEmpty()) return Set.of();
+        Set<String> unknown = new HashSet<>(unknownIds);
+        diff.removedIds().forEach(unknown::remove);
+        unknown.addAll(newlyUnknown);
+        return unknown;
+    }
+
+    private Duration finishRun(Outcome outcome, Instant taskStartTime) {
+        Duration duration = Duration.between(taskStartTime, Instant.now());
+        importMetrics.runFinished(AVAILABILITY, outcome, duration);
+        return duration;
+    }
+
+    private Duration failRun(Instant taskStartTime, Exception error) {
+        Duration duration = Duration.between(taskStartTime, Instant.now());
+        importMetrics.runFailed(AVAILABILITY, duration, error);
+        return duration;
+    }
 
-        int updatedDates = 0;
-        for (HousingAvailabilityDTO dto : imported) {
-            updatedDates += housingRepository.updateAvailableFromDate(dto.rentalObjectId(), dto.availableFromDate());
+    private void recordCounts(int madeAvailable, int madeUnavailable, int updatedDates) {
+        importMetrics.lastRun(AVAILABILITY, Count.MADE_AVAILABLE, madeAvailable);
+        importMetrics.lastRun(AVAILABILITY, Count.MADE_UNAVAILABLE, madeUnavailable);
+        importMetrics.lastRun(AVAILABILITY, Count.UPDATED_DATES, updatedDates);
+    }
+
+    private AvailabilitySnapshot loadAppliedSnapshot() {
+        List<HousingAvailabilityDTO> available = availabilityEventRepository.findAvailable().stream()
+                .map(housing -> new HousingAvailabilityDTO(housing.rentalObjectId(), housing.availableFromDate()))
+                .toList();
+        log.info("Loaded {} available housings as the applied availability snapshot", available.size());
+        return AvailabilitySnapshot.of(available);
+    }
+
+    /**
+     * Applies the diff with two set-based statements: one marks the added housings available and sets the
+     * changed available-from dates, the other marks the removed housings unavailable. Listed ids without a
+     * housing are reported back and kept as unknown until the next catalog import.
+     */
+    private AvailabilityImportResult processAvailability(AvailabilitySnapshot.Diff diff, Instant changedAt) {
+        AppliedAvailability applied = importMetrics.time(AVAILABILITY, Phase.MARK_AVAILABLE,
+                () -> availabilityEventRepository.applyAvailable(diff.availableIds(), diff.availableFromDates(), changedAt));
+        List<String> madeUnavailableSinceLastImport = diff.removedIds().isEmpty()
+                ? List.of()
+                : importMetrics.time(AVAILABILITY, Phase.MARK_UNAVAILABLE,
+                        () -> availabilityEventRepository.markUnavailable(diff.removedIds(), changedAt));
+        if (!applied.becameAvailable().isEmpty() || !madeUnavailableSinceLastImport.isEmpty()) {
+            eventPublisher.publishEvent(new HousingAvailabilityChangedEvent(
+                    applied.becameAvailable(), madeUnavailableSinceLastImport, changedAt));
+        }
+        if (!applied.availableFromDateChanged().isEmpty()) {
+            eventPublisher.publishEvent(new HousingAvailableFromDateChangedEvent(applied.availableFromDateChanged(), changedAt));
         }
 
-        return new AvailabilityImportResult(imported.size(), madeAvailableSinceLastImport, madeUnavailableSinceLastImport, updatedDates);
+        AvailabilityImportResult result = new AvailabilityImportResult(
+                applied.becameAvailable().size(),
+                madeUnavailableSinceLastImport.size(),
+                applied.availableFromDateChanged().size(),
+                applied.unknown());
+        if (result.madeAvailable() + result.madeUnavailable() + result.updatedDates() > 0) {
+            eventPublisher.publishEvent(new HousingImportCompletedEvent(ImportKind.AVAILABILITY, Instant.now()));
+        }
+        return result;
     }
 
-    private record AvailabilityImportResult(int fetched, int madeAvailable, int madeUnavailable, int updatedDates) {}
+    private record AvailabilityImportResult(int madeAvailable, int madeUnavailable, int updatedDates, List<String> unknown) {}
 }
@@ -1,30 +1,47 @@
 package no.sanderolin.boligbot.housingimport.service;
 
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import no.sanderolin.boligbot.housingimport.dto.HousingCatalogDTO;
 import no.sanderolin.boligbot.housingimport.dto.HousingDTO;
 import no.sanderolin.boligbot.housingimport.exception.HousingImportException;
+import no.sanderolin.boligbot.housingimport.util.CountingInputStream;
 import no.sanderolin.boligbot.housingimport.util.GraphQLHousingMapper;
+import no.sanderolin.boligbot.housingimport.util.HousingContentHash;
+import no.sanderolin.boligbot.housingimport.util.HousingImportMetrics;
+import no.sanderolin.boligbot.housingimport.util.HousingImportMetrics.Phase;
 import no.sanderolin.boligbot.housingimport.util.SitGraphQLClient;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Recover;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 
+import java.security.DigestInputStream;
 import java.util.List;
 
+import static no.sanderolin.boligbot.dao.event.HousingImportCompletedEvent.ImportKind.CATALOG;
+
 @Service
+@ConditionalOnNodeRole(NodeRole.WORKER)
 @RequiredArgsConstructor
 public class HousingCatalogFetcher {
 
     private final SitGraphQLClient sitGraphQLClient;
     private final GraphQLHousingMapper graphQLHousingMapper;
+    private final HousingImportMetrics importMetrics;
 
+    /**
+     * Fetches one page of the catalog, ordered by id so that consecutive offsets do not overlap.
+     * Retried on its own, so a timeout only repeats this page.
+     */
     @Retryable(
             retryFor = {HousingImportException.class},
             maxAttempts = 3,
             backoff = @Backoff(delay = 1000, multiplier = 2)
     )
-    public List<HousingDTO> fetchHousingsFromGraphQL() {
+    public HousingCatalogDTO fetchPage(int offset, int limit) {
         String getHousingEntitiesQuery = """
             {
               "operationName": "GetHousingItems",
@@ -41,15 +58,28 @@ public class HousingCatalogFetcher {
                 "sort": [
                   { "_id": "ASC" }
                 ],
-                "limit": 0,
-                "offset": 0
+                "limit": %d,
+                "offset": %d
               },
-              "query": "query GetHousingItems($input: Sanity_EnhetFilter, $limit: Int, $offset: Int) { sanity_allEnhet(where: $input, limit: $limit, offset: $offset) { rentalObjectId name building { address } area price category { displayName { no en } } studentby { name studiested { name } } kollektiv { name } } }"
+              "query": "query GetHousingItems($input: Sanity_EnhetFilter, $limit: Int, $offset: Int) { sanity_allEnhet(where: $input, limit: $limit, offset: $offset) { rentalObjectId name building { address } area price category { displayName { en } } studentby { name studiested { name } } } }"
             }
-            """;
+            """.formatted(limit, offset);
         try {
-            String response = sitGraphQLClient.executeGraphQLQuery(getHousingEntitiesQuery);
-            return graphQLHousingMapper.mapHousingEntities(response);
+            Timer.Sample fetching = importMetrics.start();
+            return sitGraphQLClient.executeGraphQLQuery(getHousingEntitiesQuery, body -> {
+                importMetrics.stop(fetching, CATALOG, Phase.FETCH);
+                Timer.Sample parsing = importMetrics.start();
+                try {
+                    CountingInputStream countedBody = new CountingInputStream(body);
+                    DigestInputStream hashedBody = HousingContentHash.digesting(countedBody);
+                    List<HousingDTO> housings = graphQLHousingMapper.mapHousingEntities(hashedBody);
+                    HousingCatalogDTO page = new HousingCatalogDTO(HousingContentHash.ofPayload(hashedBody), housings);
+                    importMetrics.payloadRead(CATALOG, countedBody.count());
+                    return page;
+                } finally {
+                    importMetrics.stop(parsing, CATALOG, Phase.PARSE);
+                }
+            });
         } catch (Exception e) {
             throw (e instanceof HousingImportException ex)
                     ? ex
@@ -58,7 +88,7 @@ public class HousingCatalogFetcher {
     }
 
     @Recover
-    public List<HousingDTO> recover(Exception e) {
-        throw new HousingImportException("Catalog fetch failed after retries", e);
+    public HousingCatalogDTO recover(Exception e, int offset, int limit) {
+        throw new HousingImportException("Catalog fetch failed after retries [offset=%d, limit=%d]".formatted(offset, limit), e);
     }
 }
@@ -2,90 +2,203 @@ package no.sanderolin.boligbot.housingimport.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import no.sanderolin.boligbot.dao.event.HousingImportCompletedEvent;
+import no.sanderolin.boligbot.dao.event.HousingPriceChangedEvent;
+import no.sanderolin.boligbot.dao.event.HousingImportCompletedEvent.ImportKind;
 import no.sanderolin.boligbot.dao.model.CityModel;
 import no.sanderolin.boligbot.dao.model.DistrictModel;
-import no.sanderolin.boligbot.dao.model.HousingModel;
 import no.sanderolin.boligbot.dao.model.HousingTypeModel;
+import no.sanderolin.boligbot.dao.projection.CatalogMergeResult;
+import no.sanderolin.boligbot.dao.projection.StagedHousing;
 import no.sanderolin.boligbot.dao.repository.CityRepository;
+import no.sanderolin.boligbot.dao.repository.DistrictPriceDailyRepository;
 import no.sanderolin.boligbot.dao.repository.DistrictRepository;
+import no.sanderolin.boligbot.dao.repository.HousingCatalogStagingRepository;
+import no.sanderolin.boligbot.dao.repository.HousingChangeWindowRepository;
 import no.sanderolin.boligbot.dao.repository.HousingRepository;
 import no.sanderolin.boligbot.dao.repository.HousingTypeRepository;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import no.sanderolin.boligbot.housingimport.cluster.ImportLease;
 import no.sanderolin.boligbot.housingimport.dto.HousingDTO;
 import no.sanderolin.boligbot.housingimport.exception.HousingImportException;
+import no.sanderolin.boligbot.housingimport.util.HousingContentHash;
+import no.sanderolin.boligbot.housingimport.util.HousingImportMetrics;
+import no.sanderolin.boligbot.housingimport.util.HousingImportMetrics.Count;
+import no.sanderolin.boligbot.housingimport.util.HousingImportMetrics.Outcome;
+import no.sanderolin.boligbot.housingimport.util.HousingImportMetrics.Phase;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import static no.sanderolin.boligbot.dao.event.HousingImportCompletedEvent.ImportKind.CATALOG;
+
 @Slf4j
 @Service
+@ConditionalOnNodeRole(NodeRole.WORKER)
 @RequiredArgsConstructor
 public class HousingCatalogImportService {
 
-    private final HousingCatalogFetcher catalogFetcher;
+    private final HousingCatalogPagePipeline catalogPagePipeline;
 
     private final HousingRepository housingRepository;
+    private final HousingCatalogStagingRepository catalogStagingRepository;
+    private final HousingChangeWindowRepository changeWindowRepository;
     private final CityRepository cityRepository;
     private final DistrictRepository districtRepository;
     private final HousingTypeRepository housingTypeRepository;
+    private final DistrictPriceDailyRepository districtPriceDailyRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final TransactionTemplate transactionTemplate;
+    private final HousingImportMetrics importMetrics;
+    private final ImportLease importLease;
 
     private final AtomicBoolean running = new AtomicBoolean(false);
 
     /**
-     * Task to import all housing items from the SIT GraphQL API.
+     * Payload hash, day and import lease token of the last applied import. Only touched by the running import.
+     */
+    private volatile AppliedPayload lastAppliedPayload;
+
+    /**
+     * Task to import all housing items from the SIT GraphQL API. Pages are staged as they are fetched; when the
+     * payload is byte-identical to the one applied earlier the same day, the run ends there without opening a
+     * write transaction on the catalog tables. The first run of a day is always applied, so the district price
+     * rollup gets its row. The run fails unless this node holds the import lease, as the staging table is shared
+     * by all nodes. Changes are stamped with the time of the change window opened for the write transaction.
      */
-    @Transactional
     public void runImport() {
         if (!running.compareAndSet(false, true)) {
             log.warn("Catalog import skipped because a previous run is still in progress");
+            importMetrics.runSkipped(CATALOG);
             return;
         }
         log.info("Starting housing import process");
         Instant taskStartTime = Instant.now();
+        importMetrics.runStarted(CATALOG, taskStartTime);
         try {
-            List<HousingDTO> importedHousingDTOs = catalogFetcher.fetchHousingsFromGraphQL();
+            importLease.fence();
+            StagedCatalog catalog = stageCatalog();
+            importMetrics.lastRun(CATALOG, Count.FETCHED, catalog.housingCount);
 
-            if (importedHousingDTOs.isEmpty()) {
-                long durationMs = Duration.between(taskStartTime, Instant.now()).toMillis();
-                log.info("No housing items found to import [durationMs={}]", durationMs);
+            if (catalog.housingCount == 0) {
+                Duration duration = finishRun(Outcome.EMPTY, taskStartTime);
+                log.info("No housing items found to import [durationMs={}]", duration.toMillis());
                 return;
             }
 
-            Map<String, CityModel> citiesByName = upsertCity(importedHousingDTOs, taskStartTime);
-            Map<DistrictKey, DistrictModel> districtsByDistrictKey = upsertDistrict(importedHousingDTOs, citiesByName, taskStartTime);
-            Map<String, HousingTypeModel> housingTypesByName = upsertHousingType(importedHousingDTOs, taskStartTime);
+            AppliedPayload payload = new AppliedPayload(
+                    catalog.payloadHash(), taskStartTime.atZone(ZoneOffset.UTC).toLocalDate(), importLease.token());
+            if (payload.equals(lastAppliedPayload)) {
+                recordCounts(0, 0, catalog.housingCount);
+                Duration duration = finishRun(Outcome.UNCHANGED, taskStartTime);
+                log.info("Catalog payload unchanged since the last import [durationMs={}, fetched={}]",
+                        duration.toMillis(), catalog.housingCount);
+                return;
+            }
 
-            CatalogImportResult result = upsertHousing(importedHousingDTOs, citiesByName, districtsByDistrictKey, housingTypesByName, taskStartTime);
+            Instant changedAt = changeWindowRepository.open(CATALOG.name());
+            CatalogMergeResult result;
+            try {
+                result = importMetrics.inTransaction(CATALOG, transactionTemplate,
+                        status -> {
+                            importLease.fence();
+                            return applyCatalog(catalog, changedAt);
+                        });
+            } finally {
+                changeWindowRepository.close(CATALOG.name(), changedAt);
+            }
+            lastAppliedPayload = payload;
 
-            long durationMs = Duration.between(taskStartTime, Instant.now()).toMillis();
+            recordCounts(result.created(), result.updated(), result.unchanged());
+            Duration duration = finishRun(Outcome.APPLIED, taskStartTime);
             log.info(
                     "Catalog import finished [durationMs={}, fetched={}, created={}, updated={}, unchanged={}]",
-                    durationMs, result.fetched(), result.created(), result.updated(), result.unchanged()
+                    duration.toMillis(), catalog.housingCount, result.created(), result.updated(), result.unchanged()
             );
         } catch (HousingImportException e) {
-            long durationMs = Duration.between(taskStartTime, Instant.now()).toMillis();
-            log.error("Catalog import failed [durationMs={}]: {}", durationMs, e.getMessage(), e);
+            Duration duration = failRun(taskStartTime, e);
+            log.error("Catalog import failed [durationMs={}]: {}", duration.toMillis(), e.getMessage(), e);
             throw e;
         } catch (Exception e) {
-            long durationMs = Duration.between(taskStartTime, Instant.now()).toMillis();
-            log.error("Catalog import failed unexpectedly [durationMs={}]", durationMs, e);
+            Duration duration = failRun(taskStartTime, e);
+            log.error("Catalog import failed unexpectedly [durationMs={}]", duration.toMillis(), e);
             throw new HousingImportException("Unexpected error during housing import", e);
         } finally {
             running.set(false);
         }
     }
 
-    private Map<String, CityModel> upsertCity(List<HousingDTO> importedHousingDTOs, Instant taskStartTime) {
-        Set<String> importedCityNames = importedHousingDTOs
-                .stream()
-                .map(HousingDTO::cityName)
-                .collect(Collectors.toSet());
+    private Duration finishRun(Outcome outcome, Instant taskStartTime) {
+        Duration duration = Duration.between(taskStartTime, Instant.now());
+        importMetrics.runFinished(CATALOG, outcome, duration);
+        return duration;
+    }
+
+    private Duration failRun(Instant taskStartTime, Exception error) {
+        Duration duration = Duration.between(taskStartTime, Instant.now());
+        importMetrics.runFailed(CATALOG, duration, error);
+        return duration;
+    }
 
+    private void recordCounts(int created, int updated, int unchanged) {
+        importMetrics.lastRun(CATALOG, Count.CREATED, created);
+        importMetrics.lastRun(CATALOG, Count.UPDATED, updated);
+        importMetrics.lastRun(CATALOG, Count.UNCHANGED, unchanged);
+    }
+
+    /**
+     * Writes the catalog pages into the staging table as they arrive and collects the names the dimension
+     * upserts need, so the full list of housings is never held in memory.
+     */
+    private StagedCatalog stageCatalog() {
+        catalogStagingRepository.clear();
+        StagedCatalog catalog = new StagedCatalog();
+        try {
+            catalogPagePipeline.fetchAll(page -> {
+                importMetrics.time(CATALOG, Phase.STAGE, () ->
+                        catalogStagingRepository.append(toStagedHousings(page.page().housings()), page.firstPosition()));
+                catalog.add(page);
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HousingImportException("Catalog import was interrupted", e);
+        }
+        return catalog;
+    }
+
+    private CatalogMergeResult applyCatalog(StagedCatalog catalog, Instant changedAt) {
+        Map<String, CityModel> citiesByName = importMetrics.time(CATALOG, Phase.UPSERT_CITY,
+                () -> upsertCity(catalog.cityNames, changedAt));
+        importMetrics.time(CATALOG, Phase.UPSERT_DISTRICT,
+                () -> upsertDistrict(catalog.districtNames, citiesByName, changedAt));
+        importMetrics.time(CATALOG, Phase.UPSERT_HOUSING_TYPE,
+                () -> upsertHousingType(catalog.housingTypeNames, changedAt));
+
+        CatalogMergeResult result = importMetrics.time(CATALOG, Phase.MERGE_HOUSING,
+                () -> catalogStagingRepository.merge(changedAt));
+        refreshDistrictPriceRollup(changedAt);
+        if (!result.changedPrices().isEmpty()) {
+            eventPublisher.publishEvent(new HousingPriceChangedEvent(result.changedPrices()));
+        }
+        if (result.created() + result.updated() > 0) {
+            eventPublisher.publishEvent(new HousingImportCompletedEvent(ImportKind.CATALOG, Instant.now()));
+        }
+        return result;
+    }
+
+    private Map<String, CityModel> upsertCity(Set<String> importedCityNames, Instant changedAt) {
         Map<String, CityModel> citiesByName = cityRepository.findAllByNameIn(importedCityNames)
                 .stream()
                 .collect(Collectors.toMap(CityModel::getName, Function.identity()));
@@ -98,12 +211,12 @@ public class HousingCatalogImportService {
             if (existing == null) {
                 CityModel newCity = new CityModel();
                 newCity.setName(cityName);
-                newCity.setCreatedAt(taskStartTime);
-                newCity.setLastModifiedAt(taskStartTime);
-                newCity.setLastImportedAt(taskStartTime);
+                newCity.setCreatedAt(changedAt);
+                newCity.setLastModifiedAt(changedAt);
+                newCity.setLastImportedAt(changedAt);
                 toCreate.add(newCity);
             } else {
-                existing.setLastImportedAt(taskStartTime);
+                existing.setLastImportedAt(changedAt);
             }
         }
         if (!toCreate.isEmpty()) {
@@ -115,14 +228,10 @@ public class HousingCatalogImportService {
         return citiesByName;
     }
 
-    private Map<DistrictKey, DistrictModel> upsertDistrict(List<HousingDTO> importedHousingDTOs, Map<String, CityModel> citiesByName,
-            Instant taskStartTime) {
+    private void upsertDistrict(Set<DistrictName> importedDistrictNames, Map<String, CityModel> citiesByName, Instant changedAt) {
 
-        Set<DistrictKey> importedKeys = importedHousingDTOs.stream()
-                .map(dto -> {
-                    Long cityId = citiesByName.get(dto.cityName()).getId();
-                    return new DistrictKey(cityId, dto.districtName());
-                })
+        Set<DistrictKey> importedKeys = importedDistrictNames.stream()
+                .map(name -> new DistrictKey(citiesByName.get(name.cityName()).getId(), name.districtName()))
                 .collect(Collectors.toSet());
 
         Set<Long> cityIds = importedKeys.stream()
@@ -147,30 +256,19 @@ public class HousingCatalogImportService {
                         .filter(c -> c.getId().equals(key.cityId()))
                         .findFirst()
                         .orElseThrow());
-                created.setCreatedAt(taskStartTime);
-                created.setLastModifiedAt(taskStartTime);
-                created.setLastImportedAt(taskStartTime);
+                created.setCreatedAt(changedAt);
+                created.setLastModifiedAt(changedAt);
+                created.setLastImportedAt(changedAt);
                 toCreate.add(created);
             } else {
-                d.setLastImportedAt(taskStartTime);
+                d.setLastImportedAt(changedAt);
             }
         }
 
-        if (!toCreate.isEmpty()) {
-            districtRepository.saveAll(toCreate);
-            districtRepository.findAllByCityIdIn(cityIds)
-                    .forEach(district -> districtsByDistrictKey.put(
-                            new DistrictKey(district.getCity().getId(), district.getName()), district));
-        }
-        return districtsByDistrictKey;
+        if (!toCreate.isEmpty()) districtRepository.saveAll(toCreate);
     }
 
-    private Map<String, HousingTypeModel> upsertHousingType(List<HousingDTO> importedHousingDTOs, Instant taskStartTime) {
-        Set<String> importedHousingTypeNames = importedHousingDTOs
-                .stream()
-                .map(HousingDTO::housingTypeName)
-                .collect(Collectors.toSet());
-
+    private void upsertHousingType(Set<String> importedHousingTypeNames, Instant changedAt) {
         Map<String, HousingTypeModel> housingTypesByName = housingTypeRepository.findAllByNameIn(importedHousingTypeNames)
                 .stream()
                 .collect(Collectors.toMap(HousingTypeModel::getName, Function.identity()));
@@ -183,93 +281,69 @@ public class HousingCatalogImportService {
             if (existing == null) {
                 HousingTypeModel housingType = new HousingTypeModel();
                 housingType.setName(housingTypeName);
-                housingType.setCreatedAt(taskStartTime);
-                housingType.setLastModifiedAt(taskStartTime);
-                housingType.setLastImportedAt(taskStartTime);
+                housingType.setCreatedAt(changedAt);
+                housingType.setLastModifiedAt(changedAt);
+                housingType.setLastImportedAt(changedAt);
                 toCreate.add(housingType);
             } else {
-                existing.setLastImportedAt(taskStartTime);
+                existing.setLastImportedAt(changedAt);
             }
         }
-        if (!toCreate.isEmpty()) {
-            housingTypeRepository.saveAll(toCreate);
-            housingTypeRepository.findAllByNameIn(importedHousingTypeNames)
-                    .forEach(housingType -> housingTypesByName.put(housingType.getName(), housingType));
-        }
-
-        return housingTypesByName;
+        if (!toCreate.isEmpty()) housingTypeRepository.saveAll(toCreate);
     }
 
-    private CatalogImportResult upsertHousing(List<HousingDTO> importedHousingDTOs,
-                                              Map<String, CityModel> citiesByName,
-                                              Map<DistrictKey, DistrictModel> districtsByDistrictKey,
-                                              Map<String, HousingTypeModel> housingTypesByName,
-                                              Instant taskStartTime) {
-
-        List<String> idsOfImportedHousingEntities = importedHousingDTOs.stream()
-                .map(HousingDTO::rentalObjectId)
+    private static List<StagedHousing> toStagedHousings(List<HousingDTO> housingDTOs) {
+        return housingDTOs.stream()
+                .map(dto -> new StagedHousing(
+                        dto.rentalObjectId(),
+                        dto.name(),
+                        dto.address(),
+                        dto.housingTypeName(),
+                        dto.cityName(),
+                        dto.districtName(),
+                        dto.areaSqm(),
+                        dto.pricePerMonth(),
+                        HousingContentHash.of(dto)))
                 .toList();
+    }
 
-        Map<String, HousingModel> housingByRentalObjectId = housingRepository
-                .findAllByRentalObjectIdIn(idsOfImportedHousingEntities)
-                .stream()
-                .collect(Collectors.toMap(HousingModel::getRentalObjectId, Function.identity()));
+    /**
+     * Rolls up today's district prices. Pending entity changes are flushed first, since the rollup reads the tables directly.
+     */
+    private void refreshDistrictPriceRollup(Instant changedAt) {
+        importMetrics.time(CATALOG, Phase.FLUSH, housingRepository::flush);
+        importMetrics.time(CATALOG, Phase.ROLLUP,
+                () -> districtPriceDailyRepository.refreshDay(changedAt.atZone(ZoneOffset.UTC).toLocalDate()));
+    }
 
-        List<HousingModel> toCreate = new ArrayList<>();
-        int updated = 0;
-        int unchanged = 0;
+    private record DistrictKey(Long cityId, String districtName) { }
 
-        for (HousingDTO housingDTO : importedHousingDTOs) {
-            String rentalObjectId = housingDTO.rentalObjectId();
-            HousingModel existing = housingByRentalObjectId.get(rentalObjectId);
+    private record DistrictName(String cityName, String districtName) { }
 
-            HousingTypeModel housingType = housingTypesByName.get(housingDTO.housingTypeName());
-            CityModel city = citiesByName.get(housingDTO.cityName());
-            DistrictModel district = districtsByDistrictKey.get(new DistrictKey(city.getId(), housingDTO.districtName()));
+    private record AppliedPayload(String hash, LocalDate day, long leaseToken) { }
 
-            if (existing == null) {
-                HousingModel created = new HousingModel();
-                created.setRentalObjectId(rentalObjectId);
-                updateFields(created, housingDTO, housingType, district);
-                created.setCreatedAt(taskStartTime);
-                created.setLastModifiedAt(taskStartTime);
-                created.setLastImportedAt(taskStartTime);
-                toCreate.add(created);
-            } else {
-                existing.setLastImportedAt(taskStartTime);
-                if (hasHousingModelChanged(existing, housingDTO)) {
-                    updateFields(existing, housingDTO, housingType, district);
-                    existing.setLastModifiedAt(taskStartTime);
-                    updated++;
-                } else {
-                    unchanged++;
-                }
+    /**
+     * What the pages of one run leave behind besides the staged rows. Only touched by the importing thread.
+     */
+    private static final class StagedCatalog {
+        private final Set<String> cityNames = new HashSet<>();
+        private final Set<DistrictName> districtNames = new HashSet<>();
+        private final Set<String> housingTypeNames = new HashSet<>();
+        private final SortedMap<Integer, String> pageHashes = new TreeMap<>();
+        private int housingCount;
+
+        private void add(HousingCatalogPagePipeline.CatalogPage page) {
+            for (HousingDTO dto : page.page().housings()) {
+                cityNames.add(dto.cityName());
+                districtNames.add(new DistrictName(dto.cityName(), dto.districtName()));
+                housingTypeNames.add(dto.housingTypeName());
             }
+            pageHashes.put(page.index(), page.page().payloadHash());
+            housingCount += page.page().housings().size();
         }
 
-        if (!toCreate.isEmpty()) housingRepository.saveAll(toCreate);
-        return new CatalogImportResult(importedHousingDTOs.size(), toCreate.size(), updated, unchanged);
-    }
-
-    private void updateFields(HousingModel existing, HousingDTO housingDTO, HousingTypeModel housingTypeModel, DistrictModel districtModel) {
-        existing.setName(housingDTO.name());
-        existing.setAddress(housingDTO.address());
-        existing.setHousingType(housingTypeModel);
-        existing.setDistrict(districtModel);
-        existing.setAreaSqm(housingDTO.areaSqm());
-        existing.setPricePerMonth(housingDTO.pricePerMonth());
-    }
-
-    private boolean hasHousingModelChanged(HousingModel housingModel, HousingDTO housingDTO) {
-        return housingModel.getPricePerMonth() != housingDTO.pricePerMonth()
-                || !housingModel.getName().equals(housingDTO.name())
-                || !housingModel.getAddress().equals(housingDTO.address())
-                || !housingModel.getHousingType().getName().equals(housingDTO.housingTypeName())
-                || !housingModel.getDistrict().getName().equals(housingDTO.districtName())
-                || !housingModel.getCity().getName().equals(housingDTO.cityName())
-                || housingModel.getAreaSqm().compareTo(housingDTO.areaSqm()) != 0;
+        private String payloadHash() {
+            return HousingContentHash.ofPages(pageHashes.values());
+        }
     }
-
-    private record DistrictKey(Long cityId, String districtName) { }
-    private record CatalogImportResult(int fetched, int created, int updated, int unchanged) { }
 }
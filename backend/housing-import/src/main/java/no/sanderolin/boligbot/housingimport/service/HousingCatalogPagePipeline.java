@@ -0,0 +1,128 @@
+package no.sanderolin.boligbot.housingimport.service;
+
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import no.sanderolin.boligbot.housingimport.dto.HousingCatalogDTO;
+import no.sanderolin.boligbot.housingimport.exception.HousingImportException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Fetches the catalog page by page, with at most {@code fetchConcurrency} pages in flight on virtual threads,
+ * and hands the mapped pages to the caller through a bounded queue. The caller writes one page while the next
+ * ones are still being fetched and parsed; a full queue holds back the fetchers.
+ * <p>
+ * Paging stops at the first page shorter than the page size. Pages arrive in completion order and carry their
+ * index, so callers that care about the catalog order use that.
+ */
+@Component
+@ConditionalOnNodeRole(NodeRole.WORKER)
+public class HousingCatalogPagePipeline {
+
+    /**
+     * Guards against an upstream that ignores the offset and keeps returning full pages.
+     */
+    static final int MAX_PAGES = 10_000;
+
+    private static final CatalogPage END = new CatalogPage(-1, -1, null);
+
+    private final HousingCatalogFetcher catalogFetcher;
+    private final int pageSize;
+    private final int fetchConcurrency;
+    private final int queueCapacity;
+
+    public record CatalogPage(int index, int firstPosition, HousingCatalogDTO page) { }
+
+    @FunctionalInterface
+    public interface PageHandler {
+        void handle(CatalogPage page);
+    }
+
+    public HousingCatalogPagePipeline(HousingCatalogFetcher catalogFetcher,
+                                      @Value("${housing.catalog.import.page-size:500}") int pageSize,
+                                      @Value("${housing.catalog.import.fetch-concurrency:4}") int fetchConcurrency,
+                                      @Value("${housing.catalog.import.page-queue-capacity:8}") int queueCapacity) {
+        this.catalogFetcher = catalogFetcher;
+        this.pageSize = pageSize;
+        this.fetchConcurrency = fetchConcurrency;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Runs {@code handler} on the calling thread for every non-empty page. If a page still fails after its
+     * retries, the pages already in flight are handled and its exception is thrown. If the handler throws,
+     * the fetchers are interrupted.
+     */
+    public void fetchAll(PageHandler handler) throws InterruptedException {
+        BlockingQueue<CatalogPage> pages = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Thread producer = Thread.ofVirtual()
+                .name("catalog-page-producer")
+                .start(() -> producePages(pages, failure));
+
+        boolean drained = false;
+        try {
+            for (CatalogPage page = pages.take(); page != END; page = pages.take()) {
+                handler.handle(page);
+            }
+            drained = true;
+        } finally {
+            if (!drained) producer.interrupt();
+            producer.join();
+        }
+        if (failure.get() != null) throw failure.get();
+    }
+
+    private void producePages(BlockingQueue<CatalogPage> pages, AtomicReference<RuntimeException> failure) {
+        AtomicBoolean lastPageFetched = new AtomicBoolean();
+        Semaphore inFlight = new Semaphore(fetchConcurrency);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            for (int index = 0; ; index++) {
+                inFlight.acquire();
+                if (lastPageFetched.get() || failure.get() != null) break;
+                if (index == MAX_PAGES) {
+                    failure.compareAndSet(null, new HousingImportException(
+                            "Catalog paging did not end after %d pages".formatted(MAX_PAGES)));
+                    break;
+                }
+                int pageIndex = index;
+                executor.execute(() -> {
+                    try {
+                        HousingCatalogDTO page = catalogFetcher.fetchPage(pageIndex * pageSize, pageSize);
+                        if (page.housings().size() < pageSize) lastPageFetched.set(true);
+                        if (!page.housings().isEmpty()) {
+                            pages.put(new CatalogPage(pageIndex, pageIndex * pageSize, page));
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.close();
+        }
+
+        if (Thread.currentThread().isInterrupted()) return;
+        try {
+            pages.put(END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
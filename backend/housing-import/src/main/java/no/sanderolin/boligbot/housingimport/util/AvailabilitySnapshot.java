@@ -0,0 +1,116 @@
+package no.sanderolin.boligbot.housingimport.util;
+
+import no.sanderolin.boligbot.housingimport.dto.HousingAvailabilityDTO;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable set of available housings: rental object ids in sorted order with their available-from dates as
+ * epoch days in a parallel array. Two snapshots are diffed in one pass over both id arrays.
+ */
+public final class AvailabilitySnapshot {
+
+    public static final AvailabilitySnapshot EMPTY = new AvailabilitySnapshot(new String[0], new int[0]);
+
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    private final String[] ids;
+    private final int[] epochDays;
+
+    /**
+     * What it takes to go from one snapshot to the next: the housings to mark available or give a new
+     * available-from date, and the housings to mark unavailable.
+     */
+    public record Diff(List<String> availableIds, List<LocalDate> availableFromDates, List<String> removedIds) {
+
+        public boolean isEmpty() {
+            return availableIds.isEmpty() && removedIds.isEmpty();
+        }
+    }
+
+    private AvailabilitySnapshot(String[] ids, int[] epochDays) {
+        this.ids = ids;
+        this.epochDays = epochDays;
+    }
+
+    /**
+     * Builds a snapshot from a fetched availability list. An id listed twice keeps its last entry.
+     */
+    public static AvailabilitySnapshot of(List<HousingAvailabilityDTO> housings) {
+        HousingAvailabilityDTO[] sorted = housings.toArray(HousingAvailabilityDTO[]::new);
+        Arrays.sort(sorted, Comparator.comparing(HousingAvailabilityDTO::rentalObjectId));
+
+        String[] ids = new String[sorted.length];
+        int[] epochDays = new int[sorted.length];
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i + 1 < sorted.length && sorted[i + 1].rentalObjectId().equals(sorted[i].rentalObjectId())) continue;
+            ids[size] = sorted[i].rentalObjectId();
+            epochDays[size] = toEpochDay(sorted[i].availableFromDate());
+            size++;
+        }
+        return new AvailabilitySnapshot(Arrays.copyOf(ids, size), Arrays.copyOf(epochDays, size));
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Compares this snapshot, taken as the applied state, with {@code next}.
+     */
+    public Diff diff(AvailabilitySnapshot next) {
+        List<String> availableIds = new ArrayList<>();
+        List<LocalDate> availableFromDates = new ArrayList<>();
+        List<String> removedIds = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < ids.length || j < next.ids.length) {
+            int cmp = i == ids.length ? 1 : j == next.ids.length ? -1 : ids[i].compareTo(next.ids[j]);
+            if (cmp < 0) {
+                removedIds.add(ids[i++]);
+                continue;
+            }
+            if (cmp > 0 || epochDays[i] != next.epochDays[j]) {
+                availableIds.add(next.ids[j]);
+                availableFromDates.add(toLocalDate(next.epochDays[j]));
+            }
+            if (cmp == 0) i++;
+            j++;
+        }
+        return new Diff(availableIds, availableFromDates, removedIds);
+    }
+
+    /**
+     * Returns this snapshot without the given ids.
+     */
+    public AvailabilitySnapshot without(Collection<String> removedIds) {
+        if (removedIds.isEmpty()) return this;
+        Set<String> removed = new HashSet<>(removedIds);
+        String[] keptIds = new String[ids.length];
+        int[] keptEpochDays = new int[ids.length];
+        int size = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (removed.contains(ids[i])) continue;
+            keptIds[size] = ids[i];
+            keptEpochDays[size] = epochDays[i];
+            size++;
+        }
+        return new AvailabilitySnapshot(Arrays.copyOf(keptIds, size), Arrays.copyOf(keptEpochDays, size));
+    }
+
+    private static int toEpochDay(LocalDate date) {
+        return date == null ? NO_DATE : Math.toIntExact(date.toEpochDay());
+    }
+
+    private static LocalDate toLocalDate(int epochDay) {
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+}
@@ -1,16 +1,22 @@
 package no.sanderolin.boligbot.housingimport.util;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
 import no.sanderolin.boligbot.housingimport.dto.HousingAvailabilityDTO;
 import no.sanderolin.boligbot.housingimport.dto.HousingDTO;
 import no.sanderolin.boligbot.housingimport.exception.HousingImportException;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDate;
@@ -18,148 +24,186 @@ import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 @Slf4j
 @Component
+@ConditionalOnNodeRole(NodeRole.WORKER)
 @RequiredArgsConstructor
 public class GraphQLHousingMapper {
 
     private final ObjectMapper objectMapper;
 
     private static final ZoneId ZONE_OSLO = ZoneId.of("Europe/Oslo");
+    private static final List<String> HOUSING_ENTITIES_PATH = List.of("sanity_allEnhet");
+    private static final List<String> HOUSING_AVAILABILITY_PATH = List.of("housings", "housingRentalObjects");
 
     /**
-     * Maps the JSON response from the GraphQL query to a list of HousingDTO objects.
-     * @param jsonResponse The JSON response string from the GraphQL query.
+     * Streams the housing items of a GraphQL response into HousingDTO objects. The stream is not closed.
+     * @param jsonResponse The JSON response body from the GraphQL query.
      * @return A list of HousingDTO objects populated with data from the JSON response.
      */
-    public List<HousingDTO> mapHousingEntities(String jsonResponse) {
-        validateInput(jsonResponse);
+    public List<HousingDTO> mapHousingEntities(InputStream jsonResponse) {
+        return mapItems(
+                jsonResponse,
+                HOUSING_ENTITIES_PATH,
+                "Invalid GraphQL response: missing 'sanity_allEnhet' field",
+                "Failed to map GraphQL response to housing models",
+                "housing items",
+                this::mapSingleItem
+        );
+    }
 
-        try {
-            JsonNode root = objectMapper.readTree(jsonResponse);
-            validateHousingEntitiesJsonStructure(root);
-
-            JsonNode items = root.path("data").path("sanity_allEnhet");
-            List<HousingDTO> result = new ArrayList<>();
-            int processedCount = 0;
-            int skippedCount = 0;
-
-            for (JsonNode item : items) {
-                try {
-                    HousingDTO housing = mapSingleItem(item);
-                    if (housing == null) {
-                        skippedCount++;
-                        continue;
+    /**
+     * Streams the rental objects of a GraphQL availability response. The stream is not closed.
+     */
+    public List<HousingAvailabilityDTO> mapHousingAvailability(InputStream jsonResponse) {
+        return mapItems(
+                jsonResponse,
+                HOUSING_AVAILABILITY_PATH,
+                "Invalid GraphQL response: missing 'housings.housingRentalObjects' field",
+                "Failed to map GraphQL response to housing IDs",
+                "rentalObjectIds",
+                this::mapSingleAvailabilityItem
+        );
+    }
+
+    /**
+     * Walks the response with a streaming parser and only builds a tree for one item at a time, so memory use
+     * does not grow with the payload beyond the mapped DTOs. An {@code errors} member anywhere at the top level
+     * fails the whole response, even if it comes after the data.
+     */
+    private <T> List<T> mapItems(InputStream jsonResponse, List<String> itemsPath, String missingItemsMessage,
+                                 String mappingFailedMessage, String itemsLabel, Function<JsonNode, T> itemMapper) {
+        try (JsonParser parser = objectMapper.createParser(jsonResponse)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            JsonToken rootToken = parser.nextToken();
+            if (rootToken == null) {
+                throw new HousingImportException("Received empty response from SIT GraphQL API");
+            }
+            if (rootToken != JsonToken.START_OBJECT) {
+                throw new HousingImportException("Invalid GraphQL response: missing 'data' field");
+            }
+
+            MappedItems<T> items = new MappedItems<>(itemsLabel, itemMapper);
+            boolean hasData = false;
+            boolean hasItems = false;
+            String errors = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("errors".equals(fieldName) && value != JsonToken.VALUE_NULL) {
+                    errors = objectMapper.readTree(parser).toString();
+                } else if ("data".equals(fieldName)) {
+                    hasData = true;
+                    if (value == JsonToken.START_OBJECT) {
+                        hasItems = readItems(parser, itemsPath, 0, items);
+                    } else {
+                        parser.skipChildren();
                     }
-                    result.add(housing);
-                    processedCount++;
-                } catch (Exception e) {
-                    log.warn("Failed to map housing item: {}", item.toString(), e);
-                    skippedCount++;
+                } else {
+                    parser.skipChildren();
                 }
             }
-            log.info("Mapped {} housing items successfully, skipped {} items", processedCount, skippedCount);
-            return result;
+
+            if (errors != null) {
+                throw new HousingImportException("GraphQL response contains errors: " + errors);
+            }
+            if (!hasData) {
+                throw new HousingImportException("Invalid GraphQL response: missing 'data' field");
+            }
+            if (!hasItems) {
+                throw new HousingImportException(missingItemsMessage);
+            }
+            log.info("Mapped {} {} successfully, skipped {} items", items.result.size(), itemsLabel, items.skippedCount);
+            return items.result;
         } catch (JsonProcessingException e) {
             throw new HousingImportException("Failed to parse JSON response from GraphQL API", e);
         } catch (HousingImportException e) {
             throw e;
         } catch (Exception e) {
-            throw new HousingImportException("Failed to map GraphQL response to housing models", e);
+            throw new HousingImportException(mappingFailedMessage, e);
         }
     }
 
-    public List<HousingAvailabilityDTO> mapHousingAvailability(String jsonResponse) {
-        validateInput(jsonResponse);
-
-        try {
-            JsonNode root = objectMapper.readTree(jsonResponse);
-            validateHousingIdsJsonStructure(root);
-
-            JsonNode items = root.path("data").path("housings").path("housingRentalObjects");
-            List<HousingAvailabilityDTO> result = new ArrayList<>();
-            int processedCount = 0;
-            int skippedCount = 0;
-
-            for (JsonNode item : items) {
-                try {
-                    String rentalObjectId = getStringValue(item, "rentalObjectId");
-                    if (!StringUtils.hasText(rentalObjectId)) {
-                        log.warn("Missing rentalObjectId in item: {}", item);
-                        skippedCount++;
-                        continue;
+    /**
+     * Descends from the object the parser is in along {@code path} and maps the array at its end.
+     * Leaves the parser on the end of that object. Returns whether the last field of the path was present.
+     */
+    private <T> boolean readItems(JsonParser parser, List<String> path, int depth, MappedItems<T> items) throws IOException {
+        boolean found = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (found || !fieldName.equals(path.get(depth))) {
+                parser.skipChildren();
+            } else if (depth < path.size() - 1) {
+                if (value == JsonToken.START_OBJECT) {
+                    found = readItems(parser, path, depth + 1, items);
+                } else {
+                    parser.skipChildren();
+                }
+            } else {
+                found = true;
+                if (value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        items.add(objectMapper.readTree(parser));
                     }
-                    String availableFromRaw = getStringValue(item, "availableFrom");
-                    LocalDate availableFromDate = toOsloDateOrNull(availableFromRaw);
-
-                    result.add(new HousingAvailabilityDTO(rentalObjectId, availableFromDate));
-                    processedCount++;
-                } catch (Exception e) {
-                    log.warn("Failed to extract rentalObjectId from item: {}", item.toString(), e);
-                    skippedCount++;
+                } else {
+                    parser.skipChildren();
                 }
             }
-            log.info("Extracted {} rentalObjectIds successfully, skipped {} items", processedCount, skippedCount);
-            return result;
-        } catch (JsonProcessingException e) {
-            throw new HousingImportException("Failed to parse JSON response from GraphQL API", e);
-        } catch (HousingImportException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new HousingImportException("Failed to map GraphQL response to housing IDs", e);
         }
+        return found;
     }
 
-    private LocalDate toOsloDateOrNull(String offsetDateTimeString) {
-        if (!StringUtils.hasText(offsetDateTimeString)) return null;
-        try {
-            Instant instant = OffsetDateTime.parse(offsetDateTimeString).toInstant();
-            return instant.atZone(ZONE_OSLO).toLocalDate();
-        } catch (Exception e) {
-            log.warn("Invalid availableFrom value: {}", offsetDateTimeString, e);
+    private HousingAvailabilityDTO mapSingleAvailabilityItem(JsonNode item) {
+        String rentalObjectId = getStringValue(item, "rentalObjectId");
+        if (!StringUtils.hasText(rentalObjectId)) {
+            log.warn("Missing rentalObjectId in item: {}", item);
             return null;
         }
+        String availableFromRaw = getStringValue(item, "availableFrom");
+        return new HousingAvailabilityDTO(rentalObjectId, toOsloDateOrNull(availableFromRaw));
     }
 
-    private void validateInput(String jsonResponse) {
-        if (jsonResponse == null || jsonResponse.trim().isEmpty()) {
-            throw new IllegalArgumentException("JSON response cannot be null or empty");
-        }
-    }
+    private static final class MappedItems<T> {
+        private final String itemsLabel;
+        private final Function<JsonNode, T> itemMapper;
+        private final List<T> result = new ArrayList<>();
+        private int skippedCount;
 
-    private void validateHousingEntitiesJsonStructure(JsonNode root) {
-        validateCommonJsonStructure(root);
-        JsonNode data = root.path("data");
-        if (!data.has("sanity_allEnhet")) {
-            throw new HousingImportException("Invalid GraphQL response: missing 'sanity_allEnhet' field");
+        private MappedItems(String itemsLabel, Function<JsonNode, T> itemMapper) {
+            this.itemsLabel = itemsLabel;
+            this.itemMapper = itemMapper;
         }
-    }
 
-    private void validateHousingIdsJsonStructure(JsonNode root) {
-        validateCommonJsonStructure(root);
-        JsonNode data = root.path("data");
-        if (!data.has("housings") || !data.path("housings").has("housingRentalObjects")) {
-            throw new HousingImportException("Invalid GraphQL response: missing 'housings.housingRentalObjects' field");
+        private void add(JsonNode item) {
+            try {
+                T mapped = itemMapper.apply(item);
+                if (mapped == null) {
+                    skippedCount++;
+                    return;
+                }
+                result.add(mapped);
+            } catch (Exception e) {
+                log.warn("Failed to map one of the {}: {}", itemsLabel, item.toString(), e);
+                skippedCount++;
+            }
         }
     }
 
-    private void validateCommonJsonStructure(JsonNode root) {
-        if (root == null) {
-            throw new HousingImportException("Invalid JSON: root node is null");
-        }
-
-        if (!root.has("data")) {
-            throw new HousingImportException("Invalid GraphQL response: missing 'data' field");
-        }
-
-        if (root.has("errors")) {
-            JsonNode errors = root.path("errors");
-            throw new HousingImportException("GraphQL response contains errors: " + errors.toString());
+    private LocalDate toOsloDateOrNull(String offsetDateTimeString) {
+        if (!StringUtils.hasText(offsetDateTimeString)) return null;
+        try {
+            Instant instant = OffsetDateTime.parse(offsetDateTimeString).toInstant();
+            return instant.atZone(ZONE_OSLO).toLocalDate();
+        } catch (Exception e) {
+            log.warn("Invalid availableFrom value: {}", offsetDateTimeString, e);
+            return null;
         }
     }
 
-
     private HousingDTO mapSingleItem(JsonNode item) {
         String rentalObjectId = getStringValue(item, "rentalObjectId");
         String name = getStringValue(item, "name");
@@ -0,0 +1,87 @@
+package no.sanderolin.boligbot.housingimport.util;
+
+import no.sanderolin.boligbot.housingimport.dto.HousingDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 hashes used by the catalog import to skip unchanged rows and unchanged payloads.
+ */
+public final class HousingContentHash {
+
+    private HousingContentHash() { }
+
+    /**
+     * Hashes the fields the import stores for a housing, except its id. The area is taken at the stored scale,
+     * so {@code 19.9} and {@code 19.90} hash alike.
+     */
+    public static String of(HousingDTO housing) {
+        MessageDigest digest = sha256();
+        update(digest, housing.name());
+        update(digest, housing.address());
+        update(digest, housing.housingTypeName());
+        update(digest, housing.cityName());
+        update(digest, housing.districtName());
+        update(digest, housing.areaSqm().setScale(2, RoundingMode.HALF_UP).toPlainString());
+        update(digest, Integer.toString(housing.pricePerMonth()));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Hashes a raw upstream response.
+     */
+    public static String ofPayload(String payload) {
+        return HexFormat.of().formatHex(sha256().digest(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Combines the hashes of the pages of one payload, in page order.
+     */
+    public static String ofPages(Collection<String> pageHashes) {
+        MessageDigest digest = sha256();
+        pageHashes.forEach(pageHash -> digest.update(HexFormat.of().parseHex(pageHash)));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Wraps a response body so that it is hashed while it is read. See {@link #ofPayload(DigestInputStream)}.
+     */
+    public static DigestInputStream digesting(InputStream payload) {
+        return new DigestInputStream(payload, sha256());
+    }
+
+    /**
+     * Reads the rest of the wrapped body and returns the hash of all of it, same as {@link #ofPayload(String)}.
+     */
+    public static String ofPayload(DigestInputStream payload) throws IOException {
+        payload.transferTo(OutputStream.nullOutputStream());
+        return HexFormat.of().formatHex(payload.getMessageDigest().digest());
+    }
+
+    /**
+     * Length-prefixed, so that moving characters between adjacent fields changes the hash.
+     */
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package no.sanderolin.boligbot.housingimport.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.event.HousingImportCompletedEvent.ImportKind;
+import no.sanderolin.boligbot.dao.projection.ImportRun;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Records the catalog and availability imports: as Micrometer meters, and as one {@code import_runs} row per run,
+ * written by the {@link ImportRunWriter}. The meters are all tagged with the import kind:
+ * <ul>
+ *   <li>{@code housing.import.phase}: time per phase, tagged with the phase. Fetch, parse and stage are timed
+ *   per page, so their totals can exceed the run when pages are fetched concurrently.</li>
+ *   <li>{@code housing.import.run}: time per run, tagged with its outcome.</li>
+ *   <li>{@code housing.import.skipped}: runs skipped because the previous run was still in progress.</li>
+ *   <li>{@code housing.import.housings}: the housing counts of the last run, tagged with what was counted.</li>
+ * </ul>
+ * Phases, counts and payload bytes recorded between {@link #runStarted} and the end of the run also go into
+ * that run's row. Each kind has at most one run at a time, which the import services guarantee.
+ */
+@Component
+@ConditionalOnNodeRole(NodeRole.WORKER)
+@RequiredArgsConstructor
+public class HousingImportMetrics {
+
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final MeterRegistry meterRegistry;
+    private final ImportRunWriter importRunWriter;
+    private final Map<String, AtomicLong> lastRunCounts = new ConcurrentHashMap<>();
+    private final Map<ImportKind, RunRecord> currentRuns = new ConcurrentHashMap<>();
+
+    public enum Phase {
+        /** From sending the request until the response body starts arriving. */
+        FETCH,
+        /** Reading and mapping the response body as it streams in. */
+        PARSE,
+        STAGE,
+        LOAD_SNAPSHOT,
+        DIFF,
+        UPSERT_CITY,
+        UPSERT_DISTRICT,
+        UPSERT_HOUSING_TYPE,
+        MERGE_HOUSING,
+        MARK_AVAILABLE,
+        MARK_UNAVAILABLE,
+        FLUSH,
+        ROLLUP,
+        /** Committing the write transaction, including the listeners that run on commit. */
+        COMMIT
+    }
+
+    public enum Outcome { APPLIED, UNCHANGED, EMPTY, FAILED, SKIPPED }
+
+    public enum Count { FETCHED, CREATED, UPDATED, UNCHANGED, MADE_AVAILABLE, MADE_UNAVAILABLE, UPDATED_DATES }
+
+    /**
+     * What one run has recorded so far. Phases may be recorded from several threads at once.
+     */
+    private static final class RunRecord {
+        private final Instant startedAt;
+        private final Map<Phase, LongAdder> phaseNanos = new ConcurrentHashMap<>();
+        private final Map<Count, Long> counts = new ConcurrentHashMap<>();
+        private final LongAdder payloadBytes = new LongAdder();
+        private volatile boolean payloadRead;
+
+        private RunRecord(Instant startedAt) {
+            this.startedAt = startedAt;
+        }
+    }
+
+    public void runStarted(ImportKind kind, Instant startedAt) {
+        currentRuns.put(kind, new RunRecord(startedAt));
+    }
+
+    public <T> T time(ImportKind kind, Phase phase, Supplier<T> work) {
+        Timer.Sample sample = start();
+        try {
+            return work.get();
+        } finally {
+            stop(sample, kind, phase);
+        }
+    }
+
+    public void time(ImportKind kind, Phase phase, Runnable work) {
+        Timer.Sample sample = start();
+        try {
+            work.run();
+        } finally {
+            stop(sample, kind, phase);
+        }
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void stop(Timer.Sample sample, ImportKind kind, Phase phase) {
+        long nanos = sample.stop(phaseTimer(kind, phase));
+        RunRecord run = currentRuns.get(kind);
+        if (run != null) run.phaseNanos.computeIfAbsent(phase, p -> new LongAdder()).add(nanos);
+    }
+
+    /**
+     * Adds to the payload bytes read by the current run.
+     */
+    public void payloadRead(ImportKind kind, long bytes) {
+        RunRecord run = currentRuns.get(kind);
+        if (run == null) return;
+        run.payloadBytes.add(bytes);
+        run.payloadRead = true;
+    }
+
+    /**
+     * Runs {@code work} in a transaction and times the commit apart from the work itself. Nothing is recorded
+     * for the commit when the work throws.
+     */
+    public <T> T inTransaction(ImportKind kind, TransactionTemplate transactionTemplate, TransactionCallback<T> work) {
+        Timer.Sample[] commit = new Timer.Sample[1];
+        T result = transactionTemplate.execute(status -> {
+            T value = work.doInTransaction(status);
+            commit[0] = start();
+            return value;
+        });
+        if (commit[0] != null) stop(commit[0], kind, Phase.COMMIT);
+        return result;
+    }
+
+    public void runFinished(ImportKind kind, Outcome outcome, Duration duration) {
+        endRun(kind, outcome, duration, null);
+    }
+
+    public void runFailed(ImportKind kind, Duration duration, Throwable error) {
+        endRun(kind, Outcome.FAILED, duration, error);
+    }
+
+    public void runSkipped(ImportKind kind) {
+        Counter.builder("housing.import.skipped")
+                .description("Housing import runs skipped because the previous run was still in progress")
+                .tag("import", tag(kind))
+                .register(meterRegistry)
+                .increment();
+        Instant now = Instant.now();
+        importRunWriter.submit(new ImportRun(tag(kind), now, now, tag(Outcome.SKIPPED), Map.of(), Map.of(), null, null));
+    }
+
+    public void lastRun(ImportKind kind, Count count, long value) {
+        lastRunCounts.computeIfAbsent(tag(kind) + ":" + tag(count), key -> meterRegistry.gauge(
+                "housing.import.housings", Tags.of("import", tag(kind), "count", tag(count)), new AtomicLong()))
+                .set(value);
+        RunRecord run = currentRuns.get(kind);
+        if (run != null) run.counts.put(count, value);
+    }
+
+    private void endRun(ImportKind kind, Outcome outcome, Duration duration, Throwable error) {
+        Timer.builder("housing.import.run")
+                .description("Duration of housing import runs")
+                .tags(Tags.of("import", tag(kind), "outcome", tag(outcome)))
+                .register(meterRegistry)
+                .record(duration.toNanos(), TimeUnit.NANOSECONDS);
+
+        RunRecord run = currentRuns.remove(kind);
+        if (run == null) return;
+        Map<String, Double> phaseMillis = new LinkedHashMap<>();
+        run.phaseNanos.forEach((phase, nanos) -> phaseMillis.put(tag(phase), nanos.sum() / 1_000_000.0));
+        Map<String, Long> counts = new LinkedHashMap<>();
+        run.counts.forEach((count, value) -> counts.put(tag(count), value));
+        importRunWriter.submit(new ImportRun(
+                tag(kind),
+                run.startedAt,
+                run.startedAt.plus(duration),
+                tag(outcome),
+                phaseMillis,
+                counts,
+                run.payloadRead ? run.payloadBytes.sum() : null,
+                error == null ? null : describe(error)));
+    }
+
+    /**
+     * The error and its root cause, if that is a different exception.
+     */
+    private static String describe(Throwable error) {
+        Throwable root = error;
+        while (root.getCause() != null && root.getCause() != root) root = root.getCause();
+        String description = root == error ? error.toString() : error + "; caused by " + root;
+        return description.length() <= MAX_ERROR_LENGTH ? description : description.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    private Timer phaseTimer(ImportKind kind, Phase phase) {
+        return Timer.builder("housing.import.phase")
+                .description("Time spent per phase of housing import runs")
+                .tags(Tags.of("import", tag(kind), "phase", tag(phase)))
+                .register(meterRegistry);
+    }
+
+    private static String tag(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,82 @@
+package no.sanderolin.boligbot.housingimport.util;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import no.sanderolin.boligbot.dao.projection.ImportRun;
+import no.sanderolin.boligbot.dao.repository.ImportRunRepository;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes finished import runs to the {@code import_runs} history on a background thread, so the import never
+ * waits on it. Runs are queued in memory up to {@code maxQueued}; beyond that, and on failed writes, they are
+ * dropped with a warning. Once a day, runs older than the retention are deleted.
+ */
+@Slf4j
+@Component
+@ConditionalOnNodeRole(NodeRole.WORKER)
+public class ImportRunWriter {
+
+    private final ImportRunRepository importRunRepository;
+    private final Duration retention;
+    private final ThreadPoolExecutor writer;
+
+    /**
+     * Day of the last purge. Only touched by the writer thread.
+     */
+    private LocalDate lastPurgeDay;
+
+    public ImportRunWriter(ImportRunRepository importRunRepository,
+                           @Value("${housing.import.runs.retention:90d}") Duration retention,
+                           @Value("${housing.import.runs.max-queued:1000}") int maxQueued) {
+        this.importRunRepository = importRunRepository;
+        this.retention = retention;
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueued),
+                Thread.ofPlatform().name("import-run-writer").daemon().factory(),
+                (task, executor) -> log.warn("Dropped import run record: {} runs already waiting to be written", maxQueued));
+    }
+
+    public void submit(ImportRun run) {
+        writer.execute(() -> write(run));
+    }
+
+    /**
+     * Writes the runs still queued, waiting up to a few seconds.
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        writer.shutdown();
+        if (!writer.awaitTermination(5, TimeUnit.SECONDS)) {
+            log.warn("Import run records still queued at shutdown were dropped");
+            writer.shutdownNow();
+        }
+    }
+
+    private void write(ImportRun run) {
+        try {
+            importRunRepository.insert(run);
+            purgeOncePerDay(run.finishedAt());
+        } catch (RuntimeException e) {
+            log.warn("Failed to write {} import run started at {}", run.kind(), run.startedAt(), e);
+        }
+    }
+
+    private void purgeOncePerDay(Instant now) {
+        LocalDate today = now.atZone(ZoneOffset.UTC).toLocalDate();
+        if (today.equals(lastPurgeDay)) return;
+        int deleted = importRunRepository.deleteStartedBefore(now.minus(retention));
+        lastPurgeDay = today;
+        if (deleted > 0) log.info("Deleted {} import runs older than {}", deleted, retention);
+    }
+}
@@ -1,64 +1,309 @@
 package no.sanderolin.boligbot.housingimport.util;
 
-import jakarta.annotation.PostConstruct;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
 import no.sanderolin.boligbot.housingimport.exception.HousingImportException;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestClient;
-import org.springframework.web.client.RestClientException;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Posts GraphQL queries to SIT over one shared JDK {@link HttpClient}, which negotiates HTTP/2 where the server
+ * offers it and keeps HTTP/1.1 connections alive between calls. Responses are requested gzip-encoded.
+ * <p>
+ * When a response carries an {@code ETag} or {@code Last-Modified} validator, its body is kept as received and
+ * the next identical query is sent as a conditional request; a {@code 304} replays the kept body to the reader.
+ * Kept bodies share a byte budget, least recently used evicted first, so revalidation trades a bounded amount of
+ * heap for the transfer; a body larger than the whole budget is not kept, and its query is fetched in full again.
+ * <p>
+ * The read timeout only bounds the wait for the response headers, so the body gets its own deadline: a watchdog
+ * closes the body stream once it expires, which fails a reader stuck on a stalled upstream.
+ */
 @Component
-@RequiredArgsConstructor
+@ConditionalOnNodeRole(NodeRole.WORKER)
 public class SitGraphQLClient {
 
-    @Value("${sit.graphql.url}")
-    private String sitGraphQLURL;
+    private static final String USER_AGENT = "BoligBot/1.0";
+
+    private final URI sitGraphQLURI;
+    private final Duration readTimeout;
+    private final Duration bodyTimeout;
+    private final HttpClient httpClient;
+    private final ScheduledExecutorService bodyWatchdog;
+    private final int maxCachedResponses;
+    private final long maxCachedBytes;
+    /**
+     * Kept responses in access order. Guarded by itself, as is {@link #cachedBytes}.
+     */
+    private final Map<String, CachedResponse> cachedResponses = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    /**
+     * Reads a response body as it arrives. GraphQL errors are reported in the body, so detecting them is up to
+     * the reader.
+     */
+    @FunctionalInterface
+    public interface ResponseReader<T> {
+        T read(InputStream body) throws IOException;
+    }
 
-    private RestClient restClient;
+    private record CachedResponse(String etag, String lastModified, boolean gzip, byte[] body) { }
 
-    @PostConstruct
-    public void initializeRestClient() {
-        this.restClient = RestClient.builder()
-                .baseUrl(sitGraphQLURL)
-                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                .defaultHeader(HttpHeaders.USER_AGENT, "BoligBot/1.0")
-                .defaultHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+    public SitGraphQLClient(@Value("${sit.graphql.url}") String sitGraphQLURL,
+                            @Value("${sit.graphql.connect-timeout-ms:5000}") long connectTimeoutMs,
+                            @Value("${sit.graphql.read-timeout-ms:30000}") long readTimeoutMs,
+                            @Value("${sit.graphql.body-timeout-ms:120000}") long bodyTimeoutMs,
+                            @Value("${sit.graphql.revalidation.max-entries:256}") int maxCachedResponses,
+                            @Value("${sit.graphql.revalidation.max-bytes:16777216}") long maxCachedBytes) {
+        this.sitGraphQLURI = URI.create(sitGraphQLURL);
+        this.readTimeout = Duration.ofMillis(readTimeoutMs);
+        this.bodyTimeout = Duration.ofMillis(bodyTimeoutMs);
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
                 .build();
+        this.bodyWatchdog = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("sit-graphql-body-watchdog").daemon().factory());
+        this.maxCachedResponses = maxCachedResponses;
+        this.maxCachedBytes = maxCachedBytes;
     }
 
-    public String executeGraphQLQuery(String query) {
+    @PreDestroy
+    public void close() {
+        bodyWatchdog.shutdownNow();
+        httpClient.shutdownNow();
+    }
+
+    /**
+     * Posts the query and hands the response body to {@code reader} without buffering it, unless the response is
+     * kept for revalidation. The read timeout bounds the wait for the response headers and the body timeout the
+     * time from then until the reader returns. The body is closed once the reader returns.
+     */
+    public <T> T executeGraphQLQuery(String query, ResponseReader<T> reader) {
         validateQuery(query);
-        try {
-            String response = restClient
-                    .post()
-                    .body(query)
-                    .retrieve()
-                    .body(String.class);
+        CachedResponse cached;
+        synchronized (cachedResponses) {
+            cached = cachedResponses.get(query);
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(sitGraphQLURI)
+                .timeout(readTimeout)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip")
+                .header("User-Agent", USER_AGENT)
+                .POST(HttpRequest.BodyPublishers.ofString(query));
+        if (cached != null && cached.etag() != null) request.header("If-None-Match", cached.etag());
+        if (cached != null && cached.lastModified() != null) request.header("If-Modified-Since", cached.lastModified());
 
-            validateResponse(response);
+        HttpResponse<InputStream> response;
+        try {
+            response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException e) {
+            throw new HousingImportException("SIT GraphQL call failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HousingImportException("SIT GraphQL call was interrupted", e);
+        }
 
-            return response;
-        } catch (RestClientException e) {
+        DeadlineInputStream body = new DeadlineInputStream(response.body());
+        try (body) {
+            if (response.statusCode() == 304 && cached != null) {
+                return reader.read(decode(new ByteArrayInputStream(cached.body()), cached.gzip()));
+            }
+            if (response.statusCode() / 100 != 2) {
+                throw new HousingImportException("SIT GraphQL call failed with status " + response.statusCode());
+            }
+            return readAndKeep(query, response.headers(), body, reader);
+        } catch (IOException e) {
+            if (body.expired) {
+                throw new HousingImportException("SIT GraphQL response body was not read within " + bodyTimeout.toMillis() + "ms", e);
+            }
             throw new HousingImportException("SIT GraphQL call failed", e);
         }
     }
 
+    private <T> T readAndKeep(String query, HttpHeaders headers, InputStream body, ResponseReader<T> reader) throws IOException {
+        boolean gzip = headers.firstValue("Content-Encoding").filter("gzip"::equalsIgnoreCase).isPresent();
+        String etag = headers.firstValue("ETag").orElse(null);
+        String lastModified = headers.firstValue("Last-Modified").orElse(null);
+        if (etag == null && lastModified == null) {
+            forget(query);
+            return reader.read(decode(body, gzip));
+        }
+
+        CopyingInputStream copying = new CopyingInputStream(body, maxCachedBytes);
+        T result = reader.read(decode(copying, gzip));
+        if (!copying.overflowed()) copying.transferTo(OutputStream.nullOutputStream());
+        if (copying.overflowed()) {
+            forget(query);
+        } else {
+            keep(query, new CachedResponse(etag, lastModified, gzip, copying.copy()));
+        }
+        return result;
+    }
+
+    /**
+     * Keeps the response and evicts the least recently used ones until the entry count and byte budget hold.
+     */
+    private void keep(String query, CachedResponse response) {
+        synchronized (cachedResponses) {
+            CachedResponse previous = cachedResponses.put(query, response);
+            if (previous != null) cachedBytes -= previous.body().length;
+            cachedBytes += response.body().length;
+            Iterator<CachedResponse> eldest = cachedResponses.values().iterator();
+            while ((cachedBytes > maxCachedBytes || cachedResponses.size() > maxCachedResponses) && eldest.hasNext()) {
+                cachedBytes -= eldest.next().body().length;
+                eldest.remove();
+            }
+        }
+    }
+
+    private void forget(String query) {
+        synchronized (cachedResponses) {
+            CachedResponse previous = cachedResponses.remove(query);
+            if (previous != null) cachedBytes -= previous.body().length;
+        }
+    }
+
+    private static InputStream decode(InputStream body, boolean gzip) throws IOException {
+        return gzip ? new GZIPInputStream(body, 8192) : body;
+    }
+
     private void validateQuery(String query) {
         if (query == null || query.trim().isEmpty()) {
             throw new IllegalArgumentException("GraphQL query cannot be null or empty");
         }
     }
 
-    private void validateResponse(String response) {
-        if (response == null || response.trim().isEmpty()) {
-            throw new HousingImportException("Received empty response from SIT GraphQL API");
+    /**
+     * Closes the response body when the body timeout expires, and from then on fails every read, since the closed
+     * body stream may report a clean end of stream instead.
+     */
+    private final class DeadlineInputStream extends FilterInputStream {
+
+        private final ScheduledFuture<?> deadline;
+        private volatile boolean expired;
+
+        private DeadlineInputStream(InputStream in) {
+            super(in);
+            this.deadline = bodyWatchdog.schedule(this::expire, bodyTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        private void expire() {
+            expired = true;
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // The reader fails on its next read either way.
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            return checked(super.read());
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return checked(super.read(b, off, len));
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            checked(0);
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            deadline.cancel(false);
+            super.close();
+        }
+
+        private int checked(int result) throws IOException {
+            if (expired) throw new IOException("Response body deadline expired");
+            return result;
+        }
+    }
+
+    /**
+     * Copies every byte read from the response, so the body can be kept while it is parsed. Once more than
+     * {@code limit} bytes were read, the copy is dropped and the stream only passes the body through.
+     */
+    private static final class CopyingInputStream extends FilterInputStream {
+
+        private final long limit;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        private CopyingInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        boolean overflowed() {
+            return copy == null;
+        }
+
+        byte[] copy() {
+            return copy.toByteArray();
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0 && fits(1)) copy.write(b);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0 && fits(n)) copy.write(b, off, n);
+            return n;
+        }
+
+        private boolean fits(int n) {
+            if (copy != null && copy.size() + (long) n > limit) copy = null;
+            return copy != null;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] buffer = new byte[(int) Math.min(Math.max(n, 0), 8192)];
+            long skipped = 0;
+            int read;
+            while (skipped < n && (read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped))) > 0) {
+                skipped += read;
+            }
+            return skipped;
         }
 
-        if (response.contains("errors")) {
-            throw new HousingImportException("GraphQL API returned errors: " + response);
+        @Override
+        public boolean markSupported() {
+            return false;
         }
     }
 }
@@ -0,0 +1,121 @@
+package no.sanderolin.boligbot.housingimport.cluster;
+
+import no.sanderolin.boligbot.dao.repository.ImportLeaseRepository;
+import no.sanderolin.boligbot.housingimport.exception.HousingImportException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImportLeaseTest {
+
+    @Mock private ImportLeaseRepository importLeaseRepository;
+    private ImportLease importLease;
+
+    @BeforeEach
+    void setUp() {
+        importLease = new ImportLease(importLeaseRepository, new ClusterNode("node-a"), 30_000, 10_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        importLease.close();
+    }
+
+    @Test
+    void renew_WhenAcquired_ShouldHoldTheLeaseUnderItsToken() {
+        when(importLeaseRepository.tryAcquire(ImportLease.NAME, "node-a", Duration.ofSeconds(30))).thenReturn(OptionalLong.of(3));
+
+        importLease.renew();
+
+        assertThat(importLease.isHeld()).isTrue();
+        assertThat(importLease.token()).isEqualTo(3);
+    }
+
+    @Test
+    void renew_WhenAnotherNodeHoldsTheLease_ShouldNotHoldIt() {
+        when(importLeaseRepository.tryAcquire(any(), any(), any())).thenReturn(OptionalLong.of(3), OptionalLong.empty());
+
+        importLease.renew();
+        importLease.renew();
+
+        assertThat(importLease.isHeld()).isFalse();
+        assertThat(importLease.token()).isEqualTo(ImportLease.NOT_HELD);
+        assertThatThrownBy(() -> importLease.fence()).isInstanceOf(HousingImportException.class);
+        verify(importLeaseRepository, never()).isHeld(anyString(), anyString(), anyLong());
+    }
+
+    @Test
+    void renew_WhenTheDatabaseIsUnreachable_ShouldKeepTheLeaseOnlyUntilItsTtl() throws InterruptedException {
+        importLease = new ImportLease(importLeaseRepository, new ClusterNode("node-a"), 200, 50);
+        when(importLeaseRepository.tryAcquire(any(), any(), any()))
+                .thenReturn(OptionalLong.of(3))
+                .thenThrow(new RuntimeException("connection refused"));
+
+        importLease.renew();
+        importLease.renew();
+        assertThat(importLease.token()).isEqualTo(3);
+
+        Thread.sleep(250);
+        assertThat(importLease.isHeld()).isFalse();
+    }
+
+    @Test
+    void fence_WhenTheDatabaseStillHasTheToken_ShouldPass() {
+        when(importLeaseRepository.tryAcquire(any(), any(), any())).thenReturn(OptionalLong.of(3));
+        when(importLeaseRepository.isHeld(ImportLease.NAME, "node-a", 3)).thenReturn(true);
+        importLease.renew();
+
+        importLease.fence();
+
+        verify(importLeaseRepository).isHeld(ImportLease.NAME, "node-a", 3);
+    }
+
+    @Test
+    void fence_WhenAnotherNodeTookTheLeaseOver_ShouldThrow() {
+        when(importLeaseRepository.tryAcquire(any(), any(), any())).thenReturn(OptionalLong.of(3));
+        when(importLeaseRepository.isHeld(ImportLease.NAME, "node-a", 3)).thenReturn(false);
+        importLease.renew();
+
+        assertThatThrownBy(() -> importLease.fence())
+                .isInstanceOf(HousingImportException.class)
+                .hasMessageContaining("node-a");
+    }
+
+    @Test
+    void close_ShouldReleaseAHeldLease() {
+        when(importLeaseRepository.tryAcquire(any(), any(), any())).thenReturn(OptionalLong.of(3));
+        importLease.renew();
+
+        importLease.close();
+
+        verify(importLeaseRepository).release(ImportLease.NAME, "node-a");
+        assertThat(importLease.isHeld()).isFalse();
+    }
+
+    @Test
+    void close_WithoutTheLease_ShouldNotTouchIt() {
+        importLease.close();
+
+        verify(importLeaseRepository, never()).release(any(), any());
+    }
+
+    @Test
+    void constructor_WithRenewIntervalNotBelowTtl_ShouldThrow() {
+        assertThatThrownBy(() -> new ImportLease(importLeaseRepository, new ClusterNode("node-a"), 10_000, 10_000))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,99 @@
+package no.sanderolin.boligbot.housingimport.cluster;
+
+import no.sanderolin.boligbot.dao.event.HousingAvailabilityChangedEvent;
+import no.sanderolin.boligbot.dao.event.HousingImportCompletedEvent;
+import no.sanderolin.boligbot.dao.event.HousingImportCompletedEvent.ImportKind;
+import no.sanderolin.boligbot.dao.event.UserDataChangedEvent;
+import no.sanderolin.boligbot.dao.repository.HousingAvailabilityEventRepository;
+import no.sanderolin.boligbot.dao.repository.ImportNotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.List;
+
+import static no.sanderolin.boligbot.dao.repository.HousingAvailabilityEventRepository.BECAME_AVAILABLE;
+import static no.sanderolin.boligbot.dao.repository.HousingAvailabilityEventRepository.BECAME_UNAVAILABLE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImportNotificationListenerTest {
+
+    private static final Instant AT = Instant.parse("2026-10-19T10:00:00.123456Z");
+
+    @Mock private DataSource dataSource;
+    @Mock private HousingAvailabilityEventRepository availabilityEventRepository;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private ImportNotificationRepository importNotificationRepository;
+    private ImportNotificationListener listener;
+
+    @BeforeEach
+    void setUp() {
+        listener = new ImportNotificationListener(
+                dataSource, new ClusterNode("node-b"), availabilityEventRepository, eventPublisher, 1000, 1000);
+    }
+
+    @Test
+    void handle_WithAvailabilityChangeFromAnotherNode_ShouldPublishTheFlipsAsRemoteEvent() {
+        when(availabilityEventRepository.findIdsFlippedAt(AT, BECAME_AVAILABLE)).thenReturn(List.of("1", "2"));
+        when(availabilityEventRepository.findIdsFlippedAt(AT, BECAME_UNAVAILABLE)).thenReturn(List.of("3"));
+
+        listener.handle(sentBy("node-a", new HousingAvailabilityChangedEvent(List.of("1", "2"), List.of("3"), AT)));
+
+        ArgumentCaptor<HousingAvailabilityChangedEvent> event = ArgumentCaptor.forClass(HousingAvailabilityChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue()).isEqualTo(new HousingAvailabilityChangedEvent(List.of("1", "2"), List.of("3"), AT, true));
+    }
+
+    @Test
+    void handle_WithCompletedImportFromAnotherNode_ShouldPublishRemoteEvent() {
+        listener.handle(sentBy("node-a", new HousingImportCompletedEvent(ImportKind.CATALOG, AT)));
+
+        verify(eventPublisher).publishEvent(new HousingImportCompletedEvent(ImportKind.CATALOG, AT, true));
+    }
+
+    @Test
+    void handle_WithUserDataChangeFromAnotherNode_ShouldPublishRemoteEvent() {
+        listener.handle(sentBy("node-a", new UserDataChangedEvent(UserDataChangedEvent.Kind.WEBHOOKS)));
+
+        verify(eventPublisher).publishEvent(new UserDataChangedEvent(UserDataChangedEvent.Kind.WEBHOOKS, true));
+    }
+
+    @Test
+    void handle_WithOwnNotification_ShouldIgnoreIt() {
+        listener.handle(sentBy("node-b", new HousingImportCompletedEvent(ImportKind.AVAILABILITY, AT)));
+
+        verifyNoInteractions(eventPublisher, availabilityEventRepository);
+    }
+
+    @Test
+    void handle_WithMalformedPayload_ShouldIgnoreIt() {
+        listener.handle("CATALOG_COMPLETED yesterday");
+        listener.handle("SOMETHING_ELSE " + AT + " node-a");
+        listener.handle("CATALOG_COMPLETED yesterday node-a");
+
+        verifyNoInteractions(eventPublisher);
+    }
+
+    /**
+     * The payload the notifier of {@code node} sends for the event.
+     */
+    private String sentBy(String node, Object event) {
+        ImportNotifier notifier = new ImportNotifier(importNotificationRepository, new ClusterNode(node));
+        if (event instanceof HousingImportCompletedEvent completed) notifier.onImportCompleted(completed);
+        if (event instanceof HousingAvailabilityChangedEvent changed) notifier.onAvailabilityChanged(changed);
+        if (event instanceof UserDataChangedEvent changed) notifier.onUserDataChanged(changed);
+
+        ArgumentCaptor<String> payload = ArgumentCaptor.forClass(String.class);
+        verify(importNotificationRepository, atLeastOnce()).send(payload.capture());
+        return payload.getValue();
+    }
+}
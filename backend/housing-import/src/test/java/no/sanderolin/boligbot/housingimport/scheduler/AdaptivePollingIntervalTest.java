@@ -0,0 +1,77 @@
+package no.sanderolin.boligbot.housingimport.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class AdaptivePollingIntervalTest {
+
+    private static final AdaptivePollingInterval.Bounds DEFAULT_BOUNDS =
+            new AdaptivePollingInterval.Bounds(Duration.ofSeconds(10), Duration.ofMinutes(5));
+
+    @Test
+    void record_WithoutChanges_ShouldBackOffUpToMax() {
+        AdaptivePollingInterval interval = interval(LocalTime.NOON, List.of());
+
+        assertThat(interval.current()).isEqualTo(Duration.ofSeconds(10));
+        assertThat(interval.record(false)).isEqualTo(Duration.ofSeconds(20));
+        assertThat(interval.record(false)).isEqualTo(Duration.ofSeconds(40));
+        for (int i = 0; i < 10; i++) interval.record(false);
+
+        assertThat(interval.current()).isEqualTo(Duration.ofMinutes(5));
+    }
+
+    @Test
+    void record_WithChanges_ShouldDropToMinAndRaiseChangeRate() {
+        AdaptivePollingInterval interval = interval(LocalTime.NOON, List.of());
+        for (int i = 0; i < 5; i++) interval.record(false);
+
+        assertThat(interval.record(true)).isEqualTo(Duration.ofSeconds(10));
+        assertThat(interval.changeRate()).isEqualTo(0.2);
+        interval.record(true);
+        assertThat(interval.changeRate()).isCloseTo(0.36, within(1e-9));
+    }
+
+    @Test
+    void current_ShouldUseBoundsOfWindowContainingNow() {
+        List<AdaptivePollingInterval.Window> windows = AdaptivePollingInterval.parseWindows("07:00-18:00=5s..1m, 23:00-06:00=1m..15m");
+
+        AdaptivePollingInterval day = interval(LocalTime.of(9, 30), windows);
+        assertThat(day.current()).isEqualTo(Duration.ofSeconds(5));
+        for (int i = 0; i < 10; i++) day.record(false);
+        assertThat(day.current()).isEqualTo(Duration.ofMinutes(1));
+
+        AdaptivePollingInterval night = interval(LocalTime.of(2, 0), windows);
+        assertThat(night.current()).isEqualTo(Duration.ofMinutes(1));
+        assertThat(night.record(true)).isEqualTo(Duration.ofMinutes(1));
+        assertThat(night.record(false)).isEqualTo(Duration.ofMinutes(2));
+
+        AdaptivePollingInterval evening = interval(LocalTime.of(20, 0), windows);
+        assertThat(evening.current()).isEqualTo(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void parseWindows_ShouldRejectMalformedEntries() {
+        assertThat(AdaptivePollingInterval.parseWindows("")).isEmpty();
+        assertThatThrownBy(() -> AdaptivePollingInterval.parseWindows("07:00=10s..1m"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> AdaptivePollingInterval.parseWindows("07:00-18:00=1m..10s"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static AdaptivePollingInterval interval(LocalTime localTime, List<AdaptivePollingInterval.Window> windows) {
+        Clock clock = Clock.fixed(LocalDateTime.of(2026, 10, 19, localTime.getHour(), localTime.getMinute())
+                .toInstant(ZoneOffset.UTC), ZoneId.of("UTC"));
+        return new AdaptivePollingInterval(clock, DEFAULT_BOUNDS, windows, 2);
+    }
+}
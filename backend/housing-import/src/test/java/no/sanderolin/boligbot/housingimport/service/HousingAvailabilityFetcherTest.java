@@ -1,28 +1,40 @@
 package no.sanderolin.boligbot.housingimport.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import no.sanderolin.boligbot.housingimport.dto.HousingAvailabilityDTO;
 import no.sanderolin.boligbot.housingimport.exception.HousingImportException;
 import no.sanderolin.boligbot.housingimport.util.GraphQLHousingMapper;
+import no.sanderolin.boligbot.housingimport.util.HousingImportMetrics;
+import no.sanderolin.boligbot.housingimport.util.ImportRunWriter;
 import no.sanderolin.boligbot.housingimport.util.SitGraphQLClient;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class HousingAvailabilityFetcherTest {
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ImportRunWriter importRunWriter = mock(ImportRunWriter.class);
+
     @Mock private SitGraphQLClient sitGraphQLClient;
     @Mock private GraphQLHousingMapper graphQLHousingMapper;
+    @Spy private HousingImportMetrics importMetrics = new HousingImportMetrics(meterRegistry, importRunWriter);
     @InjectMocks private HousingAvailabilityFetcher fetcher;
 
     @Test
@@ -33,33 +45,33 @@ class HousingAvailabilityFetcherTest {
                 new HousingAvailabilityDTO("2", null)
         );
 
-        when(sitGraphQLClient.executeGraphQLQuery(anyString())).thenReturn(mockResponse);
-        when(graphQLHousingMapper.mapHousingAvailability(mockResponse)).thenReturn(mapped);
+        respondWith(mockResponse);
+        when(graphQLHousingMapper.mapHousingAvailability(any(InputStream.class))).thenReturn(mapped);
 
         List<HousingAvailabilityDTO> result = fetcher.fetchAvailabilityFromGraphQL();
 
         assertThat(result).isSameAs(mapped);
-        verify(sitGraphQLClient).executeGraphQLQuery(anyString());
-        verify(graphQLHousingMapper).mapHousingAvailability(mockResponse);
+        verify(sitGraphQLClient).executeGraphQLQuery(anyString(), any());
+        verify(graphQLHousingMapper).mapHousingAvailability(any(InputStream.class));
         verifyNoMoreInteractions(sitGraphQLClient, graphQLHousingMapper);
     }
 
     @Test
     void fetchAvailabilityFromGraphQL_WhenClientThrowsHousingImportException_ShouldPropagate() {
-        when(sitGraphQLClient.executeGraphQLQuery(anyString()))
+        when(sitGraphQLClient.executeGraphQLQuery(anyString(), any()))
                 .thenThrow(new HousingImportException("network fail"));
 
         assertThatThrownBy(() -> fetcher.fetchAvailabilityFromGraphQL())
                 .isInstanceOf(HousingImportException.class)
                 .hasMessage("network fail");
 
-        verify(sitGraphQLClient).executeGraphQLQuery(anyString());
+        verify(sitGraphQLClient).executeGraphQLQuery(anyString(), any());
         verifyNoInteractions(graphQLHousingMapper);
     }
 
     @Test
     void fetchAvailabilityFromGraphQL_WhenClientThrowsIllegalArgumentException_ShouldWrap() {
-        when(sitGraphQLClient.executeGraphQLQuery(anyString()))
+        when(sitGraphQLClient.executeGraphQLQuery(anyString(), any()))
                 .thenThrow(new IllegalArgumentException("bad query"));
 
         assertThatThrownBy(() -> fetcher.fetchAvailabilityFromGraphQL())
@@ -67,7 +79,7 @@ class HousingAvailabilityFetcherTest {
                 .hasMessage("Failed to fetch availability from GraphQL API")
                 .hasCauseInstanceOf(IllegalArgumentException.class);
 
-        verify(sitGraphQLClient).executeGraphQLQuery(anyString());
+        verify(sitGraphQLClient).executeGraphQLQuery(anyString(), any());
         verifyNoInteractions(graphQLHousingMapper);
     }
 
@@ -75,24 +87,24 @@ class HousingAvailabilityFetcherTest {
     void fetchAvailabilityFromGraphQL_WhenMapperThrowsHousingImportException_ShouldPropagate() {
         String mockResponse = "{\"data\":{\"housings\":{\"housingRentalObjects\":[]}}}";
 
-        when(sitGraphQLClient.executeGraphQLQuery(anyString())).thenReturn(mockResponse);
-        when(graphQLHousingMapper.mapHousingAvailability(mockResponse))
+        respondWith(mockResponse);
+        when(graphQLHousingMapper.mapHousingAvailability(any(InputStream.class)))
                 .thenThrow(new HousingImportException("mapping fail"));
 
         assertThatThrownBy(() -> fetcher.fetchAvailabilityFromGraphQL())
                 .isInstanceOf(HousingImportException.class)
                 .hasMessage("mapping fail");
 
-        verify(sitGraphQLClient).executeGraphQLQuery(anyString());
-        verify(graphQLHousingMapper).mapHousingAvailability(mockResponse);
+        verify(sitGraphQLClient).executeGraphQLQuery(anyString(), any());
+        verify(graphQLHousingMapper).mapHousingAvailability(any(InputStream.class));
     }
 
     @Test
     void fetchAvailabilityFromGraphQL_WhenMapperThrowsIllegalArgumentException_ShouldWrap() {
         String mockResponse = "{\"data\":{\"housings\":{\"housingRentalObjects\":[]}}}";
 
-        when(sitGraphQLClient.executeGraphQLQuery(anyString())).thenReturn(mockResponse);
-        when(graphQLHousingMapper.mapHousingAvailability(mockResponse))
+        respondWith(mockResponse);
+        when(graphQLHousingMapper.mapHousingAvailability(any(InputStream.class)))
                 .thenThrow(new IllegalArgumentException("bad json"));
 
         assertThatThrownBy(() -> fetcher.fetchAvailabilityFromGraphQL())
@@ -100,7 +112,12 @@ class HousingAvailabilityFetcherTest {
                 .hasMessage("Failed to fetch availability from GraphQL API")
                 .hasCauseInstanceOf(IllegalArgumentException.class);
 
-        verify(sitGraphQLClient).executeGraphQLQuery(anyString());
-        verify(graphQLHousingMapper).mapHousingAvailability(mockResponse);
+        verify(sitGraphQLClient).executeGraphQLQuery(anyString(), any());
+        verify(graphQLHousingMapper).mapHousingAvailability(any(InputStream.class));
+    }
+
+    private void respondWith(String response) {
+        when(sitGraphQLClient.executeGraphQLQuery(anyString(), any())).thenAnswer(inv -> inv.<SitGraphQLClient.ResponseReader<?>>getArgument(1)
+                .read(new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8))));
     }
 }
@@ -1,19 +1,37 @@
 package no.sanderolin.boligbot.housingimport.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import no.sanderolin.boligbot.dao.event.HousingAvailabilityChangedEvent;
+import no.sanderolin.boligbot.dao.event.HousingAvailableFromDateChangedEvent;
+import no.sanderolin.boligbot.dao.event.HousingImportCompletedEvent;
+import no.sanderolin.boligbot.dao.projection.AppliedAvailability;
+import no.sanderolin.boligbot.dao.projection.AvailableHousing;
+import no.sanderolin.boligbot.dao.repository.HousingAvailabilityEventRepository;
+import no.sanderolin.boligbot.dao.repository.HousingChangeWindowRepository;
 import no.sanderolin.boligbot.dao.repository.HousingRepository;
+import no.sanderolin.boligbot.housingimport.cluster.ImportLease;
 import no.sanderolin.boligbot.housingimport.dto.HousingAvailabilityDTO;
 import no.sanderolin.boligbot.housingimport.exception.HousingImportException;
+import no.sanderolin.boligbot.housingimport.util.HousingImportMetrics;
+import no.sanderolin.boligbot.housingimport.util.ImportRunWriter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -21,35 +39,234 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class HousingAvailabilityImportServiceTest {
 
+    private static final Instant CHANGED_AT = Instant.parse("2026-10-19T08:00:00Z");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ImportRunWriter importRunWriter = mock(ImportRunWriter.class);
+
     @Mock private HousingAvailabilityFetcher availabilityFetcher;
     @Mock private HousingRepository housingRepository;
+    @Mock private HousingAvailabilityEventRepository availabilityEventRepository;
+    @Mock private HousingChangeWindowRepository changeWindowRepository;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private TransactionTemplate transactionTemplate;
+    @Mock private ImportLease importLease;
+    @Spy private HousingImportMetrics importMetrics = new HousingImportMetrics(meterRegistry, importRunWriter);
     @InjectMocks private HousingAvailabilityImportService importTask;
 
+    private LocalDate availableFrom;
     private List<HousingAvailabilityDTO> availableHousings;
     private List<String> availableHousingIds;
+    private List<LocalDate> availableFromDates;
 
     @BeforeEach
     void setUp() {
-        availableHousings = List.of(new HousingAvailabilityDTO("1", LocalDate.now()));
+        availableFrom = LocalDate.now();
+        availableHousings = List.of(new HousingAvailabilityDTO("1", availableFrom));
         availableHousingIds = List.of("1");
+        availableFromDates = List.of(availableFrom);
         lenient().when(housingRepository.count()).thenReturn(6000L);
+        lenient().when(availabilityEventRepository.findAvailable()).thenReturn(List.of());
+        lenient().when(importLease.token()).thenReturn(1L);
+        lenient().when(changeWindowRepository.open("AVAILABILITY")).thenReturn(CHANGED_AT);
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
     }
 
     @Test
-    void runImport_ShouldUpdateAvailability() {
+    void runImport_ShouldApplyOnlyTheDiffAgainstTheDatabase() {
+        when(availabilityEventRepository.findAvailable()).thenReturn(List.of(
+                new AvailableHousing("7", availableFrom), new AvailableHousing("8", null)));
         when(availabilityFetcher.fetchAvailabilityFromGraphQL()).thenReturn(availableHousings);
+        when(availabilityEventRepository.applyAvailable(eq(availableHousingIds), eq(availableFromDates), any(Instant.class)))
+                .thenReturn(new AppliedAvailability(List.of("1"), List.of("1"), List.of()));
+        when(availabilityEventRepository.markUnavailable(eq(List.of("7", "8")), any(Instant.class))).thenReturn(List.of("7", "8"));
 
-        when(housingRepository.markAvailableIfInIds(eq(availableHousingIds))).thenReturn(3);
-        when(housingRepository.markUnavailableIfNotInIds(eq(availableHousingIds))).thenReturn(2);
-        when(housingRepository.updateAvailableFromDate(eq("1"), any(LocalDate.class))).thenReturn(1);
-
-        importTask.runImport();
+        assertThat(importTask.runImport()).isTrue();
 
         verify(housingRepository).count();
         verify(availabilityFetcher).fetchAvailabilityFromGraphQL();
-        verify(housingRepository).markAvailableIfInIds(eq(availableHousingIds));
-        verify(housingRepository).markUnavailableIfNotInIds(eq(availableHousingIds));
-        verify(housingRepository).updateAvailableFromDate(eq("1"), any(LocalDate.class));
+        verify(availabilityEventRepository).findAvailable();
+        verify(availabilityEventRepository).applyAvailable(eq(availableHousingIds), eq(availableFromDates), any(Instant.class));
+        verify(availabilityEventRepository).markUnavailable(eq(List.of("7", "8")), any(Instant.class));
+        verifyNoMoreInteractions(housingRepository, availabilityEventRepository);
+        verify(eventPublisher).publishEvent(any(HousingImportCompletedEvent.class));
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof HousingAvailabilityChangedEvent changed
+                && changed.becameAvailable().equals(List.of("1"))
+                && changed.becameUnavailable().equals(List.of("7", "8"))));
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof HousingAvailableFromDateChangedEvent changed
+                && changed.rentalObjectIds().equals(List.of("1"))));
+    }
+
+    @Test
+    void runImport_ShouldRecordPhaseTimesAndCountsOfTheRun() {
+        when(availabilityEventRepository.findAvailable()).thenReturn(List.of(new AvailableHousing("7", availableFrom)));
+        when(availabilityFetcher.fetchAvailabilityFromGraphQL()).thenReturn(availableHousings);
+        when(availabilityEventRepository.applyAvailable(eq(availableHousingIds), eq(availableFromDates), any(Instant.class)))
+                .thenReturn(new AppliedAvailability(List.of("1"), List.of(), List.of()));
+        when(availabilityEventRepository.markUnavailable(eq(List.of("7")), any(Instant.class))).thenReturn(List.of("7"));
+
+        importTask.runImport();
+
+        assertThat(meterRegistry.get("housing.import.phase").tag("import", "availability").timers())
+                .extracting(timer -> timer.getId().getTag("phase"))
+                .containsExactlyInAnyOrder("load_snapshot", "diff", "mark_available", "mark_unavailable", "commit");
+        assertThat(meterRegistry.get("housing.import.run").tags("import", "availability", "outcome", "applied").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("housing.import.housings").tags("import", "availability", "count", "fetched").gauge().value())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("housing.import.housings").tags("import", "availability", "count", "made_available").gauge().value())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("housing.import.housings").tags("import", "availability", "count", "made_unavailable").gauge().value())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void runImport_WithoutImportLease_ShouldFailBeforeFetching() {
+        doThrow(new HousingImportException("Import lease is not held by this node")).when(importLease).fence();
+
+        assertThatThrownBy(() -> importTask.runImport()).isInstanceOf(HousingImportException.class);
+
+        verifyNoInteractions(availabilityFetcher, availabilityEventRepository);
+    }
+
+    @Test
+    void runImport_WhenImportLeaseIsLostBeforeWriting_ShouldRollBackAndReloadTheSnapshot() {
+        when(availabilityFetcher.fetchAvailabilityFromGraphQL()).thenReturn(availableHousings);
+        when(availabilityEventRepository.applyAvailable(eq(availableHousingIds), eq(availableFromDates), any(Instant.class)))
+                .thenReturn(new AppliedAvailability(List.of("1"), List.of(), List.of()));
+        doNothing().doThrow(new HousingImportException("Import lease is not held by this node")).doNothing()
+                .when(importLease).fence();
+
+        assertThatThrownBy(() -> importTask.runImport()).isInstanceOf(HousingImportException.class);
+        importTask.runImport();
+
+        verify(availabilityEventRepository, times(1))
+                .applyAvailable(anyList(), anyList(), any(Instant.class));
+        verify(availabilityEventRepository, times(2)).findAvailable();
+        verify(changeWindowRepository, times(2)).close("AVAILABILITY", CHANGED_AT);
+    }
+
+    @Test
+    void runImport_ShouldStampFlipsWithTheChangeWindowAndCloseItAfterTheWrite() {
+        when(availabilityEventRepository.findAvailable()).thenReturn(List.of(new AvailableHousing("7", availableFrom)));
+        when(availabilityFetcher.fetchAvailabilityFromGraphQL()).thenReturn(availableHousings);
+        when(availabilityEventRepository.applyAvailable(eq(availableHousingIds), eq(availableFromDates), eq(CHANGED_AT)))
+                .thenReturn(new AppliedAvailability(List.of("1"), List.of(), List.of()));
+        when(availabilityEventRepository.markUnavailable(List.of("7"), CHANGED_AT)).thenReturn(List.of("7"));
+
+        assertThat(importTask.runImport()).isTrue();
+
+        InOrder inOrder = inOrder(changeWindowRepository, availabilityEventRepository);
+        inOrder.verify(changeWindowRepository).open("AVAILABILITY");
+        inOrder.verify(availabilityEventRepository).applyAvailable(availableHousingIds, availableFromDates, CHANGED_AT);
+        inOrder.verify(availabilityEventRepository).markUnavailable(List.of("7"), CHANGED_AT);
+        inOrder.verify(changeWindowRepository).close("AVAILABILITY", CHANGED_AT);
+    }
+
+    @Test
+    void runImport_AfterImportLeaseChangedHands_ShouldReloadTheSnapshot() {
+        when(availabilityEventRepository.findAvailable()).thenReturn(List.of(new AvailableHousing("1", availableFrom)));
+        when(availabilityFetcher.fetchAvailabilityFromGraphQL()).thenReturn(availableHousings);
+        when(importLease.token()).thenReturn(1L, 1L, 2L);
+
+        importTask.runImport();
+        importTask.runImport();
+        importTask.runImport();
+
+        verify(availabilityEventRepository, times(2)).findAvailable();
+        verify(transactionTemplate, never()).execute(any());
+    }
+
+    @Test
+    void runImport_WhilePreviousRunIsInProgress_ShouldSkipAndCountIt() {
+        when(availabilityFetcher.fetchAvailabilityFromGraphQL()).thenAnswer(inv -> {
+            assertThat(importTask.runImport()).isFalse();
+            return List.of();
+        });
+
+        importTask.runImport();
+
+        verify(availabilityFetcher, times(1)).fetchAvailabilityFromGraphQL();
+        assertThat(meterRegistry.get("housing.import.skipped").tag("import", "availability").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void runImport_WithOnlyDateChanges_ShouldNotPublishAvailabilityChange() {
+        when(availabilityEventRepository.findAvailable()).thenReturn(List.of(new AvailableHousing("1", availableFrom.minusDays(1))));
+        when(availabilityFetcher.fetchAvailabilityFromGraphQL()).thenReturn(availableHousings);
+        when(availabilityEventRepository.applyAvailable(eq(availableHousingIds), eq(availableFromDates), any(Instant.class)))
+                .thenReturn(new AppliedAvailability(List.of(), List.of("1"), List.of()));
+
+        importTask.runImport();
+
+        verify(availabilityEventRepository, never()).markUnavailable(anyList(), any(Instant.class));
+        verify(eventPublisher, never()).publishEvent(any(HousingAvailabilityChangedEvent.class));
+        verify(eventPublisher).publishEvent(any(HousingAvailableFromDateChangedEvent.class));
+        verify(eventPublisher).publishEvent(any(HousingImportCompletedEvent.class));
+    }
+
+    @Test
+    void runImport_WithNoChanges_ShouldNotOpenTransaction() {
+        when(availabilityEventRepository.findAvailable()).thenReturn(List.of(new AvailableHousing("1", availableFrom)));
+        when(availabilityFetcher.fetchAvailabilityFromGraphQL()).thenReturn(availableHousings);
+
+        assertThat(importTask.runImport()).isFalse();
+
+        verify(availabilityEventRepository).findAvailable();
+        verifyNoMoreInteractions(availabilityEventRepository);
+        verifyNoInteractions(transactionTemplate, eventPublisher);
+    }
+
+    @Test
+    void runImport_Twice_ShouldDiffAgainstTheAppliedSnapshotInMemory() {
+        when(availabilityFetcher.fetchAvailabilityFromGraphQL())
+                .thenReturn(availableHousings)
+                .thenReturn(List.of(new HousingAvailabilityDTO("1", availableFrom), new HousingAvailabilityDTO("2", null)));
+        when(availabilityEventRepository.applyAvailable(anyList(), anyList(), any(Instant.class)))
+                .thenReturn(new AppliedAvailability(List.of("1"), List.of(), List.of()))
+                .thenReturn(new AppliedAvailability(List.of("2"), List.of(), List.of()));
+
+        importTask.runImport();
+        importTask.runImport();
+
+        verify(housingRepository, times(1)).count();
+        verify(availabilityEventRepository, times(1)).findAvailable();
+        verify(availabilityEventRepository).applyAvailable(eq(availableHousingIds), eq(availableFromDates), any(Instant.class));
+        verify(availabilityEventRepository).applyAvailable(eq(List.of("2")), eq(Collections.singletonList(null)), any(Instant.class));
+        verifyNoMoreInteractions(availabilityEventRepository);
+    }
+
+    @Test
+    void runImport_WithUnknownIdListedTwice_ShouldNotOpenTransactionOnTheSecondRun() {
+        when(availabilityFetcher.fetchAvailabilityFromGraphQL()).thenReturn(availableHousings);
+        when(availabilityEventRepository.applyAvailable(eq(availableHousingIds), eq(availableFromDates), any(Instant.class)))
+                .thenReturn(new AppliedAvailability(List.of(), List.of(), List.of("1")));
+
+        assertThat(importTask.runImport()).isFalse();
+        assertThat(importTask.runImport()).isFalse();
+
+        verify(availabilityEventRepository, times(1)).applyAvailable(anyList(), anyList(), any(Instant.class));
+        verify(changeWindowRepository, times(1)).open("AVAILABILITY");
+        verify(transactionTemplate, times(1)).execute(any());
+    }
+
+    @Test
+    void runImport_AfterCatalogImport_ShouldTryUnknownIdsAgain() {
+        when(availabilityFetcher.fetchAvailabilityFromGraphQL()).thenReturn(availableHousings);
+        when(availabilityEventRepository.applyAvailable(eq(availableHousingIds), eq(availableFromDates), any(Instant.class)))
+                .thenReturn(new AppliedAvailability(List.of(), List.of(), List.of("1")))
+                .thenReturn(new AppliedAvailability(List.of("1"), List.of(), List.of()));
+
+        assertThat(importTask.runImport()).isFalse();
+        importTask.onImportCompleted(new HousingImportCompletedEvent(HousingImportCompletedEvent.ImportKind.AVAILABILITY, Instant.now()));
+        assertThat(importTask.runImport()).isFalse();
+        importTask.onImportCompleted(new HousingImportCompletedEvent(HousingImportCompletedEvent.ImportKind.CATALOG, Instant.now()));
+        assertThat(importTask.runImport()).isTrue();
+        assertThat(importTask.runImport()).isFalse();
+
+        verify(availabilityEventRepository, times(2)).applyAvailable(eq(availableHousingIds), eq(availableFromDates), any(Instant.class));
+        verify(transactionTemplate, times(2)).execute(any());
     }
 
     @Test
@@ -60,6 +277,7 @@ class HousingAvailabilityImportServiceTest {
 
         verify(housingRepository).count();
         verifyNoMoreInteractions(availabilityFetcher, housingRepository);
+        verifyNoInteractions(availabilityEventRepository);
     }
 
     @Test
@@ -70,66 +288,68 @@ class HousingAvailabilityImportServiceTest {
         verify(housingRepository).count();
         verify(availabilityFetcher).fetchAvailabilityFromGraphQL();
         verifyNoMoreInteractions(housingRepository);
+        verifyNoInteractions(transactionTemplate);
     }
 
     @Test
-    void runImport_WhenFetcherThrowsHousingImportException_ShouldPropagate() {
+    void runImport_WhenFetcherThrowsHousingImportException_ShouldPropagateAndKeepSnapshot() {
         when(availabilityFetcher.fetchAvailabilityFromGraphQL())
-                .thenThrow(new HousingImportException("API unavailable"));
+                .thenThrow(new HousingImportException("API unavailable"))
+                .thenReturn(List.of());
 
         assertThatThrownBy(() -> importTask.runImport())
                 .isInstanceOf(HousingImportException.class)
                 .hasMessage("API unavailable");
+        importTask.runImport();
 
         verify(housingRepository).count();
-        verify(availabilityFetcher).fetchAvailabilityFromGraphQL();
+        verify(availabilityEventRepository).findAvailable();
+        verify(availabilityFetcher, times(2)).fetchAvailabilityFromGraphQL();
         verifyNoMoreInteractions(housingRepository);
     }
 
     @Test
-    void runImport_WhenBulkUpdateAvailabilityTrueThrows_ShouldWrapAsUnexpectedException() {
+    void runImport_WhenApplyAvailableThrows_ShouldWrapAndReloadSnapshotOnNextRun() {
         when(availabilityFetcher.fetchAvailabilityFromGraphQL()).thenReturn(availableHousings);
-        when(housingRepository.markAvailableIfInIds(anyList()))
-                .thenThrow(new RuntimeException("DB error"));
+        when(availabilityEventRepository.applyAvailable(anyList(), anyList(), any(Instant.class)))
+                .thenThrow(new RuntimeException("DB error"))
+                .thenReturn(new AppliedAvailability(List.of("1"), List.of(), List.of()));
 
         assertThatThrownBy(() -> importTask.runImport())
                 .isInstanceOf(HousingImportException.class)
                 .hasMessage("Unexpected error during availability import")
                 .hasCauseInstanceOf(RuntimeException.class);
+        importTask.runImport();
 
-        verify(housingRepository).count();
-        verify(availabilityFetcher).fetchAvailabilityFromGraphQL();
-        verify(housingRepository).markAvailableIfInIds(eq(availableHousingIds));
-        verifyNoMoreInteractions(housingRepository);
+        verify(housingRepository, times(2)).count();
+        verify(availabilityEventRepository, times(2)).findAvailable();
+        verify(availabilityEventRepository, times(2)).applyAvailable(eq(availableHousingIds), eq(availableFromDates), any(Instant.class));
+        verifyNoMoreInteractions(housingRepository, availabilityEventRepository);
     }
 
     @Test
-    void runImport_WhenBulkUpdateAvailabilityFalseThrows_ShouldWrapAsUnexpectedException() {
+    void runImport_WhenFailing_ShouldRecordTheErrorWithTheRun() {
         when(availabilityFetcher.fetchAvailabilityFromGraphQL()).thenReturn(availableHousings);
-        when(housingRepository.markAvailableIfInIds(anyList())).thenReturn(1);
-        when(housingRepository.markUnavailableIfNotInIds(anyList()))
+        when(availabilityEventRepository.applyAvailable(anyList(), anyList(), any(Instant.class)))
                 .thenThrow(new RuntimeException("DB error"));
 
-        assertThatThrownBy(() -> importTask.runImport())
-                .isInstanceOf(HousingImportException.class)
-                .hasMessage("Unexpected error during availability import")
-                .hasCauseInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> importTask.runImport()).isInstanceOf(HousingImportException.class);
 
-        verify(housingRepository).count();
-        verify(availabilityFetcher).fetchAvailabilityFromGraphQL();
-        verify(housingRepository).markAvailableIfInIds(eq(availableHousingIds));
-        verify(housingRepository).markUnavailableIfNotInIds(eq(availableHousingIds));
-        verifyNoMoreInteractions(housingRepository);
+        verify(importRunWriter).submit(argThat(run -> run.kind().equals("availability")
+                && run.status().equals("failed")
+                && run.phaseMillis().containsKey("mark_available")
+                && !run.phaseMillis().containsKey("commit")
+                && run.error().equals("java.lang.RuntimeException: DB error")));
     }
 
     @Test
-    void runImport_WhenUpdateAvailableFromDateThrows_ShouldWrapAsUnexpectedException() {
+    void runImport_WhenMarkUnavailableThrows_ShouldWrapAsUnexpectedException() {
+        when(availabilityEventRepository.findAvailable()).thenReturn(List.of(new AvailableHousing("7", null)));
         when(availabilityFetcher.fetchAvailabilityFromGraphQL()).thenReturn(availableHousings);
-        when(housingRepository.markAvailableIfInIds(anyList())).thenReturn(1);
-        when(housingRepository.markUnavailableIfNotInIds(anyList())).thenReturn(1);
-
-        when(housingRepository.updateAvailableFromDate(eq("1"), any()))
-                .thenThrow(new RuntimeException("DB error 3"));
+        when(availabilityEventRepository.applyAvailable(anyList(), anyList(), any(Instant.class)))
+                .thenReturn(new AppliedAvailability(List.of("1"), List.of(), List.of()));
+        when(availabilityEventRepository.markUnavailable(anyList(), any(Instant.class)))
+                .thenThrow(new RuntimeException("DB error"));
 
         assertThatThrownBy(() -> importTask.runImport())
                 .isInstanceOf(HousingImportException.class)
@@ -138,8 +358,9 @@ class HousingAvailabilityImportServiceTest {
 
         verify(housingRepository).count();
         verify(availabilityFetcher).fetchAvailabilityFromGraphQL();
-        verify(housingRepository).markAvailableIfInIds(anyList());
-        verify(housingRepository).markUnavailableIfNotInIds(anyList());
-        verify(housingRepository).updateAvailableFromDate(eq("1"), any());
+        verify(availabilityEventRepository).applyAvailable(eq(availableHousingIds), eq(availableFromDates), any(Instant.class));
+        verify(availabilityEventRepository).markUnavailable(eq(List.of("7")), any(Instant.class));
+        verifyNoMoreInteractions(housingRepository);
+        verifyNoInteractions(eventPublisher);
     }
-}
\ No newline at end of file
+}
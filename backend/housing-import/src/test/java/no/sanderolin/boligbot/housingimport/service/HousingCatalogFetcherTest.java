@@ -1,32 +1,47 @@
 package no.sanderolin.boligbot.housingimport.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import no.sanderolin.boligbot.housingimport.dto.HousingCatalogDTO;
 import no.sanderolin.boligbot.housingimport.dto.HousingDTO;
 import no.sanderolin.boligbot.housingimport.exception.HousingImportException;
 import no.sanderolin.boligbot.housingimport.util.GraphQLHousingMapper;
+import no.sanderolin.boligbot.housingimport.util.HousingContentHash;
+import no.sanderolin.boligbot.housingimport.util.HousingImportMetrics;
+import no.sanderolin.boligbot.housingimport.util.ImportRunWriter;
 import no.sanderolin.boligbot.housingimport.util.SitGraphQLClient;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class HousingCatalogFetcherTest {
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ImportRunWriter importRunWriter = mock(ImportRunWriter.class);
+
     @Mock private SitGraphQLClient sitGraphQLClient;
     @Mock private GraphQLHousingMapper graphQLHousingMapper;
+    @Spy private HousingImportMetrics importMetrics = new HousingImportMetrics(meterRegistry, importRunWriter);
     @InjectMocks private HousingCatalogFetcher fetcher;
 
     @Test
-    void fetchHousingsFromGraphQL_ShouldCallClientAndMapResponse() {
+    void fetchPage_ShouldRequestPageAndMapResponse() {
         String mockResponse = "{\"data\":{\"sanity_allEnhet\":[]}}";
         List<HousingDTO> mapped = List.of(
                 new HousingDTO("1", "2", "3", "4",
@@ -35,72 +50,82 @@ class HousingCatalogFetcherTest {
                         "13", "14", new BigDecimal(15), 16)
                 );
 
-        when(sitGraphQLClient.executeGraphQLQuery(anyString())).thenReturn(mockResponse);
-        when(graphQLHousingMapper.mapHousingEntities(mockResponse)).thenReturn(mapped);
+        respondWith(mockResponse);
+        when(graphQLHousingMapper.mapHousingEntities(any(InputStream.class))).thenReturn(mapped);
 
-        List<HousingDTO> result = fetcher.fetchHousingsFromGraphQL();
+        HousingCatalogDTO result = fetcher.fetchPage(1000, 500);
 
-        assertThat(result).isSameAs(mapped);
-        verify(sitGraphQLClient).executeGraphQLQuery(anyString());
-        verify(graphQLHousingMapper).mapHousingEntities(mockResponse);
+        assertThat(result.housings()).isSameAs(mapped);
+        assertThat(result.payloadHash()).isEqualTo(HousingContentHash.ofPayload(mockResponse));
+        verify(sitGraphQLClient).executeGraphQLQuery(argThat(query -> query.contains("\"limit\": 500")
+                && query.contains("\"offset\": 1000")), any());
+        verify(graphQLHousingMapper).mapHousingEntities(any(InputStream.class));
         verifyNoMoreInteractions(sitGraphQLClient, graphQLHousingMapper);
+        assertThat(meterRegistry.get("housing.import.phase").tag("import", "catalog").timers())
+                .extracting(timer -> timer.getId().getTag("phase"))
+                .containsExactlyInAnyOrder("fetch", "parse");
     }
 
     @Test
-    void fetchHousingEntitiesFromGraphQL_WhenClientThrowsHousingImportException_ShouldPropagate() {
-        when(sitGraphQLClient.executeGraphQLQuery(anyString()))
+    void fetchPage_WhenClientThrowsHousingImportException_ShouldPropagate() {
+        when(sitGraphQLClient.executeGraphQLQuery(anyString(), any()))
                 .thenThrow(new HousingImportException("network fail"));
 
-        assertThatThrownBy(() -> fetcher.fetchHousingsFromGraphQL())
+        assertThatThrownBy(() -> fetcher.fetchPage(1000, 500))
                 .isInstanceOf(HousingImportException.class)
                 .hasMessage("network fail");
 
-        verify(sitGraphQLClient).executeGraphQLQuery(anyString());
+        verify(sitGraphQLClient).executeGraphQLQuery(anyString(), any());
         verifyNoInteractions(graphQLHousingMapper);
     }
 
     @Test
-    void fetchHousingsFromGraphQL_WhenClientThrowsIllegalArgumentException_ShouldWrap() {
-        when(sitGraphQLClient.executeGraphQLQuery(anyString()))
+    void fetchPage_WhenClientThrowsIllegalArgumentException_ShouldWrap() {
+        when(sitGraphQLClient.executeGraphQLQuery(anyString(), any()))
                 .thenThrow(new IllegalArgumentException("bad query"));
 
-        assertThatThrownBy(() -> fetcher.fetchHousingsFromGraphQL())
+        assertThatThrownBy(() -> fetcher.fetchPage(1000, 500))
                 .isInstanceOf(HousingImportException.class)
                 .hasMessage("Failed to fetch housing data from external API")
                 .hasCauseInstanceOf(IllegalArgumentException.class);
 
-        verify(sitGraphQLClient).executeGraphQLQuery(anyString());
+        verify(sitGraphQLClient).executeGraphQLQuery(anyString(), any());
         verifyNoInteractions(graphQLHousingMapper);
     }
 
     @Test
-    void fetchHousingEntitiesFromGraphQL_WhenMapperThrowsHousingImportException_ShouldPropagate() {
+    void fetchPage_WhenMapperThrowsHousingImportException_ShouldPropagate() {
         String mockResponse = "{\"data\":{\"sanity_allEnhet\":[]}}";
-        when(sitGraphQLClient.executeGraphQLQuery(anyString())).thenReturn(mockResponse);
-        when(graphQLHousingMapper.mapHousingEntities(mockResponse))
+        respondWith(mockResponse);
+        when(graphQLHousingMapper.mapHousingEntities(any(InputStream.class)))
                 .thenThrow(new HousingImportException("mapping fail"));
 
-        assertThatThrownBy(() -> fetcher.fetchHousingsFromGraphQL())
+        assertThatThrownBy(() -> fetcher.fetchPage(1000, 500))
                 .isInstanceOf(HousingImportException.class)
                 .hasMessage("mapping fail");
 
-        verify(sitGraphQLClient).executeGraphQLQuery(anyString());
-        verify(graphQLHousingMapper).mapHousingEntities(mockResponse);
+        verify(sitGraphQLClient).executeGraphQLQuery(anyString(), any());
+        verify(graphQLHousingMapper).mapHousingEntities(any(InputStream.class));
     }
 
     @Test
-    void fetchHousingsFromGraphQL_WhenMapperThrowsIllegalArgumentException_ShouldWrap() {
+    void fetchPage_WhenMapperThrowsIllegalArgumentException_ShouldWrap() {
         String mockResponse = "{\"data\":{\"sanity_allEnhet\":[]}}";
-        when(sitGraphQLClient.executeGraphQLQuery(anyString())).thenReturn(mockResponse);
-        when(graphQLHousingMapper.mapHousingEntities(mockResponse))
+        respondWith(mockResponse);
+        when(graphQLHousingMapper.mapHousingEntities(any(InputStream.class)))
                 .thenThrow(new IllegalArgumentException("bad json"));
 
-        assertThatThrownBy(() -> fetcher.fetchHousingsFromGraphQL())
+        assertThatThrownBy(() -> fetcher.fetchPage(1000, 500))
                 .isInstanceOf(HousingImportException.class)
                 .hasMessage("Failed to fetch housing data from external API")
                 .hasCauseInstanceOf(IllegalArgumentException.class);
 
-        verify(sitGraphQLClient).executeGraphQLQuery(anyString());
-        verify(graphQLHousingMapper).mapHousingEntities(mockResponse);
+        verify(sitGraphQLClient).executeGraphQLQuery(anyString(), any());
+        verify(graphQLHousingMapper).mapHousingEntities(any(InputStream.class));
+    }
+
+    private void respondWith(String response) {
+        when(sitGraphQLClient.executeGraphQLQuery(anyString(), any())).thenAnswer(inv -> inv.<SitGraphQLClient.ResponseReader<?>>getArgument(1)
+                .read(new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8))));
     }
-}
\ No newline at end of file
+}
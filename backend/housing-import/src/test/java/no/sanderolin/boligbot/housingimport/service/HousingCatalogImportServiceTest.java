@@ -1,27 +1,48 @@
 package no.sanderolin.boligbot.housingimport.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import no.sanderolin.boligbot.dao.event.HousingImportCompletedEvent;
+import no.sanderolin.boligbot.dao.event.HousingPriceChangedEvent;
 import no.sanderolin.boligbot.dao.model.CityModel;
 import no.sanderolin.boligbot.dao.model.DistrictModel;
-import no.sanderolin.boligbot.dao.model.HousingModel;
 import no.sanderolin.boligbot.dao.model.HousingTypeModel;
+import no.sanderolin.boligbot.dao.projection.CatalogMergeResult;
+import no.sanderolin.boligbot.dao.projection.HousingPriceChange;
+import no.sanderolin.boligbot.dao.projection.ImportRun;
+import no.sanderolin.boligbot.dao.projection.StagedHousing;
 import no.sanderolin.boligbot.dao.repository.CityRepository;
+import no.sanderolin.boligbot.dao.repository.DistrictPriceDailyRepository;
 import no.sanderolin.boligbot.dao.repository.DistrictRepository;
+import no.sanderolin.boligbot.dao.repository.HousingCatalogStagingRepository;
+import no.sanderolin.boligbot.dao.repository.HousingChangeWindowRepository;
 import no.sanderolin.boligbot.dao.repository.HousingRepository;
 import no.sanderolin.boligbot.dao.repository.HousingTypeRepository;
+import no.sanderolin.boligbot.housingimport.cluster.ImportLease;
+import no.sanderolin.boligbot.housingimport.dto.HousingCatalogDTO;
 import no.sanderolin.boligbot.housingimport.dto.HousingDTO;
 import no.sanderolin.boligbot.housingimport.exception.HousingImportException;
+import no.sanderolin.boligbot.housingimport.util.HousingContentHash;
+import no.sanderolin.boligbot.housingimport.util.HousingImportMetrics;
+import no.sanderolin.boligbot.housingimport.util.ImportRunWriter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -30,48 +51,43 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class HousingCatalogImportServiceTest {
 
-    @Mock private HousingCatalogFetcher catalogFetcher;
+    private static final Instant CHANGED_AT = Instant.parse("2026-10-19T08:00:00Z");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ImportRunWriter importRunWriter = mock(ImportRunWriter.class);
+
+    @Mock private HousingCatalogPagePipeline catalogPagePipeline;
 
     @Mock private HousingRepository housingRepository;
+    @Mock private HousingCatalogStagingRepository catalogStagingRepository;
+    @Mock private HousingChangeWindowRepository changeWindowRepository;
     @Mock private CityRepository cityRepository;
     @Mock private DistrictRepository districtRepository;
     @Mock private HousingTypeRepository housingTypeRepository;
+    @Mock private DistrictPriceDailyRepository districtPriceDailyRepository;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private TransactionTemplate transactionTemplate;
+    @Mock private ImportLease importLease;
+    @Spy private HousingImportMetrics importMetrics = new HousingImportMetrics(meterRegistry, importRunWriter);
 
     @InjectMocks private HousingCatalogImportService importTask;
 
-    private Instant beforeRun;
-
     private CityModel existingCity;
     private DistrictModel existingDistrict;
     private HousingTypeModel existingHousingType;
 
-    private HousingModel existingHousing;
-
     @BeforeEach
     void setUp() {
-        beforeRun = Instant.now().minus(1, ChronoUnit.SECONDS);
         existingCity = city(1L, "Old City");
         existingDistrict = district(10L, "Old District", existingCity);
         existingHousingType = housingType(20L, "Old Type");
-
-        existingHousing = housingModel(
-                "EXISTING-001",
-                "Old Name",
-                "Old Address",
-                existingHousingType,
-                existingDistrict,
-                BigDecimal.valueOf(10.0),
-                1000
-        );
-
-        Instant old = Instant.now().minus(1, ChronoUnit.DAYS);
-        existingHousing.setCreatedAt(old);
-        existingHousing.setLastModifiedAt(old);
-        existingHousing.setLastImportedAt(old);
+        lenient().when(changeWindowRepository.open("CATALOG")).thenReturn(CHANGED_AT);
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
     }
 
     @Test
-    void runImport_ShouldCreateNewRecords() {
+    void runImport_ShouldCreateNewDimensionsAndStageHousings() throws Exception {
         HousingDTO incoming = dto(
                 "NEW-001",
                 "New Housing",
@@ -83,177 +99,261 @@ class HousingCatalogImportServiceTest {
                 2000
         );
 
-        when(catalogFetcher.fetchHousingsFromGraphQL()).thenReturn(List.of(incoming));
+        doAnswer(pages(catalog("payload", incoming))).when(catalogPagePipeline).fetchAll(any());
 
         when(cityRepository.findAllByNameIn(eq(Collections.singleton("New City"))))
                 .thenReturn(Collections.emptyList())
                 .thenReturn(List.of(city(2L, "New City")));
         when(cityRepository.saveAll(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(housingTypeRepository.findAllByNameIn(eq(Collections.singleton("New Type")))).thenReturn(Collections.emptyList());
+        when(districtRepository.findAllByCityIdIn(eq(Collections.singleton(2L)))).thenReturn(Collections.emptyList());
+        when(catalogStagingRepository.merge(any(Instant.class))).thenReturn(new CatalogMergeResult(1, 0, 0, List.of()));
 
-        when(housingTypeRepository.findAllByNameIn(eq(Collections.singleton("New Type"))))
-                .thenReturn(Collections.emptyList())
-                .thenReturn(List.of(housingType(3L, "New Type")));
-        when(housingTypeRepository.saveAll(any())).thenAnswer(inv -> inv.getArgument(0));
+        importTask.runImport();
 
-        when(districtRepository.findAllByCityIdIn(eq(Collections.singleton(2L))))
-                .thenReturn(Collections.emptyList())
-                .thenReturn(List.of(district(4L, "New District", city(2L, "New City"))));
-        when(districtRepository.saveAll(any())).thenAnswer(inv -> inv.getArgument(0));
+        verify(housingTypeRepository).saveAll(argThat(types -> ((List<HousingTypeModel>) types).getFirst().getName().equals("New Type")));
+        verify(districtRepository).saveAll(argThat(districts -> {
+            DistrictModel created = ((List<DistrictModel>) districts).getFirst();
+            return created.getName().equals("New District") && created.getCity().getId() == 2L;
+        }));
+        verify(catalogStagingRepository).clear();
+        verify(catalogStagingRepository).append(List.of(new StagedHousing(
+                "NEW-001", "New Housing", "New Address", "New Type", "New City", "New District", BigDecimal.valueOf(15.0), 2000,
+                HousingContentHash.of(incoming))), 0);
+        verify(districtPriceDailyRepository).refreshDay(any());
+        verify(eventPublisher).publishEvent(any(HousingImportCompletedEvent.class));
+        verify(eventPublisher, never()).publishEvent(any(HousingPriceChangedEvent.class));
+    }
 
-        when(housingRepository.findAllByRentalObjectIdIn(eq(List.of("NEW-001"))))
-                .thenReturn(Collections.emptyList());
-        when(housingRepository.saveAll(any())).thenAnswer(inv -> inv.getArgument(0));
+    @Test
+    void runImport_WithUnchangedHousings_ShouldOnlyUpdateImportTimeAndNotPublish() throws Exception {
+        stubExistingDimensions();
+        when(catalogStagingRepository.merge(any(Instant.class))).thenReturn(new CatalogMergeResult(0, 0, 1, List.of()));
+        Instant oldLastImportedAt = existingCity.getLastImportedAt();
 
         importTask.runImport();
 
-        verify(housingRepository).saveAll(argThat(arg -> {
-            List<HousingModel> models = (List<HousingModel>) arg;
-            if (models.size() != 1) return false;
-
-            HousingModel created = models.getFirst();
-            return created.getRentalObjectId().equals("NEW-001")
-                    && created.getName().equals("New Housing")
-                    && created.getAddress().equals("New Address")
-                    && created.getHousingType() != null
-                    && created.getHousingType().getName().equals("New Type")
-                    && created.getDistrict() != null
-                    && created.getDistrict().getName().equals("New District")
-                    && created.getCity() != null
-                    && created.getCity().getName().equals("New City")
-                    && created.getAreaSqm().compareTo(BigDecimal.valueOf(15.0)) == 0
-                    && created.getPricePerMonth() == 2000
-                    && created.getCreatedAt() != null
-                    && created.getLastModifiedAt() != null
-                    && created.getLastImportedAt() != null
-                    && created.getCreatedAt().isAfter(beforeRun)
-                    && created.getLastModifiedAt().isAfter(beforeRun)
-                    && created.getLastImportedAt().isAfter(beforeRun);
-        }));
+        assertThat(existingCity.getLastImportedAt()).isNotEqualTo(oldLastImportedAt);
+        verify(cityRepository, never()).saveAll(any());
+        verify(districtRepository, never()).saveAll(any());
+        verify(housingTypeRepository, never()).saveAll(any());
+        verify(districtPriceDailyRepository).refreshDay(any());
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
-    void runImport_WithExistingUnchangedHousing_ShouldOnlyUpdateImportTime_AndNotSaveHousing() {
-        HousingDTO incoming = dto(
-                existingHousing.getRentalObjectId(),
-                existingHousing.getName(),
-                existingHousing.getAddress(),
-                existingHousing.getHousingType().getName(),
-                existingHousing.getCity().getName(),
-                existingHousing.getDistrict().getName(),
-                existingHousing.getAreaSqm(),
-                existingHousing.getPricePerMonth()
-        );
+    void runImport_WithChangedPrices_ShouldPublishPriceChanges() throws Exception {
+        stubExistingDimensions();
+        HousingPriceChange change = new HousingPriceChange("EXISTING-001", Instant.now(), 1500, BigDecimal.valueOf(12.0));
+        when(catalogStagingRepository.merge(any(Instant.class))).thenReturn(new CatalogMergeResult(0, 1, 0, List.of(change)));
 
-        when(catalogFetcher.fetchHousingsFromGraphQL()).thenReturn(List.of(incoming));
+        importTask.runImport();
 
-        when(cityRepository.findAllByNameIn(eq(Collections.singleton(existingCity.getName()))))
-                .thenReturn(List.of(existingCity));
-        when(housingTypeRepository.findAllByNameIn(eq(Collections.singleton(existingHousingType.getName()))))
-                .thenReturn(List.of(existingHousingType));
-        when(districtRepository.findAllByCityIdIn(eq(Collections.singleton(existingCity.getId()))))
-                .thenReturn(List.of(existingDistrict));
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof HousingPriceChangedEvent e
+                && e.changes().equals(List.of(change))));
+        verify(eventPublisher).publishEvent(any(HousingImportCompletedEvent.class));
+    }
+
+    @Test
+    void runImport_WithOnlyNameChanged_ShouldNotPublishPriceChange() throws Exception {
+        stubExistingDimensions();
+        when(catalogStagingRepository.merge(any(Instant.class))).thenReturn(new CatalogMergeResult(0, 1, 0, List.of()));
+
+        importTask.runImport();
 
-        when(housingRepository.findAllByRentalObjectIdIn(eq(List.of(existingHousing.getRentalObjectId()))))
-                .thenReturn(List.of(existingHousing));
+        verify(eventPublisher, never()).publishEvent(any(HousingPriceChangedEvent.class));
+        verify(eventPublisher).publishEvent(any(HousingImportCompletedEvent.class));
+    }
 
-        Instant oldLastModifiedAt = existingHousing.getLastModifiedAt();
-        Instant oldLastImportedAt = existingHousing.getLastImportedAt();
+    @Test
+    void runImport_WithIdenticalPayload_ShouldSkipWriteTransaction() throws Exception {
+        stubExistingDimensions();
+        when(catalogStagingRepository.merge(any(Instant.class))).thenReturn(new CatalogMergeResult(0, 0, 1, List.of()));
 
         importTask.runImport();
+        importTask.runImport();
+
+        verify(catalogPagePipeline, times(2)).fetchAll(any());
+        verify(transactionTemplate, times(1)).execute(any());
+        verify(catalogStagingRepository, times(1)).merge(any(Instant.class));
+    }
+
+    @Test
+    void runImport_WithIdenticalPayloadAfterImportLeaseChangedHands_ShouldApplyAgain() throws Exception {
+        stubExistingDimensions();
+        when(catalogStagingRepository.merge(any(Instant.class))).thenReturn(new CatalogMergeResult(0, 0, 1, List.of()));
+        when(importLease.token()).thenReturn(1L, 2L);
 
-        assertThat(existingHousing.getLastImportedAt())
-                .isAfter(oldLastImportedAt);
-        assertThat(existingHousing.getLastModifiedAt())
-                .isEqualTo(oldLastModifiedAt);
+        importTask.runImport();
+        importTask.runImport();
 
-        verify(housingRepository, never()).saveAll(any());
+        verify(catalogStagingRepository, times(2)).merge(any(Instant.class));
     }
 
     @Test
-    void runImport_WithExistingChangedHousing_ShouldUpdateFields_AndNotSaveHousing() {
-        HousingDTO incoming = dto(
-                existingHousing.getRentalObjectId(),
-                "Updated Name",
-                "Updated Address",
-                "Updated Type",
-                "Updated City",
-                "Updated District",
-                BigDecimal.valueOf(12.0),
-                1500
-        );
+    void runImport_WithoutImportLease_ShouldFailBeforeStaging() {
+        doThrow(new HousingImportException("Import lease is not held by this node")).when(importLease).fence();
 
-        CityModel updatedCity = city(11L, "Updated City");
-        DistrictModel updatedDistrict = district(12L, "Updated District", updatedCity);
-        HousingTypeModel updatedType = housingType(13L, "Updated Type");
+        assertThatThrownBy(() -> importTask.runImport()).isInstanceOf(HousingImportException.class);
 
-        when(catalogFetcher.fetchHousingsFromGraphQL()).thenReturn(List.of(incoming));
+        verifyNoInteractions(catalogPagePipeline, catalogStagingRepository, transactionTemplate);
+    }
+
+    @Test
+    void runImport_WithChangedPayload_ShouldApplyAgain() throws Exception {
+        HousingDTO housing = stubExistingDimensions();
+        doAnswer(pages(catalog("payload", housing)))
+                .doAnswer(pages(catalog("other payload", housing)))
+                .when(catalogPagePipeline).fetchAll(any());
+        when(catalogStagingRepository.merge(any(Instant.class))).thenReturn(new CatalogMergeResult(0, 0, 1, List.of()));
+
+        importTask.runImport();
+        importTask.runImport();
+
+        verify(catalogStagingRepository, times(2)).merge(any(Instant.class));
+    }
 
-        when(cityRepository.findAllByNameIn(eq(Collections.singleton("Updated City"))))
-                .thenReturn(List.of(updatedCity));
-        when(housingTypeRepository.findAllByNameIn(eq(Collections.singleton("Updated Type"))))
-                .thenReturn(List.of(updatedType));
-        when(districtRepository.findAllByCityIdIn(eq(Collections.singleton(updatedCity.getId()))))
-                .thenReturn(List.of(updatedDistrict));
+    @Test
+    void runImport_WhenApplyFails_ShouldNotRememberPayload() throws Exception {
+        stubExistingDimensions();
+        when(catalogStagingRepository.merge(any(Instant.class)))
+                .thenThrow(new RuntimeException("MERGE failed"))
+                .thenReturn(new CatalogMergeResult(0, 0, 1, List.of()));
 
-        when(housingRepository.findAllByRentalObjectIdIn(eq(List.of(existingHousing.getRentalObjectId()))))
-                .thenReturn(List.of(existingHousing));
+        assertThatThrownBy(() -> importTask.runImport()).isInstanceOf(HousingImportException.class);
+        importTask.runImport();
 
-        Instant oldLastModifiedAt = existingHousing.getLastModifiedAt();
-        Instant oldLastImportedAt = existingHousing.getLastImportedAt();
+        verify(catalogStagingRepository, times(2)).merge(any(Instant.class));
+    }
+
+    @Test
+    void runImport_WithSeveralPages_ShouldStageEachAtItsPositionAndUpsertDimensionsOnce() throws Exception {
+        HousingDTO first = stubExistingDimensions();
+        HousingDTO second = dto("EXISTING-002", "Name 2", "Address 2", existingHousingType.getName(),
+                existingCity.getName(), existingDistrict.getName(), BigDecimal.valueOf(14.0), 1700);
+        HousingCatalogDTO firstPage = catalog("page 0", first);
+        HousingCatalogDTO secondPage = catalog("page 1", second);
+        doAnswer(inv -> {
+            HousingCatalogPagePipeline.PageHandler handler = inv.getArgument(0);
+            handler.handle(new HousingCatalogPagePipeline.CatalogPage(1, 100, secondPage));
+            handler.handle(new HousingCatalogPagePipeline.CatalogPage(0, 0, firstPage));
+            return null;
+        }).when(catalogPagePipeline).fetchAll(any());
+        when(catalogStagingRepository.merge(any(Instant.class))).thenReturn(new CatalogMergeResult(0, 0, 2, List.of()));
 
         importTask.runImport();
 
-        assertThat(existingHousing.getName()).isEqualTo("Updated Name");
-        assertThat(existingHousing.getAddress()).isEqualTo("Updated Address");
-        assertThat(existingHousing.getHousingType().getName()).isEqualTo("Updated Type");
-        assertThat(existingHousing.getDistrict().getName()).isEqualTo("Updated District");
-        assertThat(existingHousing.getCity().getName()).isEqualTo("Updated City");
-        assertThat(existingHousing.getAreaSqm().compareTo(BigDecimal.valueOf(12.0))).isZero();
-        assertThat(existingHousing.getPricePerMonth()).isEqualTo(1500);
+        verify(catalogStagingRepository).append(argThat(staged -> staged.getFirst().rentalObjectId().equals("EXISTING-002")), eq(100));
+        verify(catalogStagingRepository).append(argThat(staged -> staged.getFirst().rentalObjectId().equals("EXISTING-001")), eq(0));
+        verify(cityRepository).findAllByNameIn(Set.of(existingCity.getName()));
+        verify(districtRepository).findAllByCityIdIn(Set.of(existingCity.getId()));
 
-        assertThat(existingHousing.getLastImportedAt()).isAfter(oldLastImportedAt);
-        assertThat(existingHousing.getLastModifiedAt()).isAfter(oldLastModifiedAt);
+        doAnswer(pages(firstPage, secondPage)).when(catalogPagePipeline).fetchAll(any());
+        importTask.runImport();
 
-        verify(housingRepository, never()).saveAll(any());
+        verify(catalogStagingRepository, times(1)).merge(any(Instant.class));
     }
 
     @Test
-    void runImport_WithEmptyResponse_ShouldExitEarly() {
-        when(catalogFetcher.fetchHousingsFromGraphQL()).thenReturn(Collections.emptyList());
+    void runImport_ShouldRecordPhaseTimesAndCountsOfTheRun() throws Exception {
+        stubExistingDimensions();
+        when(catalogStagingRepository.merge(any(Instant.class))).thenReturn(new CatalogMergeResult(0, 1, 0, List.of()));
 
         importTask.runImport();
 
-        verify(catalogFetcher).fetchHousingsFromGraphQL();
-        verifyNoInteractions(housingRepository, cityRepository, districtRepository, housingTypeRepository);
+        assertThat(meterRegistry.get("housing.import.phase").tag("import", "catalog").timers())
+                .extracting(timer -> timer.getId().getTag("phase"))
+                .containsExactlyInAnyOrder("stage", "upsert_city", "upsert_district", "upsert_housing_type",
+                        "merge_housing", "flush", "rollup", "commit");
+        assertThat(meterRegistry.get("housing.import.run").tags("import", "catalog", "outcome", "applied").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("housing.import.housings").tags("import", "catalog", "count", "fetched").gauge().value())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("housing.import.housings").tags("import", "catalog", "count", "updated").gauge().value())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("housing.import.housings").tags("import", "catalog", "count", "created").gauge().value())
+                .isZero();
+
+        ArgumentCaptor<ImportRun> run = ArgumentCaptor.forClass(ImportRun.class);
+        verify(importRunWriter).submit(run.capture());
+        assertThat(run.getValue().kind()).isEqualTo("catalog");
+        assertThat(run.getValue().status()).isEqualTo("applied");
+        assertThat(run.getValue().finishedAt()).isAfterOrEqualTo(run.getValue().startedAt());
+        assertThat(run.getValue().phaseMillis()).containsKeys("stage", "merge_housing", "commit");
+        assertThat(run.getValue().counts()).containsEntry("fetched", 1L).containsEntry("updated", 1L);
+        assertThat(run.getValue().error()).isNull();
+    }
+
+    @Test
+    void runImport_WhilePreviousRunIsInProgress_ShouldSkipAndCountIt() throws Exception {
+        doAnswer(inv -> {
+            importTask.runImport();
+            return null;
+        }).when(catalogPagePipeline).fetchAll(any());
+
+        importTask.runImport();
+
+        verify(catalogPagePipeline, times(1)).fetchAll(any());
+        assertThat(meterRegistry.get("housing.import.skipped").tag("import", "catalog").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("housing.import.run").tags("import", "catalog", "outcome", "empty").timer().count())
+                .isEqualTo(1);
+        verify(importRunWriter).submit(argThat(run -> run.status().equals("skipped")));
+        verify(importRunWriter).submit(argThat(run -> run.status().equals("empty")));
+    }
+
+    @Test
+    void runImport_WhenInterrupted_ShouldWrapAndKeepInterruptFlag() throws Exception {
+        doThrow(new InterruptedException()).when(catalogPagePipeline).fetchAll(any());
+
+        try {
+            assertThatThrownBy(() -> importTask.runImport())
+                    .isInstanceOf(HousingImportException.class)
+                    .hasMessage("Catalog import was interrupted");
+            assertThat(Thread.currentThread().isInterrupted()).isTrue();
+        } finally {
+            Thread.interrupted();
+        }
+        verify(catalogStagingRepository, never()).merge(any());
+    }
+
+    @Test
+    void runImport_WithEmptyResponse_ShouldExitEarly() throws Exception {
+        doAnswer(pages()).when(catalogPagePipeline).fetchAll(any());
+
+        importTask.runImport();
+
+        verify(catalogStagingRepository).clear();
+        verifyNoMoreInteractions(catalogStagingRepository);
+        verifyNoInteractions(housingRepository, cityRepository, districtRepository, housingTypeRepository, transactionTemplate);
     }
 
     @Test
-    void runImport_WithHousingImportException_ShouldPropagateException() {
-        when(catalogFetcher.fetchHousingsFromGraphQL())
-                .thenThrow(new HousingImportException("exception"));
+    void runImport_WithHousingImportException_ShouldPropagateException() throws Exception {
+        doThrow(new HousingImportException("exception")).when(catalogPagePipeline).fetchAll(any());
 
         assertThatThrownBy(() -> importTask.runImport())
                 .isInstanceOf(HousingImportException.class)
                 .hasMessage("exception");
 
+        verify(catalogStagingRepository, never()).merge(any());
         verifyNoInteractions(housingRepository, cityRepository, districtRepository, housingTypeRepository);
     }
 
     @Test
-    void runImport_WithUnexpectedException_ShouldWrapException() {
-        when(catalogFetcher.fetchHousingsFromGraphQL())
-                .thenThrow(new RuntimeException("boom"));
+    void runImport_WithUnexpectedException_ShouldWrapException() throws Exception {
+        doThrow(new RuntimeException("boom")).when(catalogPagePipeline).fetchAll(any());
 
         assertThatThrownBy(() -> importTask.runImport())
                 .isInstanceOf(HousingImportException.class)
                 .hasMessage("Unexpected error during housing import")
                 .hasCauseInstanceOf(RuntimeException.class);
 
+        verify(catalogStagingRepository, never()).merge(any());
         verifyNoInteractions(housingRepository, cityRepository, districtRepository, housingTypeRepository);
     }
 
     @Test
-    void runImport_WithDatabaseException_ShouldWrapException() {
+    void runImport_WithDatabaseException_ShouldWrapException() throws Exception {
         HousingDTO incoming = dto(
                 "NEW-001",
                 "New Housing",
@@ -265,7 +365,7 @@ class HousingCatalogImportServiceTest {
                 2000
         );
 
-        when(catalogFetcher.fetchHousingsFromGraphQL()).thenReturn(List.of(incoming));
+        doAnswer(pages(catalog("payload", incoming))).when(catalogPagePipeline).fetchAll(any());
         when(cityRepository.findAllByNameIn(any())).thenThrow(new RuntimeException("Database connection error"));
 
         assertThatThrownBy(() -> importTask.runImport())
@@ -274,6 +374,67 @@ class HousingCatalogImportServiceTest {
                 .hasCauseInstanceOf(RuntimeException.class);
     }
 
+    @Test
+    void runImport_WhenMergeFails_ShouldWrapException() throws Exception {
+        stubExistingDimensions();
+        when(catalogStagingRepository.merge(any(Instant.class))).thenThrow(new RuntimeException("MERGE failed"));
+
+        assertThatThrownBy(() -> importTask.runImport())
+                .isInstanceOf(HousingImportException.class)
+                .hasMessage("Unexpected error during housing import")
+                .hasCauseInstanceOf(RuntimeException.class);
+        verifyNoInteractions(eventPublisher, districtPriceDailyRepository);
+        verify(changeWindowRepository).close("CATALOG", CHANGED_AT);
+    }
+
+    @Test
+    void runImport_ShouldStampChangesWithTheChangeWindowAndCloseItAfterTheWrite() throws Exception {
+        stubExistingDimensions();
+        when(catalogStagingRepository.merge(any(Instant.class))).thenReturn(new CatalogMergeResult(0, 1, 0, List.of()));
+
+        importTask.runImport();
+
+        InOrder inOrder = inOrder(changeWindowRepository, catalogStagingRepository);
+        inOrder.verify(changeWindowRepository).open("CATALOG");
+        inOrder.verify(catalogStagingRepository).merge(CHANGED_AT);
+        inOrder.verify(changeWindowRepository).close("CATALOG", CHANGED_AT);
+    }
+
+    private HousingDTO stubExistingDimensions() throws Exception {
+        HousingDTO incoming = dto(
+                "EXISTING-001",
+                "Name",
+                "Address",
+                existingHousingType.getName(),
+                existingCity.getName(),
+                existingDistrict.getName(),
+                BigDecimal.valueOf(12.0),
+                1500
+        );
+        lenient().doAnswer(pages(catalog("payload", incoming))).when(catalogPagePipeline).fetchAll(any());
+        when(cityRepository.findAllByNameIn(eq(Collections.singleton(existingCity.getName()))))
+                .thenReturn(List.of(existingCity));
+        when(housingTypeRepository.findAllByNameIn(eq(Collections.singleton(existingHousingType.getName()))))
+                .thenReturn(List.of(existingHousingType));
+        when(districtRepository.findAllByCityIdIn(eq(Collections.singleton(existingCity.getId()))))
+                .thenReturn(List.of(existingDistrict));
+        return incoming;
+    }
+
+    private Answer<Void> pages(HousingCatalogDTO... pages) {
+        return inv -> {
+            HousingCatalogPagePipeline.PageHandler handler = inv.getArgument(0);
+            for (int i = 0; i < pages.length; i++) {
+                handler.handle(new HousingCatalogPagePipeline.CatalogPage(i, i * 100, pages[i]));
+            }
+            return null;
+        };
+    }
+
+    private HousingCatalogDTO catalog(String payload, HousingDTO... housings) {
+        return new HousingCatalogDTO(HousingContentHash.ofPayload(payload), List.of(housings));
+    }
+
     private HousingDTO dto(
             String rentalObjectId,
             String name,
@@ -317,24 +478,4 @@ class HousingCatalogImportServiceTest {
         ht.setName(name);
         return ht;
     }
-
-    private HousingModel housingModel(
-            String rentalObjectId,
-            String name,
-            String address,
-            HousingTypeModel housingType,
-            DistrictModel district,
-            BigDecimal areaSqm,
-            int pricePerMonth
-    ) {
-        HousingModel h = new HousingModel();
-        h.setRentalObjectId(rentalObjectId);
-        h.setName(name);
-        h.setAddress(address);
-        h.setHousingType(housingType);
-        h.setDistrict(district);
-        h.setAreaSqm(areaSqm);
-        h.setPricePerMonth(pricePerMonth);
-        return h;
-    }
-}
\ No newline at end of file
+}
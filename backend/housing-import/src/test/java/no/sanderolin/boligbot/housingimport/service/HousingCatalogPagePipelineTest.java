@@ -0,0 +1,139 @@
+package no.sanderolin.boligbot.housingimport.service;
+
+import no.sanderolin.boligbot.housingimport.dto.HousingCatalogDTO;
+import no.sanderolin.boligbot.housingimport.dto.HousingDTO;
+import no.sanderolin.boligbot.housingimport.exception.HousingImportException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HousingCatalogPagePipelineTest {
+
+    private static final int PAGE_SIZE = 2;
+
+    @Mock private HousingCatalogFetcher catalogFetcher;
+
+    @Test
+    void fetchAll_ShouldStopAtFirstShortPage() throws Exception {
+        when(catalogFetcher.fetchPage(anyInt(), anyInt())).thenAnswer(inv -> {
+            int offset = inv.getArgument(0);
+            return offset < 4 ? page(offset, PAGE_SIZE) : page(offset, 1);
+        });
+        List<HousingCatalogPagePipeline.CatalogPage> handled = Collections.synchronizedList(new ArrayList<>());
+
+        pipeline(1).fetchAll(handled::add);
+
+        assertThat(handled).extracting(HousingCatalogPagePipeline.CatalogPage::index).containsExactly(0, 1, 2);
+        assertThat(handled).extracting(HousingCatalogPagePipeline.CatalogPage::firstPosition).containsExactly(0, 2, 4);
+        assertThat(handled.get(2).page().housings()).extracting(HousingDTO::rentalObjectId).containsExactly("4");
+        verify(catalogFetcher).fetchPage(0, PAGE_SIZE);
+        verify(catalogFetcher).fetchPage(2, PAGE_SIZE);
+        verify(catalogFetcher).fetchPage(4, PAGE_SIZE);
+        verifyNoMoreInteractions(catalogFetcher);
+    }
+
+    @Test
+    void fetchAll_ShouldSkipEmptyLastPage() throws Exception {
+        when(catalogFetcher.fetchPage(anyInt(), anyInt())).thenAnswer(inv -> {
+            int offset = inv.getArgument(0);
+            return offset < 2 ? page(offset, PAGE_SIZE) : page(offset, 0);
+        });
+        List<HousingCatalogPagePipeline.CatalogPage> handled = Collections.synchronizedList(new ArrayList<>());
+
+        pipeline(1).fetchAll(handled::add);
+
+        assertThat(handled).extracting(HousingCatalogPagePipeline.CatalogPage::index).containsExactly(0);
+    }
+
+    @Test
+    void fetchAll_ShouldKeepAtMostFetchConcurrencyPagesInFlight() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(catalogFetcher.fetchPage(anyInt(), anyInt())).thenAnswer(inv -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            int offset = inv.getArgument(0);
+            return offset < 20 ? page(offset, PAGE_SIZE) : page(offset, 0);
+        });
+        List<Integer> indexes = Collections.synchronizedList(new ArrayList<>());
+
+        pipeline(3).fetchAll(page -> indexes.add(page.index()));
+
+        assertThat(maxInFlight.get()).isBetween(2, 3);
+        assertThat(indexes).containsExactlyInAnyOrder(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+    }
+
+    @Test
+    void fetchAll_WhenPageFails_ShouldHandleFetchedPagesAndThrow() throws Exception {
+        HousingImportException failure = new HousingImportException("Catalog fetch failed after retries");
+        when(catalogFetcher.fetchPage(anyInt(), anyInt())).thenAnswer(inv -> {
+            int offset = inv.getArgument(0);
+            if (offset == 2) throw failure;
+            return page(offset, PAGE_SIZE);
+        });
+        List<Integer> indexes = Collections.synchronizedList(new ArrayList<>());
+
+        assertThatThrownBy(() -> pipeline(1).fetchAll(page -> indexes.add(page.index()))).isSameAs(failure);
+        assertThat(indexes).containsExactly(0);
+    }
+
+    @Test
+    void fetchAll_WhenUpstreamNeverEnds_ShouldThrowAfterMaxPages() {
+        when(catalogFetcher.fetchPage(anyInt(), anyInt())).thenAnswer(inv -> page(inv.getArgument(0), PAGE_SIZE));
+        AtomicInteger handled = new AtomicInteger();
+
+        assertThatThrownBy(() -> pipeline(8).fetchAll(page -> handled.incrementAndGet()))
+                .isInstanceOf(HousingImportException.class)
+                .hasMessageContaining("did not end");
+        assertThat(handled.get()).isEqualTo(HousingCatalogPagePipeline.MAX_PAGES);
+    }
+
+    @Test
+    void fetchAll_WhenHandlerThrows_ShouldInterruptFetchersAndRethrow() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(catalogFetcher.fetchPage(anyInt(), anyInt())).thenAnswer(inv -> {
+            int offset = inv.getArgument(0);
+            if (offset == 0) return page(offset, PAGE_SIZE);
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return page(offset, PAGE_SIZE);
+        });
+        RuntimeException failure = new RuntimeException("COPY failed");
+
+        assertThatThrownBy(() -> pipeline(2).fetchAll(page -> { throw failure; })).isSameAs(failure);
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private HousingCatalogPagePipeline pipeline(int fetchConcurrency) {
+        return new HousingCatalogPagePipeline(catalogFetcher, PAGE_SIZE, fetchConcurrency, 4);
+    }
+
+    private static HousingCatalogDTO page(int offset, int size) {
+        List<HousingDTO> housings = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            housings.add(new HousingDTO(String.valueOf(offset + i), "Name", "Address", "Type", "City", "District",
+                    BigDecimal.TEN, 1000));
+        }
+        return new HousingCatalogDTO("page " + offset, housings);
+    }
+}
@@ -0,0 +1,70 @@
+package no.sanderolin.boligbot.housingimport.util;
+
+import no.sanderolin.boligbot.housingimport.dto.HousingAvailabilityDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AvailabilitySnapshotTest {
+
+    private static final LocalDate MAY = LocalDate.of(2026, 5, 1);
+    private static final LocalDate JUNE = LocalDate.of(2026, 6, 1);
+
+    @Test
+    void diff_ShouldListAddedChangedAndRemovedHousings() {
+        AvailabilitySnapshot applied = snapshot(available("1", MAY), available("2", MAY), available("3", null), available("5", MAY));
+        AvailabilitySnapshot fetched = snapshot(available("5", MAY), available("4", JUNE), available("2", JUNE), available("3", null));
+
+        AvailabilitySnapshot.Diff diff = applied.diff(fetched);
+
+        assertThat(diff.availableIds()).containsExactly("2", "4");
+        assertThat(diff.availableFromDates()).containsExactly(JUNE, JUNE);
+        assertThat(diff.removedIds()).containsExactly("1");
+        assertThat(diff.isEmpty()).isFalse();
+    }
+
+    @Test
+    void diff_ShouldTreatNullAndSetDatesAsDifferent() {
+        AvailabilitySnapshot.Diff diff = snapshot(available("1", MAY)).diff(snapshot(available("1", null)));
+
+        assertThat(diff.availableIds()).containsExactly("1");
+        assertThat(diff.availableFromDates()).containsExactly((LocalDate) null);
+    }
+
+    @Test
+    void diff_WithSameHousingsInOtherOrder_ShouldBeEmpty() {
+        AvailabilitySnapshot applied = snapshot(available("1", MAY), available("2", null));
+
+        assertThat(applied.diff(snapshot(available("2", null), available("1", MAY))).isEmpty()).isTrue();
+        assertThat(AvailabilitySnapshot.EMPTY.diff(AvailabilitySnapshot.EMPTY).isEmpty()).isTrue();
+    }
+
+    @Test
+    void of_WithDuplicateIds_ShouldKeepLastEntry() {
+        AvailabilitySnapshot snapshot = snapshot(available("1", MAY), available("2", MAY), available("1", JUNE));
+
+        assertThat(snapshot.size()).isEqualTo(2);
+        assertThat(snapshot.diff(snapshot(available("1", JUNE), available("2", MAY))).isEmpty()).isTrue();
+    }
+
+    @Test
+    void without_ShouldDropGivenIds() {
+        AvailabilitySnapshot snapshot = snapshot(available("1", MAY), available("2", MAY), available("3", MAY))
+                .without(List.of("2", "missing"));
+
+        assertThat(snapshot.size()).isEqualTo(2);
+        assertThat(snapshot.diff(snapshot(available("1", MAY), available("3", MAY))).isEmpty()).isTrue();
+    }
+
+    private static AvailabilitySnapshot snapshot(HousingAvailabilityDTO... housings) {
+        return AvailabilitySnapshot.of(Arrays.asList(housings));
+    }
+
+    private static HousingAvailabilityDTO available(String id, LocalDate availableFrom) {
+        return new HousingAvailabilityDTO(id, availableFrom);
+    }
+}
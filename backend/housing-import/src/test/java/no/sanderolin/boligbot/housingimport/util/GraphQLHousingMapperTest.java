@@ -7,7 +7,11 @@ import no.sanderolin.boligbot.housingimport.exception.HousingImportException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
@@ -77,7 +81,7 @@ class GraphQLHousingMapperTest {
                 }
             }
             """;
-        List<HousingDTO> result = graphQLHousingMapper.mapHousingEntities(validHousingEntitiesResponse);
+        List<HousingDTO> result = graphQLHousingMapper.mapHousingEntities(json(validHousingEntitiesResponse));
         assertThat(result).isNotNull();
         assertThat(result.size()).isEqualTo(2);
         assertHousingDTO(
@@ -105,22 +109,15 @@ class GraphQLHousingMapperTest {
     }
 
     @Test
-    void mapHousingEntities_WithNullInput_ShouldThrowIllegalArgumentException() {
-        assertThatThrownBy(() -> graphQLHousingMapper.mapHousingEntities(null))
-                .isInstanceOf(IllegalArgumentException.class)
-                .hasMessage("JSON response cannot be null or empty");
-    }
-
-    @Test
-    void mapHousingEntities_WithEmptyInput_ShouldThrowIllegalArgumentException() {
-        assertThatThrownBy(() -> graphQLHousingMapper.mapHousingEntities("   "))
-                .isInstanceOf(IllegalArgumentException.class)
-                .hasMessage("JSON response cannot be null or empty");
+    void mapHousingEntities_WithBlankInput_ShouldThrowHousingImportException() {
+        assertThatThrownBy(() -> graphQLHousingMapper.mapHousingEntities(json("   ")))
+                .isInstanceOf(HousingImportException.class)
+                .hasMessage("Received empty response from SIT GraphQL API");
     }
 
     @Test
     void mapHousingEntities_WithInvalidJson_ShouldThrowHousingImportException() {
-        assertThatThrownBy(() -> graphQLHousingMapper.mapHousingEntities("invalid json"))
+        assertThatThrownBy(() -> graphQLHousingMapper.mapHousingEntities(json("invalid json")))
                 .isInstanceOf(HousingImportException.class)
                 .hasMessage("Failed to parse JSON response from GraphQL API");
     }
@@ -132,7 +129,7 @@ class GraphQLHousingMapperTest {
                 "sanity_allEnhet": []
             }
             """;
-        assertThatThrownBy(() -> graphQLHousingMapper.mapHousingEntities(responseWithoutData))
+        assertThatThrownBy(() -> graphQLHousingMapper.mapHousingEntities(json(responseWithoutData)))
                 .isInstanceOf(HousingImportException.class)
                 .hasMessage("Invalid GraphQL response: missing 'data' field");
     }
@@ -149,7 +146,7 @@ class GraphQLHousingMapperTest {
                 ]
             }
             """;
-        assertThatThrownBy(() -> graphQLHousingMapper.mapHousingEntities(responseWithErrors))
+        assertThatThrownBy(() -> graphQLHousingMapper.mapHousingEntities(json(responseWithErrors)))
                 .isInstanceOf(HousingImportException.class)
                 .hasMessageContaining("GraphQL response contains errors:");
     }
@@ -179,7 +176,7 @@ class GraphQLHousingMapperTest {
                 }
             }
             """;
-        List<HousingDTO> result = graphQLHousingMapper.mapHousingEntities(responseWithMissingIds);
+        List<HousingDTO> result = graphQLHousingMapper.mapHousingEntities(json(responseWithMissingIds));
         assertThat(result).hasSize(0);
     }
 
@@ -217,7 +214,7 @@ class GraphQLHousingMapperTest {
                 }
             }
             """;
-        List<HousingDTO> result = graphQLHousingMapper.mapHousingEntities(responseWithNegativeValues);
+        List<HousingDTO> result = graphQLHousingMapper.mapHousingEntities(json(responseWithNegativeValues));
         assertThat(result).hasSize(0);
     }
 
@@ -249,7 +246,7 @@ class GraphQLHousingMapperTest {
                 .toInstant()
                 .atZone(ZoneId.of("Europe/Oslo"))
                 .toLocalDate();
-        List<HousingAvailabilityDTO> result = graphQLHousingMapper.mapHousingAvailability(validHousingIdsResponse);
+        List<HousingAvailabilityDTO> result = graphQLHousingMapper.mapHousingAvailability(json(validHousingIdsResponse));
         assertThat(result).hasSize(2);
         assertThat(result).containsExactly(
                 new HousingAvailabilityDTO("KAL11-911", date1),
@@ -258,22 +255,15 @@ class GraphQLHousingMapperTest {
     }
 
     @Test
-    void mapHousingAvailability_WithNullInput_ShouldThrowIllegalArgumentException() {
-        assertThatThrownBy(() -> graphQLHousingMapper.mapHousingAvailability(null))
-                .isInstanceOf(IllegalArgumentException.class)
-                .hasMessage("JSON response cannot be null or empty");
-    }
-
-    @Test
-    void mapHousingAvailability_WithEmptyInput_ShouldThrowIllegalArgumentException() {
-        assertThatThrownBy(() -> graphQLHousingMapper.mapHousingEntities("   "))
-                .isInstanceOf(IllegalArgumentException.class)
-                .hasMessage("JSON response cannot be null or empty");
+    void mapHousingAvailability_WithBlankInput_ShouldThrowHousingImportException() {
+        assertThatThrownBy(() -> graphQLHousingMapper.mapHousingAvailability(json("   ")))
+                .isInstanceOf(HousingImportException.class)
+                .hasMessage("Received empty response from SIT GraphQL API");
     }
 
     @Test
     void mapHousingAvailability_WithInvalidJson_ShouldThrowHousingImportException() {
-        assertThatThrownBy(() -> graphQLHousingMapper.mapHousingEntities("invalid json"))
+        assertThatThrownBy(() -> graphQLHousingMapper.mapHousingAvailability(json("invalid json")))
                 .isInstanceOf(HousingImportException.class)
                 .hasMessage("Failed to parse JSON response from GraphQL API");
     }
@@ -287,7 +277,7 @@ class GraphQLHousingMapperTest {
                 }
             }
             """;
-        assertThatThrownBy(() -> graphQLHousingMapper.mapHousingAvailability(responseWithoutHousings))
+        assertThatThrownBy(() -> graphQLHousingMapper.mapHousingAvailability(json(responseWithoutHousings)))
                 .isInstanceOf(HousingImportException.class)
                 .hasMessage("Invalid GraphQL response: missing 'housings.housingRentalObjects' field");
     }
@@ -326,7 +316,7 @@ class GraphQLHousingMapperTest {
                 .toInstant()
                 .atZone(ZoneId.of("Europe/Oslo"))
                 .toLocalDate();
-        List<HousingAvailabilityDTO> result = graphQLHousingMapper.mapHousingAvailability(responseWithMissingIds);
+        List<HousingAvailabilityDTO> result = graphQLHousingMapper.mapHousingAvailability(json(responseWithMissingIds));
         assertThat(result).hasSize(2);
         assertThat(result).containsExactly(
                 new HousingAvailabilityDTO("VALID-001", date1),
@@ -334,6 +324,93 @@ class GraphQLHousingMapperTest {
         );
     }
 
+    @Test
+    void mapHousingEntities_WithErrorsAfterData_ShouldThrowHousingImportException() {
+        String responseWithTrailingErrors = """
+            {
+                "data": { "sanity_allEnhet": [] },
+                "errors": [ { "message": "Partial failure" } ]
+            }
+            """;
+        assertThatThrownBy(() -> graphQLHousingMapper.mapHousingEntities(json(responseWithTrailingErrors)))
+                .isInstanceOf(HousingImportException.class)
+                .hasMessage("GraphQL response contains errors: [{\"message\":\"Partial failure\"}]");
+    }
+
+    @Test
+    void mapHousingEntities_WithErrorsAsText_ShouldNotTreatItAsGraphQLError() {
+        String response = """
+            {
+                "extensions": { "note": "no errors" },
+                "data": {
+                    "sanity_allEnhet": [
+                        {
+                            "rentalObjectId": "ERR-1",
+                            "name": "errors",
+                            "building": { "address": "Errorsvegen 1" },
+                            "area": 12,
+                            "price": 5000,
+                            "category": { "displayName": { "en": "Dorm in collective" } },
+                            "studentby": { "name": "Moholt", "studiested": { "name": "Trondheim" } }
+                        }
+                    ]
+                }
+            }
+            """;
+        List<HousingDTO> result = graphQLHousingMapper.mapHousingEntities(json(response));
+
+        assertThat(result).extracting(HousingDTO::name).containsExactly("errors");
+    }
+
+    @Test
+    void mapHousingEntities_FromStream_ShouldLeaveStreamOpenAndUnbuffered() throws IOException {
+        StringBuilder response = new StringBuilder("{\"data\":{\"sanity_allEnhet\":[");
+        for (int i = 0; i < 1000; i++) {
+            if (i > 0) response.append(',');
+            response.append("""
+                {"rentalObjectId":"R-%d","name":"Name %d","building":{"address":"Address"},"area":10.5,"price":5000,
+                 "category":{"displayName":{"en":"Dorm"}},"studentby":{"name":"Moholt","studiested":{"name":"Trondheim"}}}
+                """.formatted(i, i));
+        }
+        response.append("]}} ");
+        ByteArrayInputStream body = new ByteArrayInputStream(response.toString().getBytes(StandardCharsets.UTF_8));
+
+        List<HousingDTO> result = graphQLHousingMapper.mapHousingEntities(body);
+
+        assertThat(result).hasSize(1000);
+        assertThat(result.getLast().rentalObjectId()).isEqualTo("R-999");
+        assertThat(body.read()).isIn(-1, (int) ' ');
+    }
+
+    @Test
+    void mapHousingEntities_WithEmptyStream_ShouldThrowHousingImportException() {
+        assertThatThrownBy(() -> graphQLHousingMapper.mapHousingEntities(new ByteArrayInputStream(new byte[0])))
+                .isInstanceOf(HousingImportException.class)
+                .hasMessage("Received empty response from SIT GraphQL API");
+    }
+
+    @Test
+    void mapHousingAvailability_WithNestedUnrelatedFields_ShouldSkipThem() {
+        String response = """
+            {
+                "data": {
+                    "other": { "housingRentalObjects": [ { "rentalObjectId": "WRONG" } ] },
+                    "housings": {
+                        "total": 1,
+                        "housingRentalObjects": [ { "rentalObjectId": "RIGHT", "availableFrom": null } ]
+                    }
+                }
+            }
+            """;
+        List<HousingAvailabilityDTO> result = graphQLHousingMapper.mapHousingAvailability(json(response));
+
+        assertThat(result).containsExactly(new HousingAvailabilityDTO("RIGHT", null));
+    }
+
+    private static InputStream json(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
     private void assertHousingDTO(HousingDTO dto, String expectedRentalObjectId, String expectedName,
                                   String expectedAddress, String expectedHousingType, String expectedCity,
                                   String expectedDistrict, BigDecimal expectedAreaSqm, int expectedPricePerMonth) {
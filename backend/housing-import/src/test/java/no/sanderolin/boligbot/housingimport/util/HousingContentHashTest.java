@@ -0,0 +1,49 @@
+package no.sanderolin.boligbot.housingimport.util;
+
+import no.sanderolin.boligbot.housingimport.dto.HousingDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HousingContentHashTest {
+
+    private final HousingDTO housing = new HousingDTO(
+            "1", "Name", "Address", "1-room apartment", "Trondheim", "Moholt", new BigDecimal("19.90"), 8200);
+
+    @Test
+    void of_ShouldIgnoreIdAndAreaScale() {
+        HousingDTO sameContent = new HousingDTO(
+                "2", "Name", "Address", "1-room apartment", "Trondheim", "Moholt", new BigDecimal("19.9"), 8200);
+
+        assertThat(HousingContentHash.of(sameContent)).isEqualTo(HousingContentHash.of(housing));
+        assertThat(HousingContentHash.of(housing)).hasSize(64);
+    }
+
+    @Test
+    void of_ShouldChangeWithAnyStoredField() {
+        String hash = HousingContentHash.of(housing);
+
+        assertThat(HousingContentHash.of(new HousingDTO(
+                "1", "Name", "Address", "1-room apartment", "Trondheim", "Moholt", new BigDecimal("19.90"), 8300)))
+                .isNotEqualTo(hash);
+        assertThat(HousingContentHash.of(new HousingDTO(
+                "1", "Name", "Address", "1-room apartment", "Trondheim", "Singsaker", new BigDecimal("19.90"), 8200)))
+                .isNotEqualTo(hash);
+    }
+
+    @Test
+    void of_ShouldSeparateAdjacentFields() {
+        HousingDTO shifted = new HousingDTO(
+                "1", "NameA", "ddress", "1-room apartment", "Trondheim", "Moholt", new BigDecimal("19.90"), 8200);
+
+        assertThat(HousingContentHash.of(shifted)).isNotEqualTo(HousingContentHash.of(housing));
+    }
+
+    @Test
+    void ofPayload_ShouldMatchOnlyIdenticalPayloads() {
+        assertThat(HousingContentHash.ofPayload("{\"data\":[]}")).isEqualTo(HousingContentHash.ofPayload("{\"data\":[]}"));
+        assertThat(HousingContentHash.ofPayload("{\"data\":[]}")).isNotEqualTo(HousingContentHash.ofPayload("{\"data\": []}"));
+    }
+}
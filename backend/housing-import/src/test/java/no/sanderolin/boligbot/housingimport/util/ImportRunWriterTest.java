@@ -0,0 +1,85 @@
+package no.sanderolin.boligbot.housingimport.util;
+
+import no.sanderolin.boligbot.dao.projection.ImportRun;
+import no.sanderolin.boligbot.dao.repository.ImportRunRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImportRunWriterTest {
+
+    private static final Instant DAY_ONE = Instant.parse("2026-10-19T10:00:00Z");
+
+    @Mock private ImportRunRepository importRunRepository;
+
+    @Test
+    void submit_ShouldWriteRunsAndPurgeOncePerDay() throws Exception {
+        ImportRunWriter writer = new ImportRunWriter(importRunRepository, Duration.ofDays(90), 10);
+        ImportRun first = run(DAY_ONE);
+        ImportRun second = run(DAY_ONE.plusSeconds(60));
+        ImportRun nextDay = run(DAY_ONE.plus(Duration.ofDays(1)));
+
+        writer.submit(first);
+        writer.submit(second);
+        writer.submit(nextDay);
+        writer.close();
+
+        verify(importRunRepository).insert(first);
+        verify(importRunRepository).insert(second);
+        verify(importRunRepository).insert(nextDay);
+        verify(importRunRepository).deleteStartedBefore(DAY_ONE.minus(Duration.ofDays(90)));
+        verify(importRunRepository).deleteStartedBefore(nextDay.finishedAt().minus(Duration.ofDays(90)));
+        verifyNoMoreInteractions(importRunRepository);
+    }
+
+    @Test
+    void submit_WhenInsertFails_ShouldKeepWritingLaterRuns() throws Exception {
+        ImportRunWriter writer = new ImportRunWriter(importRunRepository, Duration.ofDays(90), 10);
+        ImportRun failing = run(DAY_ONE);
+        ImportRun next = run(DAY_ONE.plusSeconds(60));
+        doThrow(new RuntimeException("DB down")).when(importRunRepository).insert(failing);
+
+        writer.submit(failing);
+        writer.submit(next);
+        writer.close();
+
+        verify(importRunRepository).insert(next);
+    }
+
+    @Test
+    void submit_WithFullQueue_ShouldDropTheRunInsteadOfBlocking() throws Exception {
+        ImportRunWriter writer = new ImportRunWriter(importRunRepository, Duration.ofDays(90), 1);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ImportRun blocking = run(DAY_ONE);
+        doAnswer(inv -> {
+            writing.countDown();
+            release.await();
+            return null;
+        }).when(importRunRepository).insert(blocking);
+
+        writer.submit(blocking);
+        writing.await();
+        writer.submit(run(DAY_ONE.plusSeconds(1)));
+        writer.submit(run(DAY_ONE.plusSeconds(2)));
+        release.countDown();
+        writer.close();
+
+        verify(importRunRepository, times(2)).insert(any());
+    }
+
+    private static ImportRun run(Instant finishedAt) {
+        return new ImportRun("catalog", finishedAt.minusSeconds(5), finishedAt, "applied",
+                Map.of("fetch", 1200.0), Map.of("fetched", 10L), 4096L, null);
+    }
+}
@@ -1,152 +1,292 @@
 package no.sanderolin.boligbot.housingimport.util;
 
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
 import no.sanderolin.boligbot.housingimport.exception.HousingImportException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.Answers;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.web.client.RestClient;
-import org.springframework.web.client.RestClientException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
 
 import static org.assertj.core.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.when;
 
-@ExtendWith(MockitoExtension.class)
 class SitGraphQLClientTest {
 
-    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
-    private RestClient restClient;
-
-    @InjectMocks private SitGraphQLClient sitGraphQLClient;
-
-    private final String query = """
+    private static final String QUERY = """
             {
               "operationName": "GetHousingItems",
-              "variables": {
-                "input": {
-                  "category": {
-                    "displayName": {
-                      "no": {
-                        "neq": "Parkering"
-                      }
-                    }
-                  }
-                },
-                "sort": [
-                  { "_id": "ASC" }
-                ],
-                "limit": 1,
-                "offset": 0
-              },
-              "query": "query GetHousingItems($input: Sanity_EnhetFilter, $limit: Int, $offset: Int) { sanity_allEnhet(where: $input, limit: $limit, offset: $offset) { rentalObjectId name building { address } area price category { displayName { no en } } studentby { name studiested { name } } kollektiv { name } } }"
+              "variables": { "limit": 1, "offset": 0 },
+              "query": "query GetHousingItems($limit: Int, $offset: Int) { sanity_allEnhet(limit: $limit, offset: $offset) { rentalObjectId name } }"
             }
             """;
 
+    private static final String RESPONSE = """
+            {
+                "data": {
+                    "sanity_allEnhet": [
+                        {
+                            "rentalObjectId": "BER10-101",
+                            "name": "Hybel 101 H0101"
+                        }
+                    ]
+                }
+            }
+            """;
+
+    private final List<Request> requests = new CopyOnWriteArrayList<>();
+    private final AtomicLong bodyBytesSent = new AtomicLong();
+    private HttpServer server;
+    private Handler handler;
+    private SitGraphQLClient sitGraphQLClient;
+
+    private record Request(String method, String body, String acceptEncoding, String ifNoneMatch, String ifModifiedSince) { }
+
+    private interface Handler {
+        void handle(HttpExchange exchange, int call) throws IOException;
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/graphql", exchange -> {
+            requests.add(new Request(
+                    exchange.getRequestMethod(),
+                    new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8),
+                    exchange.getRequestHeaders().getFirst("Accept-Encoding"),
+                    exchange.getRequestHeaders().getFirst("If-None-Match"),
+                    exchange.getRequestHeaders().getFirst("If-Modified-Since")));
+            handler.handle(exchange, requests.size());
+            exchange.close();
+        });
+        server.start();
+        sitGraphQLClient = new SitGraphQLClient(
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/graphql", 1000, 2000, 1000, 16, 1 << 20);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sitGraphQLClient.close();
+        server.stop(0);
+    }
+
     @Test
     void executeGraphQLQuery_WithNullInput_ShouldThrowIllegalArgumentException() {
-        assertThatThrownBy(() -> sitGraphQLClient.executeGraphQLQuery(null))
+        assertThatThrownBy(() -> sitGraphQLClient.executeGraphQLQuery(null, InputStream::readAllBytes))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessage("GraphQL query cannot be null or empty");
     }
 
     @Test
     void executeGraphQLQuery_WithEmptyInput_ShouldThrowIllegalArgumentException() {
-        assertThatThrownBy(() -> sitGraphQLClient.executeGraphQLQuery("   "))
+        assertThatThrownBy(() -> sitGraphQLClient.executeGraphQLQuery("   ", InputStream::readAllBytes))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessage("GraphQL query cannot be null or empty");
     }
 
     @Test
-    void executeGraphQLQuery_WithNullResponse_ShouldThrowHousingImportException() {
-        when(restClient.post().body(eq(query)).retrieve().body(eq(String.class))).thenReturn(null);
+    void executeGraphQLQuery_WithErrorStatus_ShouldThrowHousingImportException() {
+        handler = (exchange, call) -> send(exchange, 502, "Bad gateway".getBytes(StandardCharsets.UTF_8));
 
-        assertThatThrownBy(() -> sitGraphQLClient.executeGraphQLQuery(query))
+        assertThatThrownBy(() -> sitGraphQLClient.executeGraphQLQuery(QUERY, InputStream::readAllBytes))
                 .isInstanceOf(HousingImportException.class)
-                .hasMessage("Received empty response from SIT GraphQL API");
+                .hasMessage("SIT GraphQL call failed with status 502");
     }
 
     @Test
-    void executeGraphQLQuery_WithErrorResponse_ShouldThrowHousingImportException() {
-        String incorrectQuery = "{\"query\":\"{ sanity_allEnhet { name } }\"}";
+    void executeGraphQLQuery_WhenConnectionFails_ShouldThrowHousingImportException() {
+        server.stop(0);
 
-        String errorResponse = """
-                {
-                    "errors": [
-                        {
-                            "message": "Expected a `Name`-token, but found a `EndOfFile`-token.",
-                            "locations": [
-                                {
-                                    "line": 1,
-                                    "column": 112
-                                }
-                            ],
-                            "extensions": {
-                                "code": "HC0011"
-                            }
-                        }
-                    ]
-                }
-                """;
-        when(restClient.post().body(eq(incorrectQuery)).retrieve().body(eq(String.class))).thenReturn(errorResponse);
-
-        assertThatThrownBy(() -> sitGraphQLClient.executeGraphQLQuery(incorrectQuery))
+        assertThatThrownBy(() -> sitGraphQLClient.executeGraphQLQuery(QUERY, InputStream::readAllBytes))
                 .isInstanceOf(HousingImportException.class)
-                .hasMessage("GraphQL API returned errors: %s".formatted(errorResponse));
+                .hasMessage("SIT GraphQL call failed")
+                .cause()
+                .isInstanceOf(IOException.class);
     }
 
     @Test
-    void executeGraphQLQuery_RestClientError_ShouldThrowHousingImportException() {
-        when(restClient.post().body(eq(query)).retrieve().body(eq(String.class)))
-                .thenThrow(new RestClientException("Network error"));
+    void executeGraphQLQuery_WhenBodyStalls_ShouldFailAtTheBodyDeadline() {
+        CountDownLatch release = new CountDownLatch(1);
+        handler = (exchange, call) -> {
+            byte[] body = RESPONSE.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body, 0, 10);
+            out.flush();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
 
-        assertThatThrownBy(() -> sitGraphQLClient.executeGraphQLQuery(query))
-                .isInstanceOf(HousingImportException.class)
-                .hasMessage("SIT GraphQL call failed")
-                .cause()
-                .isInstanceOf(RestClientException.class);
+        try {
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> sitGraphQLClient.executeGraphQLQuery(QUERY, InputStream::readAllBytes))
+                    .isInstanceOf(HousingImportException.class)
+                    .hasMessage("SIT GraphQL response body was not read within 1000ms");
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+        } finally {
+            release.countDown();
+        }
     }
 
     @Test
-    void executeGraphQLQuery_ValidQuery_ShouldReturnResponse() {
-        String response = """
-                {
-                    "data": {
-                        "sanity_allEnhet": [
-                            {
-                                "rentalObjectId": "BER10-101",
-                                "name": "Hybel 101 H0101",
-                                "building": {
-                                    "address": "Berghusvegen 10"
-                                },
-                                "area": 9.5,
-                                "price": 5258,
-                                "category": {
-                                    "displayName": {
-                                        "no": "Hybel i kollektiv",
-                                        "en": "Dorm in collective"
-                                    }
-                                },
-                                "studentby": {
-                                    "name": "Kallerud",
-                                    "studiested": {
-                                        "name": "Gjøvik"
-                                    }
-                                },
-                                "kollektiv": {
-                                    "name": "Kollektiv BER10-BER10-101-BER10-U01"
-                                }
-                            }
-                        ]
-                    }
-                }
-                """;
-        when(restClient.post().body(eq(query)).retrieve().body(eq(String.class))).thenReturn(response);
+    void executeGraphQLQuery_ValidQuery_ShouldPostQueryAndStreamResponseToReader() {
+        handler = (exchange, call) -> send(exchange, 200, RESPONSE.getBytes(StandardCharsets.UTF_8));
 
-        String result = sitGraphQLClient.executeGraphQLQuery(query);
-        assertThat(result).isEqualTo(response);
+        assertThat(sitGraphQLClient.executeGraphQLQuery(QUERY, SitGraphQLClientTest::readString)).isEqualTo(RESPONSE);
+
+        assertThat(requests).singleElement().satisfies(request -> {
+            assertThat(request.method()).isEqualTo("POST");
+            assertThat(request.body()).isEqualTo(QUERY);
+            assertThat(request.acceptEncoding()).isEqualTo("gzip");
+        });
     }
 
-}
\ No newline at end of file
+    @Test
+    void executeGraphQLQuery_WithGzipResponse_ShouldDecodeBody() {
+        handler = (exchange, call) -> {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            send(exchange, 200, gzip(RESPONSE));
+        };
+
+        assertThat(sitGraphQLClient.executeGraphQLQuery(QUERY, SitGraphQLClientTest::readString)).isEqualTo(RESPONSE);
+        assertThat(bodyBytesSent.get()).isLessThan(RESPONSE.length());
+    }
+
+    @Test
+    void executeGraphQLQuery_WithETag_ShouldRevalidateAndReplayKeptBodyOnNotModified() {
+        handler = (exchange, call) -> {
+            exchange.getResponseHeaders().set("ETag", "\"v1\"");
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            send(exchange, 200, gzip(RESPONSE));
+        };
+
+        assertThat(sitGraphQLClient.executeGraphQLQuery(QUERY, SitGraphQLClientTest::readString)).isEqualTo(RESPONSE);
+        long firstBodyBytes = bodyBytesSent.get();
+        assertThat(sitGraphQLClient.executeGraphQLQuery(QUERY, SitGraphQLClientTest::readString)).isEqualTo(RESPONSE);
+
+        assertThat(requests).extracting(Request::ifNoneMatch).containsExactly(null, "\"v1\"");
+        assertThat(bodyBytesSent.get()).isEqualTo(firstBodyBytes);
+    }
+
+    @Test
+    void executeGraphQLQuery_WhenReaderStopsEarly_ShouldStillKeepWholeBody() {
+        handler = (exchange, call) -> {
+            exchange.getResponseHeaders().set("Last-Modified", "Mon, 19 Oct 2026 10:00:00 GMT");
+            if (exchange.getRequestHeaders().containsKey("If-Modified-Since")) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            send(exchange, 200, RESPONSE.getBytes(StandardCharsets.UTF_8));
+        };
+
+        assertThat(sitGraphQLClient.<Integer>executeGraphQLQuery(QUERY, InputStream::read)).isEqualTo((int) '{');
+        assertThat(sitGraphQLClient.executeGraphQLQuery(QUERY, SitGraphQLClientTest::readString)).isEqualTo(RESPONSE);
+
+        assertThat(requests).extracting(Request::ifModifiedSince).containsExactly(null, "Mon, 19 Oct 2026 10:00:00 GMT");
+    }
+
+    @Test
+    void executeGraphQLQuery_WithBodyLargerThanTheByteBudget_ShouldNotKeepIt() {
+        sitGraphQLClient.close();
+        sitGraphQLClient = new SitGraphQLClient(
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/graphql", 1000, 2000, 1000, 16, RESPONSE.length() - 1);
+        handler = (exchange, call) -> {
+            exchange.getResponseHeaders().set("ETag", "\"v1\"");
+            send(exchange, 200, RESPONSE.getBytes(StandardCharsets.UTF_8));
+        };
+
+        assertThat(sitGraphQLClient.executeGraphQLQuery(QUERY, SitGraphQLClientTest::readString)).isEqualTo(RESPONSE);
+        assertThat(sitGraphQLClient.executeGraphQLQuery(QUERY, SitGraphQLClientTest::readString)).isEqualTo(RESPONSE);
+
+        assertThat(requests).extracting(Request::ifNoneMatch).containsOnlyNulls();
+    }
+
+    @Test
+    void executeGraphQLQuery_WhenByteBudgetIsFull_ShouldEvictTheLeastRecentlyUsedBody() {
+        sitGraphQLClient.close();
+        sitGraphQLClient = new SitGraphQLClient(
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/graphql", 1000, 2000, 1000, 16, RESPONSE.length() * 2L);
+        handler = (exchange, call) -> {
+            exchange.getResponseHeaders().set("ETag", "\"v1\"");
+            if (exchange.getRequestHeaders().containsKey("If-None-Match")) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            send(exchange, 200, RESPONSE.getBytes(StandardCharsets.UTF_8));
+        };
+        String second = QUERY.replace("{", "{ ");
+        String third = QUERY.replace("{", "{  ");
+
+        sitGraphQLClient.executeGraphQLQuery(QUERY, SitGraphQLClientTest::readString);
+        sitGraphQLClient.executeGraphQLQuery(second, SitGraphQLClientTest::readString);
+        sitGraphQLClient.executeGraphQLQuery(third, SitGraphQLClientTest::readString);
+        sitGraphQLClient.executeGraphQLQuery(third, SitGraphQLClientTest::readString);
+        sitGraphQLClient.executeGraphQLQuery(QUERY, SitGraphQLClientTest::readString);
+
+        assertThat(requests).extracting(Request::ifNoneMatch).containsExactly(null, null, null, "\"v1\"", null);
+    }
+
+    @Test
+    void executeGraphQLQuery_WithoutValidators_ShouldNotSendConditionalHeaders() {
+        handler = (exchange, call) -> send(exchange, 200, RESPONSE.getBytes(StandardCharsets.UTF_8));
+
+        sitGraphQLClient.executeGraphQLQuery(QUERY, SitGraphQLClientTest::readString);
+        sitGraphQLClient.executeGraphQLQuery(QUERY, SitGraphQLClientTest::readString);
+
+        assertThat(requests).extracting(Request::ifNoneMatch).containsOnlyNulls();
+        assertThat(requests).extracting(Request::ifModifiedSince).containsOnlyNulls();
+    }
+
+    @Test
+    void executeGraphQLQuery_WithChangedETag_ShouldReadNewBody() {
+        handler = (exchange, call) -> {
+            exchange.getResponseHeaders().set("ETag", "\"v" + call + "\"");
+            send(exchange, 200, ("{\"call\":" + call + "}").getBytes(StandardCharsets.UTF_8));
+        };
+
+        assertThat(sitGraphQLClient.executeGraphQLQuery(QUERY, SitGraphQLClientTest::readString)).isEqualTo("{\"call\":1}");
+        assertThat(sitGraphQLClient.executeGraphQLQuery(QUERY, SitGraphQLClientTest::readString)).isEqualTo("{\"call\":2}");
+        assertThat(requests).extracting(Request::ifNoneMatch).containsExactly(null, "\"v1\"");
+    }
+
+    private void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+        bodyBytesSent.addAndGet(body.length);
+    }
+
+    private static byte[] gzip(String body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return compressed.toByteArray();
+    }
+
+    private static String readString(InputStream body) throws IOException {
+        return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+    }
+}
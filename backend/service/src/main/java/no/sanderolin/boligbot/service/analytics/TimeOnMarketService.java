@@ -0,0 +1,58 @@
+package no.sanderolin.boligbot.service.analytics;
+
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.projection.TimeOnMarketBucket;
+import no.sanderolin.boligbot.dao.repository.TimeOnMarketHistogramRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serves median time on market from the per-day histogram the availability import maintains,
+ * so no availability events are scanned on request.
+ */
+@Service
+@RequiredArgsConstructor
+public class TimeOnMarketService {
+
+    private final TimeOnMarketHistogramRepository histogramRepository;
+
+    public List<TimeOnMarketStat> getByDistrict() {
+        return toStats(histogramRepository.findAllGroupedByDistrict());
+    }
+
+    public List<TimeOnMarketStat> getByHousingType() {
+        return toStats(histogramRepository.findAllGroupedByHousingType());
+    }
+
+    /**
+     * Folds buckets, ordered by group and days on market, into one stat per group.
+     */
+    static List<TimeOnMarketStat> toStats(List<TimeOnMarketBucket> buckets) {
+        List<TimeOnMarketStat> stats = new ArrayList<>();
+        int start = 0;
+        while (start < buckets.size()) {
+            long groupId = buckets.get(start).groupId();
+            int end = start;
+            long total = 0;
+            while (end < buckets.size() && buckets.get(end).groupId() == groupId) {
+                total += buckets.get(end).unitCount();
+                end++;
+            }
+            stats.add(new TimeOnMarketStat(groupId, buckets.get(start).groupName(), total, median(buckets.subList(start, end), total)));
+            start = end;
+        }
+        return stats;
+    }
+
+    private static int median(List<TimeOnMarketBucket> groupBuckets, long total) {
+        long middle = (total + 1) / 2;
+        long seen = 0;
+        for (TimeOnMarketBucket bucket : groupBuckets) {
+            seen += bucket.unitCount();
+            if (seen >= middle) return bucket.daysOnMarket();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,6 @@
+package no.sanderolin.boligbot.service.analytics;
+
+/**
+ * How long housings in a group stayed available before they were rented, over all recorded rentals.
+ */
+public record TimeOnMarketStat(long id, String name, long rentedCount, int medianDaysOnMarket) { }
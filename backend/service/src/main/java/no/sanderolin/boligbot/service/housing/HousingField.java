@@ -0,0 +1,22 @@
+package no.sanderolin.boligbot.service.housing;
+
+/**
+ * Selectable columns of a housing projection.
+ * Fields backed by an association are only joined when they are selected.
+ */
+public enum HousingField {
+    RENTAL_OBJECT_ID("rentalObjectId"),
+    ADDRESS("address"),
+    NAME("name"),
+    HOUSING_TYPE("housingType"),
+    CITY("city"),
+    DISTRICT("district"),
+    AREA_SQM("areaSqm"),
+    PRICE_PER_MONTH("pricePerMonth"),
+    IS_AVAILABLE("isAvailable"),
+    AVAILABLE_FROM_DATE("availableFromDate");
+
+    private final String property;
+    HousingField(String property) { this.property = property; }
+    public String property() { return property; }
+}
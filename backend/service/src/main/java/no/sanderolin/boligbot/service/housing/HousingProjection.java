@@ -0,0 +1,36 @@
+package no.sanderolin.boligbot.service.housing;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * A housing row where only the selected {@link HousingField}s are populated; the rest are null.
+ */
+public record HousingProjection(
+        String rentalObjectId,
+        String address,
+        String name,
+        String housingType,
+        String city,
+        String district,
+        BigDecimal areaSqm,
+        Integer pricePerMonth,
+        Boolean isAvailable,
+        LocalDate availableFromDate
+) {
+    static HousingProjection of(Map<HousingField, Object> values) {
+        return new HousingProjection(
+                (String) values.get(HousingField.RENTAL_OBJECT_ID),
+                (String) values.get(HousingField.ADDRESS),
+                (String) values.get(HousingField.NAME),
+                (String) values.get(HousingField.HOUSING_TYPE),
+                (String) values.get(HousingField.CITY),
+                (String) values.get(HousingField.DISTRICT),
+                (BigDecimal) values.get(HousingField.AREA_SQM),
+                (Integer) values.get(HousingField.PRICE_PER_MONTH),
+                (Boolean) values.get(HousingField.IS_AVAILABLE),
+                (LocalDate) values.get(HousingField.AVAILABLE_FROM_DATE)
+        );
+    }
+}
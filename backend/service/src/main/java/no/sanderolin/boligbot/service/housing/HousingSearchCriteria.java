@@ -4,6 +4,7 @@ import lombok.Builder;
 import org.springframework.data.domain.Sort;
 
 import java.math.BigDecimal;
+import java.util.Set;
 
 @Builder(setterPrefix = "set")
 public record HousingSearchCriteria(
@@ -20,7 +21,8 @@ public record HousingSearchCriteria(
         Integer page,
         Integer size,
         HousingSortBy sortBy,
-        SortDirection sortDirection
+        SortDirection sortDirection,
+        Set<HousingField> fields
 ) {
     private static final int DEFAULT_PAGE = 0;
     private static final int DEFAULT_SIZE = 20;
@@ -56,6 +58,13 @@ public record HousingSearchCriteria(
         return Sort.by(primary).and(Sort.by(tieBreaker));
     }
 
+    /**
+     * @return true if only a subset of the housing fields was requested.
+     */
+    public boolean hasFieldSelection() {
+        return fields != null && !fields.isEmpty();
+    }
+
     public Integer minPricePerMonthOrNull() {
         return (minPricePerMonth == null || minPricePerMonth <= 0) ? null : minPricePerMonth;
     }
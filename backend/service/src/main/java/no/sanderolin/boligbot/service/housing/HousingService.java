@@ -1,25 +1,33 @@
 package no.sanderolin.boligbot.service.housing;
 
-import jakarta.persistence.criteria.Expression;
-import jakarta.persistence.criteria.From;
-import jakarta.persistence.criteria.Path;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.*;
 import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.model.DistrictModel;
 import no.sanderolin.boligbot.dao.model.HousingModel;
+import no.sanderolin.boligbot.dao.model.SubscriptionModel;
 import no.sanderolin.boligbot.dao.repository.HousingRepository;
 import org.hibernate.ObjectNotFoundException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.*;
 
 @Service
 @RequiredArgsConstructor
 public class HousingService {
 
     private final HousingRepository housingRepository;
+    private final EntityManager entityManager;
 
     public Page<HousingModel> searchHousings(HousingSearchCriteria criteria) {
         Pageable pageable = PageRequest.of(
@@ -27,8 +35,102 @@ public class HousingService {
                 criteria.sizeOrDefault(),
                 criteria.toSpringSort()
         );
+        return housingRepository.findAll(toSpecification(criteria), pageable);
+    }
+
+    /**
+     * Searches like {@link #searchHousings} but selects only {@link HousingSearchCriteria#fields()}.
+     * Type, district and city are only joined when selected, filtered on or sorted by.
+     */
+    @Transactional(readOnly = true)
+    public Page<HousingProjection> searchHousingProjections(HousingSearchCriteria criteria) {
+        Pageable pageable = PageRequest.of(criteria.pageOrDefault(), criteria.sizeOrDefault());
+        Specification<HousingModel> spec = toSpecification(criteria);
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<HousingModel> root = query.from(HousingModel.class);
+        ProjectionJoins joins = new ProjectionJoins(root);
+        List<HousingField> fields = List.copyOf(criteria.fields());
+
+        query.multiselect(fields.stream().<Selection<?>>map(f -> joins.path(f).alias(f.name())).toList());
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null) query.where(predicate);
+        query.orderBy(toOrders(criteria, joins, cb));
+
+        List<HousingProjection> content = entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList()
+                .stream()
+                .map(tuple -> toProjection(tuple, fields))
+                .toList();
+
+        return new PageImpl<>(content, pageable, countHousings(spec, cb));
+    }
+
+    @Transactional(readOnly = true)
+    public HousingProjection getHousingProjectionByRentalObjectId(String id, Set<HousingField> selected) throws ObjectNotFoundException {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<HousingModel> root = query.from(HousingModel.class);
+        ProjectionJoins joins = new ProjectionJoins(root);
+        List<HousingField> fields = List.copyOf(selected);
+
+        query.multiselect(fields.stream().<Selection<?>>map(f -> joins.path(f).alias(f.name())).toList());
+        query.where(cb.equal(root.get("rentalObjectId"), id));
+
+        return entityManager.createQuery(query)
+                .getResultStream()
+                .findFirst()
+                .map(tuple -> toProjection(tuple, fields))
+                .orElseThrow(() -> new ObjectNotFoundException("Housing with id " + id + " not found", HousingModel.class));
+    }
 
+    public HousingModel getHousingByRentalObjectId(String id) throws ObjectNotFoundException {
+        return housingRepository.findById(id).orElseThrow(() -> new ObjectNotFoundException("Housing with id " + id + " not found", HousingModel.class));
+    }
+
+    /**
+     * Loads the housings with type, district and city fetched, so they can be mapped outside a transaction.
+     */
+    public List<HousingModel> getHousingsWithDetailsByRentalObjectIds(Collection<String> ids) {
+        if (ids.isEmpty()) return List.of();
+        return housingRepository.findAllWithDetailsByRentalObjectIdIn(ids);
+    }
+
+    /**
+     * Returns up to {@code limit} housings matching the saved search whose row changed after the position
+     * {@code (afterAt, afterId)} and at or before {@code until}: created or updated by the catalog import, or
+     * flipped available or unavailable. Ordered by {@code (last_modified_at, rental_object_id)}, with type,
+     * district and city fetched. A null {@code afterId} starts after every row changed at {@code afterAt}.
+     * Served by the index on {@code last_modified_at}, so the cost follows the number of rows returned.
+     */
+    public List<HousingModel> getSubscriptionMatchesModifiedBetween(
+            SubscriptionModel subscription, Instant afterAt, String afterId, Instant until, int limit) {
+        Specification<HousingModel> after = afterId == null
+                ? (root, q, cb) -> cb.greaterThan(root.get("lastModifiedAt"), afterAt)
+                : (root, q, cb) -> cb.or(
+                        cb.greaterThan(root.get("lastModifiedAt"), afterAt),
+                        cb.and(cb.equal(root.get("lastModifiedAt"), afterAt), cb.greaterThan(root.get("rentalObjectId"), afterId)));
         Specification<HousingModel> spec = Specification.allOf(
+                after,
+                (root, q, cb) -> cb.lessThanOrEqualTo(root.get("lastModifiedAt"), until),
+                equalsIgnoreCaseJoin(subscription.getHousingType(), "housingType", "name"),
+                equalsIgnoreCaseJoin(subscription.getDistrict(), "district", "name"),
+                equalsIgnoreCaseJoin(subscription.getCity(), "district", "city", "name"),
+                rangeComparable("pricePerMonth", subscription.getMinPricePerMonth(), subscription.getMaxPricePerMonth(), Integer.class),
+                rangeComparable("areaSqm", subscription.getMinAreaSqm(), subscription.getMaxAreaSqm(), BigDecimal.class)
+        );
+        return housingRepository.findBy(spec, query -> query
+                .sortBy(Sort.by("lastModifiedAt", "rentalObjectId"))
+                .project("housingType", "district", "district.city")
+                .limit(limit)
+                .all());
+    }
+
+    private Specification<HousingModel> toSpecification(HousingSearchCriteria criteria) {
+        return Specification.allOf(
                 containsIgnoreCase("rentalObjectId", criteria.rentalObjectId()),
                 containsIgnoreCase("address", criteria.address()),
                 containsIgnoreCase("name", criteria.name()),
@@ -38,11 +140,37 @@ public class HousingService {
                 rangeComparable("pricePerMonth", criteria.minPricePerMonthOrNull(), criteria.maxPricePerMonthOrNull(), Integer.class),
                 rangeComparable("areaSqm", criteria.minAreaOrNull(), criteria.maxAreaOrNull(), BigDecimal.class)
         );
-        return housingRepository.findAll(spec, pageable);
     }
 
-    public HousingModel getHousingByRentalObjectId(String id) throws ObjectNotFoundException {
-        return housingRepository.findById(id).orElseThrow(() -> new ObjectNotFoundException("Housing with id " + id + " not found", HousingModel.class));
+    private long countHousings(Specification<HousingModel> spec, CriteriaBuilder cb) {
+        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+        Root<HousingModel> countRoot = countQuery.from(HousingModel.class);
+        countQuery.select(cb.count(countRoot));
+        Predicate predicate = spec == null ? null : spec.toPredicate(countRoot, countQuery, cb);
+        if (predicate != null) countQuery.where(predicate);
+        return entityManager.createQuery(countQuery).getSingleResult();
+    }
+
+    private List<Order> toOrders(HousingSearchCriteria criteria, ProjectionJoins joins, CriteriaBuilder cb) {
+        Expression<?> sortExpression = switch (criteria.sortByOrDefault()) {
+            case AVAILABLE_FROM_DATE -> joins.path(HousingField.AVAILABLE_FROM_DATE);
+            case PRICE_PER_MONTH -> joins.path(HousingField.PRICE_PER_MONTH);
+            case AREA_SQM -> joins.path(HousingField.AREA_SQM);
+            case CITY -> joins.path(HousingField.CITY);
+            case DISTRICT -> joins.path(HousingField.DISTRICT);
+        };
+        Order primary = criteria.sortDirectionOrDefault() == SortDirection.ASC
+                ? cb.asc(sortExpression)
+                : cb.desc(sortExpression);
+        return List.of(primary, cb.asc(joins.path(HousingField.RENTAL_OBJECT_ID)));
+    }
+
+    private HousingProjection toProjection(Tuple tuple, List<HousingField> fields) {
+        Map<HousingField, Object> values = new EnumMap<>(HousingField.class);
+        for (HousingField field : fields) {
+            values.put(field, tuple.get(field.name()));
+        }
+        return HousingProjection.of(values);
     }
 
     private Specification<HousingModel> containsIgnoreCase(String field, String value) {
@@ -66,6 +194,18 @@ public class HousingService {
         };
     }
 
+    private Specification<HousingModel> equalsIgnoreCaseJoin(String value, String... path) {
+        if (value == null || value.isBlank()) return null;
+        String v = value.trim().toLowerCase();
+
+        return (root, q, cb) -> {
+            From<?, ?> from = root;
+            for (int i = 0; i < path.length - 1; i++) {
+                from = from.join(path[i]);
+            }
+            return cb.equal(cb.lower(from.<String>get(path[path.length - 1])), v);
+        };
+    }
 
     private <T extends Comparable<? super T>> Specification<HousingModel> rangeComparable(
             String field, T min, T max, Class<T> type) {
@@ -80,4 +220,41 @@ public class HousingService {
         };
     }
 
+    /**
+     * Creates the type, district and city joins on first use, so unselected associations are never joined.
+     */
+    private static final class ProjectionJoins {
+        private final Root<HousingModel> root;
+        private Join<HousingModel, ?> housingType;
+        private Join<HousingModel, DistrictModel> district;
+        private Join<DistrictModel, ?> city;
+
+        private ProjectionJoins(Root<HousingModel> root) {
+            this.root = root;
+        }
+
+        private Path<?> path(HousingField field) {
+            return switch (field) {
+                case HOUSING_TYPE -> housingType().get("name");
+                case DISTRICT -> district().get("name");
+                case CITY -> city().get("name");
+                default -> root.get(field.property());
+            };
+        }
+
+        private Join<HousingModel, ?> housingType() {
+            if (housingType == null) housingType = root.join("housingType");
+            return housingType;
+        }
+
+        private Join<HousingModel, DistrictModel> district() {
+            if (district == null) district = root.join("district");
+            return district;
+        }
+
+        private Join<DistrictModel, ?> city() {
+            if (city == null) city = district().join("city");
+            return city;
+        }
+    }
 }
@@ -0,0 +1,219 @@
+package no.sanderolin.boligbot.service.housing.similar;
+
+import java.util.*;
+
+/**
+ * Immutable nearest-neighbour index over housing feature vectors.
+ * <p>
+ * Price, area and price per sqm are standardized to z-scores. Housing type, district and city are
+ * one-hot features, stored as ordinals: a mismatch adds the feature weight to the squared distance,
+ * the same as comparing weighted one-hot columns. Vectors are kept column-wise in primitive arrays
+ * and scanned exhaustively with a bounded heap, which stays in the low milliseconds for 100k units.
+ */
+public final class HousingSimilarityIndex {
+
+    static final double HOUSING_TYPE_WEIGHT = 2.0;
+    static final double DISTRICT_WEIGHT = 1.0;
+    static final double CITY_WEIGHT = 4.0;
+
+    private static final HousingSimilarityIndex EMPTY = build(List.of());
+
+    private final String[] rentalObjectIds;
+    private final float[] price;
+    private final float[] area;
+    private final float[] pricePerSqm;
+    private final int[] housingType;
+    private final int[] district;
+    private final int[] city;
+    private final Stats priceStats;
+    private final Stats areaStats;
+    private final Stats pricePerSqmStats;
+    private final Map<Long, Integer> housingTypeOrdinals;
+    private final Map<Long, Integer> districtOrdinals;
+    private final Map<Long, Integer> cityOrdinals;
+
+    public record Item(String rentalObjectId, int pricePerMonth, double areaSqm,
+                       Long housingTypeId, Long districtId, Long cityId) {
+
+        double pricePerSqm() {
+            return areaSqm > 0 ? pricePerMonth / areaSqm : pricePerMonth;
+        }
+    }
+
+    private record Stats(double mean, double stdDev) {
+
+        static Stats of(double[] values) {
+            if (values.length == 0) return new Stats(0, 1);
+            double mean = Arrays.stream(values).average().orElse(0);
+            double variance = Arrays.stream(values).map(v -> (v - mean) * (v - mean)).sum() / values.length;
+            double stdDev = Math.sqrt(variance);
+            return new Stats(mean, stdDev > 0 ? stdDev : 1);
+        }
+
+        float normalize(double value) {
+            return (float) ((value - mean) / stdDev);
+        }
+    }
+
+    private HousingSimilarityIndex(List<Item> items) {
+        int n = items.size();
+        double[] rawPrice = new double[n];
+        double[] rawArea = new double[n];
+        double[] rawPricePerSqm = new double[n];
+        for (int i = 0; i < n; i++) {
+            Item item = items.get(i);
+            rawPrice[i] = item.pricePerMonth();
+            rawArea[i] = item.areaSqm();
+            rawPricePerSqm[i] = item.pricePerSqm();
+        }
+        priceStats = Stats.of(rawPrice);
+        areaStats = Stats.of(rawArea);
+        pricePerSqmStats = Stats.of(rawPricePerSqm);
+
+        housingTypeOrdinals = new HashMap<>();
+        districtOrdinals = new HashMap<>();
+        cityOrdinals = new HashMap<>();
+
+        rentalObjectIds = new String[n];
+        price = new float[n];
+        area = new float[n];
+        pricePerSqm = new float[n];
+        housingType = new int[n];
+        district = new int[n];
+        city = new int[n];
+        for (int i = 0; i < n; i++) {
+            Item item = items.get(i);
+            rentalObjectIds[i] = item.rentalObjectId();
+            price[i] = priceStats.normalize(rawPrice[i]);
+            area[i] = areaStats.normalize(rawArea[i]);
+            pricePerSqm[i] = pricePerSqmStats.normalize(rawPricePerSqm[i]);
+            housingType[i] = housingTypeOrdinals.computeIfAbsent(item.housingTypeId(), k -> housingTypeOrdinals.size());
+            district[i] = districtOrdinals.computeIfAbsent(item.districtId(), k -> districtOrdinals.size());
+            city[i] = cityOrdinals.computeIfAbsent(item.cityId(), k -> cityOrdinals.size());
+        }
+    }
+
+    public static HousingSimilarityIndex build(Collection<Item> items) {
+        return new HousingSimilarityIndex(List.copyOf(items));
+    }
+
+    public static HousingSimilarityIndex empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return rentalObjectIds.length;
+    }
+
+    /**
+     * Returns the rental object ids of the {@code k} housings closest to {@code target}, nearest first.
+     * The target itself is excluded. It does not need to be in the index.
+     */
+    public List<String> nearest(Item target, int k) {
+        if (k <= 0 || size() == 0) return List.of();
+
+        float targetPrice = priceStats.normalize(target.pricePerMonth());
+        float targetArea = areaStats.normalize(target.areaSqm());
+        float targetPricePerSqm = pricePerSqmStats.normalize(target.pricePerSqm());
+        int targetType = housingTypeOrdinals.getOrDefault(target.housingTypeId(), -1);
+        int targetDistrict = districtOrdinals.getOrDefault(target.districtId(), -1);
+        int targetCity = cityOrdinals.getOrDefault(target.cityId(), -1);
+
+        BoundedMaxHeap heap = new BoundedMaxHeap(k);
+        for (int i = 0; i < rentalObjectIds.length; i++) {
+            float dp = price[i] - targetPrice;
+            float da = area[i] - targetArea;
+            float ds = pricePerSqm[i] - targetPricePerSqm;
+            double distance = dp * dp + da * da + ds * ds;
+            if (housingType[i] != targetType) distance += HOUSING_TYPE_WEIGHT;
+            if (district[i] != targetDistrict) distance += DISTRICT_WEIGHT;
+            if (city[i] != targetCity) distance += CITY_WEIGHT;
+
+            if (heap.accepts(distance) && !rentalObjectIds[i].equals(target.rentalObjectId())) {
+                heap.offer(i, distance);
+            }
+        }
+
+        int[] ordered = heap.drainAscending();
+        List<String> result = new ArrayList<>(ordered.length);
+        for (int index : ordered) {
+            result.add(rentalObjectIds[index]);
+        }
+        return result;
+    }
+
+    /**
+     * Keeps the {@code capacity} smallest distances seen, with the largest of them at the root.
+     */
+    private static final class BoundedMaxHeap {
+        private final int[] indexes;
+        private final double[] distances;
+        private int size;
+
+        private BoundedMaxHeap(int capacity) {
+            indexes = new int[capacity];
+            distances = new double[capacity];
+        }
+
+        private boolean accepts(double distance) {
+            return size < indexes.length || distance < distances[0];
+        }
+
+        private void offer(int index, double distance) {
+            if (size < indexes.length) {
+                indexes[size] = index;
+                distances[size] = distance;
+                siftUp(size++);
+            } else {
+                indexes[0] = index;
+                distances[0] = distance;
+                siftDown(0);
+            }
+        }
+
+        private int[] drainAscending() {
+            int[] result = new int[size];
+            for (int i = size - 1; i >= 0; i--) {
+                result[i] = indexes[0];
+                size--;
+                if (size > 0) {
+                    indexes[0] = indexes[size];
+                    distances[0] = distances[size];
+                    siftDown(0);
+                }
+            }
+            return result;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (distances[parent] >= distances[i]) return;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                int right = left + 1;
+                int largest = i;
+                if (left < size && distances[left] > distances[largest]) largest = left;
+                if (right < size && distances[right] > distances[largest]) largest = right;
+                if (largest == i) return;
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int index = indexes[a];
+            indexes[a] = indexes[b];
+            indexes[b] = index;
+            double distance = distances[a];
+            distances[a] = distances[b];
+            distances[b] = distance;
+        }
+    }
+}
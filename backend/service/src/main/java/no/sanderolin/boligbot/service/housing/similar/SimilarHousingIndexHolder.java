@@ -0,0 +1,99 @@
+package no.sanderolin.boligbot.service.housing.similar;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.sanderolin.boligbot.dao.event.HousingImportCompletedEvent;
+import no.sanderolin.boligbot.dao.projection.HousingFeatureRow;
+import no.sanderolin.boligbot.dao.repository.HousingRepository;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Holds the {@link HousingSimilarityIndex} behind the similar housings endpoint. Only API nodes build it.
+ * Rebuilds run on a single background thread, so a catalog import never waits for one, and rebuilds requested
+ * while a rebuild is queued share it. Until the first build completes the index is empty.
+ */
+@Slf4j
+@Component
+@ConditionalOnNodeRole(NodeRole.API)
+@RequiredArgsConstructor
+public class SimilarHousingIndexHolder {
+
+    private final HousingRepository housingRepository;
+
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("similar-index").factory());
+    private volatile HousingSimilarityIndex index = HousingSimilarityIndex.empty();
+    private CompletableFuture<Void> pending;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        scheduleRebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onImportCompleted(HousingImportCompletedEvent event) {
+        if (event.kind() == HousingImportCompletedEvent.ImportKind.CATALOG) {
+            scheduleRebuild();
+        }
+    }
+
+    public HousingSimilarityIndex index() {
+        return index;
+    }
+
+    /**
+     * Queues a rebuild unless one is already waiting, and returns the future of the queued one.
+     */
+    public synchronized CompletableFuture<Void> scheduleRebuild() {
+        if (pending == null) {
+            pending = CompletableFuture.runAsync(this::runPending, rebuilder);
+        }
+        return pending;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    private void runPending() {
+        synchronized (this) {
+            pending = null;
+        }
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("Failed to rebuild similar housing index, keeping the previous one", e);
+        }
+    }
+
+    private void rebuild() {
+        long start = System.currentTimeMillis();
+        List<HousingSimilarityIndex.Item> items = housingRepository.findAllFeatureRows().stream()
+                .map(SimilarHousingIndexHolder::toItem)
+                .toList();
+        index = HousingSimilarityIndex.build(items);
+        log.info("Rebuilt similar housing index with {} housings in {} ms", items.size(), System.currentTimeMillis() - start);
+    }
+
+    private static HousingSimilarityIndex.Item toItem(HousingFeatureRow row) {
+        return new HousingSimilarityIndex.Item(
+                row.getRentalObjectId(),
+                row.getPricePerMonth(),
+                row.getAreaSqm() == null ? 0 : row.getAreaSqm().doubleValue(),
+                row.getHousingTypeId(),
+                row.getDistrictId(),
+                row.getCityId()
+        );
+    }
+}
@@ -0,0 +1,55 @@
+package no.sanderolin.boligbot.service.housing.similar;
+
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.model.HousingModel;
+import no.sanderolin.boligbot.dao.repository.HousingRepository;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import org.hibernate.ObjectNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@ConditionalOnNodeRole(NodeRole.API)
+@RequiredArgsConstructor
+public class SimilarHousingService {
+
+    private final HousingRepository housingRepository;
+    private final SimilarHousingIndexHolder indexHolder;
+
+    /**
+     * Returns up to {@code limit} housings most similar to the given one, nearest first.
+     */
+    @Transactional(readOnly = true)
+    public List<HousingModel> findSimilarHousings(String rentalObjectId, int limit) throws ObjectNotFoundException {
+        HousingModel target = housingRepository.findById(rentalObjectId)
+                .orElseThrow(() -> new ObjectNotFoundException("Housing with id " + rentalObjectId + " not found", HousingModel.class));
+
+        List<String> ids = indexHolder.index().nearest(toItem(target), limit);
+        if (ids.isEmpty()) return List.of();
+
+        Map<String, Integer> rank = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            rank.put(ids.get(i), i);
+        }
+        return housingRepository.findAllWithDetailsByRentalObjectIdIn(ids).stream()
+                .sorted(Comparator.comparingInt(h -> rank.get(h.getRentalObjectId())))
+                .toList();
+    }
+
+    private static HousingSimilarityIndex.Item toItem(HousingModel housing) {
+        return new HousingSimilarityIndex.Item(
+                housing.getRentalObjectId(),
+                housing.getPricePerMonth(),
+                housing.getAreaSqm() == null ? 0 : housing.getAreaSqm().doubleValue(),
+                housing.getHousingType().getId(),
+                housing.getDistrict().getId(),
+                housing.getCity().getId()
+        );
+    }
+}
@@ -0,0 +1,59 @@
+package no.sanderolin.boligbot.service.importrun;
+
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.projection.ImportRunPercentiles;
+import no.sanderolin.boligbot.dao.projection.ImportRunStatusCount;
+import no.sanderolin.boligbot.dao.repository.ImportRunRepository;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Summarizes the import run history the housing imports write, for spotting regressions over time.
+ */
+@Service
+@RequiredArgsConstructor
+public class ImportRunService {
+
+    private final ImportRunRepository importRunRepository;
+
+    /**
+     * One summary per import kind with runs started in {@code [from, to)}, ordered by kind.
+     */
+    public List<ImportRunSummary> summarize(Instant from, Instant to) {
+        Map<String, Builder> byKind = new TreeMap<>();
+        for (ImportRunStatusCount count : importRunRepository.countByStatus(from, to)) {
+            byKind.computeIfAbsent(count.kind(), Builder::new).runsByStatus.put(count.status(), count.runs());
+        }
+        for (ImportRunPercentiles durations : importRunRepository.findDurationPercentiles(from, to)) {
+            Builder summary = byKind.computeIfAbsent(durations.kind(), Builder::new);
+            if (durations.phase() == null) summary.durationMillis = durations;
+            else summary.phaseMillis.add(durations);
+        }
+        for (ImportRunPercentiles payload : importRunRepository.findPayloadPercentiles(from, to)) {
+            byKind.computeIfAbsent(payload.kind(), Builder::new).payloadBytes = payload;
+        }
+        return byKind.values().stream().map(Builder::build).toList();
+    }
+
+    private static final class Builder {
+        private final String kind;
+        private final Map<String, Long> runsByStatus = new LinkedHashMap<>();
+        private final List<ImportRunPercentiles> phaseMillis = new ArrayList<>();
+        private ImportRunPercentiles durationMillis;
+        private ImportRunPercentiles payloadBytes;
+
+        private Builder(String kind) {
+            this.kind = kind;
+        }
+
+        private ImportRunSummary build() {
+            return new ImportRunSummary(kind, runsByStatus, durationMillis, payloadBytes, phaseMillis);
+        }
+    }
+}
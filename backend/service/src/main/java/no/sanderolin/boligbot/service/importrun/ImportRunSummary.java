@@ -0,0 +1,16 @@
+package no.sanderolin.boligbot.service.importrun;
+
+import no.sanderolin.boligbot.dao.projection.ImportRunPercentiles;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Import runs of one kind over a time window. {@code durationMillis} and {@code payloadBytes} are null when no
+ * run in the window had them.
+ */
+public record ImportRunSummary(String kind,
+                               Map<String, Long> runsByStatus,
+                               ImportRunPercentiles durationMillis,
+                               ImportRunPercentiles payloadBytes,
+                               List<ImportRunPercentiles> phaseMillis) { }
@@ -0,0 +1,218 @@
+package no.sanderolin.boligbot.service.notification;
+
+import lombok.extern.slf4j.Slf4j;
+import no.sanderolin.boligbot.dao.model.HousingModel;
+import no.sanderolin.boligbot.dao.model.NotificationFrequency;
+import no.sanderolin.boligbot.dao.model.SubscriptionModel;
+import no.sanderolin.boligbot.dao.model.UserModel;
+import no.sanderolin.boligbot.dao.projection.DigestMatch;
+import no.sanderolin.boligbot.dao.repository.DigestRepository;
+import no.sanderolin.boligbot.dao.repository.SubscriptionRepository;
+import no.sanderolin.boligbot.dao.repository.UserRepository;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import no.sanderolin.boligbot.service.housing.HousingService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Sends hourly and daily digest e-mails for the non-immediate saved searches.
+ * <p>
+ * A run is set-based: one query joins every availability event since the previous period against all
+ * subscriptions of the frequency, then users, subscription names and housings are each loaded in one batch
+ * and one e-mail per user is composed from those. A node claims the period by moving the watermark in
+ * {@code digest_runs} before sending, so when several worker nodes fire on the same tick only one of them sends.
+ * The claim is given back unless every e-mail went out (or there was nothing to send), so an SMTP failure, even
+ * on a single connection, widens the next digest instead of dropping it for the users whose e-mail failed. Users
+ * whose e-mail did go out get those housings again in the wider digest. Only active when {@code spring.mail.host}
+ * is set, and only on worker nodes.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "spring.mail", name = "host")
+@ConditionalOnNodeRole(NodeRole.WORKER)
+public class DigestDispatcher {
+
+    private final DigestRepository digestRepository;
+    private final UserRepository userRepository;
+    private final SubscriptionRepository subscriptionRepository;
+    private final HousingService housingService;
+    private final JavaMailSender mailSender;
+    private final String from;
+    private final int messagesPerConnection;
+
+    public DigestDispatcher(DigestRepository digestRepository,
+                            UserRepository userRepository,
+                            SubscriptionRepository subscriptionRepository,
+                            HousingService housingService,
+                            JavaMailSender mailSender,
+                            @Value("${boligbot.notifications.from:no-reply@boligbot.no}") String from,
+                            @Value("${boligbot.notifications.messages-per-connection:20}") int messagesPerConnection) {
+        this.digestRepository = digestRepository;
+        this.userRepository = userRepository;
+        this.subscriptionRepository = subscriptionRepository;
+        this.housingService = housingService;
+        this.mailSender = mailSender;
+        this.from = from;
+        this.messagesPerConnection = messagesPerConnection;
+    }
+
+    @Scheduled(cron = "${boligbot.digests.hourly-cron:0 0 * * * *}", zone = "${boligbot.digests.zone:Europe/Oslo}")
+    public void sendHourly() {
+        logResult(NotificationFrequency.HOURLY, sendDigests(NotificationFrequency.HOURLY, currentTick()));
+    }
+
+    @Scheduled(cron = "${boligbot.digests.daily-cron:0 0 7 * * *}", zone = "${boligbot.digests.zone:Europe/Oslo}")
+    public void sendDaily() {
+        logResult(NotificationFrequency.DAILY, sendDigests(NotificationFrequency.DAILY, currentTick()));
+    }
+
+    /**
+     * Sends the digests of the given frequency for the period from the previous run up to {@code periodEnd}.
+     * Without a previous run the period is one hour or one day long. Returns {@link DispatchResult#NONE} when
+     * another node claimed the period first.
+     */
+    public DispatchResult sendDigests(NotificationFrequency frequency, Instant periodEnd) {
+        Instant lastPeriodEnd = digestRepository.findLastPeriodEnd(frequency).orElse(null);
+        Instant periodStart = lastPeriodEnd != null ? lastPeriodEnd : periodEnd.minus(periodLength(frequency));
+        if (!periodStart.isBefore(periodEnd)) return DispatchResult.NONE;
+        if (!digestRepository.claimPeriod(frequency, lastPeriodEnd, periodEnd)) {
+            log.debug("{} digest up to {} was claimed by another node", frequency, periodEnd);
+            return DispatchResult.NONE;
+        }
+
+        boolean keepClaim = false;
+        try {
+            List<DigestMatch> matches = digestRepository.findMatches(frequency, periodStart, periodEnd);
+            DispatchResult result = matches.isEmpty() ? DispatchResult.NONE : deliver(matches);
+            keepClaim = result.notificationsFailed() == 0;
+            return result;
+        } finally {
+            if (!keepClaim) {
+                digestRepository.releasePeriod(frequency, lastPeriodEnd, periodEnd);
+            }
+        }
+    }
+
+    private DispatchResult deliver(List<DigestMatch> matches) {
+        Map<Long, List<DigestMatch>> byUser = matches.stream()
+                .collect(Collectors.groupingBy(DigestMatch::userId, LinkedHashMap::new, Collectors.toList()));
+        Map<Long, String> emails = userRepository.findAllById(byUser.keySet()).stream()
+                .collect(Collectors.toMap(UserModel::getId, UserModel::getEmail));
+        Map<Long, String> subscriptionNames = subscriptionRepository
+                .findAllById(matches.stream().map(DigestMatch::subscriptionId).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(SubscriptionModel::getId, SubscriptionModel::getName));
+        Map<String, HousingModel> housings = housingService
+                .getHousingsWithDetailsByRentalObjectIds(matches.stream().map(DigestMatch::rentalObjectId).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(HousingModel::getRentalObjectId, Function.identity()));
+
+        List<UserDigest> digests = new ArrayList<>(byUser.size());
+        byUser.forEach((userId, userMatches) -> {
+            List<DigestMatch> deliverable = userMatches.stream()
+                    .filter(m -> housings.containsKey(m.rentalObjectId()))
+                    .toList();
+            String email = emails.get(userId);
+            if (email != null && !deliverable.isEmpty()) {
+                digests.add(new UserDigest(deliverable.size(), compose(email, deliverable, subscriptionNames, housings)));
+            }
+        });
+
+        DispatchResult result = DispatchResult.NONE;
+        for (int i = 0; i < digests.size(); i += messagesPerConnection) {
+            result = result.plus(send(digests.subList(i, Math.min(i + messagesPerConnection, digests.size()))));
+        }
+        return result;
+    }
+
+    /**
+     * Sends the digests over one SMTP connection. Failed digests are not retried on their own.
+     */
+    private DispatchResult send(List<UserDigest> chunk) {
+        Map<Object, Exception> failures = Map.of();
+        try {
+            mailSender.send(chunk.stream().map(UserDigest::message).toArray(SimpleMailMessage[]::new));
+        } catch (MailException e) {
+            // A MailSendException without failed messages means the connection itself failed.
+            failures = e instanceof MailSendException sendException && !sendException.getFailedMessages().isEmpty()
+                    ? sendException.getFailedMessages()
+                    : chunk.stream().collect(Collectors.toMap(UserDigest::message, d -> e));
+        }
+
+        int messagesSent = 0;
+        int matchesSent = 0;
+        int matchesFailed = 0;
+        for (UserDigest digest : chunk) {
+            Exception failure = failures.get(digest.message());
+            if (failure == null) {
+                messagesSent++;
+                matchesSent += digest.matches();
+            } else {
+                matchesFailed += digest.matches();
+                log.warn("Could not send digest e-mail [matches={}]: {}", digest.matches(), failure.getMessage());
+            }
+        }
+        return new DispatchResult(messagesSent, matchesSent, matchesFailed);
+    }
+
+    private SimpleMailMessage compose(String email,
+                                      List<DigestMatch> matches,
+                                      Map<Long, String> subscriptionNames,
+                                      Map<String, HousingModel> housings) {
+        Map<Long, List<DigestMatch>> bySubscription = matches.stream()
+                .collect(Collectors.groupingBy(DigestMatch::subscriptionId, TreeMap::new, Collectors.toList()));
+
+        StringBuilder text = new StringBuilder("These housings matching your saved searches became available and are still available:\n");
+        bySubscription.forEach((subscriptionId, subscriptionMatches) -> {
+            text.append('\n').append(subscriptionNames.getOrDefault(subscriptionId, "Saved search")).append('\n');
+            subscriptionMatches.forEach(m -> HousingMailText.appendHousing(text, housings.get(m.rentalObjectId())));
+        });
+
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(from);
+        message.setTo(email);
+        message.setSubject(matches.size() == 1
+                ? "Your digest: 1 new housing matches your saved searches"
+                : "Your digest: " + matches.size() + " new housings match your saved searches");
+        message.setText(text.toString());
+        return message;
+    }
+
+    private record UserDigest(int matches, SimpleMailMessage message) { }
+
+    /**
+     * The scheduled tick, so all nodes firing for it agree on the period end and only one can claim it.
+     */
+    private static Instant currentTick() {
+        return Instant.now().truncatedTo(ChronoUnit.MINUTES);
+    }
+
+    private static Duration periodLength(NotificationFrequency frequency) {
+        return switch (frequency) {
+            case HOURLY -> Duration.ofHours(1);
+            case DAILY -> Duration.ofDays(1);
+            case IMMEDIATE -> throw new IllegalArgumentException("Immediate subscriptions have no digest");
+        };
+    }
+
+    private static void logResult(NotificationFrequency frequency, DispatchResult result) {
+        if (result.notificationsSent() + result.notificationsFailed() > 0) {
+            log.info("{} digest finished [messages={}, matches={}, failed={}]",
+                    frequency, result.messagesSent(), result.notificationsSent(), result.notificationsFailed());
+        }
+    }
+}
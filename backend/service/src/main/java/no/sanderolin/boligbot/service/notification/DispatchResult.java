@@ -0,0 +1,17 @@
+package no.sanderolin.boligbot.service.notification;
+
+/**
+ * Outcome of a dispatch run: e-mails sent, outbox rows they covered, and outbox rows left for a retry.
+ */
+public record DispatchResult(int messagesSent, int notificationsSent, int notificationsFailed) {
+
+    public static final DispatchResult NONE = new DispatchResult(0, 0, 0);
+
+    DispatchResult plus(DispatchResult other) {
+        return new DispatchResult(
+                messagesSent + other.messagesSent,
+                notificationsSent + other.notificationsSent,
+                notificationsFailed + other.notificationsFailed
+        );
+    }
+}
@@ -0,0 +1,22 @@
+package no.sanderolin.boligbot.service.notification;
+
+import no.sanderolin.boligbot.dao.model.HousingModel;
+
+/**
+ * Plain-text formatting shared by the notification and digest e-mails.
+ */
+final class HousingMailText {
+
+    private HousingMailText() { }
+
+    /**
+     * Appends one line describing the housing. Type, district and city must be loaded.
+     */
+    static void appendHousing(StringBuilder text, HousingModel h) {
+        text.append("- ").append(h.getName()).append(", ").append(h.getAddress())
+                .append(" (").append(h.getDistrict().getName()).append(", ").append(h.getCity().getName()).append("): ")
+                .append(h.getPricePerMonth()).append(" kr/month, ").append(h.getAreaSqm().toPlainString()).append(" m²");
+        if (h.getAvailableFromDate() != null) text.append(", available from ").append(h.getAvailableFromDate());
+        text.append('\n');
+    }
+}
@@ -0,0 +1,263 @@
+package no.sanderolin.boligbot.service.notification;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import no.sanderolin.boligbot.dao.model.HousingModel;
+import no.sanderolin.boligbot.dao.model.SubscriptionModel;
+import no.sanderolin.boligbot.dao.model.UserModel;
+import no.sanderolin.boligbot.dao.projection.ClaimedNotification;
+import no.sanderolin.boligbot.dao.repository.NotificationOutboxRepository;
+import no.sanderolin.boligbot.dao.repository.SubscriptionRepository;
+import no.sanderolin.boligbot.dao.repository.UserRepository;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import no.sanderolin.boligbot.service.housing.HousingService;
+import no.sanderolin.boligbot.service.watchlist.WatchedChangeType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Drains {@code notification_outbox} by e-mail.
+ * <p>
+ * Each run claims due rows in batches and sends one e-mail per user covering all of that user's claimed
+ * saved search matches and watchlist changes. E-mails go out over at most {@code boligbot.notifications.max-concurrency} SMTP connections at a
+ * time, {@code messages-per-connection} per connection. Rows are marked sent as soon as their connection is
+ * done, so a crash can at worst repeat the e-mails of the connections in flight. Failed rows are retried with
+ * exponential backoff until {@code max-attempts} is reached.
+ * Only active when {@code spring.mail.host} is set, and only on worker nodes.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "spring.mail", name = "host")
+@ConditionalOnNodeRole(NodeRole.WORKER)
+public class NotificationDispatcher {
+
+    private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final UserRepository userRepository;
+    private final SubscriptionRepository subscriptionRepository;
+    private final HousingService housingService;
+    private final JavaMailSender mailSender;
+    private final String from;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final int messagesPerConnection;
+    private final Duration lease;
+    private final Duration retryBackoff;
+    private final ExecutorService senders;
+
+    public NotificationDispatcher(NotificationOutboxRepository outboxRepository,
+                                  UserRepository userRepository,
+                                  SubscriptionRepository subscriptionRepository,
+                                  HousingService housingService,
+                                  JavaMailSender mailSender,
+                                  @Value("${boligbot.notifications.from:no-reply@boligbot.no}") String from,
+                                  @Value("${boligbot.notifications.batch-size:200}") int batchSize,
+                                  @Value("${boligbot.notifications.max-concurrency:8}") int maxConcurrency,
+                                  @Value("${boligbot.notifications.max-attempts:5}") int maxAttempts,
+                                  @Value("${boligbot.notifications.messages-per-connection:20}") int messagesPerConnection,
+                                  @Value("${boligbot.notifications.lease-seconds:300}") long leaseSeconds,
+                                  @Value("${boligbot.notifications.retry-backoff-seconds:60}") long retryBackoffSeconds) {
+        this.outboxRepository = outboxRepository;
+        this.userRepository = userRepository;
+        this.subscriptionRepository = subscriptionRepository;
+        this.housingService = housingService;
+        this.mailSender = mailSender;
+        this.from = from;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.messagesPerConnection = messagesPerConnection;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.retryBackoff = Duration.ofSeconds(retryBackoffSeconds);
+        this.senders = Executors.newFixedThreadPool(maxConcurrency, Thread.ofVirtual().name("notification-sender-", 0).factory());
+    }
+
+    @Scheduled(
+            initialDelayString = "${boligbot.notifications.dispatch-interval-ms:5000}",
+            fixedDelayString = "${boligbot.notifications.dispatch-interval-ms:5000}"
+    )
+    public void dispatchScheduled() {
+        DispatchResult result = dispatch();
+        if (result.notificationsSent() + result.notificationsFailed() > 0) {
+            log.info("Notification dispatch finished [messages={}, notifications={}, failed={}]",
+                    result.messagesSent(), result.notificationsSent(), result.notificationsFailed());
+        }
+    }
+
+    /**
+     * Delivers every due outbox row, batch by batch, until none are left.
+     */
+    public DispatchResult dispatch() {
+        DispatchResult total = DispatchResult.NONE;
+        List<ClaimedNotification> batch;
+        do {
+            batch = outboxRepository.claimBatch(batchSize, lease, maxAttempts);
+            if (!batch.isEmpty()) total = total.plus(deliver(batch));
+        } while (batch.size() == batchSize);
+        return total;
+    }
+
+    private DispatchResult deliver(List<ClaimedNotification> batch) {
+        Map<Long, List<ClaimedNotification>> byUser = batch.stream()
+                .collect(Collectors.groupingBy(ClaimedNotification::userId, LinkedHashMap::new, Collectors.toList()));
+        Map<Long, String> emails = userRepository.findAllById(byUser.keySet()).stream()
+                .collect(Collectors.toMap(UserModel::getId, UserModel::getEmail));
+        Map<Long, String> subscriptionNames = subscriptionRepository
+                .findAllById(batch.stream().map(ClaimedNotification::subscriptionId).filter(Objects::nonNull).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(SubscriptionModel::getId, SubscriptionModel::getName));
+        Map<String, HousingModel> housings = housingService
+                .getHousingsWithDetailsByRentalObjectIds(batch.stream().map(ClaimedNotification::rentalObjectId).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(HousingModel::getRentalObjectId, Function.identity()));
+
+        List<UserMessage> messages = new ArrayList<>(byUser.size());
+        List<Long> undeliverable = new ArrayList<>();
+        byUser.forEach((userId, notifications) -> {
+            List<ClaimedNotification> deliverable = notifications.stream()
+                    .filter(n -> housings.containsKey(n.rentalObjectId()))
+                    .toList();
+            String email = emails.get(userId);
+            if (email == null || deliverable.isEmpty()) {
+                notifications.forEach(n -> undeliverable.add(n.id()));
+            } else {
+                messages.add(new UserMessage(notifications, compose(email, deliverable, subscriptionNames, housings)));
+            }
+        });
+        outboxRepository.markSent(undeliverable);
+
+        List<Callable<DispatchResult>> tasks = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i += messagesPerConnection) {
+            List<UserMessage> chunk = messages.subList(i, Math.min(i + messagesPerConnection, messages.size()));
+            tasks.add(() -> send(chunk));
+        }
+
+        DispatchResult result = DispatchResult.NONE;
+        try {
+            for (Future<DispatchResult> future : senders.invokeAll(tasks)) {
+                result = result.plus(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("Notification delivery failed unexpectedly", e.getCause());
+        }
+        return result;
+    }
+
+    /**
+     * Sends the messages over one SMTP connection and records the outcome of each.
+     */
+    private DispatchResult send(List<UserMessage> chunk) {
+        Map<Object, Exception> failures = Map.of();
+        try {
+            mailSender.send(chunk.stream().map(UserMessage::message).toArray(SimpleMailMessage[]::new));
+        } catch (MailException e) {
+            // A MailSendException without failed messages means the connection itself failed.
+            failures = e instanceof MailSendException sendException && !sendException.getFailedMessages().isEmpty()
+                    ? sendException.getFailedMessages()
+                    : chunk.stream().collect(Collectors.toMap(UserMessage::message, m -> e));
+        }
+
+        List<Long> sent = new ArrayList<>();
+        int messagesSent = 0;
+        int failed = 0;
+        for (UserMessage message : chunk) {
+            List<Long> ids = message.notifications().stream().map(ClaimedNotification::id).toList();
+            Exception failure = failures.get(message.message());
+            if (failure == null) {
+                sent.addAll(ids);
+                messagesSent++;
+                continue;
+            }
+            int attempts = message.notifications().stream().mapToInt(ClaimedNotification::attempts).max().orElse(1);
+            outboxRepository.markFailed(ids, Instant.now().plus(backoff(attempts)), failure.getMessage());
+            log.warn("Could not send notification e-mail [attempt={}, notifications={}]: {}", attempts, ids.size(), failure.getMessage());
+            failed += ids.size();
+        }
+        outboxRepository.markSent(sent);
+        return new DispatchResult(messagesSent, sent.size(), failed);
+    }
+
+    private SimpleMailMessage compose(String email,
+                                      List<ClaimedNotification> notifications,
+                                      Map<Long, String> subscriptionNames,
+                                      Map<String, HousingModel> housings) {
+        Map<Long, List<ClaimedNotification>> bySubscription = notifications.stream()
+                .filter(n -> n.subscriptionId() != null)
+                .collect(Collectors.groupingBy(ClaimedNotification::subscriptionId, TreeMap::new, Collectors.toList()));
+        Map<WatchedChangeType, List<ClaimedNotification>> byWatchedChange = notifications.stream()
+                .filter(n -> n.watchedChange() != null)
+                .collect(Collectors.groupingBy(n -> WatchedChangeType.valueOf(n.watchedChange()),
+                        () -> new EnumMap<>(WatchedChangeType.class), Collectors.toList()));
+
+        StringBuilder text = new StringBuilder(bySubscription.isEmpty()
+                ? "Housings on your watchlist have changed:\n"
+                : "New housings matching your saved searches are available:\n");
+        bySubscription.forEach((subscriptionId, matches) -> {
+            text.append('\n').append(subscriptionNames.getOrDefault(subscriptionId, "Saved search")).append('\n');
+            for (ClaimedNotification match : matches) {
+                HousingMailText.appendHousing(text, housings.get(match.rentalObjectId()));
+            }
+        });
+        byWatchedChange.forEach((change, changes) -> {
+            text.append('\n').append(watchlistHeading(change)).append('\n');
+            for (ClaimedNotification watched : changes) {
+                HousingMailText.appendHousing(text, housings.get(watched.rentalObjectId()));
+            }
+        });
+
+        int matches = bySubscription.values().stream().mapToInt(List::size).sum();
+        int watched = notifications.size() - matches;
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(from);
+        message.setTo(email);
+        message.setSubject(subject(matches, watched));
+        message.setText(text.toString());
+        return message;
+    }
+
+    private static String subject(int matches, int watched) {
+        if (watched == 0) {
+            return matches == 1 ? "A new housing matches your saved search" : matches + " new housings match your saved searches";
+        }
+        String watchlist = watched == 1 ? "1 update to your watchlist" : watched + " updates to your watchlist";
+        if (matches == 0) return watchlist;
+        return (matches == 1 ? "1 new saved search match" : matches + " new saved search matches") + " and " + watchlist;
+    }
+
+    private static String watchlistHeading(WatchedChangeType change) {
+        return switch (change) {
+            case BECAME_AVAILABLE -> "On your watchlist, now available";
+            case BECAME_UNAVAILABLE -> "On your watchlist, no longer available";
+            case AVAILABLE_FROM_DATE_CHANGED -> "On your watchlist, new available-from date";
+            case PRICE_CHANGED -> "On your watchlist, new price or area";
+        };
+    }
+
+    private record UserMessage(List<ClaimedNotification> notifications, SimpleMailMessage message) { }
+
+    private Duration backoff(int attempts) {
+        Duration delay = retryBackoff.multipliedBy(1L << Math.min(attempts - 1, 16));
+        return delay.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : delay;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        senders.shutdown();
+    }
+}
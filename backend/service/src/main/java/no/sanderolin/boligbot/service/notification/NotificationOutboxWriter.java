@@ -0,0 +1,55 @@
+package no.sanderolin.boligbot.service.notification;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.sanderolin.boligbot.dao.event.HousingAvailabilityChangedEvent;
+import no.sanderolin.boligbot.dao.projection.OutboxNotification;
+import no.sanderolin.boligbot.dao.projection.WatchedHousingNotification;
+import no.sanderolin.boligbot.dao.repository.NotificationOutboxRepository;
+import no.sanderolin.boligbot.service.housing.HousingService;
+import no.sanderolin.boligbot.service.subscription.SubscriptionMatch;
+import no.sanderolin.boligbot.service.subscription.SubscriptionMatcher;
+import no.sanderolin.boligbot.service.watchlist.WatchedHousingChangedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Matches newly available housings against the saved searches and writes one outbox row per match, and one
+ * outbox row per watcher for every change to a watched housing.
+ * <p>
+ * Runs synchronously in the import transaction, so the outbox commits or rolls back together with the
+ * changes it reports. Nothing is sent here; see {@link NotificationDispatcher}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NotificationOutboxWriter {
+
+    private final SubscriptionMatcher subscriptionMatcher;
+    private final HousingService housingService;
+    private final NotificationOutboxRepository outboxRepository;
+
+    @EventListener(condition = "!#event.remote()")
+    public void onAvailabilityChanged(HousingAvailabilityChangedEvent event) {
+        if (event.becameAvailable().isEmpty() || subscriptionMatcher.isEmpty()) return;
+
+        List<SubscriptionMatch> matches = subscriptionMatcher.match(
+                housingService.getHousingsWithDetailsByRentalObjectIds(event.becameAvailable()));
+        if (matches.isEmpty()) return;
+
+        outboxRepository.enqueue(matches.stream()
+                .map(m -> new OutboxNotification(m.userId(), m.subscriptionId(), m.rentalObjectId(), event.occurredAt()))
+                .toList());
+        log.info("Queued {} notifications for {} newly available housings", matches.size(), event.becameAvailable().size());
+    }
+
+    @EventListener
+    public void onWatchedHousingChanged(WatchedHousingChangedEvent event) {
+        outboxRepository.enqueueWatched(event.changes().stream()
+                .map(c -> new WatchedHousingNotification(c.userId(), c.rentalObjectId(), c.type().name(), event.occurredAt()))
+                .toList());
+        log.info("Queued {} watchlist notifications", event.changes().size());
+    }
+}
@@ -0,0 +1,16 @@
+package no.sanderolin.boligbot.service.pricehistory;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * A district's price level on a day. {@code index} is the average price per sqm relative to the
+ * first day of the requested range, which is 100.
+ */
+public record DistrictPriceIndexPoint(LocalDate day,
+                                      int housingCount,
+                                      BigDecimal avgPricePerMonth,
+                                      BigDecimal avgPricePerSqm,
+                                      int minPricePerMonth,
+                                      int maxPricePerMonth,
+                                      BigDecimal index) { }
@@ -0,0 +1,67 @@
+package no.sanderolin.boligbot.service.pricehistory;
+
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.model.DistrictModel;
+import no.sanderolin.boligbot.dao.model.HousingModel;
+import no.sanderolin.boligbot.dao.projection.DistrictPriceDaily;
+import no.sanderolin.boligbot.dao.projection.HousingPriceChange;
+import no.sanderolin.boligbot.dao.repository.DistrictPriceDailyRepository;
+import no.sanderolin.boligbot.dao.repository.DistrictRepository;
+import no.sanderolin.boligbot.dao.repository.HousingPriceHistoryRepository;
+import no.sanderolin.boligbot.dao.repository.HousingRepository;
+import org.hibernate.ObjectNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class PriceHistoryService {
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private final HousingRepository housingRepository;
+    private final DistrictRepository districtRepository;
+    private final HousingPriceHistoryRepository priceHistoryRepository;
+    private final DistrictPriceDailyRepository districtPriceDailyRepository;
+
+    public List<HousingPriceChange> getHousingPriceHistory(String rentalObjectId) throws ObjectNotFoundException {
+        if (!housingRepository.existsById(rentalObjectId)) {
+            throw new ObjectNotFoundException("Housing with id " + rentalObjectId + " not found", HousingModel.class);
+        }
+        return priceHistoryRepository.findAllByRentalObjectId(rentalObjectId);
+    }
+
+    /**
+     * Reads the district's daily rollups between {@code from} and {@code to}, inclusive.
+     * Days without an import have no rollup and are left out.
+     */
+    public List<DistrictPriceIndexPoint> getDistrictPriceIndex(long districtId, LocalDate from, LocalDate to) throws ObjectNotFoundException {
+        if (!districtRepository.existsById(districtId)) {
+            throw new ObjectNotFoundException("District with id " + districtId + " not found", DistrictModel.class);
+        }
+        List<DistrictPriceDaily> rollups = districtPriceDailyRepository.findAllByDistrictIdAndDayBetween(districtId, from, to);
+        if (rollups.isEmpty()) return List.of();
+
+        BigDecimal base = rollups.getFirst().avgPricePerSqm();
+        return rollups.stream()
+                .map(rollup -> new DistrictPriceIndexPoint(
+                        rollup.day(),
+                        rollup.housingCount(),
+                        rollup.avgPricePerMonth(),
+                        rollup.avgPricePerSqm(),
+                        rollup.minPricePerMonth(),
+                        rollup.maxPricePerMonth(),
+                        toIndex(rollup.avgPricePerSqm(), base)
+                ))
+                .toList();
+    }
+
+    private BigDecimal toIndex(BigDecimal value, BigDecimal base) {
+        if (base.signum() == 0) return HUNDRED.setScale(2, RoundingMode.HALF_UP);
+        return value.multiply(HUNDRED).divide(base, 2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,91 @@
+package no.sanderolin.boligbot.service.subscription;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Static centered interval tree over closed intervals {@code [lo, hi]}, each carrying an int value.
+ * A stabbing query visits the values of all intervals containing a point in O(log n + k).
+ */
+final class IntervalTree {
+
+    private static final IntervalTree EMPTY = new IntervalTree(new double[0], new double[0], new int[0], null);
+
+    private final double[] lo;
+    private final double[] hi;
+    private final int[] values;
+    private final Node root;
+
+    private IntervalTree(double[] lo, double[] hi, int[] values, Node root) {
+        this.lo = lo;
+        this.hi = hi;
+        this.values = values;
+        this.root = root;
+    }
+
+    static IntervalTree empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Builds a tree over the intervals {@code [lo[i], hi[i]]} with value {@code values[i]}. The arrays are not copied.
+     * Empty intervals ({@code lo > hi}) can never be stabbed and are left out.
+     */
+    static IntervalTree build(double[] lo, double[] hi, int[] values) {
+        if (lo.length == 0) return EMPTY;
+        int[] nonEmpty = IntStream.range(0, lo.length).filter(i -> lo[i] <= hi[i]).toArray();
+        return new IntervalTree(lo, hi, values, buildNode(lo, hi, nonEmpty));
+    }
+
+    void stab(double x, IntConsumer consumer) {
+        Node node = root;
+        while (node != null) {
+            if (x < node.center) {
+                for (int i : node.byLo) {
+                    if (lo[i] > x) break;
+                    consumer.accept(values[i]);
+                }
+                node = node.left;
+            } else if (x > node.center) {
+                for (int i : node.byHiDesc) {
+                    if (hi[i] < x) break;
+                    consumer.accept(values[i]);
+                }
+                node = node.right;
+            } else {
+                for (int i : node.byLo) consumer.accept(values[i]);
+                return;
+            }
+        }
+    }
+
+    private static Node buildNode(double[] lo, double[] hi, int[] intervals) {
+        if (intervals.length == 0) return null;
+
+        double[] endpoints = new double[intervals.length * 2];
+        for (int i = 0; i < intervals.length; i++) {
+            endpoints[2 * i] = lo[intervals[i]];
+            endpoints[2 * i + 1] = hi[intervals[i]];
+        }
+        Arrays.sort(endpoints);
+        double center = endpoints[intervals.length];
+
+        int[] left = Arrays.stream(intervals).filter(i -> hi[i] < center).toArray();
+        int[] right = Arrays.stream(intervals).filter(i -> lo[i] > center).toArray();
+        int[] overlapping = Arrays.stream(intervals).filter(i -> lo[i] <= center && hi[i] >= center).toArray();
+
+        int[] byLo = Arrays.stream(overlapping).boxed()
+                .sorted((a, b) -> Double.compare(lo[a], lo[b]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        int[] byHiDesc = Arrays.stream(overlapping).boxed()
+                .sorted((a, b) -> Double.compare(hi[b], hi[a]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        return new Node(center, byLo, byHiDesc, buildNode(lo, hi, left), buildNode(lo, hi, right));
+    }
+
+    private record Node(double center, int[] byLo, int[] byHiDesc, Node left, Node right) { }
+}
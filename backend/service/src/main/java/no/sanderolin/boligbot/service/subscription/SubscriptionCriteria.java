@@ -0,0 +1,20 @@
+package no.sanderolin.boligbot.service.subscription;
+
+import no.sanderolin.boligbot.dao.model.NotificationFrequency;
+
+import java.math.BigDecimal;
+
+/**
+ * Filters of a saved search. Null filters match any value; names are matched case-insensitively in full.
+ */
+public record SubscriptionCriteria(
+        String name,
+        String city,
+        String district,
+        String housingType,
+        Integer minPricePerMonth,
+        Integer maxPricePerMonth,
+        BigDecimal minAreaSqm,
+        BigDecimal maxAreaSqm,
+        NotificationFrequency frequency
+) { }
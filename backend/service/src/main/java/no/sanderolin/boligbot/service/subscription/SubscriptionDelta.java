@@ -0,0 +1,12 @@
+package no.sanderolin.boligbot.service.subscription;
+
+import no.sanderolin.boligbot.dao.model.HousingModel;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Housings matching a saved search that changed in {@code (since, until]}. When {@code hasMore} is set, the
+ * housings were cut off at the limit and more changes follow the last one returned.
+ */
+public record SubscriptionDelta(Instant since, Instant until, List<HousingModel> housings, boolean hasMore) { }
@@ -0,0 +1,183 @@
+package no.sanderolin.boligbot.service.subscription;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Immutable in-memory index for matching housings against saved searches.
+ * <p>
+ * Each subscription is filed under exactly one of its predicates, picked in order of expected selectivity:
+ * district, housing type, price range, area range, city. Name predicates live in postings keyed by the
+ * lower-cased name and ranges in interval trees, while subscriptions without any filter go in a match-all list.
+ * Matching a housing only visits the subscriptions whose filed predicate it satisfies and checks their
+ * remaining predicates, instead of evaluating every subscription.
+ */
+public final class SubscriptionIndex {
+
+    private static final SubscriptionIndex EMPTY = build(List.of());
+
+    private final Entry[] entries;
+    private final String[] city;
+    private final String[] district;
+    private final String[] housingType;
+    private final double[] minPrice;
+    private final double[] maxPrice;
+    private final double[] minArea;
+    private final double[] maxArea;
+
+    private final Map<String, int[]> byDistrict;
+    private final Map<String, int[]> byHousingType;
+    private final Map<String, int[]> byCity;
+    private final IntervalTree byPrice;
+    private final IntervalTree byArea;
+    private final int[] matchAll;
+
+    public record Entry(
+            long subscriptionId,
+            long userId,
+            String city,
+            String district,
+            String housingType,
+            Integer minPricePerMonth,
+            Integer maxPricePerMonth,
+            BigDecimal minAreaSqm,
+            BigDecimal maxAreaSqm
+    ) { }
+
+    public record Item(String rentalObjectId, String city, String district, String housingType, int pricePerMonth, double areaSqm) { }
+
+    private SubscriptionIndex(List<Entry> source) {
+        int n = source.size();
+        entries = source.toArray(Entry[]::new);
+        city = new String[n];
+        district = new String[n];
+        housingType = new String[n];
+        minPrice = new double[n];
+        maxPrice = new double[n];
+        minArea = new double[n];
+        maxArea = new double[n];
+
+        Map<String, List<Integer>> districtPostings = new HashMap<>();
+        Map<String, List<Integer>> housingTypePostings = new HashMap<>();
+        Map<String, List<Integer>> cityPostings = new HashMap<>();
+        List<Integer> priceSlots = new ArrayList<>();
+        List<Integer> areaSlots = new ArrayList<>();
+        List<Integer> unfiltered = new ArrayList<>();
+
+        for (int slot = 0; slot < n; slot++) {
+            Entry e = entries[slot];
+            city[slot] = normalize(e.city());
+            district[slot] = normalize(e.district());
+            housingType[slot] = normalize(e.housingType());
+            minPrice[slot] = e.minPricePerMonth() == null ? Double.NEGATIVE_INFINITY : e.minPricePerMonth();
+            maxPrice[slot] = e.maxPricePerMonth() == null ? Double.POSITIVE_INFINITY : e.maxPricePerMonth();
+            minArea[slot] = e.minAreaSqm() == null ? Double.NEGATIVE_INFINITY : e.minAreaSqm().doubleValue();
+            maxArea[slot] = e.maxAreaSqm() == null ? Double.POSITIVE_INFINITY : e.maxAreaSqm().doubleValue();
+
+            if (district[slot] != null) {
+                districtPostings.computeIfAbsent(district[slot], k -> new ArrayList<>()).add(slot);
+            } else if (housingType[slot] != null) {
+                housingTypePostings.computeIfAbsent(housingType[slot], k -> new ArrayList<>()).add(slot);
+            } else if (isBounded(minPrice[slot], maxPrice[slot])) {
+                priceSlots.add(slot);
+            } else if (isBounded(minArea[slot], maxArea[slot])) {
+                areaSlots.add(slot);
+            } else if (city[slot] != null) {
+                cityPostings.computeIfAbsent(city[slot], k -> new ArrayList<>()).add(slot);
+            } else {
+                unfiltered.add(slot);
+            }
+        }
+
+        byDistrict = toArrays(districtPostings);
+        byHousingType = toArrays(housingTypePostings);
+        byCity = toArrays(cityPostings);
+        byPrice = intervalTree(priceSlots, minPrice, maxPrice);
+        byArea = intervalTree(areaSlots, minArea, maxArea);
+        matchAll = toArray(unfiltered);
+    }
+
+    public static SubscriptionIndex build(List<Entry> entries) {
+        return new SubscriptionIndex(entries);
+    }
+
+    public static SubscriptionIndex empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Passes every subscription whose filters all match the housing to {@code consumer}, each at most once.
+     */
+    public void match(Item item, Consumer<Entry> consumer) {
+        String itemCity = normalize(item.city());
+        String itemDistrict = normalize(item.district());
+        String itemHousingType = normalize(item.housingType());
+
+        visit(byDistrict.get(itemDistrict), item, itemCity, itemDistrict, itemHousingType, consumer);
+        visit(byHousingType.get(itemHousingType), item, itemCity, itemDistrict, itemHousingType, consumer);
+        byPrice.stab(item.pricePerMonth(), slot -> check(slot, item, itemCity, itemDistrict, itemHousingType, consumer));
+        byArea.stab(item.areaSqm(), slot -> check(slot, item, itemCity, itemDistrict, itemHousingType, consumer));
+        visit(byCity.get(itemCity), item, itemCity, itemDistrict, itemHousingType, consumer);
+        visit(matchAll, item, itemCity, itemDistrict, itemHousingType, consumer);
+    }
+
+    public List<Entry> match(Item item) {
+        List<Entry> matches = new ArrayList<>();
+        match(item, matches::add);
+        return matches;
+    }
+
+    private void visit(int[] slots, Item item, String itemCity, String itemDistrict, String itemHousingType,
+                       Consumer<Entry> consumer) {
+        if (slots == null) return;
+        for (int slot : slots) {
+            check(slot, item, itemCity, itemDistrict, itemHousingType, consumer);
+        }
+    }
+
+    private void check(int slot, Item item, String itemCity, String itemDistrict, String itemHousingType,
+                       Consumer<Entry> consumer) {
+        if (district[slot] != null && !district[slot].equals(itemDistrict)) return;
+        if (housingType[slot] != null && !housingType[slot].equals(itemHousingType)) return;
+        if (city[slot] != null && !city[slot].equals(itemCity)) return;
+        if (item.pricePerMonth() < minPrice[slot] || item.pricePerMonth() > maxPrice[slot]) return;
+        if (item.areaSqm() < minArea[slot] || item.areaSqm() > maxArea[slot]) return;
+        consumer.accept(entries[slot]);
+    }
+
+    private static boolean isBounded(double min, double max) {
+        return min != Double.NEGATIVE_INFINITY || max != Double.POSITIVE_INFINITY;
+    }
+
+    private static IntervalTree intervalTree(List<Integer> slots, double[] min, double[] max) {
+        int[] values = toArray(slots);
+        double[] lo = new double[values.length];
+        double[] hi = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            lo[i] = min[values[i]];
+            hi[i] = max[values[i]];
+        }
+        return IntervalTree.build(lo, hi, values);
+    }
+
+    private static Map<String, int[]> toArrays(Map<String, List<Integer>> postings) {
+        Map<String, int[]> result = new HashMap<>(postings.size() * 2);
+        postings.forEach((key, slots) -> result.put(key, toArray(slots)));
+        return result;
+    }
+
+    private static int[] toArray(List<Integer> slots) {
+        return slots.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    static String normalize(String value) {
+        if (value == null) return null;
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,3 @@
+package no.sanderolin.boligbot.service.subscription;
+
+public record SubscriptionMatch(long subscriptionId, long userId, String rentalObjectId) { }
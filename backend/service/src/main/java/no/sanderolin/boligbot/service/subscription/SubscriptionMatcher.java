@@ -0,0 +1,108 @@
+package no.sanderolin.boligbot.service.subscription;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.sanderolin.boligbot.dao.event.UserDataChangedEvent;
+import no.sanderolin.boligbot.dao.model.HousingModel;
+import no.sanderolin.boligbot.dao.model.NotificationFrequency;
+import no.sanderolin.boligbot.dao.model.SubscriptionModel;
+import no.sanderolin.boligbot.dao.repository.SubscriptionRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Keeps a {@link SubscriptionIndex} of the immediate saved searches and matches newly available housings against it.
+ * The index is immutable and replaced on every change, so matching never blocks on subscription edits.
+ * Digest subscriptions are matched per period by {@code DigestDispatcher} instead.
+ * Subscriptions changed through another node are picked up by rebuilding the index.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SubscriptionMatcher {
+
+    private final SubscriptionRepository subscriptionRepository;
+
+    private final Map<Long, SubscriptionIndex.Entry> entries = new LinkedHashMap<>();
+    private volatile SubscriptionIndex index = SubscriptionIndex.empty();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuildIndex();
+    }
+
+    @EventListener(condition = "#event.remote() && #event.kind().name() == 'SUBSCRIPTIONS'")
+    public void onSubscriptionsChanged(UserDataChangedEvent event) {
+        rebuildIndex();
+    }
+
+    public synchronized void rebuildIndex() {
+        long start = System.currentTimeMillis();
+        entries.clear();
+        subscriptionRepository.findAllWithUserBy().stream()
+                .filter(s -> s.getFrequency() == NotificationFrequency.IMMEDIATE)
+                .forEach(s -> entries.put(s.getId(), toEntry(s)));
+        index = SubscriptionIndex.build(List.copyOf(entries.values()));
+        log.info("Rebuilt subscription index with {} subscriptions in {} ms", entries.size(), System.currentTimeMillis() - start);
+    }
+
+    public synchronized void put(SubscriptionModel subscription) {
+        if (subscription.getFrequency() != NotificationFrequency.IMMEDIATE) {
+            remove(subscription.getId());
+            return;
+        }
+        entries.put(subscription.getId(), toEntry(subscription));
+        index = SubscriptionIndex.build(List.copyOf(entries.values()));
+    }
+
+    public synchronized void remove(long subscriptionId) {
+        if (entries.remove(subscriptionId) != null) {
+            index = SubscriptionIndex.build(List.copyOf(entries.values()));
+        }
+    }
+
+    public boolean isEmpty() {
+        return index.size() == 0;
+    }
+
+    /**
+     * Matches the housings against every subscription. The housings must have type, district and city loaded.
+     */
+    public List<SubscriptionMatch> match(Collection<HousingModel> housings) {
+        SubscriptionIndex current = index;
+        List<SubscriptionMatch> matches = new ArrayList<>();
+        for (HousingModel housing : housings) {
+            current.match(toItem(housing), entry ->
+                    matches.add(new SubscriptionMatch(entry.subscriptionId(), entry.userId(), housing.getRentalObjectId())));
+        }
+        return matches;
+    }
+
+    private static SubscriptionIndex.Entry toEntry(SubscriptionModel subscription) {
+        return new SubscriptionIndex.Entry(
+                subscription.getId(),
+                subscription.getUser().getId(),
+                subscription.getCity(),
+                subscription.getDistrict(),
+                subscription.getHousingType(),
+                subscription.getMinPricePerMonth(),
+                subscription.getMaxPricePerMonth(),
+                subscription.getMinAreaSqm(),
+                subscription.getMaxAreaSqm()
+        );
+    }
+
+    private static SubscriptionIndex.Item toItem(HousingModel housing) {
+        return new SubscriptionIndex.Item(
+                housing.getRentalObjectId(),
+                housing.getCity().getName(),
+                housing.getDistrict().getName(),
+                housing.getHousingType().getName(),
+                housing.getPricePerMonth(),
+                housing.getAreaSqm() == null ? 0 : housing.getAreaSqm().doubleValue()
+        );
+    }
+}
@@ -0,0 +1,119 @@
+package no.sanderolin.boligbot.service.subscription;
+
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.event.UserDataChangedEvent;
+import no.sanderolin.boligbot.dao.model.HousingModel;
+import no.sanderolin.boligbot.dao.model.SubscriptionModel;
+import no.sanderolin.boligbot.dao.model.UserModel;
+import no.sanderolin.boligbot.dao.repository.HousingChangeWindowRepository;
+import no.sanderolin.boligbot.dao.repository.SubscriptionRepository;
+import no.sanderolin.boligbot.dao.repository.UserRepository;
+import no.sanderolin.boligbot.service.housing.HousingService;
+import org.hibernate.ObjectNotFoundException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+
+import static no.sanderolin.boligbot.dao.event.UserDataChangedEvent.Kind.SUBSCRIPTIONS;
+
+@Service
+@RequiredArgsConstructor
+public class SubscriptionService {
+
+    public static final int MAX_SUBSCRIPTIONS_PER_USER = 20;
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final HousingChangeWindowRepository changeWindowRepository;
+    private final UserRepository userRepository;
+    private final SubscriptionMatcher subscriptionMatcher;
+    private final HousingService housingService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public List<SubscriptionModel> getSubscriptions(String email) throws ObjectNotFoundException {
+        return subscriptionRepository.findAllByUserIdOrderByCreatedAtAsc(getUser(email).getId());
+    }
+
+    /**
+     * Saves a subscription for the user. Immediate subscriptions are also added to the matching index.
+     *
+     * @throws IllegalStateException if the user already has {@link #MAX_SUBSCRIPTIONS_PER_USER} subscriptions
+     */
+    public SubscriptionModel createSubscription(String email, SubscriptionCriteria criteria) throws ObjectNotFoundException {
+        UserModel user = getUser(email);
+        if (subscriptionRepository.countByUserId(user.getId()) >= MAX_SUBSCRIPTIONS_PER_USER) {
+            throw new IllegalStateException("A user can have at most " + MAX_SUBSCRIPTIONS_PER_USER + " subscriptions");
+        }
+
+        Instant now = Instant.now();
+        SubscriptionModel subscription = new SubscriptionModel();
+        subscription.setUser(user);
+        subscription.setName(criteria.name());
+        subscription.setCity(criteria.city());
+        subscription.setDistrict(criteria.district());
+        subscription.setHousingType(criteria.housingType());
+        subscription.setMinPricePerMonth(criteria.minPricePerMonth());
+        subscription.setMaxPricePerMonth(criteria.maxPricePerMonth());
+        subscription.setMinAreaSqm(criteria.minAreaSqm());
+        subscription.setMaxAreaSqm(criteria.maxAreaSqm());
+        subscription.setFrequency(criteria.frequency());
+        subscription.setCreatedAt(now);
+        subscription.setLastModifiedAt(now);
+
+        SubscriptionModel saved = subscriptionRepository.save(subscription);
+        subscriptionMatcher.put(saved);
+        eventPublisher.publishEvent(new UserDataChangedEvent(SUBSCRIPTIONS));
+        return saved;
+    }
+
+    /**
+     * Returns up to {@code limit} housings matching the subscription that were added, changed or flipped
+     * availability since the user last looked, oldest change first, and moves the last-seen watermark unless
+     * {@code markSeen} is false. When more changes remain, the watermark moves to the last housing returned and
+     * the delta says so, so the next visit continues from there.
+     * <p>
+     * Imports stamp their changes before they commit, so the watermark only moves up to the time through which
+     * every stamped change is committed. Changes of an import still writing are returned on a later visit.
+     */
+    public SubscriptionDelta getNewSinceLastVisit(String email, long subscriptionId, boolean markSeen, int limit)
+            throws ObjectNotFoundException {
+        SubscriptionModel subscription = getSubscription(email, subscriptionId);
+        Instant since = subscription.getLastSeenAt() == null ? subscription.getCreatedAt() : subscription.getLastSeenAt();
+        String sinceId = subscription.getLastSeenAt() == null ? null : subscription.getLastSeenRentalObjectId();
+        Instant committedThrough = changeWindowRepository.committedThrough();
+        Instant until = committedThrough.isAfter(since) ? committedThrough : since;
+
+        List<HousingModel> housings = housingService.getSubscriptionMatchesModifiedBetween(subscription, since, sinceId, until, limit + 1);
+        boolean hasMore = housings.size() > limit;
+        String seenId = null;
+        if (hasMore) {
+            housings = housings.subList(0, limit);
+            until = housings.getLast().getLastModifiedAt();
+            seenId = housings.getLast().getRentalObjectId();
+        }
+        if (markSeen) {
+            subscription.setLastSeenAt(until);
+            subscription.setLastSeenRentalObjectId(seenId);
+            subscriptionRepository.save(subscription);
+        }
+        return new SubscriptionDelta(since, until, housings, hasMore);
+    }
+
+    public void deleteSubscription(String email, long subscriptionId) throws ObjectNotFoundException {
+        SubscriptionModel subscription = getSubscription(email, subscriptionId);
+        subscriptionRepository.delete(subscription);
+        subscriptionMatcher.remove(subscriptionId);
+        eventPublisher.publishEvent(new UserDataChangedEvent(SUBSCRIPTIONS));
+    }
+
+    private SubscriptionModel getSubscription(String email, long subscriptionId) throws ObjectNotFoundException {
+        return subscriptionRepository.findByIdAndUserId(subscriptionId, getUser(email).getId())
+                .orElseThrow(() -> new ObjectNotFoundException("Subscription with id " + subscriptionId + " not found", SubscriptionModel.class));
+    }
+
+    private UserModel getUser(String email) throws ObjectNotFoundException {
+        return userRepository.findByEmail(email)
+                .orElseThrow(() -> new ObjectNotFoundException("User with email " + email + " not found", UserModel.class));
+    }
+}
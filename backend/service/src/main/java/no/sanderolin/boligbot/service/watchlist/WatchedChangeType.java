@@ -0,0 +1,8 @@
+package no.sanderolin.boligbot.service.watchlist;
+
+public enum WatchedChangeType {
+    BECAME_AVAILABLE,
+    BECAME_UNAVAILABLE,
+    AVAILABLE_FROM_DATE_CHANGED,
+    PRICE_CHANGED
+}
@@ -0,0 +1,3 @@
+package no.sanderolin.boligbot.service.watchlist;
+
+public record WatchedHousingChange(long userId, String rentalObjectId, WatchedChangeType type) { }
@@ -0,0 +1,10 @@
+package no.sanderolin.boligbot.service.watchlist;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Published for every import event that touched at least one watched housing, with one change per watcher.
+ * Published synchronously inside the import transaction, like the event it was derived from.
+ */
+public record WatchedHousingChangedEvent(List<WatchedHousingChange> changes, Instant occurredAt) { }
@@ -0,0 +1,80 @@
+package no.sanderolin.boligbot.service.watchlist;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.sanderolin.boligbot.dao.event.UserDataChangedEvent;
+import no.sanderolin.boligbot.dao.projection.WatchlistEntry;
+import no.sanderolin.boligbot.dao.repository.WatchlistRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inverted watchlist: rentalObjectId to the ids of the users watching it. The watcher sets are immutable and
+ * replaced on every change, so lookups during an import never see a half-updated set. Watchlists changed through
+ * another node are picked up by rebuilding the index.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WatcherIndex {
+
+    private final WatchlistRepository watchlistRepository;
+
+    private volatile Map<String, Set<Long>> watchers = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @EventListener(condition = "#event.remote() && #event.kind().name() == 'WATCHLIST'")
+    public void onWatchlistChanged(UserDataChangedEvent event) {
+        rebuild();
+    }
+
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Map<String, Set<Long>> grouped = new HashMap<>();
+        for (WatchlistEntry entry : watchlistRepository.findAll()) {
+            grouped.computeIfAbsent(entry.rentalObjectId(), id -> new HashSet<>()).add(entry.userId());
+        }
+        Map<String, Set<Long>> rebuilt = new ConcurrentHashMap<>(grouped.size());
+        grouped.forEach((id, users) -> rebuilt.put(id, Set.copyOf(users)));
+        watchers = rebuilt;
+        log.info("Rebuilt watcher index with {} watched housings in {} ms", rebuilt.size(), System.currentTimeMillis() - start);
+    }
+
+    public void add(String rentalObjectId, long userId) {
+        watchers.compute(rentalObjectId, (id, current) -> {
+            if (current == null) return Set.of(userId);
+            if (current.contains(userId)) return current;
+            Set<Long> updated = new HashSet<>(current);
+            updated.add(userId);
+            return Set.copyOf(updated);
+        });
+    }
+
+    public void remove(String rentalObjectId, long userId) {
+        watchers.computeIfPresent(rentalObjectId, (id, current) -> {
+            if (!current.contains(userId)) return current;
+            Set<Long> updated = new HashSet<>(current);
+            updated.remove(userId);
+            return updated.isEmpty() ? null : Set.copyOf(updated);
+        });
+    }
+
+    public Set<Long> watchers(String rentalObjectId) {
+        return watchers.getOrDefault(rentalObjectId, Set.of());
+    }
+
+    public boolean isEmpty() {
+        return watchers.isEmpty();
+    }
+}
@@ -0,0 +1,67 @@
+package no.sanderolin.boligbot.service.watchlist;
+
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.event.HousingAvailabilityChangedEvent;
+import no.sanderolin.boligbot.dao.event.HousingAvailableFromDateChangedEvent;
+import no.sanderolin.boligbot.dao.event.HousingPriceChangedEvent;
+import no.sanderolin.boligbot.dao.projection.HousingPriceChange;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Turns the change events of the availability and catalog imports into {@link WatchedHousingChangedEvent}s,
+ * which the {@code NotificationOutboxWriter} queues for delivery by e-mail.
+ * Each changed id costs a single {@link WatcherIndex} lookup, so the work follows the size of the change set
+ * and not the number of users.
+ */
+@Component
+@RequiredArgsConstructor
+public class WatchlistChangeDetector {
+
+    private final WatcherIndex watcherIndex;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @EventListener(condition = "!#event.remote()")
+    public void onAvailabilityChanged(HousingAvailabilityChangedEvent event) {
+        List<WatchedHousingChange> changes = new ArrayList<>();
+        collect(event.becameAvailable(), WatchedChangeType.BECAME_AVAILABLE, changes);
+        collect(event.becameUnavailable(), WatchedChangeType.BECAME_UNAVAILABLE, changes);
+        publish(changes, event.occurredAt());
+    }
+
+    @EventListener
+    public void onAvailableFromDateChanged(HousingAvailableFromDateChangedEvent event) {
+        List<WatchedHousingChange> changes = new ArrayList<>();
+        collect(event.rentalObjectIds(), WatchedChangeType.AVAILABLE_FROM_DATE_CHANGED, changes);
+        publish(changes, event.occurredAt());
+    }
+
+    @EventListener
+    public void onPriceChanged(HousingPriceChangedEvent event) {
+        List<WatchedHousingChange> changes = new ArrayList<>();
+        collect(event.changes().stream().map(HousingPriceChange::rentalObjectId).toList(), WatchedChangeType.PRICE_CHANGED, changes);
+        // All changes of a catalog run are recorded at the same time.
+        if (!changes.isEmpty()) publish(changes, event.changes().getFirst().recordedAt());
+    }
+
+    private void collect(Collection<String> rentalObjectIds, WatchedChangeType type, List<WatchedHousingChange> changes) {
+        if (watcherIndex.isEmpty()) return;
+        for (String rentalObjectId : rentalObjectIds) {
+            for (long userId : watcherIndex.watchers(rentalObjectId)) {
+                changes.add(new WatchedHousingChange(userId, rentalObjectId, type));
+            }
+        }
+    }
+
+    private void publish(List<WatchedHousingChange> changes, Instant occurredAt) {
+        if (!changes.isEmpty()) {
+            eventPublisher.publishEvent(new WatchedHousingChangedEvent(changes, occurredAt));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package no.sanderolin.boligbot.service.watchlist;
+
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.event.UserDataChangedEvent;
+import no.sanderolin.boligbot.dao.model.HousingModel;
+import no.sanderolin.boligbot.dao.model.UserModel;
+import no.sanderolin.boligbot.dao.repository.UserRepository;
+import no.sanderolin.boligbot.dao.repository.WatchlistRepository;
+import no.sanderolin.boligbot.service.housing.HousingService;
+import org.hibernate.ObjectNotFoundException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static no.sanderolin.boligbot.dao.event.UserDataChangedEvent.Kind.WATCHLIST;
+
+@Service
+@RequiredArgsConstructor
+public class WatchlistService {
+
+    public static final int MAX_WATCHED_PER_USER = 100;
+
+    private final WatchlistRepository watchlistRepository;
+    private final UserRepository userRepository;
+    private final HousingService housingService;
+    private final WatcherIndex watcherIndex;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Returns the watched housings in the order they were added.
+     */
+    public List<HousingModel> getWatchlist(String email) throws ObjectNotFoundException {
+        List<String> ids = watchlistRepository.findRentalObjectIdsByUserId(getUser(email).getId());
+        Map<String, Integer> order = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) order.put(ids.get(i), i);
+        return housingService.getHousingsWithDetailsByRentalObjectIds(ids).stream()
+                .sorted(Comparator.comparing(housing -> order.get(housing.getRentalObjectId())))
+                .toList();
+    }
+
+    /**
+     * Adds the housing to the user's watchlist. Adding a housing that is already watched is a no-op.
+     *
+     * @throws IllegalStateException if the user already watches {@link #MAX_WATCHED_PER_USER} housings
+     */
+    public void addToWatchlist(String email, String rentalObjectId) throws ObjectNotFoundException {
+        UserModel user = getUser(email);
+        housingService.getHousingByRentalObjectId(rentalObjectId);
+        if (watchlistRepository.countByUserId(user.getId()) >= MAX_WATCHED_PER_USER) {
+            throw new IllegalStateException("A user can watch at most " + MAX_WATCHED_PER_USER + " housings");
+        }
+
+        if (watchlistRepository.add(user.getId(), rentalObjectId, Instant.now())) {
+            watcherIndex.add(rentalObjectId, user.getId());
+            eventPublisher.publishEvent(new UserDataChangedEvent(WATCHLIST));
+        }
+    }
+
+    public void removeFromWatchlist(String email, String rentalObjectId) throws ObjectNotFoundException {
+        UserModel user = getUser(email);
+        if (!watchlistRepository.remove(user.getId(), rentalObjectId)) {
+            throw new ObjectNotFoundException("Housing with id " + rentalObjectId + " is not on the watchlist", HousingModel.class);
+        }
+        watcherIndex.remove(rentalObjectId, user.getId());
+        eventPublisher.publishEvent(new UserDataChangedEvent(WATCHLIST));
+    }
+
+    private UserModel getUser(String email) throws ObjectNotFoundException {
+        return userRepository.findByEmail(email)
+                .orElseThrow(() -> new ObjectNotFoundException("User with email " + email + " not found", UserModel.class));
+    }
+}
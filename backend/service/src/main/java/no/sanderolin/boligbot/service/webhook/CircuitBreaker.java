@@ -0,0 +1,57 @@
+package no.sanderolin.boligbot.service.webhook;
+
+/**
+ * Per-endpoint circuit breaker. Opens after {@code failureThreshold} consecutive failures, lets a single
+ * probe through once {@code openMillis} has passed, and closes again when the probe succeeds.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final long PROBE_RECHECK_MILLIS = 1000;
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openUntil;
+
+    CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * @return 0 if a call may be made now, otherwise how many milliseconds to wait before asking again
+     */
+    synchronized long tryAcquire(long now) {
+        switch (state) {
+            case CLOSED:
+                return 0;
+            case OPEN:
+                if (now < openUntil) return openUntil - now;
+                state = State.HALF_OPEN;
+                return 0;
+            default:
+                return Math.min(PROBE_RECHECK_MILLIS, openMillis);
+        }
+    }
+
+    synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    synchronized void onFailure(long now) {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openUntil = now + openMillis;
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+}
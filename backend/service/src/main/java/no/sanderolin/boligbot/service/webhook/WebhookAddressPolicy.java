@@ -0,0 +1,60 @@
+package no.sanderolin.boligbot.service.webhook;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+
+/**
+ * Keeps webhooks from reaching into the network the backend runs in. A webhook host must only resolve to public
+ * addresses: loopback, link-local, site-local, unique local, carrier-grade NAT, wildcard and multicast addresses
+ * are refused. The check is made when a webhook is registered and again before every delivery, since the host's
+ * DNS records can change in between. Private addresses can be allowed for local development.
+ */
+@Component
+public class WebhookAddressPolicy {
+
+    private final boolean allowPrivateAddresses;
+
+    public WebhookAddressPolicy(@Value("${boligbot.webhooks.allow-private-addresses:false}") boolean allowPrivateAddresses) {
+        this.allowPrivateAddresses = allowPrivateAddresses;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the host does not resolve or resolves to a non-public address
+     */
+    public void requirePublic(URI url) {
+        if (!isAllowed(url)) {
+            throw new IllegalArgumentException("Invalid url: " + url + ". The host must resolve to a public address");
+        }
+    }
+
+    public boolean isAllowed(URI url) {
+        if (allowPrivateAddresses) return true;
+        try {
+            for (InetAddress address : InetAddress.getAllByName(url.getHost())) {
+                if (!isPublic(address)) return false;
+            }
+            return true;
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    static boolean isPublic(InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return false;
+        }
+        byte[] bytes = address.getAddress();
+        if (address instanceof Inet6Address) {
+            // fc00::/7 unique local
+            return (bytes[0] & 0xfe) != 0xfc;
+        }
+        // 100.64.0.0/10 carrier-grade NAT and 0.0.0.0/8
+        return !((bytes[0] & 0xff) == 100 && (bytes[1] & 0xc0) == 64) && bytes[0] != 0;
+    }
+}
@@ -0,0 +1,200 @@
+package no.sanderolin.boligbot.service.webhook;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers webhook bodies over HTTP, isolating endpoints from each other.
+ * <p>
+ * Every attempt runs on its own virtual thread. Each endpoint has its own concurrency limit, bounded queue
+ * and {@link CircuitBreaker}, so a slow or failing endpoint only ever delays its own deliveries. Failed
+ * attempts are retried with jittered exponential backoff; while an endpoint's circuit is open its deliveries
+ * are parked without spending attempts. Deliveries are held in memory only and are lost on restart.
+ * Every attempt first checks the endpoint's host against the {@link WebhookAddressPolicy}.
+ */
+@Slf4j
+public class WebhookDeliveryEngine implements AutoCloseable {
+
+    public static final String EVENT_HEADER = "X-Boligbot-Event";
+    public static final String DELIVERY_HEADER = "X-Boligbot-Delivery";
+
+    public record Settings(
+            int maxConcurrencyPerEndpoint,
+            int maxQueuedPerEndpoint,
+            int maxAttempts,
+            Duration initialBackoff,
+            Duration maxBackoff,
+            Duration requestTimeout,
+            int failureThreshold,
+            Duration openDuration
+    ) { }
+
+    private record Delivery(WebhookEndpoint endpoint, WebhookEventType type, byte[] body, String id, int attempt) {
+        Delivery nextAttempt() {
+            return new Delivery(endpoint, type, body, id, attempt + 1);
+        }
+    }
+
+    private static final class EndpointState {
+        final Semaphore permits;
+        final AtomicInteger queued = new AtomicInteger();
+        final CircuitBreaker breaker;
+        volatile boolean removed;
+
+        EndpointState(Settings settings) {
+            this.permits = new Semaphore(settings.maxConcurrencyPerEndpoint());
+            this.breaker = new CircuitBreaker(settings.failureThreshold(), settings.openDuration().toMillis());
+        }
+    }
+
+    private final Settings settings;
+    private final WebhookAddressPolicy addressPolicy;
+    private final HttpClient httpClient;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("webhook-retry").daemon().factory());
+    private final ConcurrentMap<Long, EndpointState> states = new ConcurrentHashMap<>();
+
+    public WebhookDeliveryEngine(Settings settings, WebhookAddressPolicy addressPolicy) {
+        this.settings = settings;
+        this.addressPolicy = addressPolicy;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(settings.requestTimeout())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    /**
+     * Queues a delivery of {@code body} to the endpoint.
+     *
+     * @return false if the endpoint already has {@code maxQueuedPerEndpoint} deliveries pending and this one was dropped
+     */
+    public boolean submit(WebhookEndpoint endpoint, WebhookEventType type, byte[] body) {
+        EndpointState state = states.computeIfAbsent(endpoint.id(), id -> new EndpointState(settings));
+        if (state.queued.incrementAndGet() > settings.maxQueuedPerEndpoint()) {
+            state.queued.decrementAndGet();
+            log.warn("Dropped {} for webhook {}: {} deliveries already pending", type.eventName(), endpoint.id(), settings.maxQueuedPerEndpoint());
+            return false;
+        }
+        workers.execute(() -> attempt(new Delivery(endpoint, type, body, UUID.randomUUID().toString(), 1), state));
+        return true;
+    }
+
+    /**
+     * Drops the endpoint's pending deliveries, e.g. after the webhook was deleted.
+     */
+    public void forget(long endpointId) {
+        EndpointState state = states.remove(endpointId);
+        if (state != null) state.removed = true;
+    }
+
+    public int pending(long endpointId) {
+        EndpointState state = states.get(endpointId);
+        return state == null ? 0 : state.queued.get();
+    }
+
+    public boolean isCircuitOpen(long endpointId) {
+        EndpointState state = states.get(endpointId);
+        return state != null && state.breaker.state() != CircuitBreaker.State.CLOSED;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+        httpClient.shutdownNow();
+    }
+
+    private void attempt(Delivery delivery, EndpointState state) {
+        if (state.removed) {
+            state.queued.decrementAndGet();
+            return;
+        }
+        try {
+            state.permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            state.queued.decrementAndGet();
+            return;
+        }
+
+        boolean delivered;
+        try {
+            long wait = state.breaker.tryAcquire(System.currentTimeMillis());
+            if (wait > 0) {
+                retryLater(delivery, state, wait);
+                return;
+            }
+            delivered = post(delivery);
+        } finally {
+            state.permits.release();
+        }
+
+        if (delivered) {
+            state.breaker.onSuccess();
+            state.queued.decrementAndGet();
+            return;
+        }
+        state.breaker.onFailure(System.currentTimeMillis());
+        if (delivery.attempt() >= settings.maxAttempts()) {
+            state.queued.decrementAndGet();
+            log.warn("Giving up on {} {} for webhook {} after {} attempts",
+                    delivery.type().eventName(), delivery.id(), delivery.endpoint().id(), delivery.attempt());
+            return;
+        }
+        retryLater(delivery.nextAttempt(), state, backoffMillis(delivery.attempt()));
+    }
+
+    private boolean post(Delivery delivery) {
+        // Resolved just before sending, so the client connects to the address that was checked while it is cached.
+        if (!addressPolicy.isAllowed(delivery.endpoint().url())) {
+            log.warn("Webhook {} no longer resolves to a public address, not delivering {}", delivery.endpoint().id(), delivery.id());
+            return false;
+        }
+        long timestamp = Instant.now().getEpochSecond();
+        HttpRequest request = HttpRequest.newBuilder(delivery.endpoint().url())
+                .timeout(settings.requestTimeout())
+                .header("Content-Type", "application/json")
+                .header(EVENT_HEADER, delivery.type().eventName())
+                .header(DELIVERY_HEADER, delivery.id())
+                .header(WebhookSignature.HEADER, WebhookSignature.header(delivery.endpoint().secret(), timestamp, delivery.body()))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(delivery.body()))
+                .build();
+        try {
+            int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            if (status >= 200 && status < 300) return true;
+            log.debug("Webhook {} answered {} to {}", delivery.endpoint().id(), status, delivery.id());
+        } catch (IOException e) {
+            log.debug("Webhook {} failed for {}: {}", delivery.endpoint().id(), delivery.id(), e.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private void retryLater(Delivery delivery, EndpointState state, long delayMillis) {
+        try {
+            scheduler.schedule(() -> workers.execute(() -> attempt(delivery, state)), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            state.queued.decrementAndGet();
+        }
+    }
+
+    /**
+     * Exponential backoff with jitter: a random delay between half and all of {@code initial * 2^(attempt-1)}.
+     */
+    private long backoffMillis(int attempt) {
+        long cap = settings.maxBackoff().toMillis();
+        long delay = Math.min(cap, settings.initialBackoff().toMillis() << Math.min(attempt - 1, 30));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+}
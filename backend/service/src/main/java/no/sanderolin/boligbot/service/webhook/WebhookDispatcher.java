@@ -0,0 +1,140 @@
+package no.sanderolin.boligbot.service.webhook;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import no.sanderolin.boligbot.dao.event.HousingAvailabilityChangedEvent;
+import no.sanderolin.boligbot.dao.event.HousingPriceChangedEvent;
+import no.sanderolin.boligbot.dao.event.UserDataChangedEvent;
+import no.sanderolin.boligbot.dao.model.WebhookModel;
+import no.sanderolin.boligbot.dao.projection.HousingPriceChange;
+import no.sanderolin.boligbot.dao.repository.WebhookRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fans housing change events out to the registered webhooks once the import that produced them has committed.
+ * Endpoints are cached in memory and kept in sync by {@link WebhookService}; each payload is serialized once
+ * and handed to the {@link WebhookDeliveryEngine} for every subscribed endpoint. Webhooks changed through another
+ * node are picked up by reloading the endpoints.
+ */
+@Slf4j
+@Service
+public class WebhookDispatcher {
+
+    record AvailabilityChangedPayload(String type, Instant occurredAt, List<String> becameAvailable, List<String> becameUnavailable) { }
+
+    record PriceChangedPayload(String type, List<HousingPriceChange> changes) { }
+
+    private final WebhookRepository webhookRepository;
+    private final ObjectMapper objectMapper;
+    private final WebhookDeliveryEngine engine;
+    private final Map<Long, WebhookEndpoint> endpoints = new ConcurrentHashMap<>();
+
+    public WebhookDispatcher(WebhookRepository webhookRepository,
+                             ObjectMapper objectMapper,
+                             WebhookAddressPolicy addressPolicy,
+                             @Value("${boligbot.webhooks.max-concurrency-per-endpoint:4}") int maxConcurrencyPerEndpoint,
+                             @Value("${boligbot.webhooks.max-queued-per-endpoint:1000}") int maxQueuedPerEndpoint,
+                             @Value("${boligbot.webhooks.max-attempts:8}") int maxAttempts,
+                             @Value("${boligbot.webhooks.initial-backoff-ms:1000}") long initialBackoffMs,
+                             @Value("${boligbot.webhooks.max-backoff-ms:600000}") long maxBackoffMs,
+                             @Value("${boligbot.webhooks.request-timeout-ms:10000}") long requestTimeoutMs,
+                             @Value("${boligbot.webhooks.failure-threshold:5}") int failureThreshold,
+                             @Value("${boligbot.webhooks.open-duration-ms:60000}") long openDurationMs) {
+        this.webhookRepository = webhookRepository;
+        this.objectMapper = objectMapper;
+        this.engine = new WebhookDeliveryEngine(new WebhookDeliveryEngine.Settings(
+                maxConcurrencyPerEndpoint,
+                maxQueuedPerEndpoint,
+                maxAttempts,
+                Duration.ofMillis(initialBackoffMs),
+                Duration.ofMillis(maxBackoffMs),
+                Duration.ofMillis(requestTimeoutMs),
+                failureThreshold,
+                Duration.ofMillis(openDurationMs)
+        ), addressPolicy);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadEndpoints() {
+        Map<Long, WebhookEndpoint> loaded = new HashMap<>();
+        webhookRepository.findAll().forEach(webhook -> loaded.put(webhook.getId(), toEndpoint(webhook)));
+        endpoints.putAll(loaded);
+        endpoints.keySet().stream()
+                .filter(id -> !loaded.containsKey(id))
+                .toList()
+                .forEach(this::remove);
+        log.info("Loaded {} webhooks", endpoints.size());
+    }
+
+    @EventListener(condition = "#event.remote() && #event.kind().name() == 'WEBHOOKS'")
+    public void onWebhooksChanged(UserDataChangedEvent event) {
+        loadEndpoints();
+    }
+
+    public void put(WebhookModel webhook) {
+        endpoints.put(webhook.getId(), toEndpoint(webhook));
+    }
+
+    public void remove(long webhookId) {
+        endpoints.remove(webhookId);
+        engine.forget(webhookId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true, condition = "!#event.remote()")
+    public void onAvailabilityChanged(HousingAvailabilityChangedEvent event) {
+        WebhookEventType type = WebhookEventType.AVAILABILITY_CHANGED;
+        publish(type, new AvailabilityChangedPayload(
+                type.eventName(), event.occurredAt(), event.becameAvailable(), event.becameUnavailable()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPriceChanged(HousingPriceChangedEvent event) {
+        WebhookEventType type = WebhookEventType.PRICE_CHANGED;
+        publish(type, new PriceChangedPayload(type.eventName(), event.changes()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        engine.close();
+    }
+
+    private void publish(WebhookEventType type, Object payload) {
+        List<WebhookEndpoint> targets = endpoints.values().stream()
+                .filter(endpoint -> endpoint.subscribesTo(type))
+                .toList();
+        if (targets.isEmpty()) return;
+
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            log.error("Could not serialize {} webhook payload", type.eventName(), e);
+            return;
+        }
+        targets.forEach(endpoint -> engine.submit(endpoint, type, body));
+        log.debug("Queued {} for {} webhooks", type.eventName(), targets.size());
+    }
+
+    private static WebhookEndpoint toEndpoint(WebhookModel webhook) {
+        Set<WebhookEventType> events = EnumSet.noneOf(WebhookEventType.class);
+        if (webhook.isAvailabilityEvents()) events.add(WebhookEventType.AVAILABILITY_CHANGED);
+        if (webhook.isPriceEvents()) events.add(WebhookEventType.PRICE_CHANGED);
+        return new WebhookEndpoint(webhook.getId(), URI.create(webhook.getUrl()), webhook.getSecret(), events);
+    }
+}
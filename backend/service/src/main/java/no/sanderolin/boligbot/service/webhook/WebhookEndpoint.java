@@ -0,0 +1,11 @@
+package no.sanderolin.boligbot.service.webhook;
+
+import java.net.URI;
+import java.util.Set;
+
+public record WebhookEndpoint(long id, URI url, String secret, Set<WebhookEventType> events) {
+
+    public boolean subscribesTo(WebhookEventType type) {
+        return events.contains(type);
+    }
+}
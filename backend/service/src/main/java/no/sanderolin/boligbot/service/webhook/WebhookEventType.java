@@ -0,0 +1,28 @@
+package no.sanderolin.boligbot.service.webhook;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+public enum WebhookEventType {
+    AVAILABILITY_CHANGED("housing.availability_changed"),
+    PRICE_CHANGED("housing.price_changed");
+
+    private final String eventName;
+
+    WebhookEventType(String eventName) {
+        this.eventName = eventName;
+    }
+
+    public String eventName() {
+        return eventName;
+    }
+
+    public static Optional<WebhookEventType> fromEventName(String eventName) {
+        return Arrays.stream(values()).filter(t -> t.eventName.equals(eventName)).findFirst();
+    }
+
+    public static List<String> allowedEventNames() {
+        return Arrays.stream(values()).map(WebhookEventType::eventName).toList();
+    }
+}
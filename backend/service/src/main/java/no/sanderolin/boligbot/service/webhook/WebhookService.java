@@ -0,0 +1,87 @@
+package no.sanderolin.boligbot.service.webhook;
+
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.event.UserDataChangedEvent;
+import no.sanderolin.boligbot.dao.model.UserModel;
+import no.sanderolin.boligbot.dao.model.WebhookModel;
+import no.sanderolin.boligbot.dao.repository.UserRepository;
+import no.sanderolin.boligbot.dao.repository.WebhookRepository;
+import org.hibernate.ObjectNotFoundException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+
+import static no.sanderolin.boligbot.dao.event.UserDataChangedEvent.Kind.WEBHOOKS;
+
+@Service
+@RequiredArgsConstructor
+public class WebhookService {
+
+    public static final int MAX_WEBHOOKS_PER_USER = 5;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final WebhookRepository webhookRepository;
+    private final UserRepository userRepository;
+    private final WebhookDispatcher webhookDispatcher;
+    private final WebhookAddressPolicy addressPolicy;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public List<WebhookModel> getWebhooks(String email) throws ObjectNotFoundException {
+        return webhookRepository.findAllByUserIdOrderByCreatedAtAsc(getUser(email).getId());
+    }
+
+    /**
+     * Registers a webhook with a freshly generated signing secret and starts delivering to it.
+     *
+     * @throws IllegalStateException if the user already has {@link #MAX_WEBHOOKS_PER_USER} webhooks
+     * @throws IllegalArgumentException if the url's host does not resolve to a public address
+     */
+    public WebhookModel createWebhook(String email, URI url, Set<WebhookEventType> events) throws ObjectNotFoundException {
+        addressPolicy.requirePublic(url);
+        UserModel user = getUser(email);
+        if (webhookRepository.countByUserId(user.getId()) >= MAX_WEBHOOKS_PER_USER) {
+            throw new IllegalStateException("A user can have at most " + MAX_WEBHOOKS_PER_USER + " webhooks");
+        }
+
+        Instant now = Instant.now();
+        WebhookModel webhook = new WebhookModel();
+        webhook.setUser(user);
+        webhook.setUrl(url.toString());
+        webhook.setSecret(generateSecret());
+        webhook.setAvailabilityEvents(events.contains(WebhookEventType.AVAILABILITY_CHANGED));
+        webhook.setPriceEvents(events.contains(WebhookEventType.PRICE_CHANGED));
+        webhook.setCreatedAt(now);
+        webhook.setLastModifiedAt(now);
+
+        WebhookModel saved = webhookRepository.save(webhook);
+        webhookDispatcher.put(saved);
+        eventPublisher.publishEvent(new UserDataChangedEvent(WEBHOOKS));
+        return saved;
+    }
+
+    public void deleteWebhook(String email, long webhookId) throws ObjectNotFoundException {
+        WebhookModel webhook = webhookRepository.findByIdAndUserId(webhookId, getUser(email).getId())
+                .orElseThrow(() -> new ObjectNotFoundException("Webhook with id " + webhookId + " not found", WebhookModel.class));
+        webhookRepository.delete(webhook);
+        webhookDispatcher.remove(webhookId);
+        eventPublisher.publishEvent(new UserDataChangedEvent(WEBHOOKS));
+    }
+
+    private static String generateSecret() {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        return "whsec_" + Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private UserModel getUser(String email) throws ObjectNotFoundException {
+        return userRepository.findByEmail(email)
+                .orElseThrow(() -> new ObjectNotFoundException("User with email " + email + " not found", UserModel.class));
+    }
+}
@@ -0,0 +1,36 @@
+package no.sanderolin.boligbot.service.webhook;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HexFormat;
+
+/**
+ * Signs webhook bodies. The header value is {@code t=<unix seconds>,v1=<hex HMAC-SHA256>}, where the MAC is
+ * computed with the endpoint secret over {@code <unix seconds>.<body>}. Receivers should recompute the MAC
+ * and reject old timestamps to guard against replays.
+ */
+public final class WebhookSignature {
+
+    public static final String HEADER = "X-Boligbot-Signature";
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private WebhookSignature() { }
+
+    public static String header(String secret, long timestamp, byte[] body) {
+        return "t=" + timestamp + ",v1=" + sign(secret, timestamp, body);
+    }
+
+    public static String sign(String secret, long timestamp, byte[] body) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            mac.update((timestamp + ".").getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(mac.doFinal(body));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
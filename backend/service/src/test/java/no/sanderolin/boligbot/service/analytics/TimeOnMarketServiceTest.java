@@ -0,0 +1,56 @@
+package no.sanderolin.boligbot.service.analytics;
+
+import no.sanderolin.boligbot.dao.projection.TimeOnMarketBucket;
+import no.sanderolin.boligbot.dao.repository.TimeOnMarketHistogramRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TimeOnMarketServiceTest {
+
+    @Mock private TimeOnMarketHistogramRepository histogramRepository;
+    @InjectMocks private TimeOnMarketService timeOnMarketService;
+
+    @Test
+    void getByDistrict_ShouldComputeMedianPerGroup() {
+        when(histogramRepository.findAllGroupedByDistrict()).thenReturn(List.of(
+                new TimeOnMarketBucket(1, "Moholt", 2, 1),
+                new TimeOnMarketBucket(1, "Moholt", 5, 1),
+                new TimeOnMarketBucket(1, "Moholt", 30, 1),
+                new TimeOnMarketBucket(2, "Singsaker", 10, 3),
+                new TimeOnMarketBucket(2, "Singsaker", 40, 1)
+        ));
+
+        List<TimeOnMarketStat> result = timeOnMarketService.getByDistrict();
+
+        assertEquals(List.of(
+                new TimeOnMarketStat(1, "Moholt", 3, 5),
+                new TimeOnMarketStat(2, "Singsaker", 4, 10)
+        ), result);
+    }
+
+    @Test
+    void getByHousingType_WithEvenCount_ShouldReturnLowerMedian() {
+        when(histogramRepository.findAllGroupedByHousingType()).thenReturn(List.of(
+                new TimeOnMarketBucket(3, "Dorm", 1, 2),
+                new TimeOnMarketBucket(3, "Dorm", 9, 2)
+        ));
+
+        assertEquals(List.of(new TimeOnMarketStat(3, "Dorm", 4, 1)), timeOnMarketService.getByHousingType());
+    }
+
+    @Test
+    void getByDistrict_WithNoRentals_ShouldReturnEmptyList() {
+        when(histogramRepository.findAllGroupedByDistrict()).thenReturn(List.of());
+
+        assertTrue(timeOnMarketService.getByDistrict().isEmpty());
+    }
+}
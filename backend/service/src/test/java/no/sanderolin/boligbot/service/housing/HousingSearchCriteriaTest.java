@@ -7,6 +7,7 @@ import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.data.domain.Sort;
 
 import java.math.BigDecimal;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -293,4 +294,19 @@ class HousingSearchCriteriaTest {
         assertNotNull(result);
         assertEquals(0, result.compareTo(expected));
     }
-}
\ No newline at end of file
+
+    @Test
+    void hasFieldSelection_WhenFieldsAreNullOrEmpty_ShouldReturnFalse() {
+        assertFalse(HousingSearchCriteria.builder().build().hasFieldSelection());
+        assertFalse(HousingSearchCriteria.builder().setFields(Set.of()).build().hasFieldSelection());
+    }
+
+    @Test
+    void hasFieldSelection_WhenFieldsAreSet_ShouldReturnTrue() {
+        HousingSearchCriteria criteria = HousingSearchCriteria.builder()
+                .setFields(Set.of(HousingField.RENTAL_OBJECT_ID))
+                .build();
+
+        assertTrue(criteria.hasFieldSelection());
+    }
+}
@@ -0,0 +1,69 @@
+package no.sanderolin.boligbot.service.housing.similar;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HousingSimilarityIndexTest {
+
+    private static HousingSimilarityIndex.Item item(String id, int price, double area, long type, long district, long city) {
+        return new HousingSimilarityIndex.Item(id, price, area, type, district, city);
+    }
+
+    private final HousingSimilarityIndex index = HousingSimilarityIndex.build(List.of(
+            item("1", 8200, 19.9, 1, 1, 1),
+            item("2", 8000, 19.5, 1, 1, 1),
+            item("3", 8100, 18.0, 1, 2, 1),
+            item("4", 8150, 19.0, 1, 3, 2),
+            item("5", 14000, 45.0, 2, 1, 1),
+            item("6", 5000, 12.0, 3, 2, 1)
+    ));
+
+    @Test
+    void nearest_ShouldExcludeTargetAndOrderByDistance() {
+        List<String> result = index.nearest(item("1", 8200, 19.9, 1, 1, 1), 3);
+
+        assertEquals(List.of("2", "3", "6"), result);
+    }
+
+    @Test
+    void nearest_ShouldPreferSameCityOverSimilarPrice() {
+        List<String> result = index.nearest(item("1", 8200, 19.9, 1, 1, 1), 5);
+
+        assertTrue(result.indexOf("6") < result.indexOf("4"));
+    }
+
+    @Test
+    void nearest_WithLimitLargerThanIndex_ShouldReturnAllOtherHousings() {
+        List<String> result = index.nearest(item("5", 14000, 45.0, 2, 1, 1), 100);
+
+        assertEquals(5, result.size());
+        assertFalse(result.contains("5"));
+    }
+
+    @Test
+    void nearest_WithTargetNotInIndex_ShouldStillReturnNeighbours() {
+        List<String> result = index.nearest(item("new", 8050, 19.6, 1, 1, 1), 1);
+
+        assertEquals(List.of("2"), result);
+    }
+
+    @Test
+    void nearest_WithUnknownCategories_ShouldNotFail() {
+        List<String> result = index.nearest(item("new", 5100, 12.0, 99, 99, 99), 1);
+
+        assertEquals(List.of("6"), result);
+    }
+
+    @Test
+    void nearest_OnEmptyIndex_ShouldReturnEmptyList() {
+        assertTrue(HousingSimilarityIndex.empty().nearest(item("1", 8200, 19.9, 1, 1, 1), 5).isEmpty());
+    }
+
+    @Test
+    void nearest_WithNonPositiveK_ShouldReturnEmptyList() {
+        assertTrue(index.nearest(item("1", 8200, 19.9, 1, 1, 1), 0).isEmpty());
+    }
+}
@@ -0,0 +1,150 @@
+package no.sanderolin.boligbot.service.housing.similar;
+
+import no.sanderolin.boligbot.dao.event.HousingImportCompletedEvent;
+import no.sanderolin.boligbot.dao.model.CityModel;
+import no.sanderolin.boligbot.dao.model.DistrictModel;
+import no.sanderolin.boligbot.dao.model.HousingModel;
+import no.sanderolin.boligbot.dao.model.HousingTypeModel;
+import no.sanderolin.boligbot.dao.projection.HousingFeatureRow;
+import no.sanderolin.boligbot.dao.repository.HousingRepository;
+import org.hibernate.ObjectNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SimilarHousingServiceTest {
+
+    @Mock private HousingRepository housingRepository;
+    private SimilarHousingIndexHolder indexHolder;
+    private SimilarHousingService similarHousingService;
+
+    @BeforeEach
+    void setUp() {
+        indexHolder = new SimilarHousingIndexHolder(housingRepository);
+        similarHousingService = new SimilarHousingService(housingRepository, indexHolder);
+    }
+
+    @AfterEach
+    void tearDown() {
+        indexHolder.shutdown();
+    }
+
+    @Test
+    void findSimilarHousings_ShouldReturnHousingsInIndexOrder() {
+        HousingModel target = housing("1", 8200, "19.9");
+        HousingModel closest = housing("2", 8000, "16");
+        HousingModel furthest = housing("3", 14000, "45");
+        when(housingRepository.findAllFeatureRows()).thenReturn(List.of(
+                row(target), row(closest), row(furthest)
+        ));
+        when(housingRepository.findById("1")).thenReturn(Optional.of(target));
+        when(housingRepository.findAllWithDetailsByRentalObjectIdIn(List.of("2", "3"))).thenReturn(List.of(furthest, closest));
+        indexHolder.scheduleRebuild().join();
+
+        List<HousingModel> result = similarHousingService.findSimilarHousings("1", 2);
+
+        assertEquals(List.of(closest, furthest), result);
+    }
+
+    @Test
+    void findSimilarHousings_WithUnknownId_ShouldThrow() {
+        when(housingRepository.findById("missing")).thenReturn(Optional.empty());
+
+        assertThrows(ObjectNotFoundException.class, () -> similarHousingService.findSimilarHousings("missing", 5));
+    }
+
+    @Test
+    void findSimilarHousings_BeforeIndexIsBuilt_ShouldReturnEmptyList() {
+        when(housingRepository.findById("1")).thenReturn(Optional.of(housing("1", 8200, "19.9")));
+
+        assertTrue(similarHousingService.findSimilarHousings("1", 5).isEmpty());
+        verify(housingRepository, never()).findAllWithDetailsByRentalObjectIdIn(anyCollection());
+    }
+
+    @Test
+    void onImportCompleted_ForCatalogImport_ShouldRebuildIndexOffTheCallingThread() {
+        AtomicReference<Thread> rebuiltOn = new AtomicReference<>();
+        when(housingRepository.findAllFeatureRows()).thenAnswer(invocation -> {
+            rebuiltOn.set(Thread.currentThread());
+            return List.of();
+        });
+
+        indexHolder.onImportCompleted(new HousingImportCompletedEvent(
+                HousingImportCompletedEvent.ImportKind.CATALOG, Instant.now()));
+
+        verify(housingRepository, timeout(1000)).findAllFeatureRows();
+        assertNotSame(Thread.currentThread(), rebuiltOn.get());
+    }
+
+    @Test
+    void scheduleRebuild_WhileRebuildIsQueued_ShouldShareIt() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        when(housingRepository.findAllFeatureRows()).thenAnswer(invocation -> {
+            release.await();
+            return List.of();
+        });
+        CompletableFuture<Void> running = indexHolder.scheduleRebuild();
+        verify(housingRepository, timeout(1000)).findAllFeatureRows();
+
+        CompletableFuture<Void> queued = indexHolder.scheduleRebuild();
+        assertSame(queued, indexHolder.scheduleRebuild());
+        assertNotSame(running, queued);
+
+        release.countDown();
+        queued.join();
+        verify(housingRepository, times(2)).findAllFeatureRows();
+    }
+
+    @Test
+    void onImportCompleted_ForAvailabilityImport_ShouldNotRebuildIndex() {
+        indexHolder.onImportCompleted(new HousingImportCompletedEvent(
+                HousingImportCompletedEvent.ImportKind.AVAILABILITY, Instant.now()));
+
+        verify(housingRepository, never()).findAllFeatureRows();
+    }
+
+    private static HousingModel housing(String id, int price, String area) {
+        CityModel city = new CityModel();
+        city.setId(1L);
+        DistrictModel district = new DistrictModel();
+        district.setId(1L);
+        district.setCity(city);
+        HousingTypeModel type = new HousingTypeModel();
+        type.setId(1L);
+
+        HousingModel housing = new HousingModel();
+        housing.setRentalObjectId(id);
+        housing.setPricePerMonth(price);
+        housing.setAreaSqm(new BigDecimal(area));
+        housing.setDistrict(district);
+        housing.setHousingType(type);
+        return housing;
+    }
+
+    private static HousingFeatureRow row(HousingModel housing) {
+        return new HousingFeatureRow() {
+            @Override public String getRentalObjectId() { return housing.getRentalObjectId(); }
+            @Override public int getPricePerMonth() { return housing.getPricePerMonth(); }
+            @Override public BigDecimal getAreaSqm() { return housing.getAreaSqm(); }
+            @Override public Long getHousingTypeId() { return housing.getHousingType().getId(); }
+            @Override public Long getDistrictId() { return housing.getDistrict().getId(); }
+            @Override public Long getCityId() { return housing.getCity().getId(); }
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package no.sanderolin.boligbot.service.importrun;
+
+import no.sanderolin.boligbot.dao.projection.ImportRunPercentiles;
+import no.sanderolin.boligbot.dao.projection.ImportRunStatusCount;
+import no.sanderolin.boligbot.dao.repository.ImportRunRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImportRunServiceTest {
+
+    private static final Instant FROM = Instant.parse("2026-10-12T00:00:00Z");
+    private static final Instant TO = Instant.parse("2026-10-19T00:00:00Z");
+
+    @Mock private ImportRunRepository importRunRepository;
+    @InjectMocks private ImportRunService importRunService;
+
+    @Test
+    void summarize_ShouldGroupStatusesAndPercentilesPerKind() {
+        ImportRunPercentiles availabilityRuns = new ImportRunPercentiles("availability", null, 3, 40, 80, 95, 100);
+        ImportRunPercentiles catalogRuns = new ImportRunPercentiles("catalog", null, 2, 1500, 1900, 1990, 2000);
+        ImportRunPercentiles catalogFetch = new ImportRunPercentiles("catalog", "fetch", 2, 900, 950, 990, 1000);
+        ImportRunPercentiles catalogMerge = new ImportRunPercentiles("catalog", "merge_housing", 1, 300, 300, 300, 300);
+        ImportRunPercentiles catalogPayload = new ImportRunPercentiles("catalog", null, 2, 120_000, 125_000, 125_000, 125_000);
+        when(importRunRepository.countByStatus(FROM, TO)).thenReturn(List.of(
+                new ImportRunStatusCount("availability", "unchanged", 3),
+                new ImportRunStatusCount("catalog", "applied", 1),
+                new ImportRunStatusCount("catalog", "failed", 1),
+                new ImportRunStatusCount("catalog", "skipped", 4)
+        ));
+        when(importRunRepository.findDurationPercentiles(FROM, TO))
+                .thenReturn(List.of(availabilityRuns, catalogRuns, catalogFetch, catalogMerge));
+        when(importRunRepository.findPayloadPercentiles(FROM, TO)).thenReturn(List.of(catalogPayload));
+
+        List<ImportRunSummary> result = importRunService.summarize(FROM, TO);
+
+        assertEquals(List.of(
+                new ImportRunSummary("availability", Map.of("unchanged", 3L), availabilityRuns, null, List.of()),
+                new ImportRunSummary("catalog", Map.of("applied", 1L, "failed", 1L, "skipped", 4L),
+                        catalogRuns, catalogPayload, List.of(catalogFetch, catalogMerge))
+        ), result);
+    }
+
+    @Test
+    void summarize_WithoutRuns_ShouldReturnEmptyList() {
+        assertEquals(List.of(), importRunService.summarize(FROM, TO));
+    }
+}
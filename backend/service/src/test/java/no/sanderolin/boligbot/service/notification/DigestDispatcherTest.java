@@ -0,0 +1,160 @@
+package no.sanderolin.boligbot.service.notification;
+
+import no.sanderolin.boligbot.dao.model.*;
+import no.sanderolin.boligbot.dao.projection.DigestMatch;
+import no.sanderolin.boligbot.dao.repository.DigestRepository;
+import no.sanderolin.boligbot.dao.repository.SubscriptionRepository;
+import no.sanderolin.boligbot.dao.repository.UserRepository;
+import no.sanderolin.boligbot.service.housing.HousingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DigestDispatcherTest {
+
+    private static final Instant PERIOD_END = Instant.parse("2026-10-19T12:00:00Z");
+
+    @Mock private DigestRepository digestRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private SubscriptionRepository subscriptionRepository;
+    @Mock private HousingService housingService;
+    @Mock private JavaMailSender mailSender;
+    private DigestDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new DigestDispatcher(digestRepository, userRepository, subscriptionRepository, housingService,
+                mailSender, "no-reply@boligbot.no", 20);
+    }
+
+    @Test
+    void sendDigests_ShouldLoadEverythingOnceAndSendOneEmailPerUser() {
+        when(digestRepository.findLastPeriodEnd(NotificationFrequency.HOURLY)).thenReturn(Optional.of(PERIOD_END.minusSeconds(3600)));
+        when(digestRepository.claimPeriod(NotificationFrequency.HOURLY, PERIOD_END.minusSeconds(3600), PERIOD_END)).thenReturn(true);
+        when(digestRepository.findMatches(NotificationFrequency.HOURLY, PERIOD_END.minusSeconds(3600), PERIOD_END)).thenReturn(List.of(
+                new DigestMatch(1, 10, "A"), new DigestMatch(1, 10, "B"), new DigestMatch(2, 20, "A")));
+        when(userRepository.findAllById(any())).thenReturn(List.of(user(1, "alice@example.com"), user(2, "bob@example.com")));
+        when(subscriptionRepository.findAllById(any())).thenReturn(List.of(subscription(10, "Moholt"), subscription(20, "Cheap")));
+        when(housingService.getHousingsWithDetailsByRentalObjectIds(any())).thenReturn(List.of(housing("A"), housing("B")));
+
+        DispatchResult result = dispatcher.sendDigests(NotificationFrequency.HOURLY, PERIOD_END);
+
+        assertThat(result).isEqualTo(new DispatchResult(2, 3, 0));
+        verify(housingService, times(1)).getHousingsWithDetailsByRentalObjectIds(Set.of("A", "B"));
+        ArgumentCaptor<SimpleMailMessage[]> sent = ArgumentCaptor.forClass(SimpleMailMessage[].class);
+        verify(mailSender).send(sent.capture());
+        assertThat(sent.getValue()).hasSize(2);
+        assertThat(sent.getValue()[0].getTo()).containsExactly("alice@example.com");
+        assertThat(sent.getValue()[0].getSubject()).isEqualTo("Your digest: 2 new housings match your saved searches");
+        assertThat(sent.getValue()[0].getText()).contains("Moholt\n- Name A", "- Name B");
+        verify(digestRepository, never()).releasePeriod(any(), any(), any());
+    }
+
+    @Test
+    void sendDigests_WithoutPreviousRun_ShouldCoverOnePeriod() {
+        when(digestRepository.findLastPeriodEnd(NotificationFrequency.DAILY)).thenReturn(Optional.empty());
+        when(digestRepository.claimPeriod(NotificationFrequency.DAILY, null, PERIOD_END)).thenReturn(true);
+        when(digestRepository.findMatches(any(), any(), any())).thenReturn(List.of());
+
+        assertThat(dispatcher.sendDigests(NotificationFrequency.DAILY, PERIOD_END)).isEqualTo(DispatchResult.NONE);
+
+        verify(digestRepository).findMatches(NotificationFrequency.DAILY, PERIOD_END.minusSeconds(86400), PERIOD_END);
+        verify(digestRepository, never()).releasePeriod(any(), any(), any());
+        verifyNoInteractions(mailSender, housingService);
+    }
+
+    @Test
+    void sendDigests_WhenAnotherNodeClaimedThePeriod_ShouldSendNothing() {
+        when(digestRepository.findLastPeriodEnd(NotificationFrequency.HOURLY)).thenReturn(Optional.of(PERIOD_END.minusSeconds(3600)));
+        when(digestRepository.claimPeriod(NotificationFrequency.HOURLY, PERIOD_END.minusSeconds(3600), PERIOD_END)).thenReturn(false);
+
+        assertThat(dispatcher.sendDigests(NotificationFrequency.HOURLY, PERIOD_END)).isEqualTo(DispatchResult.NONE);
+
+        verify(digestRepository, never()).findMatches(any(), any(), any());
+        verify(digestRepository, never()).releasePeriod(any(), any(), any());
+        verifyNoInteractions(mailSender, housingService);
+    }
+
+    @Test
+    void sendDigests_WhenNothingCouldBeSent_ShouldReleaseTheClaim() {
+        when(digestRepository.findLastPeriodEnd(NotificationFrequency.HOURLY)).thenReturn(Optional.of(PERIOD_END.minusSeconds(3600)));
+        when(digestRepository.claimPeriod(NotificationFrequency.HOURLY, PERIOD_END.minusSeconds(3600), PERIOD_END)).thenReturn(true);
+        when(digestRepository.findMatches(any(), any(), any())).thenReturn(List.of(new DigestMatch(1, 10, "A")));
+        when(userRepository.findAllById(any())).thenReturn(List.of(user(1, "alice@example.com")));
+        when(subscriptionRepository.findAllById(any())).thenReturn(List.of(subscription(10, "Moholt")));
+        when(housingService.getHousingsWithDetailsByRentalObjectIds(any())).thenReturn(List.of(housing("A")));
+        doThrow(new MailSendException("connection refused")).when(mailSender).send(any(SimpleMailMessage[].class));
+
+        DispatchResult result = dispatcher.sendDigests(NotificationFrequency.HOURLY, PERIOD_END);
+
+        assertThat(result).isEqualTo(new DispatchResult(0, 0, 1));
+        verify(digestRepository).releasePeriod(NotificationFrequency.HOURLY, PERIOD_END.minusSeconds(3600), PERIOD_END);
+    }
+
+    @Test
+    void sendDigests_WhenOneConnectionFailed_ShouldReleaseTheClaim() {
+        dispatcher = new DigestDispatcher(digestRepository, userRepository, subscriptionRepository, housingService,
+                mailSender, "no-reply@boligbot.no", 1);
+        when(digestRepository.findLastPeriodEnd(NotificationFrequency.HOURLY)).thenReturn(Optional.of(PERIOD_END.minusSeconds(3600)));
+        when(digestRepository.claimPeriod(NotificationFrequency.HOURLY, PERIOD_END.minusSeconds(3600), PERIOD_END)).thenReturn(true);
+        when(digestRepository.findMatches(any(), any(), any())).thenReturn(List.of(
+                new DigestMatch(1, 10, "A"), new DigestMatch(2, 20, "A")));
+        when(userRepository.findAllById(any())).thenReturn(List.of(user(1, "alice@example.com"), user(2, "bob@example.com")));
+        when(subscriptionRepository.findAllById(any())).thenReturn(List.of(subscription(10, "Moholt"), subscription(20, "Cheap")));
+        when(housingService.getHousingsWithDetailsByRentalObjectIds(any())).thenReturn(List.of(housing("A")));
+        doNothing().doThrow(new MailSendException("connection reset")).when(mailSender).send(any(SimpleMailMessage[].class));
+
+        DispatchResult result = dispatcher.sendDigests(NotificationFrequency.HOURLY, PERIOD_END);
+
+        assertThat(result).isEqualTo(new DispatchResult(1, 1, 1));
+        verify(mailSender, times(2)).send(any(SimpleMailMessage[].class));
+        verify(digestRepository).releasePeriod(NotificationFrequency.HOURLY, PERIOD_END.minusSeconds(3600), PERIOD_END);
+    }
+
+    private static UserModel user(long id, String email) {
+        UserModel user = new UserModel();
+        user.setId(id);
+        user.setEmail(email);
+        return user;
+    }
+
+    private static SubscriptionModel subscription(long id, String name) {
+        SubscriptionModel subscription = new SubscriptionModel();
+        subscription.setId(id);
+        subscription.setName(name);
+        return subscription;
+    }
+
+    private static HousingModel housing(String rentalObjectId) {
+        CityModel city = new CityModel();
+        city.setName("Trondheim");
+        DistrictModel district = new DistrictModel();
+        district.setName("Moholt");
+        district.setCity(city);
+        HousingModel housing = new HousingModel();
+        housing.setRentalObjectId(rentalObjectId);
+        housing.setName("Name " + rentalObjectId);
+        housing.setAddress("Address " + rentalObjectId);
+        housing.setDistrict(district);
+        housing.setAreaSqm(new BigDecimal("20.00"));
+        housing.setPricePerMonth(8000);
+        return housing;
+    }
+}
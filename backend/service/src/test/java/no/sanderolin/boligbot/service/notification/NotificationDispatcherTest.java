@@ -0,0 +1,160 @@
+package no.sanderolin.boligbot.service.notification;
+
+import no.sanderolin.boligbot.dao.model.*;
+import no.sanderolin.boligbot.dao.projection.ClaimedNotification;
+import no.sanderolin.boligbot.dao.repository.NotificationOutboxRepository;
+import no.sanderolin.boligbot.dao.repository.SubscriptionRepository;
+import no.sanderolin.boligbot.dao.repository.UserRepository;
+import no.sanderolin.boligbot.service.housing.HousingService;
+import no.sanderolin.boligbot.service.watchlist.WatchedChangeType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationDispatcherTest {
+
+    @Mock private NotificationOutboxRepository outboxRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private SubscriptionRepository subscriptionRepository;
+    @Mock private HousingService housingService;
+    @Mock private JavaMailSender mailSender;
+    private NotificationDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new NotificationDispatcher(outboxRepository, userRepository, subscriptionRepository, housingService,
+                mailSender, "no-reply@boligbot.no", 100, 2, 5, 20, 300, 60);
+        when(userRepository.findAllById(any())).thenReturn(List.of(user(1, "alice@example.com"), user(2, "bob@example.com")));
+        when(subscriptionRepository.findAllById(any())).thenReturn(List.of(subscription(10, "Moholt"), subscription(20, "Cheap")));
+        when(housingService.getHousingsWithDetailsByRentalObjectIds(any())).thenReturn(List.of(housing("A"), housing("B")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void dispatch_ShouldSendOneEmailPerUser() {
+        when(outboxRepository.claimBatch(anyInt(), any(), anyInt())).thenReturn(List.of(
+                claimed(100, 1, 10, "A"), claimed(101, 1, 20, "B"), claimed(102, 2, 10, "A")));
+
+        DispatchResult result = dispatcher.dispatch();
+
+        assertThat(result).isEqualTo(new DispatchResult(2, 3, 0));
+        ArgumentCaptor<SimpleMailMessage[]> sent = ArgumentCaptor.forClass(SimpleMailMessage[].class);
+        verify(mailSender).send(sent.capture());
+        assertThat(sent.getValue()).hasSize(2);
+        SimpleMailMessage alice = sent.getValue()[0];
+        assertThat(alice.getTo()).containsExactly("alice@example.com");
+        assertThat(alice.getSubject()).isEqualTo("2 new housings match your saved searches");
+        assertThat(alice.getText()).contains("Moholt\n- Name A", "Cheap\n- Name B");
+        verify(outboxRepository).markSent(argThat(ids -> ids.containsAll(List.of(100L, 101L, 102L))));
+        verify(outboxRepository, never()).markFailed(any(), any(), any());
+    }
+
+    @Test
+    void dispatch_WhenOneEmailFails_ShouldRetryOnlyItsNotifications() {
+        when(outboxRepository.claimBatch(anyInt(), any(), anyInt())).thenReturn(List.of(
+                claimed(100, 1, 10, "A"), claimed(102, 2, 10, "A")));
+        doAnswer(invocation -> {
+            SimpleMailMessage bob = invocation.getArgument(1);
+            throw new MailSendException(Map.of(bob, new RuntimeException("mailbox unavailable")));
+        }).when(mailSender).send(any(SimpleMailMessage.class), any(SimpleMailMessage.class));
+        Instant before = Instant.now();
+
+        DispatchResult result = dispatcher.dispatch();
+
+        assertThat(result).isEqualTo(new DispatchResult(1, 1, 1));
+        verify(outboxRepository).markSent(List.of(100L));
+        verify(outboxRepository).markFailed(eq(List.of(102L)), argThat(at -> at.isAfter(before.plusSeconds(59))), eq("mailbox unavailable"));
+    }
+
+    @Test
+    void dispatch_WithWatchlistChanges_ShouldListThemInTheUsersEmail() {
+        when(outboxRepository.claimBatch(anyInt(), any(), anyInt())).thenReturn(List.of(
+                claimed(100, 1, 10, "A"), watched(101, 1, WatchedChangeType.PRICE_CHANGED, "B"),
+                watched(102, 2, WatchedChangeType.BECAME_UNAVAILABLE, "A")));
+
+        DispatchResult result = dispatcher.dispatch();
+
+        assertThat(result).isEqualTo(new DispatchResult(2, 3, 0));
+        ArgumentCaptor<SimpleMailMessage[]> sent = ArgumentCaptor.forClass(SimpleMailMessage[].class);
+        verify(mailSender).send(sent.capture());
+        SimpleMailMessage alice = sent.getValue()[0];
+        assertThat(alice.getSubject()).isEqualTo("1 new saved search match and 1 update to your watchlist");
+        assertThat(alice.getText()).contains("Moholt\n- Name A", "On your watchlist, new price or area\n- Name B");
+        SimpleMailMessage bob = sent.getValue()[1];
+        assertThat(bob.getSubject()).isEqualTo("1 update to your watchlist");
+        assertThat(bob.getText()).startsWith("Housings on your watchlist have changed:")
+                .contains("On your watchlist, no longer available\n- Name A");
+        verify(subscriptionRepository).findAllById(Set.of(10L));
+    }
+
+    @Test
+    void dispatch_WithHousingNoLongerInCatalog_ShouldMarkSentWithoutEmail() {
+        when(outboxRepository.claimBatch(anyInt(), any(), anyInt())).thenReturn(List.of(claimed(100, 1, 10, "gone")));
+
+        DispatchResult result = dispatcher.dispatch();
+
+        assertThat(result).isEqualTo(DispatchResult.NONE);
+        verify(outboxRepository).markSent(List.of(100L));
+        verifyNoInteractions(mailSender);
+    }
+
+    private static ClaimedNotification claimed(long id, long userId, long subscriptionId, String rentalObjectId) {
+        return new ClaimedNotification(id, userId, subscriptionId, null, rentalObjectId, 1);
+    }
+
+    private static ClaimedNotification watched(long id, long userId, WatchedChangeType change, String rentalObjectId) {
+        return new ClaimedNotification(id, userId, null, change.name(), rentalObjectId, 1);
+    }
+
+    private static UserModel user(long id, String email) {
+        UserModel user = new UserModel();
+        user.setId(id);
+        user.setEmail(email);
+        return user;
+    }
+
+    private static SubscriptionModel subscription(long id, String name) {
+        SubscriptionModel subscription = new SubscriptionModel();
+        subscription.setId(id);
+        subscription.setName(name);
+        return subscription;
+    }
+
+    private static HousingModel housing(String rentalObjectId) {
+        CityModel city = new CityModel();
+        city.setName("Trondheim");
+        DistrictModel district = new DistrictModel();
+        district.setName("Moholt");
+        district.setCity(city);
+        HousingModel housing = new HousingModel();
+        housing.setRentalObjectId(rentalObjectId);
+        housing.setName("Name " + rentalObjectId);
+        housing.setAddress("Address " + rentalObjectId);
+        housing.setDistrict(district);
+        housing.setAreaSqm(new BigDecimal("20.00"));
+        housing.setPricePerMonth(8000);
+        return housing;
+    }
+}
@@ -0,0 +1,91 @@
+package no.sanderolin.boligbot.service.pricehistory;
+
+import no.sanderolin.boligbot.dao.projection.DistrictPriceDaily;
+import no.sanderolin.boligbot.dao.projection.HousingPriceChange;
+import no.sanderolin.boligbot.dao.repository.DistrictPriceDailyRepository;
+import no.sanderolin.boligbot.dao.repository.DistrictRepository;
+import no.sanderolin.boligbot.dao.repository.HousingPriceHistoryRepository;
+import no.sanderolin.boligbot.dao.repository.HousingRepository;
+import org.hibernate.ObjectNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PriceHistoryServiceTest {
+
+    @Mock private HousingRepository housingRepository;
+    @Mock private DistrictRepository districtRepository;
+    @Mock private HousingPriceHistoryRepository priceHistoryRepository;
+    @Mock private DistrictPriceDailyRepository districtPriceDailyRepository;
+    @InjectMocks private PriceHistoryService priceHistoryService;
+
+    private static final LocalDate FROM = LocalDate.of(2026, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2026, 1, 31);
+
+    @Test
+    void getHousingPriceHistory_ShouldReturnRepositoryResult() {
+        List<HousingPriceChange> history = List.of(
+                new HousingPriceChange("1", Instant.parse("2026-01-01T00:00:00Z"), 8000, BigDecimal.valueOf(16))
+        );
+        when(housingRepository.existsById("1")).thenReturn(true);
+        when(priceHistoryRepository.findAllByRentalObjectId("1")).thenReturn(history);
+
+        assertEquals(history, priceHistoryService.getHousingPriceHistory("1"));
+    }
+
+    @Test
+    void getHousingPriceHistory_WithUnknownHousing_ShouldThrow() {
+        when(housingRepository.existsById("missing")).thenReturn(false);
+
+        assertThrows(ObjectNotFoundException.class, () -> priceHistoryService.getHousingPriceHistory("missing"));
+        verifyNoInteractions(priceHistoryRepository);
+    }
+
+    @Test
+    void getDistrictPriceIndex_ShouldIndexAgainstFirstDay() {
+        when(districtRepository.existsById(7L)).thenReturn(true);
+        when(districtPriceDailyRepository.findAllByDistrictIdAndDayBetween(7L, FROM, TO)).thenReturn(List.of(
+                rollup(LocalDate.of(2026, 1, 1), "400.00"),
+                rollup(LocalDate.of(2026, 1, 2), "420.00"),
+                rollup(LocalDate.of(2026, 1, 3), "390.00")
+        ));
+
+        List<DistrictPriceIndexPoint> result = priceHistoryService.getDistrictPriceIndex(7L, FROM, TO);
+
+        assertEquals(3, result.size());
+        assertEquals(new BigDecimal("100.00"), result.get(0).index());
+        assertEquals(new BigDecimal("105.00"), result.get(1).index());
+        assertEquals(new BigDecimal("97.50"), result.get(2).index());
+    }
+
+    @Test
+    void getDistrictPriceIndex_WithNoRollups_ShouldReturnEmptyList() {
+        when(districtRepository.existsById(7L)).thenReturn(true);
+        when(districtPriceDailyRepository.findAllByDistrictIdAndDayBetween(7L, FROM, TO)).thenReturn(List.of());
+
+        assertTrue(priceHistoryService.getDistrictPriceIndex(7L, FROM, TO).isEmpty());
+    }
+
+    @Test
+    void getDistrictPriceIndex_WithUnknownDistrict_ShouldThrow() {
+        when(districtRepository.existsById(7L)).thenReturn(false);
+
+        assertThrows(ObjectNotFoundException.class, () -> priceHistoryService.getDistrictPriceIndex(7L, FROM, TO));
+        verifyNoInteractions(districtPriceDailyRepository);
+    }
+
+    private static DistrictPriceDaily rollup(LocalDate day, String avgPricePerSqm) {
+        return new DistrictPriceDaily(7L, day, 10, new BigDecimal("8000.00"), new BigDecimal(avgPricePerSqm), 5000, 9000);
+    }
+}
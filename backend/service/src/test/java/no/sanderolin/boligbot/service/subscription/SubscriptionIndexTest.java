@@ -0,0 +1,108 @@
+package no.sanderolin.boligbot.service.subscription;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubscriptionIndexTest {
+
+    private static final List<String> CITIES = List.of("Trondheim", "Gjøvik", "Ålesund");
+    private static final List<String> DISTRICTS = List.of("Moholt", "Singsaker", "Sentrum", "Kallerud", "Elgeseter");
+    private static final List<String> TYPES = List.of("1-room apartment", "Dorm in collective", "Family apartment");
+
+    @Test
+    void match_ShouldRequireEveryGivenFilter() {
+        SubscriptionIndex index = SubscriptionIndex.build(List.of(
+                entry(1, "Trondheim", "Moholt", null, null, 9000, null, null),
+                entry(2, "Trondheim", null, "1-room apartment", null, null, null, null),
+                entry(3, null, null, null, 5000, 7000, null, null),
+                entry(4, null, null, null, null, null, "25", null),
+                entry(5, "gjøvik", null, null, null, null, null, null),
+                entry(6, null, null, null, null, null, null, null)
+        ));
+
+        assertEquals(Set.of(1L, 2L, 6L), ids(index.match(item("Trondheim", "Moholt", "1-room apartment", 8500, 20))));
+        assertEquals(Set.of(3L, 4L, 6L), ids(index.match(item("Trondheim", "Singsaker", "Family apartment", 7000, 25))));
+        assertEquals(Set.of(5L, 6L), ids(index.match(item("Gjøvik", "Kallerud", "Dorm in collective", 9500, 12))));
+    }
+
+    @Test
+    void match_ShouldIgnoreCaseAndSurroundingWhitespace() {
+        SubscriptionIndex index = SubscriptionIndex.build(List.of(
+                entry(1, null, " MOHOLT ", null, null, null, null, null)
+        ));
+
+        assertEquals(Set.of(1L), ids(index.match(item("Trondheim", "moholt", "Dorm in collective", 5000, 15))));
+    }
+
+    @Test
+    void match_ShouldAgreeWithLinearScan() {
+        Random random = new Random(42);
+        List<SubscriptionIndex.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Integer minPrice = random.nextInt(3) == 0 ? 3000 + random.nextInt(8000) : null;
+            Integer maxPrice = random.nextInt(3) == 0 ? 6000 + random.nextInt(8000) : null;
+            String minArea = random.nextInt(4) == 0 ? String.valueOf(10 + random.nextInt(30)) : null;
+            String maxArea = random.nextInt(4) == 0 ? String.valueOf(20 + random.nextInt(40)) : null;
+            entries.add(entry(i,
+                    random.nextInt(3) == 0 ? pick(random, CITIES) : null,
+                    random.nextInt(4) == 0 ? pick(random, DISTRICTS) : null,
+                    random.nextInt(3) == 0 ? pick(random, TYPES) : null,
+                    minPrice, maxPrice, minArea, maxArea));
+        }
+        SubscriptionIndex index = SubscriptionIndex.build(entries);
+
+        for (int i = 0; i < 500; i++) {
+            SubscriptionIndex.Item item = item(pick(random, CITIES), pick(random, DISTRICTS), pick(random, TYPES),
+                    3000 + random.nextInt(12000), 10 + random.nextInt(50));
+            List<SubscriptionIndex.Entry> matches = index.match(item);
+
+            assertEquals(matches.size(), ids(matches).size(), "a subscription was matched twice");
+            assertEquals(linearScan(entries, item), ids(matches));
+        }
+    }
+
+    @Test
+    void match_OnEmptyIndex_ShouldReturnNothing() {
+        assertTrue(SubscriptionIndex.empty().match(item("Trondheim", "Moholt", "Dorm in collective", 5000, 15)).isEmpty());
+    }
+
+    private static Set<Long> linearScan(List<SubscriptionIndex.Entry> entries, SubscriptionIndex.Item item) {
+        Set<Long> result = new HashSet<>();
+        for (SubscriptionIndex.Entry e : entries) {
+            if (e.city() != null && !e.city().equalsIgnoreCase(item.city())) continue;
+            if (e.district() != null && !e.district().equalsIgnoreCase(item.district())) continue;
+            if (e.housingType() != null && !e.housingType().equalsIgnoreCase(item.housingType())) continue;
+            if (e.minPricePerMonth() != null && item.pricePerMonth() < e.minPricePerMonth()) continue;
+            if (e.maxPricePerMonth() != null && item.pricePerMonth() > e.maxPricePerMonth()) continue;
+            if (e.minAreaSqm() != null && item.areaSqm() < e.minAreaSqm().doubleValue()) continue;
+            if (e.maxAreaSqm() != null && item.areaSqm() > e.maxAreaSqm().doubleValue()) continue;
+            result.add(e.subscriptionId());
+        }
+        return result;
+    }
+
+    private static Set<Long> ids(List<SubscriptionIndex.Entry> entries) {
+        Set<Long> ids = new HashSet<>();
+        entries.forEach(e -> ids.add(e.subscriptionId()));
+        return ids;
+    }
+
+    private static String pick(Random random, List<String> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static SubscriptionIndex.Entry entry(long id, String city, String district, String type,
+                                                 Integer minPrice, Integer maxPrice, String minArea, String maxArea) {
+        return new SubscriptionIndex.Entry(id, 100 + id, city, district, type, minPrice, maxPrice,
+                minArea == null ? null : new BigDecimal(minArea),
+                maxArea == null ? null : new BigDecimal(maxArea));
+    }
+
+    private static SubscriptionIndex.Item item(String city, String district, String type, int price, double area) {
+        return new SubscriptionIndex.Item("R-" + price, city, district, type, price, area);
+    }
+}
@@ -0,0 +1,194 @@
+package no.sanderolin.boligbot.service.subscription;
+
+import no.sanderolin.boligbot.dao.event.UserDataChangedEvent;
+import no.sanderolin.boligbot.dao.model.HousingModel;
+import no.sanderolin.boligbot.dao.model.NotificationFrequency;
+import no.sanderolin.boligbot.dao.model.SubscriptionModel;
+import no.sanderolin.boligbot.dao.model.UserModel;
+import no.sanderolin.boligbot.dao.repository.HousingChangeWindowRepository;
+import no.sanderolin.boligbot.dao.repository.SubscriptionRepository;
+import no.sanderolin.boligbot.dao.repository.UserRepository;
+import no.sanderolin.boligbot.service.housing.HousingService;
+import org.hibernate.ObjectNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static no.sanderolin.boligbot.dao.event.UserDataChangedEvent.Kind.SUBSCRIPTIONS;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SubscriptionServiceTest {
+
+    private static final String EMAIL = "user@example.com";
+
+    @Mock private SubscriptionRepository subscriptionRepository;
+    @Mock private HousingChangeWindowRepository changeWindowRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private SubscriptionMatcher subscriptionMatcher;
+    @Mock private HousingService housingService;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @InjectMocks private SubscriptionService subscriptionService;
+
+    private final UserModel user = new UserModel();
+
+    @BeforeEach
+    void setUp() {
+        user.setId(7L);
+        user.setEmail(EMAIL);
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user));
+    }
+
+    @Test
+    void createSubscription_ShouldSaveAndIndex() {
+        when(subscriptionRepository.countByUserId(7L)).thenReturn(0L);
+        when(subscriptionRepository.save(any())).thenAnswer(invocation -> {
+            SubscriptionModel model = invocation.getArgument(0);
+            model.setId(1L);
+            return model;
+        });
+
+        SubscriptionModel saved = subscriptionService.createSubscription(EMAIL, criteria());
+
+        assertEquals(user, saved.getUser());
+        assertEquals("Moholt", saved.getDistrict());
+        assertEquals(9000, saved.getMaxPricePerMonth());
+        assertNotNull(saved.getCreatedAt());
+        verify(subscriptionMatcher).put(saved);
+        verify(eventPublisher).publishEvent(new UserDataChangedEvent(SUBSCRIPTIONS));
+    }
+
+    @Test
+    void createSubscription_AtLimit_ShouldThrow() {
+        when(subscriptionRepository.countByUserId(7L)).thenReturn((long) SubscriptionService.MAX_SUBSCRIPTIONS_PER_USER);
+
+        assertThrows(IllegalStateException.class, () -> subscriptionService.createSubscription(EMAIL, criteria()));
+        verify(subscriptionRepository, never()).save(any());
+        verifyNoInteractions(subscriptionMatcher);
+    }
+
+    @Test
+    void deleteSubscription_ShouldDeleteAndRemoveFromIndex() {
+        SubscriptionModel subscription = new SubscriptionModel();
+        subscription.setId(3L);
+        when(subscriptionRepository.findByIdAndUserId(3L, 7L)).thenReturn(Optional.of(subscription));
+
+        subscriptionService.deleteSubscription(EMAIL, 3L);
+
+        verify(subscriptionRepository).delete(subscription);
+        verify(subscriptionMatcher).remove(3L);
+        verify(eventPublisher).publishEvent(new UserDataChangedEvent(SUBSCRIPTIONS));
+    }
+
+    @Test
+    void deleteSubscription_OfAnotherUser_ShouldThrow() {
+        when(subscriptionRepository.findByIdAndUserId(3L, 7L)).thenReturn(Optional.empty());
+
+        assertThrows(ObjectNotFoundException.class, () -> subscriptionService.deleteSubscription(EMAIL, 3L));
+        verifyNoInteractions(subscriptionMatcher);
+    }
+
+    @Test
+    void getNewSinceLastVisit_ShouldQueryFromWatermarkAndAdvanceIt() {
+        Instant lastSeen = Instant.parse("2026-10-19T10:00:00Z");
+        SubscriptionModel subscription = new SubscriptionModel();
+        subscription.setId(3L);
+        subscription.setCreatedAt(lastSeen.minusSeconds(3600));
+        subscription.setLastSeenAt(lastSeen);
+        HousingModel housing = new HousingModel();
+        Instant committedThrough = lastSeen.plusSeconds(600);
+        when(subscriptionRepository.findByIdAndUserId(3L, 7L)).thenReturn(Optional.of(subscription));
+        when(changeWindowRepository.committedThrough()).thenReturn(committedThrough);
+        when(housingService.getSubscriptionMatchesModifiedBetween(subscription, lastSeen, null, committedThrough, 11))
+                .thenReturn(List.of(housing));
+
+        SubscriptionDelta delta = subscriptionService.getNewSinceLastVisit(EMAIL, 3L, true, 10);
+
+        assertEquals(lastSeen, delta.since());
+        assertEquals(committedThrough, delta.until());
+        assertEquals(List.of(housing), delta.housings());
+        assertFalse(delta.hasMore());
+        assertEquals(committedThrough, subscription.getLastSeenAt());
+        assertNull(subscription.getLastSeenRentalObjectId());
+        verify(subscriptionRepository).save(subscription);
+    }
+
+    @Test
+    void getNewSinceLastVisit_WhileAnImportOpenedBeforeTheWatermark_ShouldNotMoveItBack() {
+        Instant lastSeen = Instant.parse("2026-10-19T10:00:00Z");
+        SubscriptionModel subscription = new SubscriptionModel();
+        subscription.setId(3L);
+        subscription.setLastSeenAt(lastSeen);
+        when(subscriptionRepository.findByIdAndUserId(3L, 7L)).thenReturn(Optional.of(subscription));
+        when(changeWindowRepository.committedThrough()).thenReturn(lastSeen.minusMillis(5));
+        when(housingService.getSubscriptionMatchesModifiedBetween(subscription, lastSeen, null, lastSeen, 11)).thenReturn(List.of());
+
+        SubscriptionDelta delta = subscriptionService.getNewSinceLastVisit(EMAIL, 3L, true, 10);
+
+        assertEquals(lastSeen, delta.until());
+        assertEquals(lastSeen, subscription.getLastSeenAt());
+    }
+
+    @Test
+    void getNewSinceLastVisit_FirstVisitWithoutMarkSeen_ShouldStartAtCreationAndKeepWatermark() {
+        Instant createdAt = Instant.parse("2026-10-19T09:00:00Z");
+        SubscriptionModel subscription = new SubscriptionModel();
+        subscription.setId(3L);
+        subscription.setCreatedAt(createdAt);
+        when(subscriptionRepository.findByIdAndUserId(3L, 7L)).thenReturn(Optional.of(subscription));
+        when(changeWindowRepository.committedThrough()).thenReturn(createdAt.plusSeconds(60));
+        when(housingService.getSubscriptionMatchesModifiedBetween(subscription, createdAt, null, createdAt.plusSeconds(60), 11))
+                .thenReturn(List.of());
+
+        SubscriptionDelta delta = subscriptionService.getNewSinceLastVisit(EMAIL, 3L, false, 10);
+
+        assertEquals(createdAt, delta.since());
+        assertNull(subscription.getLastSeenAt());
+        verify(subscriptionRepository, never()).save(any());
+    }
+
+    @Test
+    void getNewSinceLastVisit_WithMoreThanLimit_ShouldMoveWatermarkToTheLastHousingReturned() {
+        Instant lastSeen = Instant.parse("2026-10-19T10:00:00Z");
+        SubscriptionModel subscription = new SubscriptionModel();
+        subscription.setId(3L);
+        subscription.setLastSeenAt(lastSeen);
+        subscription.setLastSeenRentalObjectId("A");
+        Instant committedThrough = lastSeen.plusSeconds(600);
+        HousingModel first = housing("B", lastSeen);
+        HousingModel second = housing("C", lastSeen.plusSeconds(60));
+        when(subscriptionRepository.findByIdAndUserId(3L, 7L)).thenReturn(Optional.of(subscription));
+        when(changeWindowRepository.committedThrough()).thenReturn(committedThrough);
+        when(housingService.getSubscriptionMatchesModifiedBetween(subscription, lastSeen, "A", committedThrough, 3))
+                .thenReturn(List.of(first, second, housing("D", lastSeen.plusSeconds(60))));
+
+        SubscriptionDelta delta = subscriptionService.getNewSinceLastVisit(EMAIL, 3L, true, 2);
+
+        assertEquals(List.of(first, second), delta.housings());
+        assertTrue(delta.hasMore());
+        assertEquals(lastSeen.plusSeconds(60), delta.until());
+        assertEquals(lastSeen.plusSeconds(60), subscription.getLastSeenAt());
+        assertEquals("C", subscription.getLastSeenRentalObjectId());
+    }
+
+    private static HousingModel housing(String rentalObjectId, Instant lastModifiedAt) {
+        HousingModel housing = new HousingModel();
+        housing.setRentalObjectId(rentalObjectId);
+        housing.setLastModifiedAt(lastModifiedAt);
+        return housing;
+    }
+
+    private static SubscriptionCriteria criteria() {
+        return new SubscriptionCriteria("Moholt", "Trondheim", "Moholt", null, null, 9000, null, null, NotificationFrequency.IMMEDIATE);
+    }
+}
@@ -0,0 +1,97 @@
+package no.sanderolin.boligbot.service.watchlist;
+
+import no.sanderolin.boligbot.dao.event.HousingAvailabilityChangedEvent;
+import no.sanderolin.boligbot.dao.event.HousingAvailableFromDateChangedEvent;
+import no.sanderolin.boligbot.dao.event.HousingPriceChangedEvent;
+import no.sanderolin.boligbot.dao.projection.HousingPriceChange;
+import no.sanderolin.boligbot.dao.projection.WatchlistEntry;
+import no.sanderolin.boligbot.dao.repository.WatchlistRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WatchlistChangeDetectorTest {
+
+    private static final Instant NOW = Instant.parse("2026-10-19T10:00:00Z");
+
+    @Mock private WatchlistRepository watchlistRepository;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    private WatcherIndex watcherIndex;
+    private WatchlistChangeDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        when(watchlistRepository.findAll()).thenReturn(List.of(
+                new WatchlistEntry(1L, "A"),
+                new WatchlistEntry(2L, "A"),
+                new WatchlistEntry(2L, "B")
+        ));
+        watcherIndex = new WatcherIndex(watchlistRepository);
+        watcherIndex.rebuild();
+        detector = new WatchlistChangeDetector(watcherIndex, eventPublisher);
+    }
+
+    @Test
+    void onAvailabilityChanged_ShouldEmitOneChangePerWatcher() {
+        detector.onAvailabilityChanged(new HousingAvailabilityChangedEvent(List.of("A", "X"), List.of("B"), NOW));
+
+        assertThat(publishedChanges()).containsExactlyInAnyOrder(
+                new WatchedHousingChange(1L, "A", WatchedChangeType.BECAME_AVAILABLE),
+                new WatchedHousingChange(2L, "A", WatchedChangeType.BECAME_AVAILABLE),
+                new WatchedHousingChange(2L, "B", WatchedChangeType.BECAME_UNAVAILABLE)
+        );
+        assertThat(published().occurredAt()).isEqualTo(NOW);
+    }
+
+    @Test
+    void onPriceAndDateChanged_ShouldUseMatchingChangeTypes() {
+        detector.onPriceChanged(new HousingPriceChangedEvent(List.of(new HousingPriceChange("B", NOW, 9000, BigDecimal.TEN))));
+        assertThat(publishedChanges()).containsExactly(new WatchedHousingChange(2L, "B", WatchedChangeType.PRICE_CHANGED));
+
+        reset(eventPublisher);
+        detector.onAvailableFromDateChanged(new HousingAvailableFromDateChangedEvent(List.of("B"), NOW));
+        assertThat(publishedChanges()).containsExactly(new WatchedHousingChange(2L, "B", WatchedChangeType.AVAILABLE_FROM_DATE_CHANGED));
+    }
+
+    @Test
+    void onAvailabilityChanged_WithNoWatchedIds_ShouldNotPublish() {
+        detector.onAvailabilityChanged(new HousingAvailabilityChangedEvent(List.of("X"), List.of("Y"), NOW));
+
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void watcherIndex_ShouldApplyIncrementalUpdates() {
+        watcherIndex.add("C", 3L);
+        watcherIndex.add("A", 3L);
+        watcherIndex.remove("A", 1L);
+        watcherIndex.remove("B", 2L);
+
+        assertThat(watcherIndex.watchers("A")).isEqualTo(Set.of(2L, 3L));
+        assertThat(watcherIndex.watchers("B")).isEmpty();
+        assertThat(watcherIndex.watchers("C")).isEqualTo(Set.of(3L));
+    }
+
+    private List<WatchedHousingChange> publishedChanges() {
+        return published().changes();
+    }
+
+    private WatchedHousingChangedEvent published() {
+        ArgumentCaptor<WatchedHousingChangedEvent> captor = ArgumentCaptor.forClass(WatchedHousingChangedEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        return captor.getValue();
+    }
+}
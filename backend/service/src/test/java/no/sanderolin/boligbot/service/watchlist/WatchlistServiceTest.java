@@ -0,0 +1,93 @@
+package no.sanderolin.boligbot.service.watchlist;
+
+import no.sanderolin.boligbot.dao.event.UserDataChangedEvent;
+import no.sanderolin.boligbot.dao.model.HousingModel;
+import no.sanderolin.boligbot.dao.model.UserModel;
+import no.sanderolin.boligbot.dao.repository.UserRepository;
+import no.sanderolin.boligbot.dao.repository.WatchlistRepository;
+import no.sanderolin.boligbot.service.housing.HousingService;
+import org.hibernate.ObjectNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Optional;
+
+import static no.sanderolin.boligbot.dao.event.UserDataChangedEvent.Kind.WATCHLIST;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WatchlistServiceTest {
+
+    private static final String EMAIL = "user@example.com";
+
+    @Mock private WatchlistRepository watchlistRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private HousingService housingService;
+    @Mock private WatcherIndex watcherIndex;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @InjectMocks private WatchlistService watchlistService;
+
+    private final UserModel user = new UserModel();
+
+    @BeforeEach
+    void setUp() {
+        user.setId(7L);
+        user.setEmail(EMAIL);
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user));
+    }
+
+    @Test
+    void getWatchlist_ShouldKeepWatchOrder() {
+        when(watchlistRepository.findRentalObjectIdsByUserId(7L)).thenReturn(List.of("2", "1"));
+        when(housingService.getHousingsWithDetailsByRentalObjectIds(List.of("2", "1"))).thenReturn(List.of(housing("1"), housing("2")));
+
+        List<HousingModel> watchlist = watchlistService.getWatchlist(EMAIL);
+
+        assertEquals(List.of("2", "1"), watchlist.stream().map(HousingModel::getRentalObjectId).toList());
+    }
+
+    @Test
+    void addToWatchlist_ShouldSaveAndIndex() {
+        when(watchlistRepository.countByUserId(7L)).thenReturn(0L);
+        when(watchlistRepository.add(eq(7L), eq("1"), any())).thenReturn(true);
+
+        watchlistService.addToWatchlist(EMAIL, "1");
+
+        verify(housingService).getHousingByRentalObjectId("1");
+        verify(watcherIndex).add("1", 7L);
+        verify(eventPublisher).publishEvent(new UserDataChangedEvent(WATCHLIST));
+    }
+
+    @Test
+    void addToWatchlist_AtLimit_ShouldThrow() {
+        when(watchlistRepository.countByUserId(7L)).thenReturn((long) WatchlistService.MAX_WATCHED_PER_USER);
+
+        assertThrows(IllegalStateException.class, () -> watchlistService.addToWatchlist(EMAIL, "1"));
+        verify(watchlistRepository, never()).add(anyLong(), anyString(), any());
+        verifyNoInteractions(watcherIndex);
+    }
+
+    @Test
+    void removeFromWatchlist_WhenNotWatched_ShouldThrowAndLeaveIndex() {
+        when(watchlistRepository.remove(7L, "1")).thenReturn(false);
+
+        assertThrows(ObjectNotFoundException.class, () -> watchlistService.removeFromWatchlist(EMAIL, "1"));
+        verifyNoInteractions(watcherIndex, eventPublisher);
+    }
+
+    private static HousingModel housing(String rentalObjectId) {
+        HousingModel housing = new HousingModel();
+        housing.setRentalObjectId(rentalObjectId);
+        return housing;
+    }
+}
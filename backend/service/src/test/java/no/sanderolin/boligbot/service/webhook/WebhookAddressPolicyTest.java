@@ -0,0 +1,58 @@
+package no.sanderolin.boligbot.service.webhook;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WebhookAddressPolicyTest {
+
+    private final WebhookAddressPolicy policy = new WebhookAddressPolicy(false);
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "http://127.0.0.1/hook",
+            "http://localhost:8080/hook",
+            "http://0.0.0.0/hook",
+            "http://10.0.0.5/hook",
+            "http://172.16.3.4/hook",
+            "http://192.168.1.1/hook",
+            "http://169.254.169.254/latest/meta-data",
+            "http://100.64.0.1/hook",
+            "http://224.0.0.1/hook",
+            "http://[::1]/hook",
+            "http://[fe80::1]/hook",
+            "http://[fd00::1]/hook",
+            "http://[::ffff:127.0.0.1]/hook"
+    })
+    void isAllowed_WithNonPublicAddress_ShouldRefuse(String url) {
+        assertThat(policy.isAllowed(URI.create(url))).isFalse();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"https://93.184.215.14/hook", "https://[2606:4700::1]/hook", "http://100.128.0.1/hook"})
+    void isAllowed_WithPublicAddress_ShouldAllow(String url) {
+        assertThat(policy.isAllowed(URI.create(url))).isTrue();
+    }
+
+    @Test
+    void isAllowed_WithUnresolvableHost_ShouldRefuse() {
+        assertThat(policy.isAllowed(URI.create("https://does-not-exist.invalid/hook"))).isFalse();
+    }
+
+    @Test
+    void requirePublic_WithPrivateAddress_ShouldThrow() {
+        assertThatThrownBy(() -> policy.requirePublic(URI.create("http://10.0.0.5/hook")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid url: http://10.0.0.5/hook. The host must resolve to a public address");
+    }
+
+    @Test
+    void isAllowed_WhenPrivateAddressesAreAllowed_ShouldAllowLoopback() {
+        assertThat(new WebhookAddressPolicy(true).isAllowed(URI.create("http://127.0.0.1/hook"))).isTrue();
+    }
+}
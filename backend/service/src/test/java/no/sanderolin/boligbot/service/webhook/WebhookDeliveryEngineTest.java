@@ -0,0 +1,219 @@
+package no.sanderolin.boligbot.service.webhook;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+class WebhookDeliveryEngineTest {
+
+    private static final String SECRET = "whsec_test";
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private WebhookDeliveryEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new WebhookDeliveryEngine(new WebhookDeliveryEngine.Settings(
+                4, 10_000, 3,
+                Duration.ofMillis(20), Duration.ofMillis(100), Duration.ofSeconds(5),
+                3, Duration.ofHours(1)), new WebhookAddressPolicy(true));
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.close();
+        servers.forEach(server -> server.stop(0));
+    }
+
+    @Test
+    void submit_ShouldPostSignedPayload() throws Exception {
+        BlockingQueue<HttpExchange> received = new LinkedBlockingQueue<>();
+        BlockingQueue<byte[]> bodies = new LinkedBlockingQueue<>();
+        WebhookEndpoint endpoint = endpoint(1, stub(exchange -> {
+            bodies.add(exchange.getRequestBody().readAllBytes());
+            received.add(exchange);
+            return 204;
+        }));
+        byte[] body = "{\"type\":\"housing.price_changed\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(engine.submit(endpoint, WebhookEventType.PRICE_CHANGED, body)).isTrue();
+
+        HttpExchange exchange = received.poll(5, TimeUnit.SECONDS);
+        assertThat(exchange).isNotNull();
+        assertThat(bodies.poll()).isEqualTo(body);
+        assertThat(exchange.getRequestHeaders().getFirst(WebhookDeliveryEngine.EVENT_HEADER)).isEqualTo("housing.price_changed");
+        assertThat(exchange.getRequestHeaders().getFirst(WebhookDeliveryEngine.DELIVERY_HEADER)).isNotBlank();
+
+        String signature = exchange.getRequestHeaders().getFirst(WebhookSignature.HEADER);
+        long timestamp = Long.parseLong(signature.substring(2, signature.indexOf(',')));
+        assertThat(signature).isEqualTo("t=" + timestamp + ",v1=" + WebhookSignature.sign(SECRET, timestamp, body));
+    }
+
+    @Test
+    void submit_SlowEndpoint_ShouldNotDelayOtherEndpoints() throws Exception {
+        int deliveries = 2000;
+        AtomicInteger slowReceived = new AtomicInteger();
+        WebhookEndpoint slow = endpoint(1, stub(exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            sleep(1000);
+            slowReceived.incrementAndGet();
+            return 200;
+        }));
+        long[] latencies = new long[deliveries];
+        CountDownLatch fastDone = new CountDownLatch(deliveries);
+        WebhookEndpoint fast = endpoint(2, stub(exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            String[] parts = body.split(":");
+            latencies[Integer.parseInt(parts[0])] = System.nanoTime() - Long.parseLong(parts[1]);
+            fastDone.countDown();
+            return 200;
+        }));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < deliveries; i++) {
+            engine.submit(slow, WebhookEventType.AVAILABILITY_CHANGED, "slow".getBytes(StandardCharsets.UTF_8));
+            engine.submit(fast, WebhookEventType.AVAILABILITY_CHANGED,
+                    (i + ":" + System.nanoTime()).getBytes(StandardCharsets.UTF_8));
+        }
+        assertThat(fastDone.await(30, TimeUnit.SECONDS)).isTrue();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Arrays.sort(latencies);
+        log.info("Fast endpoint: {} deliveries in {} s ({} deliveries/sec), p50 {} ms, p99 {} ms; slow endpoint delivered {}",
+                deliveries, String.format("%.2f", seconds), String.format("%.0f", deliveries / seconds),
+                String.format("%.1f", latencies[deliveries / 2] / 1e6), String.format("%.1f", latencies[deliveries * 99 / 100] / 1e6),
+                slowReceived.get());
+        assertThat(slowReceived.get()).isLessThan(deliveries / 10);
+        assertThat(engine.pending(1)).isGreaterThan(deliveries / 2);
+    }
+
+    @Test
+    void submit_FailingEndpoint_ShouldOpenCircuit() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        WebhookEndpoint failing = endpoint(1, stub(exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            calls.incrementAndGet();
+            return 503;
+        }));
+
+        for (int i = 0; i < 50; i++) {
+            engine.submit(failing, WebhookEventType.AVAILABILITY_CHANGED, new byte[0]);
+        }
+        await(() -> engine.isCircuitOpen(1) ? 1 : 0, 1);
+        Thread.sleep(300);
+
+        assertThat(engine.isCircuitOpen(1)).isTrue();
+        // Only the calls already in flight when the third failure opened the circuit get through.
+        assertThat(calls.get()).isLessThanOrEqualTo(3 + 4);
+        assertThat(engine.pending(1)).isEqualTo(50);
+    }
+
+    @Test
+    void submit_ShouldRetryUntilDelivered() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        Set<String> deliveryIds = ConcurrentHashMap.newKeySet();
+        WebhookEndpoint flaky = endpoint(1, stub(exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            deliveryIds.add(exchange.getRequestHeaders().getFirst(WebhookDeliveryEngine.DELIVERY_HEADER));
+            return calls.incrementAndGet() < 3 ? 500 : 200;
+        }));
+
+        engine.submit(flaky, WebhookEventType.PRICE_CHANGED, new byte[0]);
+
+        await(calls::get, 3);
+        await(() -> engine.pending(1) == 0 ? 1 : 0, 1);
+        assertThat(deliveryIds).hasSize(1);
+        assertThat(engine.isCircuitOpen(1)).isFalse();
+    }
+
+    @Test
+    void submit_ToPrivateAddress_ShouldNotConnect() throws Exception {
+        engine.close();
+        engine = new WebhookDeliveryEngine(new WebhookDeliveryEngine.Settings(
+                4, 10_000, 1,
+                Duration.ofMillis(20), Duration.ofMillis(100), Duration.ofSeconds(5),
+                3, Duration.ofHours(1)), new WebhookAddressPolicy(false));
+        AtomicInteger calls = new AtomicInteger();
+        WebhookEndpoint endpoint = endpoint(1, stub(exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            calls.incrementAndGet();
+            return 200;
+        }));
+
+        engine.submit(endpoint, WebhookEventType.PRICE_CHANGED, new byte[0]);
+        await(() -> engine.pending(1) == 0 ? 1 : 0, 1);
+
+        assertThat(calls.get()).isZero();
+    }
+
+    @Test
+    void forget_ShouldDropPendingDeliveries() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        WebhookEndpoint endpoint = endpoint(1, stub(exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            calls.incrementAndGet();
+            return 500;
+        }));
+
+        engine.submit(endpoint, WebhookEventType.PRICE_CHANGED, new byte[0]);
+        await(calls::get, 1);
+        engine.forget(1);
+        Thread.sleep(300);
+
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(engine.pending(1)).isZero();
+    }
+
+    private interface Handler {
+        int handle(HttpExchange exchange) throws IOException;
+    }
+
+    private URI stub(Handler handler) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", exchange -> {
+            int status = handler.handle(exchange);
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+        servers.add(server);
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/hook");
+    }
+
+    private static WebhookEndpoint endpoint(long id, URI url) {
+        return new WebhookEndpoint(id, url, SECRET, EnumSet.allOf(WebhookEventType.class));
+    }
+
+    private static void await(IntSupplier value, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (value.getAsInt() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(value.getAsInt()).isGreaterThanOrEqualTo(expected);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
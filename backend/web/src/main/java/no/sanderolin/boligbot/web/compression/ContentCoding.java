@@ -0,0 +1,80 @@
+package no.sanderolin.boligbot.web.compression;
+
+import com.github.luben.zstd.Zstd;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content codings the API can serve precompressed, in order of preference.
+ */
+public enum ContentCoding {
+    ZSTD("zstd") {
+        @Override
+        public byte[] encode(byte[] body) {
+            return Zstd.compress(body, ZSTD_LEVEL);
+        }
+    },
+    GZIP("gzip") {
+        @Override
+        public byte[] encode(byte[] body) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(body);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return out.toByteArray();
+        }
+    };
+
+    private static final int ZSTD_LEVEL = 6;
+
+    private final String token;
+
+    ContentCoding(String token) { this.token = token; }
+
+    public String token() { return token; }
+
+    public abstract byte[] encode(byte[] body);
+
+    /**
+     * Picks the preferred coding accepted by the client.
+     * Codings listed with q=0 are treated as refused.
+     * @param acceptEncoding The raw Accept-Encoding header, may be null.
+     * @return The coding to use, or empty if the client accepts none of them.
+     */
+    public static Optional<ContentCoding> negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) return Optional.empty();
+        String header = acceptEncoding.toLowerCase(Locale.ROOT);
+
+        for (ContentCoding coding : values()) {
+            if (accepts(header, coding.token)) return Optional.of(coding);
+        }
+        return Optional.empty();
+    }
+
+    private static boolean accepts(String header, String token) {
+        for (String part : header.split(",")) {
+            String[] params = part.trim().split(";");
+            if (!params[0].trim().equals(token)) continue;
+
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,71 @@
+package no.sanderolin.boligbot.web.compression;
+
+import lombok.extern.slf4j.Slf4j;
+import no.sanderolin.boligbot.dao.event.HousingImportCompletedEvent;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds compressed bodies of deterministic GET responses for the current import generation.
+ * Every committed import that changed housing data starts a new generation and drops all entries,
+ * so a body is compressed at most once per generation and coding. When full, the least recently
+ * used entry is evicted.
+ */
+@Slf4j
+@Component
+@ConditionalOnNodeRole(NodeRole.API)
+public class PrecompressedResponseCache {
+
+    private final Map<Key, Entry> entries;
+    private final AtomicLong generation = new AtomicLong();
+
+    public PrecompressedResponseCache(@Value("${boligbot.compression.cache.max-entries:512}") int maxEntries) {
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    public Entry get(String requestKey, ContentCoding coding) {
+        return entries.get(new Key(requestKey, coding));
+    }
+
+    /**
+     * Stores a compressed body if it was produced during the current generation.
+     * @param generationAtStart The generation observed before the response was rendered.
+     */
+    public void put(String requestKey, ContentCoding coding, Entry entry, long generationAtStart) {
+        synchronized (entries) {
+            if (generationAtStart != generation.get()) return;
+            entries.put(new Key(requestKey, coding), entry);
+        }
+    }
+
+    public long currentGeneration() {
+        return generation.get();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onImportCompleted(HousingImportCompletedEvent event) {
+        long next;
+        synchronized (entries) {
+            next = generation.incrementAndGet();
+            entries.clear();
+        }
+        log.debug("Precompressed response cache invalidated [generation={}, kind={}]", next, event.kind());
+    }
+
+    public record Entry(String contentType, byte[] body, int uncompressedLength) { }
+
+    private record Key(String requestKey, ContentCoding coding) { }
+}
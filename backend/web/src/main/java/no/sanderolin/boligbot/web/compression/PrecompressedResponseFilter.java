@@ -0,0 +1,111 @@
+package no.sanderolin.boligbot.web.compression;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Serves deterministic GET responses (reference lists and housing searches) from
+ * {@link PrecompressedResponseCache} when the client accepts one of the {@link ContentCoding}s.
+ * Everything else is left to the container's on-the-fly compression.
+ */
+@Component
+@ConditionalOnNodeRole(NodeRole.API)
+@RequiredArgsConstructor
+public class PrecompressedResponseFilter extends OncePerRequestFilter {
+
+    private final PrecompressedResponseCache cache;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Value("${boligbot.compression.cache.paths:/api/v1/cities,/api/v1/cities/*/districts,/api/v1/districts,/api/v1/housing-types,/api/v1/housings,/api/v1/housings/*,/api/v1/housings/*/similar,/api/v1/housings/*/price-history,/api/v1/districts/*/price-index,/api/v1/districts/time-on-market,/api/v1/housing-types/time-on-market}")
+    private List<String> cachedPaths;
+
+    @Value("${boligbot.compression.cache.excluded-paths:/api/v1/housings/stream}")
+    private List<String> excludedPaths;
+
+    @Value("${boligbot.compression.min-response-size:1024}")
+    private int minResponseSize;
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        if (!HttpMethod.GET.matches(request.getMethod())) return true;
+        String path = request.getRequestURI();
+        return excludedPaths.stream().anyMatch(pattern -> pathMatcher.match(pattern, path))
+                || cachedPaths.stream().noneMatch(pattern -> pathMatcher.match(pattern, path));
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+
+        Optional<ContentCoding> negotiated = ContentCoding.negotiate(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        if (negotiated.isEmpty()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        ContentCoding coding = negotiated.get();
+        String requestKey = requestKey(request);
+
+        PrecompressedResponseCache.Entry cached = cache.get(requestKey, coding);
+        if (cached != null) {
+            writeCompressed(response, coding, cached);
+            return;
+        }
+
+        long generation = cache.currentGeneration();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+
+        byte[] body = wrapper.getContentAsByteArray();
+        if (wrapper.getStatus() != HttpServletResponse.SC_OK || body.length < minResponseSize) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+
+        PrecompressedResponseCache.Entry entry =
+                new PrecompressedResponseCache.Entry(wrapper.getContentType(), coding.encode(body), body.length);
+        cache.put(requestKey, coding, entry, generation);
+
+        wrapper.resetBuffer();
+        writeCompressed(response, coding, entry);
+    }
+
+    private void writeCompressed(HttpServletResponse response, ContentCoding coding,
+                                 PrecompressedResponseCache.Entry entry) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(entry.contentType());
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, coding.token());
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setContentLength(entry.body().length);
+        response.getOutputStream().write(entry.body());
+    }
+
+    /**
+     * Identifies a response by everything that can change its body: path, query and requested media type.
+     */
+    private String requestKey(HttpServletRequest request) {
+        String query = request.getQueryString();
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return request.getRequestURI()
+                + (query == null ? "" : "?" + query)
+                + "|" + (accept == null ? "" : accept);
+    }
+}
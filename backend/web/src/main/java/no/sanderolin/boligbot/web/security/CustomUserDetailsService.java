@@ -3,19 +3,26 @@ package no.sanderolin.boligbot.web.security;
 import lombok.RequiredArgsConstructor;
 import no.sanderolin.boligbot.dao.model.UserModel;
 import no.sanderolin.boligbot.dao.repository.UserRepository;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class CustomUserDetailsService implements UserDetailsService {
 
+    private static final List<GrantedAuthority> ADMIN_AUTHORITIES = List.of(new SimpleGrantedAuthority("ROLE_ADMIN"));
+
     private final UserRepository userRepository;
 
+    /**
+     * Users flagged {@code is_admin} get the ADMIN role.
+     */
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         UserModel userModel = userRepository
@@ -26,7 +33,7 @@ public class CustomUserDetailsService implements UserDetailsService {
         return new org.springframework.security.core.userdetails.User(
                 userModel.getEmail(),
                 userModel.getPasswordHash(),
-                Collections.emptyList()
+                userModel.isAdmin() ? ADMIN_AUTHORITIES : List.of()
         );
     }
 }
@@ -68,6 +68,7 @@ public class WebSecurityConfig {
                 .exceptionHandling(ex -> ex.authenticationEntryPoint(jwtAuthenticationEntryPoint))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        .requestMatchers("/api/v1/admin/**").hasRole("ADMIN")
                         .requestMatchers(
                                 "/api/v1/auth/**",
                                 "/api/v1/housings/**",
@@ -76,6 +77,8 @@ public class WebSecurityConfig {
                                 "/api/v1/housing-types/**",
                                 "/api-docs/**",
                                 "/swagger-ui/**",
+                                "/actuator/health",
+                                "/actuator/prometheus",
                                 "/error"
                         ).permitAll()
                         .anyRequest().authenticated()
@@ -0,0 +1,71 @@
+package no.sanderolin.boligbot.web.v1.admin;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import no.sanderolin.boligbot.service.importrun.ImportRunService;
+import no.sanderolin.boligbot.web.v1.admin.mapper.ImportRunSummaryToDTOMapper;
+import no.sanderolin.boligbot.web.v1.admin.response.ImportRunSummaryDTO;
+import no.sanderolin.boligbot.web.v1.common.exception.BadRequestException;
+import no.sanderolin.boligbot.web.v1.common.media.ApiMediaTypes;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+@RestController
+@ConditionalOnNodeRole(NodeRole.API)
+@RequestMapping("/api/v1/admin/import-runs")
+@RequiredArgsConstructor
+public class ImportRunController {
+
+    private final ImportRunService importRunService;
+
+    @Operation(
+            summary = "Summarize import runs",
+            description = """
+                    Percentiles of run durations, phase durations and payload sizes of the catalog and availability
+                    imports, and the number of runs per status, over the runs started in the window.
+                    Skipped runs are only counted. Defaults to the last 7 days. Admins only.
+                    """,
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            useReturnTypeSchema = true
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "from is not before to"
+                    ),
+                    @ApiResponse(
+                            responseCode = "403",
+                            description = "The user is not an admin"
+                    )
+            }
+    )
+    @GetMapping(value = "/summary", produces = {ApiMediaTypes.JSON, ApiMediaTypes.CBOR, ApiMediaTypes.SMILE})
+    public ResponseEntity<List<ImportRunSummaryDTO>> getImportRunSummary(
+            @Parameter(description = "Start of the window, inclusive", example = "2026-10-12T00:00:00Z")
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @Parameter(description = "End of the window, exclusive", example = "2026-10-19T00:00:00Z")
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        Instant toOrDefault = to != null ? to : Instant.now();
+        Instant fromOrDefault = from != null ? from : toOrDefault.minus(Duration.ofDays(7));
+        if (!fromOrDefault.isBefore(toOrDefault)) {
+            throw new BadRequestException("from must be before to");
+        }
+        return ResponseEntity.ok(
+                importRunService.summarize(fromOrDefault, toOrDefault)
+                        .stream()
+                        .map(ImportRunSummaryToDTOMapper::toDTO)
+                        .toList()
+        );
+    }
+}
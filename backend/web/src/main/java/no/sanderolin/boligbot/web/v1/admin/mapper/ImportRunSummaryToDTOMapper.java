@@ -0,0 +1,35 @@
+package no.sanderolin.boligbot.web.v1.admin.mapper;
+
+import no.sanderolin.boligbot.dao.projection.ImportRunPercentiles;
+import no.sanderolin.boligbot.service.importrun.ImportRunSummary;
+import no.sanderolin.boligbot.web.v1.admin.response.ImportRunSummaryDTO;
+import no.sanderolin.boligbot.web.v1.admin.response.PercentilesDTO;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ImportRunSummaryToDTOMapper {
+
+    public static ImportRunSummaryDTO toDTO(ImportRunSummary summary) {
+        Map<String, PercentilesDTO> phaseMillis = new LinkedHashMap<>();
+        summary.phaseMillis().forEach(phase -> phaseMillis.put(phase.phase(), toDTO(phase)));
+        return new ImportRunSummaryDTO(
+                summary.kind(),
+                summary.runsByStatus(),
+                toDTO(summary.durationMillis()),
+                toDTO(summary.payloadBytes()),
+                phaseMillis
+        );
+    }
+
+    private static PercentilesDTO toDTO(ImportRunPercentiles percentiles) {
+        if (percentiles == null) return null;
+        return new PercentilesDTO(
+                percentiles.samples(),
+                percentiles.p50(),
+                percentiles.p90(),
+                percentiles.p99(),
+                percentiles.max()
+        );
+    }
+}
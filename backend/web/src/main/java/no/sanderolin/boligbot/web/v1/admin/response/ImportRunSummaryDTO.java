@@ -0,0 +1,11 @@
+package no.sanderolin.boligbot.web.v1.admin.response;
+
+import java.util.Map;
+
+public record ImportRunSummaryDTO (
+        String kind,
+        Map<String, Long> runsByStatus,
+        PercentilesDTO durationMillis,
+        PercentilesDTO payloadBytes,
+        Map<String, PercentilesDTO> phaseMillis)
+{}
@@ -0,0 +1,9 @@
+package no.sanderolin.boligbot.web.v1.admin.response;
+
+public record PercentilesDTO (
+        long samples,
+        double p50,
+        double p90,
+        double p99,
+        double max)
+{}
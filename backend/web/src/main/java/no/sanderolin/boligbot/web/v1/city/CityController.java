@@ -3,11 +3,14 @@ package no.sanderolin.boligbot.web.v1.city;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
 import no.sanderolin.boligbot.service.city.CityService;
 import no.sanderolin.boligbot.service.district.DistrictService;
 import no.sanderolin.boligbot.web.v1.city.mapper.CityModelToDTOMapper;
 import no.sanderolin.boligbot.web.v1.city.response.CityDTO;
 import no.sanderolin.boligbot.web.v1.common.exception.NotFoundException;
+import no.sanderolin.boligbot.web.v1.common.media.ApiMediaTypes;
 import no.sanderolin.boligbot.web.v1.district.mapper.DistrictModelToDTOMapper;
 import no.sanderolin.boligbot.web.v1.district.response.DistrictDTO;
 import org.hibernate.ObjectNotFoundException;
@@ -20,6 +23,7 @@ import org.springframework.web.bind.annotation.RestController;
 import java.util.List;
 
 @RestController
+@ConditionalOnNodeRole(NodeRole.API)
 @RequestMapping("/api/v1/cities")
 @RequiredArgsConstructor
 public class CityController {
@@ -37,7 +41,7 @@ public class CityController {
                     )
             }
     )
-    @GetMapping
+    @GetMapping(produces = {ApiMediaTypes.JSON, ApiMediaTypes.CBOR, ApiMediaTypes.SMILE})
     public ResponseEntity<List<CityDTO>> getAllCities() {
         return ResponseEntity.ok(
                 cityService.getCities()
@@ -61,7 +65,7 @@ public class CityController {
                     )
             }
     )
-    @GetMapping("/{cityId}/districts")
+    @GetMapping(value = "/{cityId}/districts", produces = {ApiMediaTypes.JSON, ApiMediaTypes.CBOR, ApiMediaTypes.SMILE})
     public ResponseEntity<List<DistrictDTO>> getDistrictsByCityId(@PathVariable long cityId) {
         try {
             return ResponseEntity.ok(
@@ -0,0 +1,16 @@
+package no.sanderolin.boligbot.web.v1.common.mapper;
+
+import no.sanderolin.boligbot.service.analytics.TimeOnMarketStat;
+import no.sanderolin.boligbot.web.v1.common.response.TimeOnMarketDTO;
+
+public class TimeOnMarketStatToDTOMapper {
+
+    public static TimeOnMarketDTO toDTO(TimeOnMarketStat stat) {
+        return new TimeOnMarketDTO(
+                stat.id(),
+                stat.name(),
+                stat.rentedCount(),
+                stat.medianDaysOnMarket()
+        );
+    }
+}
@@ -0,0 +1,16 @@
+package no.sanderolin.boligbot.web.v1.common.media;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Media types the read endpoints can produce. JSON is the default; the binary encodings
+ * are only used when a client asks for them in the Accept header.
+ */
+public final class ApiMediaTypes {
+
+    public static final String JSON = MediaType.APPLICATION_JSON_VALUE;
+    public static final String CBOR = MediaType.APPLICATION_CBOR_VALUE;
+    public static final String SMILE = "application/x-jackson-smile";
+
+    private ApiMediaTypes() { }
+}
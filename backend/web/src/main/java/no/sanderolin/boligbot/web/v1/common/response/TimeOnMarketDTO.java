@@ -0,0 +1,8 @@
+package no.sanderolin.boligbot.web.v1.common.response;
+
+public record TimeOnMarketDTO (
+        long id,
+        String name,
+        long rentedCount,
+        int medianDaysOnMarket)
+{}
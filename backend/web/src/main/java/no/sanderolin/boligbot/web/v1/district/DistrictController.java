@@ -1,24 +1,41 @@
 package no.sanderolin.boligbot.web.v1.district;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import no.sanderolin.boligbot.service.analytics.TimeOnMarketService;
 import no.sanderolin.boligbot.service.district.DistrictService;
+import no.sanderolin.boligbot.service.pricehistory.PriceHistoryService;
+import no.sanderolin.boligbot.web.v1.common.exception.BadRequestException;
+import no.sanderolin.boligbot.web.v1.common.exception.NotFoundException;
+import no.sanderolin.boligbot.web.v1.common.mapper.TimeOnMarketStatToDTOMapper;
+import no.sanderolin.boligbot.web.v1.common.media.ApiMediaTypes;
+import no.sanderolin.boligbot.web.v1.common.response.TimeOnMarketDTO;
 import no.sanderolin.boligbot.web.v1.district.mapper.DistrictModelToDTOMapper;
+import no.sanderolin.boligbot.web.v1.district.mapper.DistrictPriceIndexPointToDTOMapper;
 import no.sanderolin.boligbot.web.v1.district.response.DistrictDTO;
+import no.sanderolin.boligbot.web.v1.district.response.DistrictPriceIndexDTO;
+import org.hibernate.ObjectNotFoundException;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.List;
 
 @RestController
+@ConditionalOnNodeRole(NodeRole.API)
 @RequestMapping("/api/v1/districts")
 @RequiredArgsConstructor
 public class DistrictController {
 
     private final DistrictService districtService;
+    private final PriceHistoryService priceHistoryService;
+    private final TimeOnMarketService timeOnMarketService;
 
     @Operation(
             summary = "Get all districts",
@@ -30,7 +47,7 @@ public class DistrictController {
                     )
             }
     )
-    @GetMapping
+    @GetMapping(produces = {ApiMediaTypes.JSON, ApiMediaTypes.CBOR, ApiMediaTypes.SMILE})
     public ResponseEntity<List<DistrictDTO>> getAllDistricts() {
         return ResponseEntity.ok(
                 districtService.getAllDistricts()
@@ -39,4 +56,75 @@ public class DistrictController {
                         .toList()
         );
     }
+
+    @Operation(
+            summary = "Get district price index",
+            description = """
+                    Daily price aggregates for a district, read from rollups written by each catalog import.
+                    The index is the average price per sqm relative to the first day in the range (100).
+                    Defaults to the last 365 days.
+                    """,
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            useReturnTypeSchema = true
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "from is after to"
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "District with the given ID was not found."
+                    )
+            }
+    )
+    @GetMapping(value = "/{districtId}/price-index", produces = {ApiMediaTypes.JSON, ApiMediaTypes.CBOR, ApiMediaTypes.SMILE})
+    public ResponseEntity<List<DistrictPriceIndexDTO>> getDistrictPriceIndex(
+            @PathVariable long districtId,
+            @Parameter(description = "First day, inclusive", example = "2026-01-01")
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day, inclusive", example = "2026-12-31")
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate toOrDefault = to != null ? to : LocalDate.now(ZoneOffset.UTC);
+        LocalDate fromOrDefault = from != null ? from : toOrDefault.minusDays(365);
+        if (fromOrDefault.isAfter(toOrDefault)) {
+            throw new BadRequestException("from cannot be after to");
+        }
+        try {
+            return ResponseEntity.ok(
+                    priceHistoryService.getDistrictPriceIndex(districtId, fromOrDefault, toOrDefault)
+                            .stream()
+                            .map(DistrictPriceIndexPointToDTOMapper::toDTO)
+                            .toList()
+            );
+        } catch (ObjectNotFoundException e) {
+            throw new NotFoundException(e.getMessage());
+        }
+    }
+
+    @Operation(
+            summary = "Get median time on market per district",
+            description = """
+                    Median number of days housings stayed available before becoming unavailable,
+                    over every rental recorded by the availability import. Stays of 365 days or more count as 365.
+                    """,
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            useReturnTypeSchema = true
+                    )
+            }
+    )
+    @GetMapping(value = "/time-on-market", produces = {ApiMediaTypes.JSON, ApiMediaTypes.CBOR, ApiMediaTypes.SMILE})
+    public ResponseEntity<List<TimeOnMarketDTO>> getTimeOnMarketByDistrict() {
+        return ResponseEntity.ok(
+                timeOnMarketService.getByDistrict()
+                        .stream()
+                        .map(TimeOnMarketStatToDTOMapper::toDTO)
+                        .toList()
+        );
+    }
 }
@@ -0,0 +1,19 @@
+package no.sanderolin.boligbot.web.v1.district.mapper;
+
+import no.sanderolin.boligbot.service.pricehistory.DistrictPriceIndexPoint;
+import no.sanderolin.boligbot.web.v1.district.response.DistrictPriceIndexDTO;
+
+public class DistrictPriceIndexPointToDTOMapper {
+
+    public static DistrictPriceIndexDTO toDTO(DistrictPriceIndexPoint point) {
+        return new DistrictPriceIndexDTO(
+                point.day(),
+                point.housingCount(),
+                point.avgPricePerMonth(),
+                point.avgPricePerSqm(),
+                point.minPricePerMonth(),
+                point.maxPricePerMonth(),
+                point.index()
+        );
+    }
+}
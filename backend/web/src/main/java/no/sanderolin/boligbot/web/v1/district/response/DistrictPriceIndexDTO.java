@@ -0,0 +1,14 @@
+package no.sanderolin.boligbot.web.v1.district.response;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record DistrictPriceIndexDTO (
+        LocalDate day,
+        int housingCount,
+        BigDecimal avgPricePerMonth,
+        BigDecimal avgPricePerSqm,
+        int minPricePerMonth,
+        int maxPricePerMonth,
+        BigDecimal index)
+{}
@@ -1,32 +1,52 @@
 package no.sanderolin.boligbot.web.v1.housing;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import no.sanderolin.boligbot.service.housing.HousingField;
 import no.sanderolin.boligbot.service.housing.HousingSearchCriteria;
 import no.sanderolin.boligbot.service.housing.HousingService;
+import no.sanderolin.boligbot.service.housing.similar.SimilarHousingService;
+import no.sanderolin.boligbot.service.pricehistory.PriceHistoryService;
+import no.sanderolin.boligbot.web.v1.common.exception.BadRequestException;
 import no.sanderolin.boligbot.web.v1.common.exception.NotFoundException;
+import no.sanderolin.boligbot.web.v1.common.media.ApiMediaTypes;
 import no.sanderolin.boligbot.web.v1.common.response.PagedResponse;
+import no.sanderolin.boligbot.web.v1.housing.fields.HousingFieldSelection;
 import no.sanderolin.boligbot.web.v1.housing.mapper.HousingModelToDTOMapper;
+import no.sanderolin.boligbot.web.v1.housing.mapper.HousingPriceChangeToDTOMapper;
 import no.sanderolin.boligbot.web.v1.housing.mapper.HousingSearchRequestToCriteriaMapper;
 import no.sanderolin.boligbot.web.v1.housing.request.HousingSearchRequest;
 import no.sanderolin.boligbot.web.v1.housing.response.HousingDTO;
+import no.sanderolin.boligbot.web.v1.housing.response.HousingPriceHistoryDTO;
 import org.hibernate.ObjectNotFoundException;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Set;
+
 @RestController
+@ConditionalOnNodeRole(NodeRole.API)
 @RequestMapping("/api/v1/housings")
 @RequiredArgsConstructor
 public class HousingController {
 
+    private static final int MAX_SIMILAR_LIMIT = 50;
+
     private final HousingService housingService;
+    private final SimilarHousingService similarHousingService;
+    private final PriceHistoryService priceHistoryService;
 
     @Operation(
             summary = "Search housings",
@@ -68,17 +88,39 @@ public class HousingController {
                                                       "detail": "minPricePerMonth cannot be greater than maxPricePerMonth",
                                                       "instance": "/api/v1/housings"
                                                     }"""
+                                            ),
+                                            @ExampleObject(
+                                                    name = "Invalid field",
+                                                    value = """
+                                                    {
+                                                      "type": "urn:boligbot:problem:bad-request",
+                                                      "title": "Bad Request",
+                                                      "status": 400,
+                                                      "detail": "Invalid field: price. Allowed: [rentalObjectId, address, name, housingType, city, district, areaSqm, pricePerMonth, isAvailable, availableFromDate]",
+                                                      "instance": "/api/v1/housings"
+                                                    }"""
                                             )
                                     }
                             )
                     )
             }
     )
-    @GetMapping
+    @GetMapping(produces = {ApiMediaTypes.JSON, ApiMediaTypes.CBOR, ApiMediaTypes.SMILE})
     public ResponseEntity<PagedResponse<HousingDTO>> searchHousings(
-            @Valid @ParameterObject HousingSearchRequest request) {
+            @Valid @ParameterObject HousingSearchRequest request,
+            HttpServletRequest httpRequest) {
         HousingSearchCriteria criteria = HousingSearchRequestToCriteriaMapper.toCriteria(request);
 
+        if (criteria.hasFieldSelection()) {
+            httpRequest.setAttribute(HousingFieldSelection.REQUEST_ATTRIBUTE, criteria.fields());
+            return ResponseEntity.ok(
+                    PagedResponse.of(
+                            housingService.searchHousingProjections(criteria),
+                            HousingModelToDTOMapper::toDTO
+                    )
+            );
+        }
+
         return ResponseEntity.ok(
                 PagedResponse.of(
                         housingService.searchHousings(criteria),
@@ -95,19 +137,103 @@ public class HousingController {
                             description = "Successful operation",
                             useReturnTypeSchema = true
                     ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid fields parameter"
+                    ),
                     @ApiResponse(
                             responseCode = "404",
                             description = "Housing with the given rental object ID was not found."
                     )
             }
     )
-    @GetMapping("/{rentalObjectId}")
-    public ResponseEntity<HousingDTO> getHousingById(@PathVariable(name = "rentalObjectId") String rentalObjectId) {
+    @GetMapping(value = "/{rentalObjectId}", produces = {ApiMediaTypes.JSON, ApiMediaTypes.CBOR, ApiMediaTypes.SMILE})
+    public ResponseEntity<HousingDTO> getHousingById(
+            @PathVariable(name = "rentalObjectId") String rentalObjectId,
+            @Parameter(description = "Comma-separated housing fields to return. Omit to return all fields.",
+                    example = "rentalObjectId,pricePerMonth")
+            @RequestParam(name = "fields", required = false) String fields,
+            HttpServletRequest httpRequest) {
+        Set<HousingField> selectedFields = HousingFieldSelection.parse(fields);
         try {
+            if (selectedFields != null) {
+                httpRequest.setAttribute(HousingFieldSelection.REQUEST_ATTRIBUTE, selectedFields);
+                return ResponseEntity.ok(HousingModelToDTOMapper.toDTO(
+                        housingService.getHousingProjectionByRentalObjectId(rentalObjectId, selectedFields)));
+            }
             HousingDTO housingDTO = HousingModelToDTOMapper.toDTO(housingService.getHousingByRentalObjectId(rentalObjectId));
             return ResponseEntity.ok(housingDTO);
         } catch (ObjectNotFoundException e) {
             throw new NotFoundException(e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @Operation(
+            summary = "Get similar housings",
+            description = "Returns the housings most comparable by price, area, price per sqm, type, district and city, nearest first.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            useReturnTypeSchema = true
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid limit"
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Housing with the given rental object ID was not found."
+                    )
+            }
+    )
+    @GetMapping(value = "/{rentalObjectId}/similar", produces = {ApiMediaTypes.JSON, ApiMediaTypes.CBOR, ApiMediaTypes.SMILE})
+    public ResponseEntity<List<HousingDTO>> getSimilarHousings(
+            @PathVariable(name = "rentalObjectId") String rentalObjectId,
+            @Parameter(description = "Maximum number of housings to return (1-" + MAX_SIMILAR_LIMIT + ")")
+            @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_SIMILAR_LIMIT) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_SIMILAR_LIMIT);
+        }
+        try {
+            return ResponseEntity.ok(
+                    similarHousingService.findSimilarHousings(rentalObjectId, limit)
+                            .stream()
+                            .map(HousingModelToDTOMapper::toDTO)
+                            .toList()
+            );
+        } catch (ObjectNotFoundException e) {
+            throw new NotFoundException(e.getMessage());
+        }
+    }
+
+    @Operation(
+            summary = "Get housing price history",
+            description = "Returns the price and area of the housing from its first import and after every change, oldest first.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            useReturnTypeSchema = true
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Housing with the given rental object ID was not found."
+                    )
+            }
+    )
+    @GetMapping(value = "/{rentalObjectId}/price-history", produces = {ApiMediaTypes.JSON, ApiMediaTypes.CBOR, ApiMediaTypes.SMILE})
+    public ResponseEntity<List<HousingPriceHistoryDTO>> getHousingPriceHistory(
+            @PathVariable(name = "rentalObjectId") String rentalObjectId) {
+        try {
+            return ResponseEntity.ok(
+                    priceHistoryService.getHousingPriceHistory(rentalObjectId)
+                            .stream()
+                            .map(HousingPriceChangeToDTOMapper::toDTO)
+                            .toList()
+            );
+        } catch (ObjectNotFoundException e) {
+            throw new NotFoundException(e.getMessage());
+        }
+    }
+}
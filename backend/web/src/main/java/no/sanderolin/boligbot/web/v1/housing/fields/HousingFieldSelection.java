@@ -0,0 +1,65 @@
+package no.sanderolin.boligbot.web.v1.housing.fields;
+
+import no.sanderolin.boligbot.service.housing.HousingField;
+import no.sanderolin.boligbot.web.v1.common.exception.BadRequestException;
+import no.sanderolin.boligbot.web.v1.housing.response.HousingDTO;
+
+import java.lang.reflect.RecordComponent;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Parses the {@code fields} query parameter of the housing endpoints.
+ * The allow-list is the record components of {@link HousingDTO}, so adding a component to the DTO
+ * without a matching {@link HousingField} fails on class initialization instead of silently.
+ */
+public final class HousingFieldSelection {
+
+    public static final String FILTER_ID = "housingFields";
+    public static final String REQUEST_ATTRIBUTE = HousingFieldSelection.class.getName() + ".fields";
+
+    private static final Map<String, HousingField> ALLOWED = allowedFields();
+
+    private HousingFieldSelection() { }
+
+    /**
+     * @param raw Comma-separated field names, may be null or blank.
+     * @return The selected fields in request order, or null when all fields are wanted.
+     * @throws BadRequestException if any name is not a {@link HousingDTO} component.
+     */
+    public static Set<HousingField> parse(String raw) throws BadRequestException {
+        if (raw == null || raw.isBlank()) return null;
+
+        Set<HousingField> selected = new LinkedHashSet<>();
+        for (String name : raw.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) continue;
+            HousingField field = ALLOWED.get(trimmed);
+            if (field == null) {
+                throw new BadRequestException("Invalid field: " + trimmed + ". Allowed: " + ALLOWED.keySet());
+            }
+            selected.add(field);
+        }
+        return selected.isEmpty() ? null : selected;
+    }
+
+    public static Set<String> propertyNames(Set<HousingField> fields) {
+        return fields.stream().map(HousingField::property).collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private static Map<String, HousingField> allowedFields() {
+        Map<String, HousingField> byProperty = Arrays.stream(HousingField.values())
+                .collect(Collectors.toMap(HousingField::property, Function.identity()));
+
+        Map<String, HousingField> allowed = new LinkedHashMap<>();
+        for (RecordComponent component : HousingDTO.class.getRecordComponents()) {
+            HousingField field = byProperty.get(component.getName());
+            if (field == null) {
+                throw new IllegalStateException("HousingDTO component has no HousingField: " + component.getName());
+            }
+            allowed.put(component.getName(), field);
+        }
+        return Collections.unmodifiableMap(allowed);
+    }
+}
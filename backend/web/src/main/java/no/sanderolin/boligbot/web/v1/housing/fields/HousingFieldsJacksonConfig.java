@@ -0,0 +1,20 @@
+package no.sanderolin.boligbot.web.v1.housing.fields;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Serializes every {@code HousingDTO} field unless a request selected a subset.
+ */
+@Configuration
+public class HousingFieldsJacksonConfig {
+
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer housingFieldsFilterCustomizer() {
+        return builder -> builder.filters(new SimpleFilterProvider()
+                .addFilter(HousingFieldSelection.FILTER_ID, SimpleBeanPropertyFilter.serializeAll()));
+    }
+}
@@ -0,0 +1,40 @@
+package no.sanderolin.boligbot.web.v1.housing.fields;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import jakarta.servlet.http.HttpServletRequest;
+import no.sanderolin.boligbot.service.housing.HousingField;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+import java.util.Set;
+
+/**
+ * Prunes serialized {@code HousingDTO}s to the fields the controller stored on the request,
+ * for JSON as well as the binary Jackson formats.
+ */
+@RestControllerAdvice(basePackages = "no.sanderolin.boligbot.web.v1.housing")
+public class HousingFieldsResponseBodyAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType,
+                                           MethodParameter returnType, ServerHttpRequest request,
+                                           ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest servletRequest)) return;
+        HttpServletRequest httpRequest = servletRequest.getServletRequest();
+
+        Object fields = httpRequest.getAttribute(HousingFieldSelection.REQUEST_ATTRIBUTE);
+        if (fields == null) return;
+
+        Set<String> properties = HousingFieldSelection.propertyNames((Set<HousingField>) fields);
+        bodyContainer.setFilters(new SimpleFilterProvider()
+                .addFilter(HousingFieldSelection.FILTER_ID, SimpleBeanPropertyFilter.filterOutAllExcept(properties)));
+    }
+}
@@ -1,6 +1,7 @@
 package no.sanderolin.boligbot.web.v1.housing.mapper;
 
 import no.sanderolin.boligbot.dao.model.HousingModel;
+import no.sanderolin.boligbot.service.housing.HousingProjection;
 import no.sanderolin.boligbot.web.v1.housing.response.HousingDTO;
 
 public class HousingModelToDTOMapper {
@@ -19,4 +20,22 @@ public class HousingModelToDTOMapper {
                 model.getAvailableFromDate()
         );
     }
+
+    /**
+     * Maps a projection; unselected primitive fields get default values and are pruned on serialization.
+     */
+    public static HousingDTO toDTO(HousingProjection projection) {
+        return new HousingDTO(
+                projection.rentalObjectId(),
+                projection.address(),
+                projection.name(),
+                projection.housingType(),
+                projection.city(),
+                projection.district(),
+                projection.areaSqm(),
+                projection.pricePerMonth() == null ? 0 : projection.pricePerMonth(),
+                Boolean.TRUE.equals(projection.isAvailable()),
+                projection.availableFromDate()
+        );
+    }
 }
@@ -0,0 +1,15 @@
+package no.sanderolin.boligbot.web.v1.housing.mapper;
+
+import no.sanderolin.boligbot.dao.projection.HousingPriceChange;
+import no.sanderolin.boligbot.web.v1.housing.response.HousingPriceHistoryDTO;
+
+public class HousingPriceChangeToDTOMapper {
+
+    public static HousingPriceHistoryDTO toDTO(HousingPriceChange change) {
+        return new HousingPriceHistoryDTO(
+                change.recordedAt(),
+                change.pricePerMonth(),
+                change.areaSqm()
+        );
+    }
+}
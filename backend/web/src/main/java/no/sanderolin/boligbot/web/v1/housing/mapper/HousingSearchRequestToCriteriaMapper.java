@@ -2,6 +2,7 @@ package no.sanderolin.boligbot.web.v1.housing.mapper;
 
 import no.sanderolin.boligbot.service.housing.HousingSearchCriteria;
 import no.sanderolin.boligbot.web.v1.common.exception.BadRequestException;
+import no.sanderolin.boligbot.web.v1.housing.fields.HousingFieldSelection;
 import no.sanderolin.boligbot.web.v1.housing.request.HousingSearchRequest;
 
 import java.math.BigDecimal;
@@ -28,6 +29,7 @@ public class HousingSearchRequestToCriteriaMapper {
                 .setSize(request.size())
                 .setSortBy(request.sortBy())
                 .setSortDirection(request.sortDirection())
+                .setFields(HousingFieldSelection.parse(request.fields()))
                 .build();
 
         Integer minPrice = criteria.minPricePerMonthOrNull();
@@ -67,5 +67,9 @@ public record HousingSearchRequest(
                 example = "asc",
                 defaultValue = "asc",
                 exampleClasses = SortDirection.class)
-        SortDirection sortDirection
+        SortDirection sortDirection,
+
+        @Schema(description = "Comma-separated housing fields to return. Omit to return all fields.",
+                example = "rentalObjectId,pricePerMonth,availableFromDate")
+        String fields
 ) { }
@@ -0,0 +1,7 @@
+package no.sanderolin.boligbot.web.v1.housing.response;
+
+public record HousingAvailabilityChangeDTO (
+        String rentalObjectId,
+        boolean isAvailable,
+        HousingDTO housing)
+{}
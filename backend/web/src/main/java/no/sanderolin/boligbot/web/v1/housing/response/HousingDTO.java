@@ -1,8 +1,12 @@
 package no.sanderolin.boligbot.web.v1.housing.response;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
+import no.sanderolin.boligbot.web.v1.housing.fields.HousingFieldSelection;
+
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
+@JsonFilter(HousingFieldSelection.FILTER_ID)
 public record HousingDTO (
         String rentalObjectId,
         String address,
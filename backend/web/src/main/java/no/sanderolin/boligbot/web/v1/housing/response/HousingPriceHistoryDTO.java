@@ -0,0 +1,10 @@
+package no.sanderolin.boligbot.web.v1.housing.response;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public record HousingPriceHistoryDTO (
+        Instant recordedAt,
+        int pricePerMonth,
+        BigDecimal areaSqm)
+{}
@@ -0,0 +1,42 @@
+package no.sanderolin.boligbot.web.v1.housing.stream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the most recent events for {@code Last-Event-ID} resume. Not thread-safe; guarded by {@link AvailabilityStreamHub}.
+ */
+final class AvailabilityEventRingBuffer {
+
+    private final AvailabilityStreamEvent[] events;
+    private long nextSequence = 1;
+
+    AvailabilityEventRingBuffer(int capacity) {
+        this.events = new AvailabilityStreamEvent[capacity];
+    }
+
+    long nextSequence() {
+        return nextSequence;
+    }
+
+    void add(AvailabilityStreamEvent event) {
+        events[(int) (event.sequence() % events.length)] = event;
+        nextSequence = event.sequence() + 1;
+    }
+
+    /**
+     * Returns the buffered events after {@code lastSequence}, oldest first, or null if some of them
+     * have already been overwritten or {@code lastSequence} was never issued.
+     */
+    List<AvailabilityStreamEvent> since(long lastSequence) {
+        if (lastSequence < 0 || lastSequence >= nextSequence) return null;
+        long oldestBuffered = Math.max(1, nextSequence - events.length);
+        if (lastSequence + 1 < oldestBuffered) return null;
+
+        List<AvailabilityStreamEvent> result = new ArrayList<>((int) (nextSequence - lastSequence - 1));
+        for (long sequence = lastSequence + 1; sequence < nextSequence; sequence++) {
+            result.add(events[(int) (sequence % events.length)]);
+        }
+        return result;
+    }
+}
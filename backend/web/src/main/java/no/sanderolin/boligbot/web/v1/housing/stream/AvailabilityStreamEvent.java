@@ -0,0 +1,20 @@
+package no.sanderolin.boligbot.web.v1.housing.stream;
+
+import java.util.Locale;
+
+/**
+ * One availability change, serialized once as a complete SSE frame and shared by every subscriber.
+ * City, district and type are kept lower-cased for filtering.
+ */
+record AvailabilityStreamEvent(long sequence, String city, String district, String housingType, byte[] frame) {
+
+    AvailabilityStreamEvent {
+        city = lowerCase(city);
+        district = lowerCase(district);
+        housingType = lowerCase(housingType);
+    }
+
+    static String lowerCase(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+}
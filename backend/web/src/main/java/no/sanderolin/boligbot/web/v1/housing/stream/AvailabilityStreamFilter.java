@@ -0,0 +1,28 @@
+package no.sanderolin.boligbot.web.v1.housing.stream;
+
+/**
+ * Case-insensitive "contains" filters on city, district and housing type, like the housing search.
+ * A null filter matches everything.
+ */
+record AvailabilityStreamFilter(String city, String district, String housingType) {
+
+    AvailabilityStreamFilter {
+        city = normalize(city);
+        district = normalize(district);
+        housingType = normalize(housingType);
+    }
+
+    boolean matches(AvailabilityStreamEvent event) {
+        return contains(event.city(), city)
+                && contains(event.district(), district)
+                && contains(event.housingType(), housingType);
+    }
+
+    private static boolean contains(String value, String filter) {
+        return filter == null || (value != null && value.contains(filter));
+    }
+
+    private static String normalize(String value) {
+        return value == null || value.isBlank() ? null : AvailabilityStreamEvent.lowerCase(value.trim());
+    }
+}
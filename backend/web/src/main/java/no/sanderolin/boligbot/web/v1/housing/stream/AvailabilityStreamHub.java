@@ -0,0 +1,216 @@
+package no.sanderolin.boligbot.web.v1.housing.stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import no.sanderolin.boligbot.dao.event.HousingAvailabilityChangedEvent;
+import no.sanderolin.boligbot.dao.model.HousingModel;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import no.sanderolin.boligbot.service.housing.HousingService;
+import no.sanderolin.boligbot.web.v1.housing.mapper.HousingModelToDTOMapper;
+import no.sanderolin.boligbot.web.v1.housing.response.HousingAvailabilityChangeDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Fans availability changes out to open SSE connections.
+ * <p>
+ * Connections are held with servlet async, so an idle subscriber costs no thread. Each change is
+ * serialized once into a frame that every matching subscriber writes as-is, on a virtual thread.
+ * The last {@code boligbot.stream.buffer-size} frames are kept for {@code Last-Event-ID} resume.
+ * A client whose id can no longer be resumed, for example after a restart, gets a {@code reset}
+ * event and should reload the listing.
+ */
+@Slf4j
+@Component
+@ConditionalOnNodeRole(NodeRole.API)
+public class AvailabilityStreamHub {
+
+    private static final byte[] HEARTBEAT = ": heartbeat\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RESET = "event: reset\ndata: {}\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RETRY = "retry: 5000\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final HousingService housingService;
+    private final ObjectMapper objectMapper;
+    private final int maxPendingFrames;
+
+    private final String streamEpoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AvailabilityEventRingBuffer buffer;
+    private final Set<AvailabilityStreamSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService writer = Executors.newVirtualThreadPerTaskExecutor();
+    private final Object lock = new Object();
+
+    public AvailabilityStreamHub(HousingService housingService,
+                                 ObjectMapper objectMapper,
+                                 @Value("${boligbot.stream.buffer-size:1024}") int bufferSize,
+                                 @Value("${boligbot.stream.max-pending-frames:256}") int maxPendingFrames) {
+        this.housingService = housingService;
+        this.objectMapper = objectMapper;
+        this.maxPendingFrames = maxPendingFrames;
+        this.buffer = new AvailabilityEventRingBuffer(bufferSize);
+    }
+
+    public void subscribe(HttpServletRequest request,
+                          HttpServletResponse response,
+                          String city,
+                          String district,
+                          String housingType,
+                          String lastEventId) {
+        response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        response.setHeader("X-Accel-Buffering", "no");
+
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(0);
+        AvailabilityStreamSubscriber subscriber = new AvailabilityStreamSubscriber(
+                asyncContext,
+                new AvailabilityStreamFilter(city, district, housingType),
+                writer,
+                maxPendingFrames,
+                subscribers::remove
+        );
+        asyncContext.addListener(new ClosingListener(subscriber));
+
+        synchronized (lock) {
+            subscriber.send(RETRY);
+            if (lastEventId != null && !lastEventId.isBlank()) {
+                List<AvailabilityStreamEvent> missed = resumeFrom(lastEventId.trim());
+                if (missed == null) {
+                    subscriber.send(RESET);
+                } else {
+                    missed.stream()
+                            .filter(subscriber.filter()::matches)
+                            .forEach(event -> subscriber.send(event.frame()));
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        subscriber.start();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAvailabilityChanged(HousingAvailabilityChangedEvent event) {
+        Map<String, Boolean> changes = new LinkedHashMap<>();
+        event.becameAvailable().forEach(id -> changes.put(id, true));
+        event.becameUnavailable().forEach(id -> changes.put(id, false));
+
+        Map<String, HousingModel> housingsById = housingService.getHousingsWithDetailsByRentalObjectIds(changes.keySet())
+                .stream()
+                .collect(Collectors.toMap(HousingModel::getRentalObjectId, Function.identity()));
+
+        List<PendingEvent> pending = new ArrayList<>(changes.size());
+        changes.forEach((id, available) -> {
+            HousingModel housing = housingsById.get(id);
+            if (housing == null) return;
+            pending.add(new PendingEvent(housing, serialize(new HousingAvailabilityChangeDTO(
+                    id, available, HousingModelToDTOMapper.toDTO(housing)))));
+        });
+
+        synchronized (lock) {
+            for (PendingEvent change : pending) {
+                long sequence = buffer.nextSequence();
+                AvailabilityStreamEvent streamEvent = new AvailabilityStreamEvent(
+                        sequence,
+                        change.housing().getCity().getName(),
+                        change.housing().getDistrict().getName(),
+                        change.housing().getHousingType().getName(),
+                        frame(sequence, change.json())
+                );
+                buffer.add(streamEvent);
+                for (AvailabilityStreamSubscriber subscriber : subscribers) {
+                    if (subscriber.filter().matches(streamEvent)) subscriber.send(streamEvent.frame());
+                }
+            }
+        }
+        log.debug("Streamed {} availability changes to {} subscribers", pending.size(), subscribers.size());
+    }
+
+    @Scheduled(
+            initialDelayString = "${boligbot.stream.heartbeat-interval-ms:15000}",
+            fixedDelayString = "${boligbot.stream.heartbeat-interval-ms:15000}"
+    )
+    public void sendHeartbeats() {
+        subscribers.forEach(subscriber -> subscriber.send(HEARTBEAT));
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        List.copyOf(subscribers).forEach(AvailabilityStreamSubscriber::close);
+        writer.shutdown();
+    }
+
+    private List<AvailabilityStreamEvent> resumeFrom(String lastEventId) {
+        int separator = lastEventId.lastIndexOf('-');
+        if (separator < 0 || !lastEventId.substring(0, separator).equals(streamEpoch)) return null;
+        try {
+            return buffer.since(Long.parseLong(lastEventId.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private byte[] frame(long sequence, byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length + 48);
+        out.writeBytes(("id: " + streamEpoch + "-" + sequence + "\ndata: ").getBytes(StandardCharsets.UTF_8));
+        out.writeBytes(json);
+        out.writeBytes("\n\n".getBytes(StandardCharsets.UTF_8));
+        return out.toByteArray();
+    }
+
+    private byte[] serialize(HousingAvailabilityChangeDTO change) {
+        try {
+            return objectMapper.writeValueAsBytes(change);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize availability change for " + change.rentalObjectId(), e);
+        }
+    }
+
+    private record PendingEvent(HousingModel housing, byte[] json) { }
+
+    private record ClosingListener(AvailabilityStreamSubscriber subscriber) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            subscriber.close();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            subscriber.close();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            subscriber.close();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
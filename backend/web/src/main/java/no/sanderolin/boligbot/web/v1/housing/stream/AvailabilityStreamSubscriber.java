@@ -0,0 +1,94 @@
+package no.sanderolin.boligbot.web.v1.housing.stream;
+
+import jakarta.servlet.AsyncContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * One open SSE connection. Frames are queued without blocking the publisher and written in order by
+ * at most one task at a time, so a slow client only ties up its own (virtual) thread. A client that
+ * falls more than {@code maxPending} frames behind is disconnected and can resume with {@code Last-Event-ID}.
+ * <p>
+ * Frames sent before {@link #start()} are only queued. {@code start()} writes them on the request thread, so the
+ * response is committed before the container finishes the request and no other thread touches its headers.
+ */
+@Slf4j
+final class AvailabilityStreamSubscriber {
+
+    private final AsyncContext asyncContext;
+    private final AvailabilityStreamFilter filter;
+    private final Executor writer;
+    private final int maxPending;
+    private final Consumer<AvailabilityStreamSubscriber> onClose;
+
+    private final Queue<byte[]> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean(true);
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    AvailabilityStreamSubscriber(AsyncContext asyncContext, AvailabilityStreamFilter filter, Executor writer,
+                                 int maxPending, Consumer<AvailabilityStreamSubscriber> onClose) {
+        this.asyncContext = asyncContext;
+        this.filter = filter;
+        this.writer = writer;
+        this.maxPending = maxPending;
+        this.onClose = onClose;
+    }
+
+    AvailabilityStreamFilter filter() {
+        return filter;
+    }
+
+    void start() {
+        drain();
+    }
+
+    void send(byte[] frame) {
+        if (closed.get()) return;
+        if (pendingCount.incrementAndGet() > maxPending) {
+            log.debug("Closing availability stream subscriber that fell {} frames behind", maxPending);
+            close();
+            return;
+        }
+        pending.add(frame);
+        if (draining.compareAndSet(false, true)) {
+            writer.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            do {
+                OutputStream out = asyncContext.getResponse().getOutputStream();
+                byte[] frame;
+                while ((frame = pending.poll()) != null) {
+                    pendingCount.decrementAndGet();
+                    out.write(frame);
+                }
+                out.flush();
+                draining.set(false);
+            } while (!pending.isEmpty() && draining.compareAndSet(false, true));
+        } catch (IOException | RuntimeException e) {
+            close();
+        }
+    }
+
+    void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        onClose.accept(this);
+        pending.clear();
+        try {
+            asyncContext.complete();
+        } catch (IllegalStateException ignored) {
+            // Already completed by the container after a timeout or client disconnect.
+        }
+    }
+}
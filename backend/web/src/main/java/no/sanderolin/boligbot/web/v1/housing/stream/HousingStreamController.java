@@ -0,0 +1,51 @@
+package no.sanderolin.boligbot.web.v1.housing.stream;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@ConditionalOnNodeRole(NodeRole.API)
+@RequestMapping("/api/v1/housings")
+@RequiredArgsConstructor
+public class HousingStreamController {
+
+    private final AvailabilityStreamHub streamHub;
+
+    @Operation(
+            summary = "Stream availability changes",
+            description = """
+                    Server-Sent Events stream with one event per housing that became available or unavailable
+                    in an availability import. The data is a JSON object with rentalObjectId, isAvailable and the housing.
+                    Filters match like the housing search. A heartbeat comment is sent every 15 seconds.
+                    Reconnect with Last-Event-ID to receive missed events; if they are no longer buffered,
+                    a "reset" event is sent and the client should reload the listing.
+                    """,
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Event stream"
+                    )
+            }
+    )
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public void streamAvailabilityChanges(
+            @Parameter(description = "City name filter", example = "Trondheim")
+            @RequestParam(name = "city", required = false) String city,
+            @Parameter(description = "District name filter", example = "Moholt")
+            @RequestParam(name = "district", required = false) String district,
+            @Parameter(description = "Housing type filter", example = "1-room apartment")
+            @RequestParam(name = "housingType", required = false) String housingType,
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+        streamHub.subscribe(request, response, city, district, housingType, lastEventId);
+    }
+}
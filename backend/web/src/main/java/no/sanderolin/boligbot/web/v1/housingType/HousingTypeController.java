@@ -3,7 +3,13 @@ package no.sanderolin.boligbot.web.v1.housingType;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import no.sanderolin.boligbot.service.analytics.TimeOnMarketService;
 import no.sanderolin.boligbot.service.housingType.HousingTypeService;
+import no.sanderolin.boligbot.web.v1.common.mapper.TimeOnMarketStatToDTOMapper;
+import no.sanderolin.boligbot.web.v1.common.media.ApiMediaTypes;
+import no.sanderolin.boligbot.web.v1.common.response.TimeOnMarketDTO;
 import no.sanderolin.boligbot.web.v1.housingType.mapper.HousingTypeModelToDTOMapper;
 import no.sanderolin.boligbot.web.v1.housingType.response.HousingTypeDTO;
 import org.springframework.http.ResponseEntity;
@@ -14,11 +20,13 @@ import org.springframework.web.bind.annotation.RestController;
 import java.util.List;
 
 @RestController
+@ConditionalOnNodeRole(NodeRole.API)
 @RequestMapping("/api/v1/housing-types")
 @RequiredArgsConstructor
 public class HousingTypeController {
 
     private final HousingTypeService housingTypeService;
+    private final TimeOnMarketService timeOnMarketService;
 
     @Operation(
             summary = "Get all housing types",
@@ -30,7 +38,7 @@ public class HousingTypeController {
                     )
             }
     )
-    @GetMapping
+    @GetMapping(produces = {ApiMediaTypes.JSON, ApiMediaTypes.CBOR, ApiMediaTypes.SMILE})
     public ResponseEntity<List<HousingTypeDTO>> getAllHousingTypes() {
         return ResponseEntity.ok(
                 housingTypeService.getAllHousingTypes()
@@ -39,4 +47,28 @@ public class HousingTypeController {
                         .toList()
         );
     }
+
+    @Operation(
+            summary = "Get median time on market per housing type",
+            description = """
+                    Median number of days housings stayed available before becoming unavailable,
+                    over every rental recorded by the availability import. Stays of 365 days or more count as 365.
+                    """,
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            useReturnTypeSchema = true
+                    )
+            }
+    )
+    @GetMapping(value = "/time-on-market", produces = {ApiMediaTypes.JSON, ApiMediaTypes.CBOR, ApiMediaTypes.SMILE})
+    public ResponseEntity<List<TimeOnMarketDTO>> getTimeOnMarketByHousingType() {
+        return ResponseEntity.ok(
+                timeOnMarketService.getByHousingType()
+                        .stream()
+                        .map(TimeOnMarketStatToDTOMapper::toDTO)
+                        .toList()
+        );
+    }
 }
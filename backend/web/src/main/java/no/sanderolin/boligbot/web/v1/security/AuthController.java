@@ -2,6 +2,8 @@ package no.sanderolin.boligbot.web.v1.security;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
 import no.sanderolin.boligbot.web.v1.security.service.AuthService;
 import no.sanderolin.boligbot.web.v1.security.exception.EmailAlreadyExistsException;
 import no.sanderolin.boligbot.web.v1.security.request.LoginRequestDTO;
@@ -13,6 +15,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
+@ConditionalOnNodeRole(NodeRole.API)
 @RequestMapping("/api/v1/auth")
 @RequiredArgsConstructor
 public class AuthController {
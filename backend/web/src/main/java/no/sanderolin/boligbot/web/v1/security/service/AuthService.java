@@ -27,7 +27,7 @@ public class AuthService {
 
     @Transactional
     public void signup(SignupRequestDTO dto) {
-        if (userRepository.existsByEmail(dto.getEmail())) {
+        if (userRepository.existsByEmailIgnoreCase(dto.getEmail())) {
             throw new EmailAlreadyExistsException("Email address already in use");
         }
         Instant now = Instant.now();
@@ -0,0 +1,162 @@
+package no.sanderolin.boligbot.web.v1.subscription;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import no.sanderolin.boligbot.service.subscription.SubscriptionService;
+import no.sanderolin.boligbot.web.v1.common.exception.BadRequestException;
+import no.sanderolin.boligbot.web.v1.common.exception.NotFoundException;
+import no.sanderolin.boligbot.web.v1.subscription.mapper.SubscriptionDeltaToDTOMapper;
+import no.sanderolin.boligbot.web.v1.subscription.mapper.SubscriptionModelToDTOMapper;
+import no.sanderolin.boligbot.web.v1.subscription.mapper.SubscriptionRequestToCriteriaMapper;
+import no.sanderolin.boligbot.web.v1.subscription.request.SubscriptionRequest;
+import no.sanderolin.boligbot.web.v1.subscription.response.SubscriptionDTO;
+import no.sanderolin.boligbot.web.v1.subscription.response.SubscriptionDeltaDTO;
+import org.hibernate.ObjectNotFoundException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@ConditionalOnNodeRole(NodeRole.API)
+@RequestMapping("/api/v1/subscriptions")
+@RequiredArgsConstructor
+public class SubscriptionController {
+
+    private static final int MAX_NEW_LIMIT = 500;
+
+    private final SubscriptionService subscriptionService;
+
+    @Operation(
+            summary = "Get the saved searches of the current user",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            useReturnTypeSchema = true
+                    )
+            }
+    )
+    @GetMapping
+    public ResponseEntity<List<SubscriptionDTO>> getSubscriptions(@AuthenticationPrincipal UserDetails user) {
+        try {
+            return ResponseEntity.ok(
+                    subscriptionService.getSubscriptions(user.getUsername())
+                            .stream()
+                            .map(SubscriptionModelToDTOMapper::toDTO)
+                            .toList()
+            );
+        } catch (ObjectNotFoundException e) {
+            throw new NotFoundException(e.getMessage());
+        }
+    }
+
+    @Operation(
+            summary = "Save a search",
+            description = """
+                    Saves a search for the current user. The user is notified when a housing matching
+                    every given filter becomes available. Omitted filters match any value.
+                    """,
+            responses = {
+                    @ApiResponse(
+                            responseCode = "201",
+                            description = "Subscription created",
+                            useReturnTypeSchema = true
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid filters, or the user has too many subscriptions"
+                    )
+            }
+    )
+    @PostMapping
+    public ResponseEntity<SubscriptionDTO> createSubscription(
+            @AuthenticationPrincipal UserDetails user,
+            @Valid @RequestBody SubscriptionRequest request) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(SubscriptionModelToDTOMapper.toDTO(
+                    subscriptionService.createSubscription(user.getUsername(), SubscriptionRequestToCriteriaMapper.toCriteria(request))));
+        } catch (IllegalStateException e) {
+            throw new BadRequestException(e.getMessage());
+        } catch (ObjectNotFoundException e) {
+            throw new NotFoundException(e.getMessage());
+        }
+    }
+
+    @Operation(
+            summary = "Get housings new since the last visit",
+            description = """
+                    Returns the housings matching the saved search that were added, changed or became available or
+                    unavailable since the previous call (or since the search was saved), oldest change first.
+                    At most `limit` housings are returned; `hasMore` is set when more changes remain, and the next
+                    call continues after the last housing returned. The last-seen watermark then moves to the end
+                    of the returned housings, unless markSeen is false.
+                    """,
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            useReturnTypeSchema = true
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid limit"
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "The current user has no subscription with the given ID."
+                    )
+            }
+    )
+    @GetMapping("/{id}/new")
+    public ResponseEntity<SubscriptionDeltaDTO> getNewSinceLastVisit(
+            @AuthenticationPrincipal UserDetails user,
+            @PathVariable(name = "id") long id,
+            @Parameter(description = "Set to false to look without moving the last-seen watermark")
+            @RequestParam(name = "markSeen", defaultValue = "true") boolean markSeen,
+            @Parameter(description = "Maximum number of housings to return (1-" + MAX_NEW_LIMIT + ")")
+            @RequestParam(name = "limit", defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_NEW_LIMIT) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_NEW_LIMIT);
+        }
+        try {
+            return ResponseEntity.ok(SubscriptionDeltaToDTOMapper.toDTO(
+                    subscriptionService.getNewSinceLastVisit(user.getUsername(), id, markSeen, limit)));
+        } catch (ObjectNotFoundException e) {
+            throw new NotFoundException(e.getMessage());
+        }
+    }
+
+    @Operation(
+            summary = "Delete a saved search",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "204",
+                            description = "Subscription deleted"
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "The current user has no subscription with the given ID."
+                    )
+            }
+    )
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteSubscription(
+            @AuthenticationPrincipal UserDetails user,
+            @PathVariable(name = "id") long id) {
+        try {
+            subscriptionService.deleteSubscription(user.getUsername(), id);
+            return ResponseEntity.noContent().build();
+        } catch (ObjectNotFoundException e) {
+            throw new NotFoundException(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package no.sanderolin.boligbot.web.v1.subscription.mapper;
+
+import no.sanderolin.boligbot.service.subscription.SubscriptionDelta;
+import no.sanderolin.boligbot.web.v1.housing.mapper.HousingModelToDTOMapper;
+import no.sanderolin.boligbot.web.v1.subscription.response.SubscriptionDeltaDTO;
+
+public class SubscriptionDeltaToDTOMapper {
+
+    public static SubscriptionDeltaDTO toDTO(SubscriptionDelta delta) {
+        return new SubscriptionDeltaDTO(
+                delta.since(),
+                delta.until(),
+                delta.housings().stream().map(HousingModelToDTOMapper::toDTO).toList(),
+                delta.hasMore()
+        );
+    }
+}
@@ -0,0 +1,25 @@
+package no.sanderolin.boligbot.web.v1.subscription.mapper;
+
+import no.sanderolin.boligbot.dao.model.SubscriptionModel;
+import no.sanderolin.boligbot.web.v1.subscription.response.SubscriptionDTO;
+
+import java.util.Locale;
+
+public class SubscriptionModelToDTOMapper {
+
+    public static SubscriptionDTO toDTO(SubscriptionModel subscription) {
+        return new SubscriptionDTO(
+                subscription.getId(),
+                subscription.getName(),
+                subscription.getHousingType(),
+                subscription.getCity(),
+                subscription.getDistrict(),
+                subscription.getMinPricePerMonth(),
+                subscription.getMaxPricePerMonth(),
+                subscription.getMinAreaSqm(),
+                subscription.getMaxAreaSqm(),
+                subscription.getFrequency().name().toLowerCase(Locale.ROOT),
+                subscription.getCreatedAt()
+        );
+    }
+}
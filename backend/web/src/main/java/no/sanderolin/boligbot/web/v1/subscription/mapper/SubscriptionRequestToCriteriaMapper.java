@@ -0,0 +1,57 @@
+package no.sanderolin.boligbot.web.v1.subscription.mapper;
+
+import no.sanderolin.boligbot.dao.model.NotificationFrequency;
+import no.sanderolin.boligbot.service.subscription.SubscriptionCriteria;
+import no.sanderolin.boligbot.web.v1.common.exception.BadRequestException;
+import no.sanderolin.boligbot.web.v1.subscription.request.SubscriptionRequest;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Converts a SubscriptionRequest to a SubscriptionCriteria.
+ * Also performs validation of the ranges and the frequency.
+ */
+public class SubscriptionRequestToCriteriaMapper {
+
+    public static SubscriptionCriteria toCriteria(SubscriptionRequest request) throws BadRequestException {
+        if (request.minPricePerMonth() != null && request.maxPricePerMonth() != null
+                && request.minPricePerMonth() > request.maxPricePerMonth()) {
+            throw new BadRequestException("minPricePerMonth cannot be greater than maxPricePerMonth");
+        }
+        if (request.minAreaSqm() != null && request.maxAreaSqm() != null
+                && request.minAreaSqm().compareTo(request.maxAreaSqm()) > 0) {
+            throw new BadRequestException("minAreaSqm cannot be greater than maxAreaSqm");
+        }
+
+        return new SubscriptionCriteria(
+                request.name().trim(),
+                trimToNull(request.city()),
+                trimToNull(request.district()),
+                trimToNull(request.housingType()),
+                request.minPricePerMonth(),
+                request.maxPricePerMonth(),
+                request.minAreaSqm(),
+                request.maxAreaSqm(),
+                toFrequency(request.frequency())
+        );
+    }
+
+    private static NotificationFrequency toFrequency(String frequency) throws BadRequestException {
+        String value = trimToNull(frequency);
+        if (value == null) return NotificationFrequency.IMMEDIATE;
+        try {
+            return NotificationFrequency.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid frequency: " + value + ". Allowed: " + Arrays.stream(NotificationFrequency.values())
+                    .map(f -> f.name().toLowerCase(Locale.ROOT))
+                    .toList());
+        }
+    }
+
+    private static String trimToNull(String s) {
+        if (s == null) return null;
+        String t = s.trim();
+        return t.isEmpty() ? null : t;
+    }
+}
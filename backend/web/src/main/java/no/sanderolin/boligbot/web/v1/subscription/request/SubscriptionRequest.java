@@ -0,0 +1,48 @@
+package no.sanderolin.boligbot.web.v1.subscription.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+import java.math.BigDecimal;
+
+public record SubscriptionRequest(
+
+        @Schema(description = "Name of the saved search.",
+                example = "Cheap studios at Moholt")
+        @NotBlank @Size(max = 100) String name,
+
+        @Schema(description = "Type of housing. Matches the full name, ignoring case.",
+                example = "1-room apartment")
+        String housingType,
+
+        @Schema(description = "City name. Matches the full name, ignoring case.",
+                example = "Trondheim")
+        String city,
+
+        @Schema(description = "District name. Matches the full name, ignoring case.",
+                example = "Moholt")
+        String district,
+
+        @Schema(description = "Minimum monthly rent (inclusive).",
+                example = "5000")
+        @Positive Integer minPricePerMonth,
+
+        @Schema(description = "Maximum monthly rent (inclusive).",
+                example = "9000")
+        @Positive Integer maxPricePerMonth,
+
+        @Schema(description = "Minimum living area in square meters (inclusive).",
+                example = "15.0")
+        @DecimalMin("0.0") BigDecimal minAreaSqm,
+
+        @Schema(description = "Maximum living area in square meters (inclusive).",
+                example = "40.0")
+        @DecimalMin("0.0") BigDecimal maxAreaSqm,
+
+        @Schema(description = "How often to notify: immediate (default), hourly or daily. Hourly and daily send one digest per period.",
+                example = "daily")
+        String frequency
+) { }
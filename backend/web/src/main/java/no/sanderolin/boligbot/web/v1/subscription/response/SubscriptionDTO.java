@@ -0,0 +1,18 @@
+package no.sanderolin.boligbot.web.v1.subscription.response;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public record SubscriptionDTO(
+        Long id,
+        String name,
+        String housingType,
+        String city,
+        String district,
+        Integer minPricePerMonth,
+        Integer maxPricePerMonth,
+        BigDecimal minAreaSqm,
+        BigDecimal maxAreaSqm,
+        String frequency,
+        Instant createdAt
+) { }
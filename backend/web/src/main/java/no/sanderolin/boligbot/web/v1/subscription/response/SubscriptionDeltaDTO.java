@@ -0,0 +1,13 @@
+package no.sanderolin.boligbot.web.v1.subscription.response;
+
+import no.sanderolin.boligbot.web.v1.housing.response.HousingDTO;
+
+import java.time.Instant;
+import java.util.List;
+
+public record SubscriptionDeltaDTO(
+        Instant since,
+        Instant until,
+        List<HousingDTO> housings,
+        boolean hasMore
+) { }
@@ -0,0 +1,110 @@
+package no.sanderolin.boligbot.web.v1.watchlist;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import no.sanderolin.boligbot.service.watchlist.WatchlistService;
+import no.sanderolin.boligbot.web.v1.common.exception.BadRequestException;
+import no.sanderolin.boligbot.web.v1.common.exception.NotFoundException;
+import no.sanderolin.boligbot.web.v1.housing.mapper.HousingModelToDTOMapper;
+import no.sanderolin.boligbot.web.v1.housing.response.HousingDTO;
+import org.hibernate.ObjectNotFoundException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@ConditionalOnNodeRole(NodeRole.API)
+@RequestMapping("/api/v1/watchlist")
+@RequiredArgsConstructor
+public class WatchlistController {
+
+    private final WatchlistService watchlistService;
+
+    @Operation(
+            summary = "Get the watchlist of the current user",
+            description = "Returns the watched housings in the order they were added.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            useReturnTypeSchema = true
+                    )
+            }
+    )
+    @GetMapping
+    public ResponseEntity<List<HousingDTO>> getWatchlist(@AuthenticationPrincipal UserDetails user) {
+        try {
+            return ResponseEntity.ok(
+                    watchlistService.getWatchlist(user.getUsername())
+                            .stream()
+                            .map(HousingModelToDTOMapper::toDTO)
+                            .toList()
+            );
+        } catch (ObjectNotFoundException e) {
+            throw new NotFoundException(e.getMessage());
+        }
+    }
+
+    @Operation(
+            summary = "Watch a housing",
+            description = "Adds the housing to the watchlist. Watching an already watched housing has no effect.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "204",
+                            description = "Housing is on the watchlist"
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "The user already watches too many housings"
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "No housing with the given rental object ID"
+                    )
+            }
+    )
+    @PutMapping("/{rentalObjectId}")
+    public ResponseEntity<Void> addToWatchlist(
+            @AuthenticationPrincipal UserDetails user,
+            @PathVariable(name = "rentalObjectId") String rentalObjectId) {
+        try {
+            watchlistService.addToWatchlist(user.getUsername(), rentalObjectId);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalStateException e) {
+            throw new BadRequestException(e.getMessage());
+        } catch (ObjectNotFoundException e) {
+            throw new NotFoundException(e.getMessage());
+        }
+    }
+
+    @Operation(
+            summary = "Stop watching a housing",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "204",
+                            description = "Housing removed from the watchlist"
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "The housing is not on the current user's watchlist."
+                    )
+            }
+    )
+    @DeleteMapping("/{rentalObjectId}")
+    public ResponseEntity<Void> removeFromWatchlist(
+            @AuthenticationPrincipal UserDetails user,
+            @PathVariable(name = "rentalObjectId") String rentalObjectId) {
+        try {
+            watchlistService.removeFromWatchlist(user.getUsername(), rentalObjectId);
+            return ResponseEntity.noContent().build();
+        } catch (ObjectNotFoundException e) {
+            throw new NotFoundException(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package no.sanderolin.boligbot.web.v1.webhook;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import no.sanderolin.boligbot.dao.role.ConditionalOnNodeRole;
+import no.sanderolin.boligbot.dao.role.NodeRole;
+import no.sanderolin.boligbot.service.webhook.WebhookService;
+import no.sanderolin.boligbot.web.v1.common.exception.BadRequestException;
+import no.sanderolin.boligbot.web.v1.common.exception.NotFoundException;
+import no.sanderolin.boligbot.web.v1.webhook.mapper.WebhookModelToDTOMapper;
+import no.sanderolin.boligbot.web.v1.webhook.mapper.WebhookRequestMapper;
+import no.sanderolin.boligbot.web.v1.webhook.request.WebhookRequest;
+import no.sanderolin.boligbot.web.v1.webhook.response.WebhookDTO;
+import org.hibernate.ObjectNotFoundException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@ConditionalOnNodeRole(NodeRole.API)
+@RequestMapping("/api/v1/webhooks")
+@RequiredArgsConstructor
+public class WebhookController {
+
+    private final WebhookService webhookService;
+
+    @Operation(
+            summary = "Get the webhooks of the current user",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Successful operation",
+                            useReturnTypeSchema = true
+                    )
+            }
+    )
+    @GetMapping
+    public ResponseEntity<List<WebhookDTO>> getWebhooks(@AuthenticationPrincipal UserDetails user) {
+        try {
+            return ResponseEntity.ok(
+                    webhookService.getWebhooks(user.getUsername())
+                            .stream()
+                            .map(WebhookModelToDTOMapper::toDTO)
+                            .toList()
+            );
+        } catch (ObjectNotFoundException e) {
+            throw new NotFoundException(e.getMessage());
+        }
+    }
+
+    @Operation(
+            summary = "Register a webhook",
+            description = """
+                    Registers a URL that receives a JSON POST for every subscribed housing change event.
+                    The URL's host must resolve to a public address.
+                    Requests carry an X-Boligbot-Signature header of the form t=<unix seconds>,v1=<hex>, where
+                    v1 is the HMAC-SHA256 of "<t>.<body>" keyed with the secret returned by this call.
+                    The secret is only returned once.
+                    """,
+            responses = {
+                    @ApiResponse(
+                            responseCode = "201",
+                            description = "Webhook created",
+                            useReturnTypeSchema = true
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid url or events, or the user has too many webhooks"
+                    )
+            }
+    )
+    @PostMapping
+    public ResponseEntity<WebhookDTO> createWebhook(
+            @AuthenticationPrincipal UserDetails user,
+            @Valid @RequestBody WebhookRequest request) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(WebhookModelToDTOMapper.toCreatedDTO(
+                    webhookService.createWebhook(
+                            user.getUsername(),
+                            WebhookRequestMapper.toUrl(request.url()),
+                            WebhookRequestMapper.toEvents(request.events()))));
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        } catch (ObjectNotFoundException e) {
+            throw new NotFoundException(e.getMessage());
+        }
+    }
+
+    @Operation(
+            summary = "Delete a webhook",
+            description = "Deletes the webhook and drops its pending deliveries.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "204",
+                            description = "Webhook deleted"
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "The current user has no webhook with the given ID."
+                    )
+            }
+    )
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteWebhook(
+            @AuthenticationPrincipal UserDetails user,
+            @PathVariable(name = "id") long id) {
+        try {
+            webhookService.deleteWebhook(user.getUsername(), id);
+            return ResponseEntity.noContent().build();
+        } catch (ObjectNotFoundException e) {
+            throw new NotFoundException(e.getMessage());
+        }
+    }
+}
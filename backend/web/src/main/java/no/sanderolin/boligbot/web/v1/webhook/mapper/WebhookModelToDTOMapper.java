@@ -0,0 +1,32 @@
+package no.sanderolin.boligbot.web.v1.webhook.mapper;
+
+import no.sanderolin.boligbot.dao.model.WebhookModel;
+import no.sanderolin.boligbot.service.webhook.WebhookEventType;
+import no.sanderolin.boligbot.web.v1.webhook.response.WebhookDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class WebhookModelToDTOMapper {
+
+    public static WebhookDTO toDTO(WebhookModel webhook) {
+        return toDTO(webhook, null);
+    }
+
+    public static WebhookDTO toCreatedDTO(WebhookModel webhook) {
+        return toDTO(webhook, webhook.getSecret());
+    }
+
+    private static WebhookDTO toDTO(WebhookModel webhook, String secret) {
+        List<String> events = new ArrayList<>(2);
+        if (webhook.isAvailabilityEvents()) events.add(WebhookEventType.AVAILABILITY_CHANGED.eventName());
+        if (webhook.isPriceEvents()) events.add(WebhookEventType.PRICE_CHANGED.eventName());
+        return new WebhookDTO(
+                webhook.getId(),
+                webhook.getUrl(),
+                events,
+                secret,
+                webhook.getCreatedAt()
+        );
+    }
+}
@@ -0,0 +1,40 @@
+package no.sanderolin.boligbot.web.v1.webhook.mapper;
+
+import no.sanderolin.boligbot.service.webhook.WebhookEventType;
+import no.sanderolin.boligbot.web.v1.common.exception.BadRequestException;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Validates and converts the fields of a WebhookRequest.
+ */
+public class WebhookRequestMapper {
+
+    public static URI toUrl(String url) throws BadRequestException {
+        URI uri;
+        try {
+            uri = new URI(url.trim());
+        } catch (URISyntaxException e) {
+            throw new BadRequestException("Invalid url: " + url);
+        }
+        String scheme = uri.getScheme();
+        if (scheme == null || !(scheme.equalsIgnoreCase("http") || scheme.equalsIgnoreCase("https")) || uri.getHost() == null) {
+            throw new BadRequestException("Invalid url: " + url + ". Must be an absolute http or https URL");
+        }
+        return uri;
+    }
+
+    public static Set<WebhookEventType> toEvents(List<String> events) throws BadRequestException {
+        Set<WebhookEventType> types = EnumSet.noneOf(WebhookEventType.class);
+        for (String event : events) {
+            String name = event == null ? "" : event.trim();
+            types.add(WebhookEventType.fromEventName(name).orElseThrow(() -> new BadRequestException(
+                    "Invalid event: " + name + ". Allowed: " + WebhookEventType.allowedEventNames())));
+        }
+        return types;
+    }
+}
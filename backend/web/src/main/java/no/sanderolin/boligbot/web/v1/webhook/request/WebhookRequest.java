@@ -0,0 +1,19 @@
+package no.sanderolin.boligbot.web.v1.webhook.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record WebhookRequest(
+
+        @Schema(description = "HTTP(S) URL that receives a signed POST for every subscribed event.",
+                example = "https://example.com/hooks/boligbot")
+        @NotBlank @Size(max = 2048) String url,
+
+        @Schema(description = "Events to deliver.",
+                example = "[\"housing.availability_changed\", \"housing.price_changed\"]")
+        @NotEmpty List<String> events
+) { }
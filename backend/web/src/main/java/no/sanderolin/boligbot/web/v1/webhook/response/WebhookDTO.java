@@ -0,0 +1,16 @@
+package no.sanderolin.boligbot.web.v1.webhook.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+import java.util.List;
+
+public record WebhookDTO(
+        Long id,
+        String url,
+        List<String> events,
+        @Schema(description = "Signing secret. Only returned when the webhook is created.")
+        @JsonInclude(JsonInclude.Include.NON_NULL) String secret,
+        Instant createdAt
+) { }